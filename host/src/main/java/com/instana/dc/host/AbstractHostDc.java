@@ -5,13 +5,19 @@
 package com.instana.dc.host;
 
 import com.instana.dc.AbstractDc;
+import com.instana.dc.DcUtil;
 import com.instana.dc.IDc;
+import com.instana.dc.MetricFilter;
+import com.instana.dc.RawMetric;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
 import io.opentelemetry.sdk.resources.Resource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -25,9 +31,13 @@ public abstract class AbstractHostDc extends AbstractDc implements IDc {
 
     private final String otelBackendUrl;
     private final boolean otelUsingHttp;
+    private final Object otelBackends;
     private final int pollInterval;
     private final int callbackInterval;
     private final String serviceName;
+    private final MetricFilter metricFilter;
+    private CollectionProfiler profiler;
+    private String profiledInstance;
     public final static String INSTRUMENTATION_SCOPE_PREFIX = "otelcol/hostmetricsreceiver/";
 
     public final static String DEFAULT_SERVICE_NAME = "otel-host";
@@ -44,7 +54,9 @@ public abstract class AbstractHostDc extends AbstractDc implements IDc {
         callbackInterval = (Integer) properties.getOrDefault(CALLBACK_INTERVAL, DEFAULT_CALLBACK_INTERVAL);
         otelBackendUrl = (String) properties.get(OTEL_BACKEND_URL);
         otelUsingHttp = (Boolean) properties.getOrDefault(OTEL_BACKEND_USING_HTTP, Boolean.FALSE);
+        otelBackends = properties.get(OTEL_BACKENDS);
         serviceName = (String) properties.getOrDefault(OTEL_SERVICE_NAME, DEFAULT_SERVICE_NAME);
+        metricFilter = MetricFilter.fromConfig(properties.get(HostDcUtil.METRICS_INCLUDE), properties.get(HostDcUtil.METRICS_EXCLUDE));
     }
 
     public String getServiceName() {
@@ -55,10 +67,72 @@ public abstract class AbstractHostDc extends AbstractDc implements IDc {
         return pollInterval;
     }
 
+    public boolean isMetricEnabled(String metricName) {
+        return metricFilter.isEnabled(metricName);
+    }
+
+    /**
+     * @return : true if one of the metrics set by a query is enabled, the query is skipped otherwise
+     */
+    public boolean isAnyMetricEnabled(String... metricNames) {
+        return metricFilter.isAnyEnabled(Arrays.asList(metricNames));
+    }
+
+    /**
+     * Run one query of the collection if one of the metrics it sets is enabled, measured while profiling
+     *
+     * @param name        : name of the query in the profile
+     * @param metricNames : metrics set by the query
+     */
+    protected void runQuery(String name, CollectionProfiler.Action query, String... metricNames) throws Exception {
+        if (!isAnyMetricEnabled(metricNames)) {
+            return;
+        }
+        if (profiler == null) {
+            query.run();
+            return;
+        }
+        //A failed query is recorded in the profile and the next ones still run
+        profiler.measure(profiledInstance, name, pollInterval, getRawMetricsMap(), Arrays.asList(metricNames), query);
+    }
+
+    /**
+     * Dry run: collect once with each query measured by the profiler, nothing is exported
+     *
+     * @param instance : name of the instance in the profile
+     */
+    public void profile(CollectionProfiler profiler, String instance) {
+        this.profiler = profiler;
+        this.profiledInstance = instance;
+        try {
+            collectData();
+        } finally {
+            this.profiler = null;
+        }
+    }
+
+    /**
+     * Register the instruments of the metrics enabled by `metrics.include`/`metrics.exclude` only
+     */
+    @Override
+    public void registerMetrics() {
+        List<String> disabled = new ArrayList<>();
+        for (RawMetric rawMetric : getRawMetricsMap().values()) {
+            if (metricFilter.isEnabled(rawMetric.getName())) {
+                DcUtil.registerMetric(getMeters(), rawMetric);
+            } else {
+                disabled.add(rawMetric.getName());
+            }
+        }
+        if (!disabled.isEmpty()) {
+            logger.info("Metrics disabled by metrics.include/metrics.exclude: " + disabled);
+        }
+    }
+
     @Override
     public void initDC() throws Exception {
         Resource resource = getResourceAttributes();
-        SdkMeterProvider sdkMeterProvider = this.getDefaultSdkMeterProvider(resource, otelBackendUrl, callbackInterval, otelUsingHttp, 10);
+        SdkMeterProvider sdkMeterProvider = this.getSdkMeterProvider(resource, otelBackends, otelBackendUrl, callbackInterval, otelUsingHttp, 10);
         OpenTelemetry openTelemetry = OpenTelemetrySdk.builder().setMeterProvider(sdkMeterProvider).build();
         initMeters(openTelemetry);
         registerMetrics();
@@ -85,8 +159,16 @@ public abstract class AbstractHostDc extends AbstractDc implements IDc {
         initMeter(openTelemetry, HostDcUtil.MeterName.IBMQMGR);
      }
 
+    /**
+     * One collection: the metrics of the implementation, then the ones derived from them by expressions
+     */
+    protected void collectAndEvaluate() {
+        collectData();
+        evaluateExpressions();
+    }
+
     @Override
     public void start() {
-        exec.scheduleWithFixedDelay(this::collectData, 1, pollInterval, TimeUnit.SECONDS);
+        exec.scheduleWithFixedDelay(this::collectAndEvaluate, 1, pollInterval, TimeUnit.SECONDS);
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.host;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.instana.dc.RawMetric;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dry run of the collection: every query (SNMP walk, script) runs once and its cost is measured, nothing is exported.
+ * For each query: latency, data points set (rows), their approximate size (bytes), the heap allocated by the
+ * collector thread while running it and the same figures extrapolated to one hour at the poll interval.
+ */
+public class CollectionProfiler {
+
+    /**
+     * The measured work
+     */
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private final List<Measure> measures = new ArrayList<>();
+
+    /**
+     * Run the action once and record its cost. The data points of its metrics are cleared first, so the rows
+     * counted are the ones it set.
+     *
+     * @param intervalSeconds : interval the action runs at, for the hourly figures
+     * @param metricNames     : metrics set by the action
+     */
+    public Measure measure(String instance, String name, int intervalSeconds,
+                           Map<String, RawMetric> metrics, List<String> metricNames, Action action) {
+        for (String metricName : metricNames) {
+            RawMetric metric = metrics.get(metricName);
+            if (metric != null) {
+                metric.getDataPoints().clear();
+            }
+        }
+        String error = null;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+
+        long rows = 0;
+        long bytes = 0;
+        for (String metricName : metricNames) {
+            RawMetric metric = metrics.get(metricName);
+            if (metric == null) {
+                continue;
+            }
+            for (RawMetric.DataPoint dp : metric.getDataPoints().values()) {
+                rows++;
+                bytes += sizeOf(dp);
+            }
+        }
+        Measure measure = new Measure(instance, name, intervalSeconds, nanos / 1e6, rows, bytes,
+                allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore, error);
+        measures.add(measure);
+        return measure;
+    }
+
+    /**
+     * @return : 8 bytes for the value plus the characters of the attribute names and values
+     */
+    static long sizeOf(RawMetric.DataPoint dp) {
+        long size = 8;
+        Map<String, Object> attributes = dp.getAttributes();
+        if (attributes != null) {
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                size += attribute.getKey().length() + String.valueOf(attribute.getValue()).length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return : bytes allocated so far by the current thread, -1 if the JVM does not tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public List<Measure> getMeasures() {
+        return Collections.unmodifiableList(measures);
+    }
+
+    public void printTable(PrintStream out) {
+        String format = "%-24s %-24s %8s %10s %8s %10s %12s %10s %12s %14s  %s%n";
+        out.printf(format, "INSTANCE", "QUERY", "INTERVAL", "LATENCY_MS", "ROWS", "BYTES", "ALLOC_BYTES",
+                "RUNS/H", "MS/H", "ALLOC_BYTES/H", "ERROR");
+        double totalMillis = 0;
+        double totalAllocated = 0;
+        for (Measure m : measures) {
+            out.printf(format, m.getInstance(), m.getQuery(), m.getIntervalSeconds() + "s",
+                    String.format("%.1f", m.getLatencyMillis()), m.getRows(), m.getBytes(), m.getAllocatedBytes(),
+                    String.format("%.0f", m.getRunsPerHour()), String.format("%.0f", m.getMillisPerHour()),
+                    String.format("%.0f", m.getAllocatedBytesPerHour()), m.getError() == null ? "" : m.getError());
+            totalMillis += m.getMillisPerHour();
+            totalAllocated += Math.max(0, m.getAllocatedBytesPerHour());
+        }
+        out.printf("Estimated cost per hour: %.1f s of queries, %.1f MB allocated%n", totalMillis / 1000,
+                totalAllocated / (1024 * 1024));
+    }
+
+    public String toJson() throws JsonProcessingException {
+        return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(measures);
+    }
+
+    public static class Measure {
+        private final String instance;
+        private final String query;
+        private final int intervalSeconds;
+        private final double latencyMillis;
+        private final long rows;
+        private final long bytes;
+        private final long allocatedBytes;
+        private final String error;
+
+        Measure(String instance, String query, int intervalSeconds, double latencyMillis,
+                long rows, long bytes, long allocatedBytes, String error) {
+            this.instance = instance;
+            this.query = query;
+            this.intervalSeconds = intervalSeconds;
+            this.latencyMillis = latencyMillis;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.allocatedBytes = allocatedBytes;
+            this.error = error;
+        }
+
+        public String getInstance() {
+            return instance;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public int getIntervalSeconds() {
+            return intervalSeconds;
+        }
+
+        public double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return : approximate size of the data points set
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return : heap allocated while running, -1 if unknown
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public double getRunsPerHour() {
+            return intervalSeconds > 0 ? 3600.0 / intervalSeconds : 0;
+        }
+
+        public double getMillisPerHour() {
+            return latencyMillis * getRunsPerHour();
+        }
+
+        public double getAllocatedBytesPerHour() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes * getRunsPerHour();
+        }
+    }
+}
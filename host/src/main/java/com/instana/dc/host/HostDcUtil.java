@@ -23,6 +23,11 @@ public class HostDcUtil {
         public static final String IBMQMGR = "qmgr";
     }
 
+    /* Metrics to collect, `*` matches any characters:
+     */
+    public static final String METRICS_INCLUDE = "metrics.include";
+    public static final String METRICS_EXCLUDE = "metrics.exclude";
+
     /* Configurations for the MQ appliance Data Collector:
      */
     public static final String APPLIANCE_HOST = "appliance.host";
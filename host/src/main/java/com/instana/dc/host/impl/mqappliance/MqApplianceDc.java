@@ -5,6 +5,7 @@
 package com.instana.dc.host.impl.mqappliance;
 
 import com.instana.dc.host.AbstractHostDc;
+import com.instana.dc.host.CollectionProfiler;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.semconv.ResourceAttributes;
@@ -70,12 +71,21 @@ public class MqApplianceDc extends AbstractHostDc {
             process = processBuilder.start();
             bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
             addShutdownHook();
-            getExec().scheduleWithFixedDelay(this::collectData, 1, getPollInterval(), TimeUnit.SECONDS);
+            getExec().scheduleWithFixedDelay(this::collectAndEvaluate, 1, getPollInterval(), TimeUnit.SECONDS);
         } catch (IOException e) {
             logger.severe("Cannot start the data collector: " + e.getMessage());
         }
     }
 
+    /**
+     * The appliance streams its metrics through one long-lived expect session started by start(), there is no
+     * query of its own to run once
+     */
+    @Override
+    public void profile(CollectionProfiler profiler, String instance) {
+        logger.warning("Profiling is not supported for MQ appliances, " + instance + " skipped");
+    }
+
     public String getHostName() {
         return applianceHost;
     }
@@ -70,15 +70,22 @@ public class SimpHostDc extends AbstractHostDc {
     @Override
     public void collectData() {
         logger.info("Start to collect metrics");
-        getRawMetric(SYSTEM_CPU_TIME_NAME).setValue(SimpHostUtil.getCpuTimeResults());
-        getRawMetric(SYSTEM_MEMORY_USAGE_NAME).setValue(SimpHostUtil.getMemUsageResults());
+        try {
+            runQuery("cpu.time", () -> getRawMetric(SYSTEM_CPU_TIME_NAME).setValue(SimpHostUtil.getCpuTimeResults()),
+                    SYSTEM_CPU_TIME_NAME);
+            runQuery("memory.usage", () -> getRawMetric(SYSTEM_MEMORY_USAGE_NAME).setValue(SimpHostUtil.getMemUsageResults()),
+                    SYSTEM_MEMORY_USAGE_NAME);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Cannot record cpu time or memory usage", e);
+        }
 
-        List<Double> loads;
         try {
-            loads = SimpHostUtil.getLoadAvgInfo();
-            getRawMetric(SYSTEM_CPU_LOAD1_NAME).setValue(loads.get(0));
-            getRawMetric(SYSTEM_CPU_LOAD5_NAME).setValue(loads.get(1));
-            getRawMetric(SYSTEM_CPU_LOAD15_NAME).setValue(loads.get(2));
+            runQuery("load.average", () -> {
+                List<Double> loads = SimpHostUtil.getLoadAvgInfo();
+                getRawMetric(SYSTEM_CPU_LOAD1_NAME).setValue(loads.get(0));
+                getRawMetric(SYSTEM_CPU_LOAD5_NAME).setValue(loads.get(1));
+                getRawMetric(SYSTEM_CPU_LOAD15_NAME).setValue(loads.get(2));
+            }, SYSTEM_CPU_LOAD1_NAME, SYSTEM_CPU_LOAD5_NAME, SYSTEM_CPU_LOAD15_NAME);
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Cannot record loads", e);
         }
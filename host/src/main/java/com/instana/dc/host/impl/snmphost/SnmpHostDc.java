@@ -312,13 +312,17 @@ public class SnmpHostDc extends AbstractHostDc {
     public void collectData() {
         logger.info("Start to collect metrics");
         try {
-            queryScalarOids();
-            queryDiskIo();
-            queryFileSystemUsage();
-            queryNetworkDropped_Error();
-            queryNetworkIo_Packets();
-            queryTcpConnection();
-        } catch (IOException e) {
+            //Each query runs only if one of the metrics it sets is enabled
+            runQuery("scalars", this::queryScalarOids, SYSTEM_CPU_TIME_NAME, SYSTEM_MEMORY_USAGE_NAME,
+                    SYSTEM_CPU_LOAD1_NAME, SYSTEM_CPU_LOAD5_NAME, SYSTEM_CPU_LOAD15_NAME);
+            runQuery("disk.io", this::queryDiskIo, SYSTEM_DISK_IO_NAME);
+            runQuery("filesystem.usage", this::queryFileSystemUsage, SYSTEM_FILESYSTEM_USAGE_NAME);
+            runQuery("network.dropped.errors", this::queryNetworkDropped_Error,
+                    SYSTEM_NETWORK_DROPPED_NAME, SYSTEM_NETWORK_ERRORS_NAME);
+            runQuery("network.io.packets", this::queryNetworkIo_Packets,
+                    SYSTEM_NETWORK_IO_NAME, SYSTEM_NETWORK_PACKETS_NAME);
+            runQuery("tcp.connections", this::queryTcpConnection, SYSTEM_NETWORK_CONNECTIONS_NAME);
+        } catch (Exception e) {
             logger.log(Level.SEVERE, "Failed to collectData", e);
         }
     }
@@ -1,9 +1,13 @@
 package com.instana.dc;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 import static com.instana.dc.DcUtil.getCert;
 
@@ -18,9 +22,10 @@ import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import io.opentelemetry.sdk.resources.Resource;
 
 public abstract class AbstractDc implements IDc {
+    private static final Logger logger = Logger.getLogger(AbstractDc.class.getName());
     private final Map<String, Meter> meters = new ConcurrentHashMap<>();
     private final Map<String, RawMetric> rawMetricsMap;
-
+    private final HeadersSupplier headersSupplier = new HeadersSupplier();
 
     public AbstractDc(Map<String, RawMetric> rawMetricsMap) {
         this.rawMetricsMap = rawMetricsMap;
@@ -48,6 +53,38 @@ public abstract class AbstractDc implements IDc {
         }
     }
 
+    /**
+     * Compute the metrics declared with an expression from the values just collected, once per key of their inputs.
+     * To be called at the end of each collection; the derived metrics keep the attributes of the first input
+     * having a data point for the key, and get no value when their expression is undefined.
+     */
+    public synchronized void evaluateExpressions() {
+        for (RawMetric rawMetric : rawMetricsMap.values()) {
+            MetricExpression expression = rawMetric.getExpression();
+            if (expression == null) {
+                continue;
+            }
+            for (String key : expression.getKeys(rawMetricsMap)) {
+                Double value = expression.evaluate(rawMetricsMap, key);
+                if (value == null) {
+                    logger.fine("Expression of " + rawMetric.getName() + '/' + key + " is undefined");
+                    continue;
+                }
+                rawMetric.getDataPoint(key).setValue(value, attributesOf(expression, key));
+            }
+        }
+    }
+
+    private Map<String, Object> attributesOf(MetricExpression expression, String key) {
+        for (String input : expression.getInputs()) {
+            RawMetric.DataPoint dp = MetricExpression.dataPointOf(rawMetricsMap, input, key);
+            if (dp != null && !dp.getAttributes().isEmpty()) {
+                return dp.getAttributes();
+            }
+        }
+        return null;
+    }
+
     @Override
     public RawMetric getRawMetric(String name) {
         return rawMetricsMap.get(name);
@@ -58,16 +95,33 @@ public abstract class AbstractDc implements IDc {
         return rawMetricsMap;
     }
 
+    /**
+     * @return : headers of the exports of this instance, updating them affects no other instance
+     */
+    public HeadersSupplier getHeadersSupplier() {
+        return headersSupplier;
+    }
+
+    /**
+     * @deprecated : exports with the process wide headers, use the variant taking the supplier of the instance
+     */
+    @Deprecated
     public static OtlpGrpcMetricExporter createOtlpGrpcMetricExporter(String otelBackendUrl, long timeout, Map<String, String> headers, byte[] cert) {
+        return createOtlpGrpcMetricExporter(otelBackendUrl, timeout, HeadersSupplier.INSTANCE, headers, cert);
+    }
+
+    /**
+     * @param supplier : read on every export
+     * @param headers  : initial headers set into the supplier, null to keep its current ones
+     */
+    public static OtlpGrpcMetricExporter createOtlpGrpcMetricExporter(String otelBackendUrl, long timeout, HeadersSupplier supplier, Map<String, String> headers, byte[] cert) {
         OtlpGrpcMetricExporterBuilder builder = OtlpGrpcMetricExporter.builder()
                 .setEndpoint(otelBackendUrl)
-                .setTimeout(timeout, TimeUnit.SECONDS);
+                .setTimeout(timeout, TimeUnit.SECONDS)
+                .setDefaultAggregationSelector(DcUtil.EXPONENTIAL_HISTOGRAMS);
 
-        HeadersSupplier supplier = HeadersSupplier.INSTANCE;
-        builder.setHeaders(supplier::getHeaders);
-        if (headers != null) {
-            supplier.updateHeaders(headers);
-        }
+        builder.setHeaders(supplier);
+        supplier.updateHeaders(headers);
         if (cert != null) {
             builder.setTrustedCertificates(cert);
         }
@@ -75,22 +129,114 @@ public abstract class AbstractDc implements IDc {
         return builder.build();
     }
 
+    /**
+     * @deprecated : exports with the process wide headers, use the variant taking the supplier of the instance
+     */
+    @Deprecated
     public static OtlpHttpMetricExporter createOtlpHttpMetricExporter(String otelBackendUrl, long timeout, Map<String, String> headers, byte[] cert) {
+        return createOtlpHttpMetricExporter(otelBackendUrl, timeout, HeadersSupplier.INSTANCE, headers, cert);
+    }
+
+    /**
+     * @param supplier : read on every export
+     * @param headers  : initial headers set into the supplier, null to keep its current ones
+     */
+    public static OtlpHttpMetricExporter createOtlpHttpMetricExporter(String otelBackendUrl, long timeout, HeadersSupplier supplier, Map<String, String> headers, byte[] cert) {
         OtlpHttpMetricExporterBuilder builder = OtlpHttpMetricExporter.builder()
                 .setEndpoint(otelBackendUrl)
-                .setTimeout(timeout, TimeUnit.SECONDS);
+                .setTimeout(timeout, TimeUnit.SECONDS)
+                .setDefaultAggregationSelector(DcUtil.EXPONENTIAL_HISTOGRAMS);
 
-        HeadersSupplier supplier = HeadersSupplier.INSTANCE;
-        builder.setHeaders(supplier::getHeaders);
-        if (headers != null) {
-            supplier.updateHeaders(headers);
-        }
+        builder.setHeaders(supplier);
+        supplier.updateHeaders(headers);
         if (cert != null) {
             builder.setTrustedCertificates(cert);
         }
         return builder.build();
     }
 
+    /**
+     * @param backends : value of `otel.backends`, each entry has `otel.backend.url` and optionally
+     *                 `otel.backend.using.http`, `name`, `timeout` (seconds), `queue.size` (batches), `max.attempts`
+     *                 and `headers`
+     * @param headers  : headers of the backends without headers of their own
+     * @return : the destinations of a FanOutMetricExporter, the invalid entries are skipped
+     */
+    public static List<FanOutMetricExporter.Destination> parseBackends(Object backends, long timeout, HeadersSupplier headers, byte[] cert) {
+        List<FanOutMetricExporter.Destination> destinations = new ArrayList<>();
+        if (!(backends instanceof List)) {
+            return destinations;
+        }
+        for (Object entry : (List<?>) backends) {
+            if (!(entry instanceof Map) || ((Map<?, ?>) entry).get(DcUtil.OTEL_BACKEND_URL) == null) {
+                logger.warning("Invalid entry of " + DcUtil.OTEL_BACKENDS + ", ignored: " + entry);
+                continue;
+            }
+            Map<?, ?> backend = (Map<?, ?>) entry;
+            String url = String.valueOf(backend.get(DcUtil.OTEL_BACKEND_URL));
+            Object name = backend.get(DcUtil.OTEL_BACKEND_NAME);
+            FanOutMetricExporter.Destination destination = new FanOutMetricExporter.Destination(
+                    name == null ? "backend" + destinations.size() : String.valueOf(name), url,
+                    Boolean.TRUE.equals(backend.get(DcUtil.OTEL_BACKEND_USING_HTTP)))
+                    .setHeaders(headers)
+                    .setTrustedCertificates(cert);
+            Object value = backend.get(DcUtil.OTEL_BACKEND_HEADERS);
+            if (value instanceof Map) {
+                //A tenant of its own
+                Map<String, String> own = new HashMap<>();
+                for (Map.Entry<?, ?> header : ((Map<?, ?>) value).entrySet()) {
+                    own.put(String.valueOf(header.getKey()), String.valueOf(header.getValue()));
+                }
+                destination.setHeaders(new HeadersSupplier(own));
+            }
+            value = backend.get(DcUtil.OTEL_BACKEND_TIMEOUT);
+            destination.setTimeout(value instanceof Integer ? (Integer) value : timeout);
+            value = backend.get(DcUtil.OTEL_BACKEND_QUEUE_SIZE);
+            if (value instanceof Integer) {
+                destination.setQueueSize((Integer) value);
+            }
+            value = backend.get(DcUtil.OTEL_BACKEND_MAX_ATTEMPTS);
+            if (value instanceof Integer) {
+                destination.setMaxAttempts((Integer) value);
+            }
+            destinations.add(destination);
+        }
+        return destinations;
+    }
+
+    /**
+     * Meter provider delivering every export to all the backends of `otel.backends`, each one at its own pace
+     */
+    public SdkMeterProvider getFanOutSdkMeterProvider(Resource resource, Object backends, long callbackInterval, long timeout) {
+        headersSupplier.updateHeaders(DcUtil.getHeadersFromEnv());
+        return getFanOutSdkMeterProvider(resource, parseBackends(backends, timeout, headersSupplier, getCert()), callbackInterval);
+    }
+
+    private static SdkMeterProvider getFanOutSdkMeterProvider(Resource resource, List<FanOutMetricExporter.Destination> destinations, long callbackInterval) {
+        return SdkMeterProvider.builder().setResource(resource)
+                .registerMetricReader(PeriodicMetricReader.builder(new FanOutMetricExporter(destinations))
+                        .setInterval(Duration.ofSeconds(callbackInterval)).build())
+                .build();
+    }
+
+    /**
+     * Meter provider of an instance: the backends of `otel.backends` if it lists a valid one, otherwise the single
+     * backend of `otel.backend.url`
+     *
+     * @param backends : value of `otel.backends`, null if not configured
+     */
+    public SdkMeterProvider getSdkMeterProvider(Resource resource, Object backends, String otelBackendUrl, long callbackInterval, boolean usingHTTP, long timeout) {
+        if (backends != null) {
+            headersSupplier.updateHeaders(DcUtil.getHeadersFromEnv());
+            List<FanOutMetricExporter.Destination> destinations = parseBackends(backends, timeout, headersSupplier, getCert());
+            if (!destinations.isEmpty()) {
+                return getFanOutSdkMeterProvider(resource, destinations, callbackInterval);
+            }
+            logger.warning("No valid backend in " + DcUtil.OTEL_BACKENDS + ", exporting to " + otelBackendUrl);
+        }
+        return getDefaultSdkMeterProvider(resource, otelBackendUrl, callbackInterval, usingHTTP, timeout);
+    }
+
     @Override
     public SdkMeterProvider getDefaultSdkMeterProvider(Resource resource, String otelBackendUrl, long callbackInterval, boolean usingHTTP, long timeout) {
         Map<String, String> headers = DcUtil.getHeadersFromEnv();
@@ -99,12 +245,12 @@ public abstract class AbstractDc implements IDc {
         if (!usingHTTP)
             return SdkMeterProvider.builder().setResource(resource)
                     .registerMetricReader(PeriodicMetricReader.builder(
-                                    createOtlpGrpcMetricExporter(otelBackendUrl, timeout, headers, cert))
+                                    createOtlpGrpcMetricExporter(otelBackendUrl, timeout, headersSupplier, headers, cert))
                             .setInterval(Duration.ofSeconds(callbackInterval)).build())
                     .build();
         return SdkMeterProvider.builder().setResource(resource)
                 .registerMetricReader(PeriodicMetricReader.builder(
-                                createOtlpHttpMetricExporter(otelBackendUrl, timeout, headers, cert))
+                                createOtlpHttpMetricExporter(otelBackendUrl, timeout, headersSupplier, headers, cert))
                         .setInterval(Duration.ofSeconds(callbackInterval)).build())
                 .build();
     }
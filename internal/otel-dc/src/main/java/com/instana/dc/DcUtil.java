@@ -11,6 +11,8 @@ import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
 import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.export.DefaultAggregationSelector;
 import io.opentelemetry.sdk.resources.Resource;
 
 import java.io.File;
@@ -38,6 +40,13 @@ public class DcUtil {
     public final static String OTEL_BACKEND_URL = "otel.backend.url";
     public final static String OTEL_BACKEND_USING_HTTP = "otel.backend.using.http";
     public final static String DEFAULT_OTEL_BACKEND_URL = "http://127.0.0.1:4317";
+    //Several backends fed with the same metrics, a list of maps with the keys below
+    public final static String OTEL_BACKENDS = "otel.backends";
+    public final static String OTEL_BACKEND_NAME = "name";
+    public final static String OTEL_BACKEND_QUEUE_SIZE = "queue.size";
+    public final static String OTEL_BACKEND_MAX_ATTEMPTS = "max.attempts";
+    public final static String OTEL_BACKEND_TIMEOUT = "timeout";
+    public final static String OTEL_BACKEND_HEADERS = "headers";
     public final static String OTEL_SERVICE_NAME = "otel.service.name";
     public final static String DEFAULT_OTEL_SERVICE_NAME = "odcd.default.service";
     public final static String OTEL_SERVICE_INSTANCE_ID = "otel.service.instance.id";
@@ -54,6 +63,11 @@ public class DcUtil {
     public static final String CONFIG_ENV = "DC_CONFIG";
     public static final String INSTANA_PLUGIN = "INSTANA_PLUGIN";
 
+    //HISTOGRAM metrics are aggregated in base-2 exponential buckets: a fixed number of buckets rescaled to the range
+    //of the samples, instead of explicit boundaries that would have to be tuned per metric
+    public static final DefaultAggregationSelector EXPONENTIAL_HISTOGRAMS = DefaultAggregationSelector.getDefault()
+            .with(io.opentelemetry.sdk.metrics.InstrumentType.HISTOGRAM, Aggregation.base2ExponentialBucketHistogram());
+
 
     /* Data Collector Utilities:
      */
@@ -152,6 +166,9 @@ public class DcUtil {
     }
 
     public static void registerMetric(Map<String, Meter> meters, RawMetric rawMetric) {
+        if (!rawMetric.isExported()) {
+            return;
+        }
         Consumer<ObservableLongMeasurement> recordLongMetric = measurement -> {
             rawMetric.purgeOutdatedDps();
             boolean clearDps = rawMetric.isClearDps();
@@ -209,8 +226,17 @@ public class DcUtil {
                     meter.upDownCounterBuilder(rawMetric.getName()).ofDoubles().setUnit(rawMetric.getUnit()).setDescription(rawMetric.getDescription())
                             .buildWithCallback(recordDoubleMetric);
                 break;
+            case HISTOGRAM:
+                //Synchronous instrument: aggregated by the SDK, see EXPONENTIAL_HISTOGRAMS for the buckets
+                if (rawMetric.isInteger())
+                    rawMetric.bindHistogram(meter.histogramBuilder(rawMetric.getName()).ofLongs().setUnit(rawMetric.getUnit()).setDescription(rawMetric.getDescription())
+                            .build());
+                else
+                    rawMetric.bindHistogram(meter.histogramBuilder(rawMetric.getName()).setUnit(rawMetric.getUnit()).setDescription(rawMetric.getDescription())
+                            .build());
+                break;
             default:
-                logger.log(Level.WARNING, "Currently only following instrument types are supported, Gauge, Counter, UpDownCounter, while your type is {0}", rawMetric.getInstrumentType());
+                logger.log(Level.WARNING, "Currently only following instrument types are supported, Gauge, Counter, UpDownCounter, Histogram, while your type is {0}", rawMetric.getInstrumentType());
         }
     }
 
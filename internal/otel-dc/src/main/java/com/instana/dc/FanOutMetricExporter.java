@@ -0,0 +1,433 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc;
+
+import io.opentelemetry.exporter.internal.grpc.GrpcExporter;
+import io.opentelemetry.exporter.internal.grpc.GrpcExporterBuilder;
+import io.opentelemetry.exporter.internal.http.HttpExporter;
+import io.opentelemetry.exporter.internal.http.HttpExporterBuilder;
+import io.opentelemetry.exporter.internal.marshal.Marshaler;
+import io.opentelemetry.exporter.internal.otlp.metrics.MetricsRequestMarshaler;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends the same metrics to several OTLP endpoints, e.g. the current and the new backend during a migration, or a
+ * disaster recovery site. Each batch is converted to OTLP once and the request is shared by all the destinations.
+ * Every destination has its own bounded queue drained by its own thread, with its own timeout and retries, so a slow
+ * or unreachable destination never delays the others nor the collection: export() only enqueues. When the queue of
+ * a destination is full its oldest batch is dropped, the freshest metrics matter most; drops are counted per
+ * destination as well as the batches given up after the last retry. Flushes wait in the queue too, outside its bound,
+ * so flushing never drops a batch.
+ * Relies on the internal OTLP marshaler and senders of the OpenTelemetry exporters, to be checked on upgrades.
+ */
+public class FanOutMetricExporter implements MetricExporter {
+    private static final Logger logger = Logger.getLogger(FanOutMetricExporter.class.getName());
+    private static final String GRPC_ENDPOINT_PATH = "/opentelemetry.proto.collector.metrics.v1.MetricsService/Export";
+    static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private final List<Destination> destinations;
+
+    public FanOutMetricExporter(List<Destination> destinations) {
+        this.destinations = Collections.unmodifiableList(new ArrayList<>(destinations));
+        for (Destination destination : this.destinations) {
+            destination.start();
+        }
+    }
+
+    public List<Destination> getDestinations() {
+        return destinations;
+    }
+
+    /**
+     * Enqueue the batch for every destination, the delivery is asynchronous
+     */
+    @Override
+    public CompletableResultCode export(Collection<MetricData> metrics) {
+        if (metrics.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        Marshaler request = MetricsRequestMarshaler.create(metrics);
+        for (Destination destination : destinations) {
+            destination.enqueue(new Batch(request, metrics.size()));
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * @return : completed once every destination delivered or gave up the batches queued so far
+     */
+    @Override
+    public CompletableResultCode flush() {
+        List<CompletableResultCode> results = new ArrayList<>();
+        for (Destination destination : destinations) {
+            results.add(destination.flush());
+        }
+        return CompletableResultCode.ofAll(results);
+    }
+
+    /**
+     * Give the destinations {@link #SHUTDOWN_TIMEOUT_MILLIS} to deliver the batch in flight and the queued ones,
+     * then stop their workers; what is still undelivered then is lost.
+     */
+    @Override
+    public CompletableResultCode shutdown() {
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        flush().join(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        List<CompletableResultCode> results = new ArrayList<>();
+        for (Destination destination : destinations) {
+            results.add(destination.shutdown(Math.max(1, deadline - System.currentTimeMillis())));
+        }
+        return CompletableResultCode.ofAll(results);
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(io.opentelemetry.sdk.metrics.InstrumentType instrumentType) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public Aggregation getDefaultAggregation(io.opentelemetry.sdk.metrics.InstrumentType instrumentType) {
+        return DcUtil.EXPONENTIAL_HISTOGRAMS.getDefaultAggregation(instrumentType);
+    }
+
+    /**
+     * One OTLP request shared by the destinations, or a flush marker completed when a destination reaches it
+     */
+    private static class Batch {
+        private final Marshaler request;
+        private final int items;
+        private final CompletableResultCode flushed;
+
+        private Batch(Marshaler request, int items) {
+            this.request = request;
+            this.items = items;
+            this.flushed = null;
+        }
+
+        private Batch(CompletableResultCode flushed) {
+            this.request = null;
+            this.items = 0;
+            this.flushed = flushed;
+        }
+    }
+
+    /**
+     * Delivers an OTLP request to one endpoint
+     */
+    public interface Sender {
+        CompletableResultCode send(Marshaler request, int items);
+
+        CompletableResultCode shutdown();
+    }
+
+    /**
+     * One endpoint of the fan-out with its queue and delivery policy.
+     * The setters only take effect before the destination is handed to the exporter.
+     */
+    public static class Destination {
+        private final String name;
+        private final String endpoint;
+        private final boolean usingHttp;
+        private int queueSize = 16;
+        private int maxAttempts = 3;
+        private long timeoutSeconds = 10;
+        private long initialBackoffMillis = 1000;
+        private Supplier<Map<String, String>> headers = Collections::emptyMap;
+        private byte[] cert;
+        private Sender sender;
+
+        private BlockingQueue<Batch> queue;
+        //Requests in the queue, the flush markers are not bounded
+        private final AtomicInteger queuedRequests = new AtomicInteger();
+        private Thread worker;
+        private volatile boolean running;
+        private final AtomicLong exportedItems = new AtomicLong();
+        private final AtomicLong droppedItems = new AtomicLong();
+        private final AtomicLong failedItems = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+
+        /**
+         * @param name      : name of the destination in the logs and the thread name
+         * @param endpoint  : OTLP endpoint, e.g. http://localhost:4317 or http://localhost:4318/v1/metrics
+         * @param usingHttp : OTLP over HTTP instead of gRPC
+         */
+        public Destination(String name, String endpoint, boolean usingHttp) {
+            this.name = name;
+            this.endpoint = endpoint;
+            this.usingHttp = usingHttp;
+        }
+
+        /**
+         * @param queueSize : batches waiting for delivery at most, the oldest is dropped beyond
+         */
+        public Destination setQueueSize(int queueSize) {
+            this.queueSize = Math.max(1, queueSize);
+            return this;
+        }
+
+        /**
+         * @param maxAttempts : deliveries tried per batch, the retries back off exponentially from 1 second
+         */
+        public Destination setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = Math.max(1, maxAttempts);
+            return this;
+        }
+
+        public Destination setTimeout(long timeoutSeconds) {
+            this.timeoutSeconds = timeoutSeconds;
+            return this;
+        }
+
+        Destination setInitialBackoff(long initialBackoffMillis) {
+            this.initialBackoffMillis = initialBackoffMillis;
+            return this;
+        }
+
+        /**
+         * @param headers : headers of every request, read on each delivery
+         */
+        public Destination setHeaders(Supplier<Map<String, String>> headers) {
+            this.headers = headers;
+            return this;
+        }
+
+        public Destination setTrustedCertificates(byte[] cert) {
+            this.cert = cert;
+            return this;
+        }
+
+        /**
+         * Replace the OTLP sender, for endpoints which are not OTLP/gRPC nor OTLP/HTTP
+         */
+        public Destination setSender(Sender sender) {
+            this.sender = sender;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * @return : metrics delivered
+         */
+        public long getExportedItems() {
+            return exportedItems.get();
+        }
+
+        /**
+         * @return : metrics dropped because the queue was full
+         */
+        public long getDroppedItems() {
+            return droppedItems.get();
+        }
+
+        /**
+         * @return : metrics given up after the last attempt
+         */
+        public long getFailedItems() {
+            return failedItems.get();
+        }
+
+        public long getRetries() {
+            return retries.get();
+        }
+
+        public int getQueueLength() {
+            return queuedRequests.get();
+        }
+
+        private void start() {
+            if (sender == null) {
+                sender = usingHttp ? newHttpSender() : newGrpcSender();
+            }
+            queue = new LinkedBlockingQueue<>();
+            running = true;
+            worker = new Thread(this::deliver, "otlp-fan-out-" + name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        private Sender newHttpSender() {
+            HttpExporterBuilder<Marshaler> builder = new HttpExporterBuilder<>("otlp", "metric", endpoint)
+                    .setTimeout(timeoutSeconds, TimeUnit.SECONDS)
+                    .setHeadersSupplier(headers);
+            if (cert != null) {
+                builder.setTrustManagerFromCerts(cert);
+            }
+            HttpExporter<Marshaler> exporter = builder.build();
+            return new Sender() {
+                @Override
+                public CompletableResultCode send(Marshaler request, int items) {
+                    return exporter.export(request, items);
+                }
+
+                @Override
+                public CompletableResultCode shutdown() {
+                    return exporter.shutdown();
+                }
+            };
+        }
+
+        private Sender newGrpcSender() {
+            //The stub factory is only used with a gRPC ManagedChannel, the OkHttp sender does without
+            GrpcExporterBuilder<Marshaler> builder = new GrpcExporterBuilder<Marshaler>("otlp", "metric", timeoutSeconds,
+                    URI.create(endpoint), null, GRPC_ENDPOINT_PATH)
+                    .setHeadersSupplier(headers);
+            if (cert != null) {
+                builder.setTrustManagerFromCerts(cert);
+            }
+            GrpcExporter<Marshaler> exporter = builder.build();
+            return new Sender() {
+                @Override
+                public CompletableResultCode send(Marshaler request, int items) {
+                    return exporter.export(request, items);
+                }
+
+                @Override
+                public CompletableResultCode shutdown() {
+                    return exporter.shutdown();
+                }
+            };
+        }
+
+        private synchronized void enqueue(Batch batch) {
+            if (batch.flushed == null) {
+                while (queuedRequests.get() >= queueSize) {
+                    Batch oldest = removeOldestRequest();
+                    if (oldest == null) {
+                        break;
+                    }
+                    drop(oldest);
+                }
+                queuedRequests.incrementAndGet();
+            }
+            queue.add(batch);
+        }
+
+        /**
+         * @return : the oldest queued request, the flush markers are left in place
+         */
+        private Batch removeOldestRequest() {
+            for (Batch batch : queue) {
+                if (batch.flushed == null && queue.remove(batch)) {
+                    queuedRequests.decrementAndGet();
+                    return batch;
+                }
+            }
+            return null;
+        }
+
+        private void drop(Batch batch) {
+            droppedItems.addAndGet(batch.items);
+            logger.warning("Export queue of " + name + " is full, " + batch.items + " metrics dropped");
+        }
+
+        private CompletableResultCode flush() {
+            CompletableResultCode flushed = new CompletableResultCode();
+            if (!running) {
+                return flushed.succeed();
+            }
+            enqueue(new Batch(flushed));
+            return flushed;
+        }
+
+        private void deliver() {
+            while (running) {
+                Batch batch;
+                try {
+                    batch = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (batch.flushed != null) {
+                    batch.flushed.succeed();
+                    continue;
+                }
+                queuedRequests.decrementAndGet();
+                if (!send(batch)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return : false if interrupted
+         */
+        private boolean send(Batch batch) {
+            long backoff = initialBackoffMillis;
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                CompletableResultCode result = sender.send(batch.request, batch.items).join(timeoutSeconds, TimeUnit.SECONDS);
+                if (result.isSuccess()) {
+                    exportedItems.addAndGet(batch.items);
+                    return true;
+                }
+                if (attempt == maxAttempts) {
+                    break;
+                }
+                retries.incrementAndGet();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff *= 2;
+            }
+            failedItems.addAndGet(batch.items);
+            logger.log(Level.WARNING, "Failed to export " + batch.items + " metrics to " + name + " (" + endpoint
+                    + ") after " + maxAttempts + " attempts");
+            return true;
+        }
+
+        /**
+         * Stop the worker, interrupting the delivery it is still busy with, and wait for it to exit
+         * so the sender is not shut down under a request
+         */
+        private CompletableResultCode shutdown(long timeoutMillis) {
+            running = false;
+            if (worker != null) {
+                worker.interrupt();
+                try {
+                    worker.join(timeoutMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Batch batch;
+            while ((batch = queue.poll()) != null) {
+                if (batch.flushed != null) {
+                    batch.flushed.fail();
+                }
+            }
+            queuedRequests.set(0);
+            return sender.shutdown();
+        }
+    }
+}
@@ -4,20 +4,54 @@
  */
 package com.instana.dc;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
-public enum HeadersSupplier {
-    INSTANCE;
-    
-    private final Map<String, String> headers = new HashMap<>();
-    
-    public synchronized void updateHeaders(Map<String, String> newHeaders) {
-        headers.clear();
-        headers.putAll(newHeaders);
+/**
+ * Headers of the export requests of one exporter or one instance, e.g. its tenant and `x-instana-key`.
+ * The headers are an immutable snapshot replaced as a whole on update, so the exporters read them on every call
+ * without locking nor copying, and several instances of one process can export with their own credentials.
+ */
+public class HeadersSupplier implements Supplier<Map<String, String>> {
+    /**
+     * Headers shared by the whole process
+     *
+     * @deprecated : use the supplier of the instance, {@link AbstractDc#getHeadersSupplier()}
+     */
+    @Deprecated
+    public static final HeadersSupplier INSTANCE = new HeadersSupplier();
+
+    private final AtomicReference<Map<String, String>> headers = new AtomicReference<>(Collections.emptyMap());
+
+    public HeadersSupplier() {
+    }
+
+    public HeadersSupplier(Map<String, String> headers) {
+        updateHeaders(headers);
     }
-    
+
+    /**
+     * Replace all the headers, an update with the current headers is a no-op
+     */
+    public void updateHeaders(Map<String, String> newHeaders) {
+        if (newHeaders == null || newHeaders.equals(headers.get())) {
+            return;
+        }
+        headers.set(Collections.unmodifiableMap(new HashMap<>(newHeaders)));
+    }
+
+    /**
+     * @return : the current snapshot, read-only
+     */
     public Map<String, String> getHeaders() {
-        return new HashMap<>(headers);
+        return headers.get();
+    }
+
+    @Override
+    public Map<String, String> get() {
+        return headers.get();
     }
 }
@@ -3,5 +3,9 @@ package com.instana.dc;
 public enum InstrumentType {
     GAUGE,
     COUNTER,
-    UPDOWN_COUNTER
+    UPDOWN_COUNTER,
+    /**
+     * Distribution of samples, fed with {@link RawMetric#recordSample} instead of data points
+     */
+    HISTOGRAM
 }
@@ -0,0 +1,298 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Arithmetic over the values of other raw metrics, for the metrics which are pure functions of collected ones
+ * (ratios, utilizations, averages) and would otherwise cost a query of their own.
+ * Grammar: `+ - * /`, unary minus, parentheses, numbers, metric names (their exported value) and `rate(metric)`
+ * (change per second of the collected value since the previous collection), e.g.
+ * `db.tablespace.used / db.tablespace.size` or `rate(db.transaction.time) / rate(db.transaction.count)`.
+ * The text is parsed once into a tree of nodes reused on every evaluation.
+ * A missing input, a division by zero or a non-finite result evaluates to null: no value rather than a wrong one.
+ */
+public class MetricExpression {
+    private final String text;
+    private final Node root;
+    private final List<String> inputs;
+
+    private MetricExpression(String text, Node root, Set<String> inputs) {
+        this.text = text;
+        this.root = root;
+        this.inputs = Collections.unmodifiableList(new ArrayList<>(inputs));
+    }
+
+    public static MetricExpression parse(String text) throws DcException {
+        Parser parser = new Parser(text);
+        Node root = parser.parseSum();
+        parser.skipSpaces();
+        if (parser.pos < text.length()) {
+            throw parser.error("unexpected '" + text.charAt(parser.pos) + "'");
+        }
+        return new MetricExpression(text, root, parser.inputs);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return : names of the metrics the expression reads
+     */
+    public List<String> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @param key : data point of the inputs to read, inputs having only a default data point are read for any key
+     * @return : value of the expression, null if an input is missing or the result is undefined
+     */
+    public Double evaluate(Map<String, RawMetric> metrics, String key) {
+        Double value = root.evaluate(metrics, key);
+        return value == null || value.isNaN() || value.isInfinite() ? null : value;
+    }
+
+    /**
+     * @return : keys to evaluate the expression for, the union of the keys of the inputs, or only the default key
+     */
+    public Set<String> getKeys(Map<String, RawMetric> metrics) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String input : inputs) {
+            RawMetric metric = metrics.get(input);
+            if (metric != null) {
+                keys.addAll(metric.getDataPoints().keySet());
+            }
+        }
+        if (keys.size() > 1) {
+            keys.remove(RawMetric.DEFAULT);
+        }
+        return keys;
+    }
+
+    /**
+     * @return : data point of the input read for the key, null if none
+     */
+    static RawMetric.DataPoint dataPointOf(Map<String, RawMetric> metrics, String name, String key) {
+        RawMetric metric = metrics.get(name);
+        if (metric == null) {
+            return null;
+        }
+        RawMetric.DataPoint dp = metric.getDataPoints().get(key);
+        return dp != null ? dp : metric.getDataPoints().get(RawMetric.DEFAULT);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private interface Node {
+        Double evaluate(Map<String, RawMetric> metrics, String key);
+    }
+
+    private static class Constant implements Node {
+        private final Double value;
+
+        private Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public Double evaluate(Map<String, RawMetric> metrics, String key) {
+            return value;
+        }
+    }
+
+    private static class Reference implements Node {
+        private final String name;
+        private final boolean rate;
+
+        private Reference(String name, boolean rate) {
+            this.name = name;
+            this.rate = rate;
+        }
+
+        @Override
+        public Double evaluate(Map<String, RawMetric> metrics, String key) {
+            RawMetric.DataPoint dp = dataPointOf(metrics, name, key);
+            if (dp == null) {
+                return null;
+            }
+            Number value = rate ? dp.getRate() : dp.getValue();
+            return value == null ? null : value.doubleValue();
+        }
+    }
+
+    private static class Negation implements Node {
+        private final Node operand;
+
+        private Negation(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public Double evaluate(Map<String, RawMetric> metrics, String key) {
+            Double value = operand.evaluate(metrics, key);
+            return value == null ? null : -value;
+        }
+    }
+
+    private static class Binary implements Node {
+        private final char operator;
+        private final Node left, right;
+
+        private Binary(char operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Double evaluate(Map<String, RawMetric> metrics, String key) {
+            Double l = left.evaluate(metrics, key);
+            if (l == null) {
+                return null;
+            }
+            Double r = right.evaluate(metrics, key);
+            if (r == null) {
+                return null;
+            }
+            switch (operator) {
+                case '+':
+                    return l + r;
+                case '-':
+                    return l - r;
+                case '*':
+                    return l * r;
+                default:
+                    return r == 0 ? null : l / r;
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser, one method per precedence level
+     */
+    private static class Parser {
+        private final String text;
+        private final Set<String> inputs = new LinkedHashSet<>();
+        private int pos = 0;
+
+        private Parser(String text) throws DcException {
+            if (text == null || text.trim().isEmpty()) {
+                throw new DcException("Empty metric expression");
+            }
+            this.text = text;
+        }
+
+        private Node parseSum() throws DcException {
+            Node node = parseProduct();
+            while (true) {
+                skipSpaces();
+                if (!peek('+') && !peek('-')) {
+                    return node;
+                }
+                char operator = text.charAt(pos++);
+                node = new Binary(operator, node, parseProduct());
+            }
+        }
+
+        private Node parseProduct() throws DcException {
+            Node node = parseUnary();
+            while (true) {
+                skipSpaces();
+                if (!peek('*') && !peek('/')) {
+                    return node;
+                }
+                char operator = text.charAt(pos++);
+                node = new Binary(operator, node, parseUnary());
+            }
+        }
+
+        private Node parseUnary() throws DcException {
+            skipSpaces();
+            if (peek('-')) {
+                pos++;
+                return new Negation(parseUnary());
+            }
+            if (peek('(')) {
+                pos++;
+                Node node = parseSum();
+                expect(')');
+                return node;
+            }
+            if (pos < text.length() && (Character.isDigit(text.charAt(pos)) || peek('.'))) {
+                return parseNumber();
+            }
+            String name = parseName();
+            skipSpaces();
+            if ("rate".equals(name) && peek('(')) {
+                pos++;
+                skipSpaces();
+                String metric = parseName();
+                expect(')');
+                inputs.add(metric);
+                return new Reference(metric, true);
+            }
+            inputs.add(name);
+            return new Reference(name, false);
+        }
+
+        private Node parseNumber() throws DcException {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            try {
+                return new Constant(Double.parseDouble(text.substring(start, pos)));
+            } catch (NumberFormatException e) {
+                throw error("invalid number " + text.substring(start, pos));
+            }
+        }
+
+        /**
+         * Metric names are made of letters, digits, `.` and `_`
+         */
+        private String parseName() throws DcException {
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '.' || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error(pos < text.length() ? "unexpected '" + text.charAt(pos) + "'" : "unexpected end");
+            }
+            return text.substring(start, pos);
+        }
+
+        private void expect(char c) throws DcException {
+            skipSpaces();
+            if (!peek(c)) {
+                throw error("'" + c + "' expected");
+            }
+            pos++;
+        }
+
+        private boolean peek(char c) {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private DcException error(String message) {
+            return new DcException("Invalid metric expression \"" + text + "\" at " + pos + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Per instance allow/deny list of metric names, from `metrics.include` and `metrics.exclude`.
+ * The patterns are metric names where `*` matches any run of characters, e.g. `db.lock.*`.
+ * A metric is enabled if it matches an include pattern, or there is none, and matches no exclude pattern.
+ */
+public class MetricFilter {
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+
+    public MetricFilter(List<String> includes, List<String> excludes) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+    }
+
+    /**
+     * @param include : list of patterns or a single comma separated string, null for all metrics
+     * @param exclude : list of patterns or a single comma separated string, null for none
+     */
+    public static MetricFilter fromConfig(Object include, Object exclude) {
+        return new MetricFilter(toList(include), toList(exclude));
+    }
+
+    private static List<String> toList(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        List<String> patterns = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                patterns.add(String.valueOf(item));
+            }
+        } else {
+            Collections.addAll(patterns, String.valueOf(value).split(","));
+        }
+        return patterns;
+    }
+
+    private static List<Pattern> compile(List<String> globs) {
+        List<Pattern> patterns = new ArrayList<>();
+        if (globs == null) {
+            return patterns;
+        }
+        for (String glob : globs) {
+            String trimmed = glob.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            StringBuilder regex = new StringBuilder();
+            String[] parts = trimmed.split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                if (!parts[i].isEmpty()) {
+                    regex.append(Pattern.quote(parts[i]));
+                }
+            }
+            patterns.add(Pattern.compile(regex.toString()));
+        }
+        return patterns;
+    }
+
+    private static boolean matches(List<Pattern> patterns, String name) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEnabled(String metricName) {
+        return (includes.isEmpty() || matches(includes, metricName)) && !matches(excludes, metricName);
+    }
+
+    /**
+     * @return : true if at least one of the metrics is enabled, or there is no metric at all
+     */
+    public boolean isAnyEnabled(List<String> metricNames) {
+        if (metricNames.isEmpty()) {
+            return true;
+        }
+        for (String name : metricNames) {
+            if (isEnabled(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return : true if no metric is filtered out
+     */
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar alternative to a list of {@link SimpleQueryResult} for large result sets (one row per table,
+ * tablespace, statement...): the values are kept in a primitive array, the keys and the attributes in string
+ * columns whose values are interned across cycles. A batch is meant to be reused: {@link #clear()} keeps the
+ * arrays and the interned strings, so refilling it with a similar result set allocates almost nothing.
+ * The values are read with the primitive accessors, a row whose value is SQL NULL is flagged with {@link #setNull(int)}.
+ * Not thread-safe, a batch is filled and ingested by the same collector thread.
+ */
+public class QueryResultBatch {
+    private static final int INITIAL_CAPACITY = 16;
+    //Beyond this many distinct strings per row slot, the intern pool is dropped instead of growing forever
+    private static final int MAX_INTERNED_PER_ROW = 8;
+
+    private final boolean integer;
+    private final String[] attributeNames;
+    private final Map<String, String> interned = new HashMap<>();
+
+    private int size = 0;
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private long[] longValues;
+    private double[] doubleValues;
+    private String[][] attributes;
+    private final BitSet nulls = new BitSet();
+
+    /**
+     * @param integer        : values are integers, kept as long, or decimals kept as double
+     * @param attributeNames : names of the attribute columns
+     */
+    public QueryResultBatch(boolean integer, String... attributeNames) {
+        this.integer = integer;
+        this.attributeNames = attributeNames.clone();
+        if (integer) {
+            longValues = new long[INITIAL_CAPACITY];
+        } else {
+            doubleValues = new double[INITIAL_CAPACITY];
+        }
+        attributes = new String[attributeNames.length][INITIAL_CAPACITY];
+    }
+
+    /**
+     * Append a row with an integer value
+     *
+     * @return : index of the row, to set its attributes
+     */
+    public int add(String key, long value) {
+        int row = nextRow(key);
+        if (integer) {
+            longValues[row] = value;
+        } else {
+            doubleValues[row] = value;
+        }
+        return row;
+    }
+
+    /**
+     * Append a row with a decimal value, truncated if the batch holds integers
+     *
+     * @return : index of the row, to set its attributes
+     */
+    public int add(String key, double value) {
+        int row = nextRow(key);
+        if (integer) {
+            longValues[row] = (long) value;
+        } else {
+            doubleValues[row] = value;
+        }
+        return row;
+    }
+
+    /**
+     * Flag the value of the row as missing, e.g. after ResultSet.wasNull(), the row is then skipped on ingestion
+     */
+    public QueryResultBatch setNull(int row) {
+        nulls.set(row);
+        return this;
+    }
+
+    public QueryResultBatch setAttribute(int row, int column, String value) {
+        attributes[column][row] = intern(value);
+        return this;
+    }
+
+    private int nextRow(String key) {
+        if (size == keys.length) {
+            grow();
+        }
+        keys[size] = intern(key);
+        nulls.clear(size);
+        for (String[] column : attributes) {
+            column[size] = null;
+        }
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        if (integer) {
+            longValues = Arrays.copyOf(longValues, capacity);
+        } else {
+            doubleValues = Arrays.copyOf(doubleValues, capacity);
+        }
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i] = Arrays.copyOf(attributes[i], capacity);
+        }
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String known = interned.get(value);
+        if (known != null) {
+            return known;
+        }
+        if (interned.size() >= keys.length * MAX_INTERNED_PER_ROW) {
+            interned.clear();
+        }
+        interned.put(value, value);
+        return value;
+    }
+
+    /**
+     * Forget the rows but keep the arrays and the interned strings for the next cycle
+     */
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        for (String[] column : attributes) {
+            Arrays.fill(column, 0, size, null);
+        }
+        nulls.clear();
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isInteger() {
+        return integer;
+    }
+
+    public String getKey(int row) {
+        return keys[row];
+    }
+
+    public long getLong(int row) {
+        return integer ? longValues[row] : (long) doubleValues[row];
+    }
+
+    public double getDouble(int row) {
+        return integer ? longValues[row] : doubleValues[row];
+    }
+
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    public int getAttributeCount() {
+        return attributeNames.length;
+    }
+
+    public String getAttributeName(int column) {
+        return attributeNames[column];
+    }
+
+    public String getAttribute(int row, int column) {
+        return attributes[column][row];
+    }
+}
@@ -4,6 +4,10 @@
  */
 package com.instana.dc;
 
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongHistogram;
+
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,6 +32,11 @@ public class RawMetric {
     public static final String DEFAULT = "default";
     private boolean clearDps = false;
     private final String meterName;
+    //Instruments of a HISTOGRAM metric, bound when the metric is registered
+    private volatile DoubleHistogram doubleHistogram;
+    private volatile LongHistogram longHistogram;
+    private MetricExpression expression;
+    private boolean exported = true;
 
     public RawMetric(InstrumentType instrumentType, String name, String description, String unit, boolean isInteger, String attributeKey, String meterName) {
         this.instrumentType = instrumentType;
@@ -82,6 +91,33 @@ public class RawMetric {
         return this;
     }
 
+    /**
+     * @return : expression the metric is derived from, null for a collected metric
+     */
+    public MetricExpression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Derive the metric from other metrics instead of collecting it, see {@link AbstractDc#evaluateExpressions()}
+     */
+    public RawMetric setExpression(MetricExpression expression) {
+        this.expression = expression;
+        return this;
+    }
+
+    public boolean isExported() {
+        return exported;
+    }
+
+    /**
+     * @param exported : false for an input of expressions only, it is collected but never registered as an instrument
+     */
+    public RawMetric setExported(boolean exported) {
+        this.exported = exported;
+        return this;
+    }
+
     public double getRateUnit() {
         return rateUnit;
     }
@@ -135,6 +171,52 @@ public class RawMetric {
         return this;
     }
 
+    /**
+     * Ingest every row of the batch into the data point of its key, without intermediate result objects
+     */
+    public RawMetric setValue(QueryResultBatch batch) {
+        if (batch != null) {
+            for (int row = 0; row < batch.size(); row++) {
+                getDataPoint(batch.getKey(row)).setValue(batch, row);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Record one sample of a HISTOGRAM metric. The sample goes straight to the aggregation of the meter provider,
+     * exponential buckets of fixed size per attribute set, so no per-key data point is kept.
+     * Samples recorded before the metric is registered are dropped.
+     */
+    public RawMetric recordSample(Number value) {
+        return recordSample(value, null);
+    }
+
+    public RawMetric recordSample(Number value, Map<String, Object> attributes) {
+        if (value == null) {
+            return this;
+        }
+        Attributes attrs = attributes == null || attributes.isEmpty() ? Attributes.empty() : DcUtil.convertMapToAttributes(attributes);
+        LongHistogram longs = longHistogram;
+        DoubleHistogram doubles = doubleHistogram;
+        if (longs != null) {
+            longs.record(value.longValue(), attrs);
+        } else if (doubles != null) {
+            doubles.record(value.doubleValue(), attrs);
+        } else {
+            logger.fine("Sample of " + name + " dropped, the histogram is not registered");
+        }
+        return this;
+    }
+
+    void bindHistogram(DoubleHistogram histogram) {
+        this.doubleHistogram = histogram;
+    }
+
+    void bindHistogram(LongHistogram histogram) {
+        this.longHistogram = histogram;
+    }
+
     public boolean isClearDps() {
         return clearDps;
     }
@@ -181,6 +263,14 @@ public class RawMetric {
             if (rawMetric.getCalculationMode() == CalculationMode.DIRECT) {
                 return currentValue;
             }
+            return getRate();
+        }
+
+        /**
+         * @return : change of the collected value per rate unit between the last two collections, whatever the
+         * calculation mode of the metric, null before the second collection
+         */
+        public Number getRate() {
             if (currentValue == null || previousValue == null || currentTime <= previousTime) {
                 return null;
             }
@@ -245,6 +335,23 @@ public class RawMetric {
             }
         }
 
+        /**
+         * Take the value and the attributes of one row, a row without value keeps the current ones
+         */
+        public void setValue(QueryResultBatch batch, int row) {
+            if (batch.isNull(row)) {
+                return;
+            }
+            setValue(batch.isInteger() ? (Number) batch.getLong(row) : (Number) batch.getDouble(row));
+            this.attributes.clear();
+            for (int column = 0; column < batch.getAttributeCount(); column++) {
+                String attribute = batch.getAttribute(row, column);
+                if (attribute != null) {
+                    this.attributes.put(batch.getAttributeName(column), attribute);
+                }
+            }
+        }
+
         public Map<String, Object> getAttributes() {
             return attributes;
         }
@@ -0,0 +1,197 @@
+package com.instana.dc;
+
+import io.opentelemetry.exporter.internal.marshal.Marshaler;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FanOutMetricExporterTest {
+    private final List<FanOutMetricExporter> exporters = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        for (FanOutMetricExporter exporter : exporters) {
+            exporter.shutdown();
+        }
+    }
+
+    /**
+     * Succeeds or fails as told, optionally holding every request until released
+     */
+    private static class FakeSender implements FanOutMetricExporter.Sender {
+        private final List<Integer> sent = new CopyOnWriteArrayList<>();
+        private final List<Long> attemptTimes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failuresLeft = new AtomicInteger();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        private volatile long delayMillis;
+        private final AtomicBoolean shutdown = new AtomicBoolean();
+
+        @Override
+        public CompletableResultCode send(Marshaler request, int items) {
+            attemptTimes.add(System.nanoTime());
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return CompletableResultCode.ofFailure();
+            }
+            if (failuresLeft.getAndDecrement() > 0) {
+                return CompletableResultCode.ofFailure();
+            }
+            sent.add(items);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            shutdown.set(true);
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+
+    private FanOutMetricExporter exporter(FanOutMetricExporter.Destination... destinations) {
+        FanOutMetricExporter exporter = new FanOutMetricExporter(java.util.Arrays.asList(destinations));
+        exporters.add(exporter);
+        return exporter;
+    }
+
+    private static FanOutMetricExporter.Destination destination(String name, FakeSender sender) {
+        return new FanOutMetricExporter.Destination(name, "http://localhost:4317", false)
+                .setSender(sender)
+                .setTimeout(5)
+                .setInitialBackoff(50);
+    }
+
+    /**
+     * @return : a batch of the given number of metrics, as collected by the SDK
+     */
+    private static Collection<MetricData> metrics(int count) {
+        InMemoryMetricReader reader = InMemoryMetricReader.create();
+        SdkMeterProvider provider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        for (int i = 0; i < count; i++) {
+            provider.get("test").gaugeBuilder("metric" + i).buildWithCallback(measurement -> measurement.record(1.0));
+        }
+        Collection<MetricData> metrics = reader.collectAllMetrics();
+        provider.shutdown();
+        assertEquals(count, metrics.size());
+        return metrics;
+    }
+
+    @Test
+    public void shouldDropTheOldestBatchWhenTheQueueIsFull() throws InterruptedException {
+        FakeSender sender = new FakeSender();
+        sender.release = new CountDownLatch(1);
+        FanOutMetricExporter.Destination destination = destination("full", sender).setQueueSize(2);
+        FanOutMetricExporter exporter = exporter(destination);
+
+        exporter.export(metrics(1));
+        assertTrue(sender.started.await(5, TimeUnit.SECONDS), "the first batch is in flight");
+        exporter.export(metrics(2));
+        exporter.export(metrics(3));
+        exporter.export(metrics(4));
+        assertEquals(2, destination.getDroppedItems(), "the oldest queued batch is dropped");
+        assertEquals(2, destination.getQueueLength());
+
+        sender.release.countDown();
+        assertTrue(exporter.flush().join(5, TimeUnit.SECONDS).isSuccess());
+        assertEquals(java.util.Arrays.asList(1, 3, 4), sender.sent);
+        assertEquals(8, destination.getExportedItems());
+    }
+
+    @Test
+    public void shouldRetryWithAnExponentialBackoff() {
+        FakeSender sender = new FakeSender();
+        sender.failuresLeft.set(2);
+        FanOutMetricExporter.Destination destination = destination("retry", sender).setMaxAttempts(3);
+        FanOutMetricExporter exporter = exporter(destination);
+
+        exporter.export(metrics(2));
+        assertTrue(exporter.flush().join(5, TimeUnit.SECONDS).isSuccess());
+
+        assertEquals(3, sender.attemptTimes.size());
+        assertEquals(2, destination.getRetries());
+        assertEquals(2, destination.getExportedItems());
+        assertEquals(0, destination.getFailedItems());
+        long firstBackoff = TimeUnit.NANOSECONDS.toMillis(sender.attemptTimes.get(1) - sender.attemptTimes.get(0));
+        long secondBackoff = TimeUnit.NANOSECONDS.toMillis(sender.attemptTimes.get(2) - sender.attemptTimes.get(1));
+        assertTrue(firstBackoff >= 50, "first backoff " + firstBackoff);
+        assertTrue(secondBackoff >= 100, "second backoff doubled " + secondBackoff);
+    }
+
+    @Test
+    public void shouldGiveUpAfterTheLastAttempt() {
+        FakeSender sender = new FakeSender();
+        sender.failuresLeft.set(Integer.MAX_VALUE);
+        FanOutMetricExporter.Destination destination = destination("down", sender).setMaxAttempts(2);
+        FakeSender other = new FakeSender();
+        FanOutMetricExporter.Destination healthy = destination("up", other);
+        FanOutMetricExporter exporter = exporter(destination, healthy);
+
+        exporter.export(metrics(3));
+        exporter.export(metrics(1));
+        assertTrue(exporter.flush().join(5, TimeUnit.SECONDS).isSuccess());
+
+        assertEquals(4, destination.getFailedItems());
+        assertEquals(0, destination.getExportedItems());
+        assertEquals(2, destination.getRetries());
+        assertEquals(4, healthy.getExportedItems(), "a failing destination does not affect the others");
+    }
+
+    @Test
+    public void shouldFlushTheQueuedBatches() {
+        FakeSender sender = new FakeSender();
+        sender.delayMillis = 50;
+        FanOutMetricExporter.Destination destination = destination("slow", sender);
+        FanOutMetricExporter exporter = exporter(destination);
+
+        assertTrue(exporter.export(metrics(1)).isSuccess(), "export only enqueues");
+        exporter.export(metrics(2));
+        exporter.export(metrics(3));
+        CompletableResultCode flushed = exporter.flush();
+        assertFalse(flushed.isDone());
+        assertTrue(flushed.join(5, TimeUnit.SECONDS).isSuccess());
+        assertEquals(6, destination.getExportedItems());
+        assertEquals(0, destination.getQueueLength());
+
+        assertTrue(exporter.flush().join(5, TimeUnit.SECONDS).isSuccess(), "nothing to flush");
+        assertTrue(exporter.export(Collections.emptyList()).isSuccess());
+    }
+
+    @Test
+    public void shouldDeliverTheBatchInFlightOnShutdown() throws InterruptedException {
+        FakeSender sender = new FakeSender();
+        sender.delayMillis = 300;
+        FanOutMetricExporter.Destination destination = destination("shutdown", sender);
+        FanOutMetricExporter exporter = new FanOutMetricExporter(Collections.singletonList(destination));
+
+        exporter.export(metrics(2));
+        assertTrue(sender.started.await(5, TimeUnit.SECONDS));
+        assertEquals(0, destination.getQueueLength(), "the queue is empty, the batch is in flight");
+        exporter.export(metrics(1));
+        assertTrue(exporter.shutdown().join(5, TimeUnit.SECONDS).isSuccess());
+
+        assertEquals(3, destination.getExportedItems());
+        assertTrue(sender.shutdown.get());
+        assertTrue(exporter.flush().join(1, TimeUnit.SECONDS).isSuccess(), "a stopped destination has nothing to flush");
+    }
+}
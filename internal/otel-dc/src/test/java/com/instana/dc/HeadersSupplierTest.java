@@ -0,0 +1,120 @@
+package com.instana.dc;
+
+import io.opentelemetry.sdk.resources.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeadersSupplierTest {
+
+    private static Map<String, String> headers(String key, String host) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("x-instana-key", key);
+        headers.put("x-instana-host", host);
+        return headers;
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldKeepOneSnapshotPerInstance() {
+        HeadersSupplier first = new HeadersSupplier(headers("key1", "host1"));
+        HeadersSupplier second = new HeadersSupplier();
+
+        second.updateHeaders(headers("key2", "host2"));
+
+        assertEquals(headers("key1", "host1"), first.get());
+        assertEquals(headers("key2", "host2"), second.get());
+        assertTrue(HeadersSupplier.INSTANCE.get().isEmpty(), "the process wide headers are untouched");
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldGiveEveryCollectorItsOwnSupplier() {
+        AbstractDc first = new TestDc();
+        AbstractDc second = new TestDc();
+        assertNotSame(first.getHeadersSupplier(), second.getHeadersSupplier());
+        assertNotSame(HeadersSupplier.INSTANCE, first.getHeadersSupplier());
+
+        first.getHeadersSupplier().updateHeaders(headers("key1", "host1"));
+        assertTrue(second.getHeadersSupplier().get().isEmpty());
+    }
+
+    @Test
+    public void shouldReplaceTheSnapshotAsAWhole() {
+        HeadersSupplier supplier = new HeadersSupplier(headers("key1", "host1"));
+        Map<String, String> before = supplier.get();
+
+        supplier.updateHeaders(Collections.singletonMap("x-instana-key", "key2"));
+
+        assertEquals(headers("key1", "host1"), before, "a snapshot read earlier never changes");
+        assertEquals(Collections.singletonMap("x-instana-key", "key2"), supplier.get());
+        assertNull(supplier.get().get("x-instana-host"));
+        assertThrows(UnsupportedOperationException.class, () -> supplier.get().put("x-instana-host", "host"));
+
+        Map<String, String> current = supplier.get();
+        supplier.updateHeaders(Collections.singletonMap("x-instana-key", "key2"));
+        assertSame(current, supplier.get(), "the same headers keep the snapshot");
+        supplier.updateHeaders(null);
+        assertSame(current, supplier.get());
+    }
+
+    @Test
+    public void shouldNeverExposeAHalfUpdatedSnapshot() throws InterruptedException {
+        HeadersSupplier supplier = new HeadersSupplier(headers("key0", "host0"));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Map<String, String>> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                Map<String, String> snapshot = supplier.get();
+                String key = snapshot.get("x-instana-key");
+                String host = snapshot.get("x-instana-host");
+                if (snapshot.size() != 2 || !key.substring(3).equals(host.substring(4))) {
+                    torn.compareAndSet(null, new HashMap<>(snapshot));
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 20000; i++) {
+            supplier.updateHeaders(headers("key" + i, "host" + i));
+        }
+        running.set(false);
+        reader.join();
+
+        assertNull(torn.get(), "the reader saw the key of one update with the host of another");
+        assertEquals(headers("key20000", "host20000"), supplier.get());
+    }
+
+    private static class TestDc extends AbstractDc {
+        TestDc() {
+            super(new HashMap<>());
+        }
+
+        @Override
+        public Resource getResourceAttributes() {
+            return Resource.empty();
+        }
+
+        @Override
+        public void initDC() {
+        }
+
+        @Override
+        public void collectData() {
+        }
+
+        @Override
+        public void start() {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.instana.dc;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.ExponentialHistogramPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistogramMetricTest {
+    private InMemoryMetricReader reader;
+    private SdkMeterProvider meterProvider;
+    private Map<String, Meter> meters;
+
+    @BeforeEach
+    public void setUp() {
+        reader = InMemoryMetricReader.builder()
+                .setDefaultAggregationSelector(DcUtil.EXPONENTIAL_HISTOGRAMS)
+                .build();
+        meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meters = new HashMap<>();
+        meters.put(RawMetric.DEFAULT, meterProvider.get("test"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        meterProvider.shutdown();
+    }
+
+    @Test
+    public void shouldAggregateSamplesInExponentialBuckets() {
+        RawMetric metric = new RawMetric(InstrumentType.HISTOGRAM, "db.sql.elapsed_time", "elapsed time", "ms", true, null);
+        DcUtil.registerMetric(meters, metric);
+
+        for (long sample : new long[]{1, 2, 4, 8}) {
+            metric.recordSample(sample);
+        }
+
+        ExponentialHistogramPointData point = onlyPoint(reader.collectAllMetrics(), "db.sql.elapsed_time");
+        assertEquals(4, point.getCount());
+        assertEquals(15.0, point.getSum());
+        assertEquals(1.0, point.getMin());
+        assertEquals(8.0, point.getMax());
+        //160 buckets at most: 1 to 8 fits at scale 5, 32 buckets per power of 2, a power of 2 ends its bucket
+        assertEquals(5, point.getScale());
+        assertEquals(-1, point.getPositiveBuckets().getOffset());
+        List<Long> counts = point.getPositiveBuckets().getBucketCounts();
+        assertEquals(97, counts.size());
+        List<Integer> filled = new ArrayList<>();
+        for (int i = 0; i < counts.size(); i++) {
+            if (counts.get(i) > 0) {
+                assertEquals(1L, counts.get(i));
+                filled.add(i);
+            }
+        }
+        assertEquals(Arrays.asList(0, 32, 64, 96), filled);
+        assertEquals(0, point.getZeroCount());
+    }
+
+    @Test
+    public void shouldKeepOneHistogramPerAttributeSet() {
+        RawMetric metric = new RawMetric(InstrumentType.HISTOGRAM, "db.sql.elapsed_time", "elapsed time", "ms", false, null);
+        DcUtil.registerMetric(meters, metric);
+
+        metric.recordSample(0.5, Collections.singletonMap("db.sql.shape", "select"));
+        metric.recordSample(1.5, Collections.singletonMap("db.sql.shape", "select"));
+        metric.recordSample(0, Collections.singletonMap("db.sql.shape", "update"));
+
+        Collection<MetricData> metrics = reader.collectAllMetrics();
+        MetricData data = metrics.iterator().next();
+        assertEquals(MetricDataType.EXPONENTIAL_HISTOGRAM, data.getType());
+        assertEquals(2, data.getExponentialHistogramData().getPoints().size());
+        for (ExponentialHistogramPointData point : data.getExponentialHistogramData().getPoints()) {
+            if ("select".equals(point.getAttributes().get(AttributeKey.stringKey("db.sql.shape")))) {
+                assertEquals(2, point.getCount());
+                assertEquals(2.0, point.getSum());
+            } else {
+                assertEquals(1, point.getCount());
+                assertEquals(1, point.getZeroCount());
+            }
+        }
+    }
+
+    @Test
+    public void shouldDropSamplesBeforeRegistration() {
+        RawMetric metric = new RawMetric(InstrumentType.HISTOGRAM, "db.sql.elapsed_time", "elapsed time", "ms", true, null);
+        metric.recordSample(1);
+        assertTrue(metric.getDataPoints().isEmpty());
+        assertEquals(0, reader.collectAllMetrics().size());
+    }
+
+    private static ExponentialHistogramPointData onlyPoint(Collection<MetricData> metrics, String name) {
+        assertEquals(1, metrics.size());
+        MetricData data = metrics.iterator().next();
+        assertEquals(name, data.getName());
+        assertEquals(MetricDataType.EXPONENTIAL_HISTOGRAM, data.getType());
+        Collection<ExponentialHistogramPointData> points = data.getExponentialHistogramData().getPoints();
+        assertEquals(1, points.size());
+        return points.iterator().next();
+    }
+}
@@ -0,0 +1,183 @@
+package com.instana.dc;
+
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricExpressionTest {
+
+    private static Map<String, RawMetric> metrics(Object... nameValues) {
+        Map<String, RawMetric> metrics = new HashMap<>();
+        for (int i = 0; i < nameValues.length; i += 2) {
+            String name = (String) nameValues[i];
+            metrics.put(name, new RawMetric(InstrumentType.GAUGE, name, name, "1", false, null)
+                    .setValue((Number) nameValues[i + 1]));
+        }
+        return metrics;
+    }
+
+    private static Double evaluate(String text, Map<String, RawMetric> metrics) throws DcException {
+        return MetricExpression.parse(text).evaluate(metrics, RawMetric.DEFAULT);
+    }
+
+    @Test
+    public void shouldApplyThePrecedenceOfTheOperators() throws DcException {
+        Map<String, RawMetric> metrics = metrics("a", 2, "b", 3, "c", 4);
+        assertEquals(14.0, evaluate("a + b * c", metrics));
+        assertEquals(20.0, evaluate("(a + b) * c", metrics));
+        assertEquals(-5.0, evaluate("a - b - c", metrics));
+        assertEquals(0.5, evaluate("a / c * 1", metrics));
+        assertEquals(1.5, evaluate("a/c+1", metrics));
+        assertEquals(0.25, evaluate("a / b / c * 1.5", metrics));
+    }
+
+    @Test
+    public void shouldNegate() throws DcException {
+        Map<String, RawMetric> metrics = metrics("a", 2, "b", 3);
+        assertEquals(-2.0, evaluate("-a", metrics));
+        assertEquals(-6.0, evaluate("-a * b", metrics));
+        assertEquals(5.0, evaluate("b - -a", metrics));
+        assertEquals(2.0, evaluate("--a", metrics));
+        assertEquals(-5.0, evaluate("-(a + b)", metrics));
+    }
+
+    @Test
+    public void shouldReadTheRateOfAnInput() throws Exception {
+        Map<String, RawMetric> metrics = metrics("db.transaction.count", 100L, "db.transaction.time", 50.0);
+        MetricExpression expression = MetricExpression.parse("rate(db.transaction.time) / rate( db.transaction.count )");
+        assertEquals(2, expression.getInputs().size());
+        assertNull(expression.evaluate(metrics, RawMetric.DEFAULT), "no rate before the second collection");
+
+        Thread.sleep(20);
+        metrics.get("db.transaction.count").setValue(110L);
+        metrics.get("db.transaction.time").setValue(70.0);
+        Double rate = evaluate("rate(db.transaction.count)", metrics);
+        assertNotNull(rate);
+        assertEquals(metrics.get("db.transaction.count").getDataPoint(null).getRate().doubleValue(), rate, 1e-9);
+        double timeRate = metrics.get("db.transaction.time").getDataPoint(null).getRate().doubleValue();
+        assertEquals(timeRate / rate, expression.evaluate(metrics, RawMetric.DEFAULT), 1e-9);
+        assertEquals(110.0, evaluate("db.transaction.count", metrics), "a plain reference reads the value");
+    }
+
+    @Test
+    public void shouldGiveNoValueForAMissingInput() throws DcException {
+        Map<String, RawMetric> metrics = metrics("a", 2);
+        assertNull(evaluate("a + missing", metrics));
+        metrics.put("empty", new RawMetric(InstrumentType.GAUGE, "empty", "empty", "1", false, null));
+        assertNull(evaluate("a * empty", metrics));
+    }
+
+    @Test
+    public void shouldGiveNoValueForADivisionByZero() throws DcException {
+        Map<String, RawMetric> metrics = metrics("a", 2, "zero", 0);
+        assertNull(evaluate("a / zero", metrics));
+        assertNull(evaluate("a / (zero * 3)", metrics));
+        assertEquals(0.0, evaluate("zero / a", metrics));
+    }
+
+    @Test
+    public void shouldRejectInvalidExpressions() {
+        assertThrows(DcException.class, () -> MetricExpression.parse(""));
+        assertThrows(DcException.class, () -> MetricExpression.parse("  "));
+        assertThrows(DcException.class, () -> MetricExpression.parse(null));
+        assertThrows(DcException.class, () -> MetricExpression.parse("a +"));
+        assertThrows(DcException.class, () -> MetricExpression.parse("(a + b"));
+        assertThrows(DcException.class, () -> MetricExpression.parse("a + b)"));
+        assertThrows(DcException.class, () -> MetricExpression.parse("a % b"));
+        assertThrows(DcException.class, () -> MetricExpression.parse("rate(a"));
+        assertThrows(DcException.class, () -> MetricExpression.parse("1.2.3"));
+        DcException error = assertThrows(DcException.class, () -> MetricExpression.parse("a * * b"));
+        assertTrue(error.getMessage().contains("at 4"), error.getMessage());
+    }
+
+    @Test
+    public void shouldDeriveOneDataPointPerKeyOfTheInputs() throws DcException {
+        Map<String, RawMetric> metrics = new HashMap<>();
+        RawMetric used = new RawMetric(InstrumentType.GAUGE, "db.tablespace.used", "used", "By", true, "tablespace");
+        RawMetric size = new RawMetric(InstrumentType.GAUGE, "db.tablespace.size", "size", "By", true, "tablespace");
+        RawMetric utilization = new RawMetric(InstrumentType.GAUGE, "db.tablespace.utilization", "utilization", "1", false, "tablespace")
+                .setExpression(MetricExpression.parse("db.tablespace.used / db.tablespace.size"));
+        metrics.put(used.getName(), used);
+        metrics.put(size.getName(), size);
+        metrics.put(utilization.getName(), utilization);
+        used.getDataPoint("users").setValue(25L, Collections.singletonMap("tablespace", "USERS"));
+        size.getDataPoint("users").setValue(100L, Collections.singletonMap("tablespace", "USERS"));
+        used.getDataPoint("temp").setValue(5L, Collections.singletonMap("tablespace", "TEMP"));
+        size.getDataPoint("temp").setValue(0L, Collections.singletonMap("tablespace", "TEMP"));
+
+        new TestDc(metrics).evaluateExpressions();
+
+        assertEquals(1, utilization.getDataPoints().size(), "no value when the expression is undefined");
+        RawMetric.DataPoint users = utilization.getDataPoints().get("users");
+        assertEquals(0.25, users.getValue());
+        assertEquals("USERS", users.getAttributes().get("tablespace"));
+    }
+
+    @Test
+    public void shouldExportTheDerivedMetricButNotItsInputs() throws DcException {
+        InMemoryMetricReader reader = InMemoryMetricReader.create();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        Map<String, Meter> meters = Collections.singletonMap(RawMetric.DEFAULT, meterProvider.get("test"));
+        RawMetric time = new RawMetric(InstrumentType.GAUGE, "db.transaction.time", "time", "s", false, null)
+                .setExported(false);
+        RawMetric count = new RawMetric(InstrumentType.GAUGE, "db.transaction.count", "count", "1", true, null);
+        RawMetric latency = new RawMetric(InstrumentType.GAUGE, "db.transaction.latency", "latency", "s", false, null)
+                .setExpression(MetricExpression.parse("db.transaction.time / db.transaction.count"));
+        Map<String, RawMetric> metrics = new HashMap<>();
+        for (RawMetric metric : Arrays.asList(time, count, latency)) {
+            metrics.put(metric.getName(), metric);
+            DcUtil.registerMetric(meters, metric);
+        }
+        time.setValue(30.0);
+        count.setValue(60L);
+
+        new TestDc(metrics).evaluateExpressions();
+
+        Set<String> exported = new HashSet<>();
+        for (MetricData data : reader.collectAllMetrics()) {
+            exported.add(data.getName());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("db.transaction.count", "db.transaction.latency")), exported);
+        assertEquals(0.5, latency.getDataPoint(null).getValue());
+        meterProvider.shutdown();
+    }
+
+    private static class TestDc extends AbstractDc {
+        TestDc(Map<String, RawMetric> metrics) {
+            super(metrics);
+        }
+
+        @Override
+        public Resource getResourceAttributes() {
+            return Resource.empty();
+        }
+
+        @Override
+        public void initDC() {
+        }
+
+        @Override
+        public void collectData() {
+        }
+
+        @Override
+        public void start() {
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.instana.dc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricFilterTest {
+
+    @Test
+    public void shouldEnableEverythingByDefault() {
+        MetricFilter filter = MetricFilter.fromConfig(null, null);
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.isEnabled("db.lock.time"));
+        assertTrue(filter.isAnyEnabled(Collections.emptyList()));
+    }
+
+    @Test
+    public void shouldMatchGlobsWithExcludeFirst() {
+        MetricFilter filter = MetricFilter.fromConfig(Arrays.asList("db.*", "system.cpu.time"), "db.lock.*, db.sql.text");
+        assertTrue(filter.isEnabled("db.lock"));
+        assertFalse(filter.isEnabled("db.lock.count"));
+        assertFalse(filter.isEnabled("db.sql.text"));
+        assertTrue(filter.isEnabled("db.sql.text.refresh"));
+        assertTrue(filter.isEnabled("system.cpu.time"));
+        assertFalse(filter.isEnabled("system.cpu.timeX"));
+        //Only * is special
+        assertFalse(filter.isEnabled("dbXstatus"));
+        assertTrue(filter.isAnyEnabled(Arrays.asList("db.lock.time", "db.status")));
+        assertFalse(filter.isAnyEnabled(Arrays.asList("db.lock.time", "db.lock.count")));
+
+        assertFalse(MetricFilter.fromConfig(null, "*").isEnabled("db.status"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.instana.dc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryResultBatchTest {
+
+    @Test
+    public void shouldMergeRowsIntoDataPoints() {
+        QueryResultBatch batch = new QueryResultBatch(true, "tablespace", "type");
+        int row = batch.add("users", 100L);
+        batch.setAttribute(row, 0, "USERS").setAttribute(row, 1, "permanent");
+        row = batch.add("temp", 25L);
+        batch.setAttribute(row, 0, "TEMP");
+        RawMetric metric = new RawMetric(InstrumentType.GAUGE, "db.tablespace.size", "size", "By", true, "tablespace");
+
+        metric.setValue(batch);
+
+        assertEquals(2, metric.getDataPoints().size());
+        RawMetric.DataPoint users = metric.getDataPoint("users");
+        assertEquals(100L, users.getValue());
+        assertEquals("USERS", users.getAttributes().get("tablespace"));
+        assertEquals("permanent", users.getAttributes().get("type"));
+        RawMetric.DataPoint temp = metric.getDataPoint("temp");
+        assertEquals(25L, temp.getValue());
+        assertEquals(Collections.singletonMap("tablespace", "TEMP"), temp.getAttributes());
+    }
+
+    @Test
+    public void shouldKeepTheLastValueAndAttributesOfANullRow() {
+        RawMetric metric = new RawMetric(InstrumentType.GAUGE, "db.tablespace.utilization", "utilization", "1", false, "tablespace");
+        QueryResultBatch batch = new QueryResultBatch(false, "tablespace");
+        batch.setAttribute(batch.add("users", 0.5), 0, "USERS");
+        metric.setValue(batch);
+
+        batch.clear();
+        int row = batch.add("users", 0.0);
+        batch.setNull(row).setAttribute(row, 0, "OTHER");
+        assertTrue(batch.isNull(row));
+        metric.setValue(batch);
+
+        RawMetric.DataPoint users = metric.getDataPoint("users");
+        assertEquals(0.5, users.getValue());
+        assertEquals("USERS", users.getAttributes().get("tablespace"));
+
+        //The next cycle reuses the row slot, the null flag must not stick to it
+        batch.clear();
+        batch.setAttribute(batch.add("users", 0.75), 0, "USERS");
+        assertFalse(batch.isNull(0));
+        metric.setValue(batch);
+        assertEquals(0.75, users.getValue());
+    }
+
+    @Test
+    public void shouldReadPrimitiveValuesAndInternStrings() {
+        QueryResultBatch batch = new QueryResultBatch(false, "name");
+        for (int i = 0; i < 40; i++) {
+            batch.setAttribute(batch.add("key" + (i % 2), i + 0.5), 0, "name" + (i % 2));
+        }
+        assertEquals(40, batch.size());
+        assertEquals(39.5, batch.getDouble(39));
+        assertEquals(39L, batch.getLong(39));
+        assertSame(batch.getKey(0), batch.getKey(2));
+        assertSame(batch.getAttribute(1, 0), batch.getAttribute(3, 0));
+
+        QueryResultBatch integers = new QueryResultBatch(true);
+        integers.add("truncated", 2.9);
+        assertEquals(2L, integers.getLong(0));
+        assertEquals(2.0, integers.getDouble(0));
+    }
+}
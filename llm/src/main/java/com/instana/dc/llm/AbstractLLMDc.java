@@ -6,6 +6,7 @@ package com.instana.dc.llm;
 
 import static com.instana.dc.DcUtil.CALLBACK_INTERVAL;
 import static com.instana.dc.DcUtil.INSTANA_PLUGIN;
+import static com.instana.dc.DcUtil.OTEL_BACKENDS;
 import static com.instana.dc.DcUtil.OTEL_BACKEND_URL;
 import static com.instana.dc.DcUtil.OTEL_BACKEND_USING_HTTP;
 import static com.instana.dc.DcUtil.OTEL_SERVICE_NAME;
@@ -15,6 +16,8 @@ import static io.opentelemetry.api.common.AttributeKey.stringKey;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -22,6 +25,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import com.instana.dc.AbstractDc;
+import com.instana.dc.DcUtil;
+import com.instana.dc.MetricFilter;
+import com.instana.dc.RawMetric;
 import com.instana.dc.llm.DataCollector.CustomDcConfig;
 import com.instana.dc.resources.ContainerResource;
 
@@ -36,12 +42,14 @@ public abstract class AbstractLLMDc extends AbstractDc {
 
     private final String otelBackendUrl;
     private final boolean otelUsingHttp;
+    private final Object otelBackends;
     private final int pollInterval;
     private final int callbackInterval;
     private final String serviceName;
 	public final static String INSTRUMENTATION_SCOPE_PREFIX = "otelcol/llmmetricsreceiver/";
     private String serviceInstanceId;
     private CustomDcConfig cdcConfig;
+    private final MetricFilter metricFilter;
 
     public static final int DEFAULT_LLM_POLL_INTERVAL = 10;
     public static final int DEFAULT_LLM_CLBK_INTERVAL = 10;
@@ -62,9 +70,11 @@ public abstract class AbstractLLMDc extends AbstractDc {
         pollInterval = (Integer) properties.getOrDefault(POLLING_INTERVAL, callbackInterval);
         otelBackendUrl = (String) properties.get(OTEL_BACKEND_URL);
         otelUsingHttp = (Boolean) properties.getOrDefault(OTEL_BACKEND_USING_HTTP, Boolean.FALSE);
+        otelBackends = properties.get(OTEL_BACKENDS);
         serviceName = (String) properties.get(OTEL_SERVICE_NAME);
         serviceInstanceId = serviceName + "@" + getHostName();
         this.cdcConfig = cdcConfig;
+        metricFilter = MetricFilter.fromConfig(properties.get(LLMDcUtil.METRICS_INCLUDE), properties.get(LLMDcUtil.METRICS_EXCLUDE));
     }
 
     @Override
@@ -95,17 +105,47 @@ public abstract class AbstractLLMDc extends AbstractDc {
         this.serviceInstanceId = serviceInstanceId;
     }
 
+    public boolean isMetricEnabled(String metricName) {
+        return metricFilter.isEnabled(metricName);
+    }
+
+    /**
+     * Register the instruments of the metrics enabled by `metrics.include`/`metrics.exclude` only
+     */
+    @Override
+    public void registerMetrics() {
+        List<String> disabled = new ArrayList<>();
+        for (RawMetric rawMetric : getRawMetricsMap().values()) {
+            if (metricFilter.isEnabled(rawMetric.getName())) {
+                DcUtil.registerMetric(getMeters(), rawMetric);
+            } else {
+                disabled.add(rawMetric.getName());
+            }
+        }
+        if (!disabled.isEmpty()) {
+            logger.info("Metrics disabled by metrics.include/metrics.exclude: " + disabled);
+        }
+    }
+
     @Override
     public void initDC() throws Exception {
         Resource resource = getResourceAttributes();
-        SdkMeterProvider sdkMeterProvider = this.getDefaultSdkMeterProvider(resource, otelBackendUrl, callbackInterval, otelUsingHttp, 10);
+        SdkMeterProvider sdkMeterProvider = this.getSdkMeterProvider(resource, otelBackends, otelBackendUrl, callbackInterval, otelUsingHttp, 10);
         OpenTelemetry openTelemetry = OpenTelemetrySdk.builder().setMeterProvider(sdkMeterProvider).build();
         initMeters(openTelemetry);
         registerMetrics();
     }
 
+    /**
+     * One collection: the metrics of the implementation, then the ones derived from them by expressions
+     */
+    protected void collectAndEvaluate() {
+        collectData();
+        evaluateExpressions();
+    }
+
     @Override
     public void start() {
-        exec.scheduleWithFixedDelay(this::collectData, 1, pollInterval, TimeUnit.SECONDS);
+        exec.scheduleWithFixedDelay(this::collectAndEvaluate, 1, pollInterval, TimeUnit.SECONDS);
     }
 }
@@ -16,6 +16,8 @@ public class LLMDcUtil {
     public final static String LLM_PRICES_PROPERTIES = "config/prices.properties";
     public final static String SERVICE_LISTEN_PORT = "otel.service.port";
     public final static String OTEL_AGENTLESS_MODE = "otel.agentless.mode";
+    public final static String METRICS_INCLUDE = "metrics.include";
+    public final static String METRICS_EXCLUDE = "metrics.exclude";
 
     /* Configurations for Metrics:
      */
@@ -36,7 +38,7 @@ public class LLMDcUtil {
     public static final String LLM_STATUS_UNIT = "{status}";
 
     public static final String LLM_DURATION_NAME = "llm.response.duration";
-    public static final String LLM_DURATION_DESC = "The average duration of LLM calls by interval";
+    public static final String LLM_DURATION_DESC = "Distribution of the duration of LLM calls";
     public static final String LLM_DURATION_UNIT = "ms";
 
     public static final String LLM_DURATION_MAX_NAME = "llm.response.duration.max";
@@ -5,6 +5,7 @@
 package com.instana.dc.llm;
 
 import static com.instana.dc.InstrumentType.GAUGE;
+import static com.instana.dc.InstrumentType.HISTOGRAM;
 import static com.instana.dc.InstrumentType.UPDOWN_COUNTER;
 import static com.instana.dc.llm.LLMDcUtil.LLM_COST_DESC;
 import static com.instana.dc.llm.LLMDcUtil.LLM_COST_NAME;
@@ -66,7 +67,7 @@ import com.instana.dc.RawMetric;
 public class LLMRawMetricRegistry {
     private final Map<String, RawMetric> map = new ConcurrentHashMap<>() {{
         put(LLM_STATUS_NAME, new RawMetric(GAUGE, LLM_STATUS_NAME, LLM_STATUS_DESC, LLM_STATUS_UNIT, true, null));
-        put(LLM_DURATION_NAME, new RawMetric(GAUGE, LLM_DURATION_NAME, LLM_DURATION_DESC, LLM_DURATION_UNIT, true, "model_id"));
+        put(LLM_DURATION_NAME, new RawMetric(HISTOGRAM, LLM_DURATION_NAME, LLM_DURATION_DESC, LLM_DURATION_UNIT, true, null));
         put(LLM_DURATION_MAX_NAME, new RawMetric(GAUGE, LLM_DURATION_MAX_NAME, LLM_DURATION_MAX_DESC, LLM_DURATION_MAX_UNIT, true, "model_id"));
         put(LLM_COST_NAME, new RawMetric(GAUGE, LLM_COST_NAME, LLM_COST_DESC, LLM_COST_UNIT, false, "model_id"));
         put(LLM_INPUT_COST_NAME, new RawMetric(GAUGE, LLM_INPUT_COST_NAME, LLM_INPUT_COST_DESC, LLM_INPUT_COST_UNIT, false, "model_id"));
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import com.instana.dc.RawMetric;
 import com.instana.dc.llm.AbstractLLMDc;
 import com.instana.dc.llm.DataCollector.CustomDcConfig;
 import com.instana.dc.llm.impl.llm.MetricsCollectorService.OtelMetric;
@@ -51,7 +52,7 @@ public class LLMDc extends AbstractLLMDc {
 
     private final HashMap<String, ModelAggregation> modelAggrMap = new HashMap<>();
     private final HashMap<String, Map<String, ModelAggregation>> serviceModelAggrMap = new HashMap<>();
-    private final MetricsCollectorService metricsCollector = new MetricsCollectorService();
+    private final MetricsCollectorService metricsCollector = new MetricsCollectorService(getHeadersSupplier());
     private final Boolean otelAgentlessMode;
     private final Integer otelPollInterval;
     private final HashMap<String, Double> llmTokenPrices = new HashMap<>();
@@ -279,7 +280,11 @@ public class LLMDc extends AbstractLLMDc {
             attributes.put("model_id", modelIdExt);
             attributes.put("ai_system", aiSystem);
             getRawMetric(LLM_STATUS_NAME).setValue(1);
-            getRawMetric(LLM_DURATION_NAME).getDataPoint(modelIdExt).setValue(avgDurationPerReq, attributes);
+            //Only the duration sum and count of the interval are received, each request is recorded at their mean
+            RawMetric duration = getRawMetric(LLM_DURATION_NAME);
+            for (long i = 0; i < deltaRequestCount; i++) {
+                duration.recordSample(avgDurationPerReq, attributes);
+            }
             getRawMetric(LLM_DURATION_MAX_NAME).getDataPoint(modelIdExt).setValue(maxDurationSoFar, attributes);
             getRawMetric(LLM_COST_NAME).getDataPoint(modelIdExt).setValue(intervalTotalCost, attributes);
             getRawMetric(LLM_INPUT_COST_NAME).getDataPoint(modelIdExt).setValue(intervalInputCost, attributes);
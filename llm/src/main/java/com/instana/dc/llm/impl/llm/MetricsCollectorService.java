@@ -186,6 +186,14 @@ class MetricsCollectorService extends MetricsServiceGrpc.MetricsServiceImplBase
         }
     }
     private HashMap<String, OtelMetric> exportMetrics = new HashMap<>();
+    private final HeadersSupplier headersSupplier;
+
+    /**
+     * @param headersSupplier : headers of the exports of the instance, updated with the credentials of the received requests
+     */
+    MetricsCollectorService(HeadersSupplier headersSupplier) {
+        this.headersSupplier = headersSupplier;
+    }
 
     public List<OtelMetric> getDeltaMetricsList() {
         synchronized (mutex) {
@@ -211,7 +219,6 @@ class MetricsCollectorService extends MetricsServiceGrpc.MetricsServiceImplBase
             HttpRequest httpRequest = RequestContext.current().request();
             RequestHeaders headers = httpRequest!=null ? httpRequest.headers() : null;
             if ( headers != null ) {
-                HeadersSupplier supplier = HeadersSupplier.INSTANCE;
                 Map<String, String> newHeaders = new HashMap<>();
                 String xInstanaKey = headers.get("x-instana-key");
                 if (xInstanaKey != null && !xInstanaKey.isEmpty()) {
@@ -222,7 +229,7 @@ class MetricsCollectorService extends MetricsServiceGrpc.MetricsServiceImplBase
                     newHeaders.put("x-instana-host", xInstanaHost);
                 }
                 if ( ! newHeaders.isEmpty() ) {
-                    supplier.updateHeaders(newHeaders);
+                    headersSupplier.updateHeaders(newHeaders);
                 }
             }
         }
@@ -19,6 +19,9 @@ public class SemanticAttributes {
   public static final AttributeKey<Long> DB_STATUS = AttributeKey.longKey("db.status");
   public static final AttributeKey<Long> DB_INSTANCE_COUNT = AttributeKey.longKey("db.instance.count");
   public static final AttributeKey<Long> DB_INSTANCE_ACTIVE_COUNT = AttributeKey.longKey("db.instance.active.count");
+  public static final AttributeKey<Double> DB_CONNECTION_ACQUIRE_TIME = AttributeKey.doubleKey("db.connection.acquire.time");
+  public static final AttributeKey<Double> DB_PING_TIME = AttributeKey.doubleKey("db.ping.time");
+  public static final AttributeKey<Double> DB_LOGIN_TIME = AttributeKey.doubleKey("db.login.time");
 
   public static final AttributeKey<Long> DB_SESSION_COUNT = AttributeKey.longKey("db.session.count");
   public static final AttributeKey<Long> DB_SESSION_ACTIVE_COUNT = AttributeKey.longKey("db.session.active.count");
@@ -80,6 +83,16 @@ public class SemanticAttributes {
   public static final AttributeKey<Long> DB_CACHE_READ_RATIO = AttributeKey.longKey("db.cache.read.ratio");
   public static final AttributeKey<Long> DB_CACHE_WRITE_RATIO = AttributeKey.longKey("db.cache.write.ratio");
   public static final AttributeKey<Long> DB_LRU_WRITES = AttributeKey.longKey("db.lru.writes");
+  public static final AttributeKey<Double> DB_ONSTAT_CPU_TIME = AttributeKey.doubleKey("db.onstat.cpu.time");
+  public static final AttributeKey<String> ONSTAT_COMMAND = AttributeKey.stringKey("onstat_command");
+  public static final AttributeKey<String> SERVER_NAME = AttributeKey.stringKey("server_name");
+  public static final AttributeKey<String> ROLE = AttributeKey.stringKey("role");
+  public static final AttributeKey<Long> DB_POLLING_LEVEL = AttributeKey.longKey("db.polling.level");
+  public static final AttributeKey<String> REASON = AttributeKey.stringKey("reason");
+  public static final AttributeKey<Long> DB_SQL_TEXT = AttributeKey.longKey("db.sql.text");
+  public static final AttributeKey<String> SQL_FINGERPRINT = AttributeKey.stringKey("sql_fingerprint");
+  public static final AttributeKey<Double> DB_SQL_SHAPE_ELAPSED_TIME = AttributeKey.doubleKey("db.sql.shape.elapsed_time");
+  public static final AttributeKey<Long> DB_SQL_SHAPE_COUNT = AttributeKey.longKey("db.sql.shape.count");
   public static final AttributeKey<String> TOTAL_KB = AttributeKey.stringKey("total_kb");
   public static final AttributeKey<String> USED_KB = AttributeKey.stringKey("used_kb");
   public static final AttributeKey<String> TABLE_UTILIZATION = AttributeKey.stringKey("table_utilization");
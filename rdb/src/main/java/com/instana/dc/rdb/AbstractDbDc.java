@@ -7,6 +7,9 @@ package com.instana.dc.rdb;
 import com.instana.dc.AbstractDc;
 import com.instana.dc.DcUtil;
 import com.instana.dc.IDc;
+import com.instana.dc.MetricFilter;
+import com.instana.dc.RawMetric;
+import com.instana.dc.SimpleQueryResult;
 import com.instana.dc.resources.ContainerResource;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.Attributes;
@@ -21,16 +24,36 @@ import java.net.UnknownHostException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import static com.instana.agent.sensorsdk.semconv.SemanticAttributes.SQL_TEXT;
 import static com.instana.dc.DcUtil.*;
 import static com.instana.dc.rdb.DbDcUtil.*;
 import static io.opentelemetry.api.common.AttributeKey.stringKey;
 
 public abstract class AbstractDbDc extends AbstractDc implements IDc {
+    private static final Logger logger = Logger.getLogger(AbstractDbDc.class.getName());
+    private static final int CIRCUIT_BREAKER_FAILURES = 2;
+    private static final double CIRCUIT_BREAKER_JITTER = 0.2;
+    private static final String PROBE = "probe";
+    private static final int SQL_TEXT_DICTIONARY_SIZE = 10000;
+    //Shapes tracked per shape reported, so the reported top is exact unless the workload is very flat
+    private static final int SQL_SHAPE_CAPACITY_FACTOR = 10;
 
     private final String dbSystem;
     private final String dbDriver;
@@ -49,6 +72,7 @@ public abstract class AbstractDbDc extends AbstractDc implements IDc {
 
     private final String otelBackendUrl;
     private final boolean otelUsingHttp;
+    private final Object otelBackends;
 
     private final int pollInterval;
     private final int callbackInterval;
@@ -56,7 +80,20 @@ public abstract class AbstractDbDc extends AbstractDc implements IDc {
     private String serviceInstanceId;
     private String dbEntityParentId;
 
-    private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+    private final Map<PollTier, Integer> tierIntervals = new EnumMap<>(PollTier.class);
+    private final Map<String, PollTier> tierOverrides = new HashMap<>();
+    private final Map<PollTier, List<CollectionStep>> steps = new EnumMap<>(PollTier.class);
+    private final List<CollectionStep> prunedSteps = new ArrayList<>();
+    private final MetricFilter metricFilter;
+    private final AdaptivePollingController adaptivePolling;
+    private final int loginTimeout;
+    private final int fetchSize;
+    private final ConnectionCircuitBreaker circuitBreaker;
+    private final SqlTextDictionary sqlTexts;
+    private final int sqlShapeTopN;
+    private final SqlShapeAggregator sqlShapes;
+    private ScheduledExecutorService exec;
+    private volatile boolean reconnecting = true;
 
     protected AbstractDbDc(Map<String, Object> properties, String dbSystem, String dbDriver) {
         super(new DbRawMetricRegistry().getMap());
@@ -68,6 +105,7 @@ public abstract class AbstractDbDc extends AbstractDc implements IDc {
         callbackInterval = (Integer) properties.getOrDefault(CALLBACK_INTERVAL, DEFAULT_CALLBACK_INTERVAL);
         otelBackendUrl = (String) properties.get(OTEL_BACKEND_URL);
         otelUsingHttp = (Boolean) properties.getOrDefault(OTEL_BACKEND_USING_HTTP, Boolean.FALSE);
+        otelBackends = properties.get(OTEL_BACKENDS);
 
         serviceName = (String) properties.get(OTEL_SERVICE_NAME);
         serviceInstanceId = (String) properties.get(OTEL_SERVICE_INSTANCE_ID);
@@ -89,6 +127,100 @@ public abstract class AbstractDbDc extends AbstractDc implements IDc {
         dbTenantName = (String) properties.get(DB_TENANT_NAME);
         dbName = (String) properties.get(DB_NAME);
         dbVersion = (String) properties.get(DB_VERSION);
+
+        for (PollTier tier : PollTier.values()) {
+            steps.put(tier, new ArrayList<>());
+        }
+        metricFilter = MetricFilter.fromConfig(properties.get(METRICS_INCLUDE), properties.get(METRICS_EXCLUDE));
+        parseTierIntervals(properties.get(CUSTOM_POLL_INTERVAL));
+        parseTierOverrides(properties.get(CUSTOM_POLL_TIER));
+        Object adaptiveConfig = properties.get(ADAPTIVE_POLLING);
+        adaptivePolling = AdaptivePollingController.fromConfig(adaptiveConfig instanceof Map ? (Map<?, ?>) adaptiveConfig : null);
+        loginTimeout = (Integer) properties.getOrDefault(DB_LOGIN_TIMEOUT, DEFAULT_DB_LOGIN_TIMEOUT);
+        fetchSize = (Integer) properties.getOrDefault(DB_FETCH_SIZE, 0);
+        int maxBackoff = (Integer) properties.getOrDefault(DB_RECONNECT_MAX_BACKOFF, DEFAULT_DB_RECONNECT_MAX_BACKOFF);
+        circuitBreaker = new ConnectionCircuitBreaker(dbAddress + ":" + dbPort, CIRCUIT_BREAKER_FAILURES,
+                TimeUnit.SECONDS.toMillis(pollInterval), TimeUnit.SECONDS.toMillis(maxBackoff), CIRCUIT_BREAKER_JITTER,
+                System::currentTimeMillis);
+        int sqlTextRefresh = (Integer) properties.getOrDefault(DB_SQL_TEXT_REFRESH_INTERVAL, DEFAULT_DB_SQL_TEXT_REFRESH_INTERVAL);
+        sqlTexts = new SqlTextDictionary(TimeUnit.SECONDS.toMillis(sqlTextRefresh),
+                (Integer) properties.getOrDefault(DB_SQL_TEXT_MAX_LENGTH, DEFAULT_DB_SQL_TEXT_MAX_LENGTH),
+                SQL_TEXT_DICTIONARY_SIZE, System::currentTimeMillis);
+        sqlShapeTopN = (Integer) properties.getOrDefault(DB_SQL_SHAPE_TOP_N, DEFAULT_DB_SQL_SHAPE_TOP_N);
+        sqlShapes = sqlShapeTopN > 0 ? new SqlShapeAggregator(sqlShapeTopN * SQL_SHAPE_CAPACITY_FACTOR) : null;
+    }
+
+    private void parseTierIntervals(Object value) {
+        if (!(value instanceof Map)) {
+            return;
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            PollTier tier = PollTier.of(String.valueOf(entry.getKey()));
+            if (tier == null || !(entry.getValue() instanceof Integer) || (Integer) entry.getValue() <= 0) {
+                logger.log(Level.WARNING, "Invalid polling interval {0}: {1}, ignored", new Object[]{entry.getKey(), entry.getValue()});
+                continue;
+            }
+            tierIntervals.put(tier, (Integer) entry.getValue());
+        }
+    }
+
+    private void parseTierOverrides(Object value) {
+        if (!(value instanceof Map)) {
+            return;
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            PollTier tier = PollTier.of(String.valueOf(entry.getValue()));
+            if (tier == null) {
+                logger.log(Level.WARNING, "Invalid polling tier {1} of {0}, ignored", new Object[]{entry.getKey(), entry.getValue()});
+                continue;
+            }
+            tierOverrides.put(String.valueOf(entry.getKey()), tier);
+        }
+    }
+
+    /**
+     * Declare a collection step, the tier it runs in is resolved from the overrides of the instance.
+     * A step whose metrics are all disabled by `metrics.include`/`metrics.exclude` is pruned: its queries never run.
+     */
+    protected void addCollectionStep(CollectionStep step) {
+        if (!metricFilter.isAnyEnabled(step.getMetricNames())) {
+            prunedSteps.add(step);
+            return;
+        }
+        steps.get(getTier(step)).add(step);
+    }
+
+    /**
+     * @return : steps left out of the collection plan because none of their metrics is enabled
+     */
+    public List<CollectionStep> getPrunedSteps() {
+        return Collections.unmodifiableList(prunedSteps);
+    }
+
+    public boolean isMetricEnabled(String metricName) {
+        return metricFilter.isEnabled(metricName);
+    }
+
+    /**
+     * @return : tier of the step, overridden by step name first, then by the first of its metrics having an override
+     */
+    public PollTier getTier(CollectionStep step) {
+        PollTier tier = tierOverrides.get(step.getName());
+        for (int i = 0; tier == null && i < step.getMetricNames().size(); i++) {
+            tier = tierOverrides.get(step.getMetricNames().get(i));
+        }
+        return tier == null ? step.getDefaultTier() : tier;
+    }
+
+    public List<CollectionStep> getCollectionSteps(PollTier tier) {
+        return Collections.unmodifiableList(steps.get(tier));
+    }
+
+    /**
+     * @return : interval of the tier in seconds, `poll.interval` unless configured in `custom.poll.interval`
+     */
+    public int getTierInterval(PollTier tier) {
+        return tierIntervals.getOrDefault(tier, pollInterval);
     }
 
     @Override
@@ -251,23 +383,395 @@ public abstract class AbstractDbDc extends AbstractDc implements IDc {
     @Override
     public void initDC() throws Exception {
         Resource resource = getResourceAttributes();
-        SdkMeterProvider sdkMeterProvider = this.getDefaultSdkMeterProvider(resource, otelBackendUrl, callbackInterval, otelUsingHttp, 10);
+        SdkMeterProvider sdkMeterProvider = this.getSdkMeterProvider(resource, otelBackends, otelBackendUrl, callbackInterval, otelUsingHttp, 10);
         OpenTelemetry openTelemetry = OpenTelemetrySdk.builder().setMeterProvider(sdkMeterProvider).build();
         initMeters(openTelemetry);
         registerMetrics();
     }
 
+    /**
+     * Register the instruments of the enabled metrics only, the disabled ones are never exported
+     */
+    @Override
+    public void registerMetrics() {
+        for (RawMetric rawMetric : getRawMetricsMap().values()) {
+            if (metricFilter.isEnabled(rawMetric.getName())) {
+                DcUtil.registerMetric(getMeters(), rawMetric);
+            }
+        }
+    }
+
     @Override
     public void initOnce() throws ClassNotFoundException {
         Class.forName(getDbDriver());
     }
 
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(getDbConnUrl(), getDbUserName(), getDbPassword());
+        return DriverManager.getConnection(getDbConnUrl(), getConnectionProperties());
+    }
+
+    /**
+     * Credentials and login timeout of the connections of this instance. The timeout is set per connection,
+     * DriverManager.setLoginTimeout is shared by the whole JVM, hence by the other instances.
+     * Fail fast on unreachable hosts instead of the driver default, the circuit breaker retries later.
+     * `connectTimeout` in milliseconds is read by the MySQL, OceanBase and DM drivers, the other dialects override it.
+     */
+    protected Properties getConnectionProperties() {
+        Properties properties = new Properties();
+        if (getDbUserName() != null) {
+            properties.setProperty("user", getDbUserName());
+        }
+        if (getDbPassword() != null) {
+            properties.setProperty("password", getDbPassword());
+        }
+        properties.setProperty("connectTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(loginTimeout)));
+        return properties;
+    }
+
+    /**
+     * @return : timeout in seconds of a connection attempt
+     */
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    /**
+     * @return : rows fetched per round trip by the queries returning one row per object, 0 for the driver default
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public ConnectionCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Record each execution read since the last call, elapsed time in seconds, into the db.sql.elapsed_time histogram
+     * with the attributes of its result, the database in server scope only: the statements are told apart by the shapes.
+     */
+    protected void recordSqlElapsedTimes(List<SimpleQueryResult> executions) {
+        if (executions == null) {
+            return;
+        }
+        RawMetric elapsedTime = getRawMetric(DB_SQL_ELAPSED_TIME_NAME);
+        for (SimpleQueryResult execution : executions) {
+            elapsedTime.recordSample(execution.getValue(), execution.getAttributes());
+        }
+    }
+
+    /**
+     * @return : aggregator the statements read by the collector are folded into, null if `db.sql.shape.top.n` is 0
+     */
+    public SqlShapeAggregator getSqlShapes() {
+        return sqlShapes;
+    }
+
+    /**
+     * Set db.sql.shape.elapsed_time and db.sql.shape.count with the heaviest shapes folded since the last call
+     * The texts of their fingerprints are only queued, db.sql.text is set once at the end of the run
+     */
+    protected void publishSqlShapes() {
+        if (sqlShapes == null) {
+            return;
+        }
+        List<SimpleQueryResult> elapsed = new ArrayList<>();
+        List<SimpleQueryResult> counts = new ArrayList<>();
+        for (SqlShapeAggregator.Shape shape : sqlShapes.drain(sqlShapeTopN)) {
+            String fingerprint = shape.getFingerprint();
+            elapsed.add(new SimpleQueryResult(shape.getElapsed()).setKey(fingerprint)
+                    .setAttribute(DB_SQL_SHAPE_ELAPSED_TIME_KEY, fingerprint)
+                    .setAttribute(SQL_TEXT.getKey(), shape.getText()));
+            counts.add(new SimpleQueryResult(shape.getCount()).setKey(fingerprint)
+                    .setAttribute(DB_SQL_SHAPE_COUNT_KEY, fingerprint));
+        }
+        getRawMetric(DB_SQL_SHAPE_ELAPSED_TIME_NAME).setValue(sqlTexts.encode(elapsed));
+        getRawMetric(DB_SQL_SHAPE_COUNT_NAME).setValue(counts);
+    }
+
+    /**
+     * The single point setting db.sql.text, once per run after all its steps: the steps only queue the texts of the
+     * fingerprints they encode. db.sql.text replaces all its points on every set, so a run which queued no text
+     * leaves the texts of another run in place until they are exported.
+     */
+    private synchronized void publishSqlTexts() {
+        List<SimpleQueryResult> texts = sqlTexts.drainTexts();
+        if (!texts.isEmpty()) {
+            getRawMetric(DB_SQL_TEXT_NAME).setValue(texts);
+        }
+    }
+
+    /**
+     * Run all tiers once, in order from the fast one, on a single connection
+     */
+    @Override
+    public void collectData() {
+        collectTiers(Arrays.asList(PollTier.values()));
+    }
+
+    /**
+     * Run the steps of a tier on its own connection
+     */
+    public void collectTier(PollTier tier) {
+        collectTiers(Collections.singletonList(tier));
+    }
+
+    /**
+     * Run the steps of tiers scheduled together on one connection, in the given order. A failing step does not prevent
+     * the next ones, the database is only reported down if no connection can be opened or the liveness probe fails.
+     * Connections go through the circuit breaker of the instance: while it is open the tiers are skipped and
+     * the database stays reported down, the first attempt after the backoff is validated before running the steps.
+     * The fast tier starts with the liveness probe, even if it has no step of its own.
+     * The metrics derived from expressions are computed again after the steps, from the values just collected.
+     */
+    protected void collectTiers(List<PollTier> tiers) {
+        List<PollTier> due = new ArrayList<>();
+        for (PollTier tier : tiers) {
+            if (steps.get(tier).isEmpty() && tier != PollTier.FAST) {
+                continue;
+            }
+            if (tier == PollTier.SLOW && !adaptivePolling.shouldRunSlowTier()) {
+                logger.fine("Slow tier skipped while the database is under stress");
+                continue;
+            }
+            due.add(tier);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        if (!circuitBreaker.allowAttempt()) {
+            logger.fine("The " + due + " tier(s) skipped, the circuit breaker is open");
+            publishStatus(false);
+            return;
+        }
+        logger.info("Start to collect the metrics of the " + due + " tier(s)");
+        Connection connection;
+        long acquireStart = System.nanoTime();
+        try {
+            connection = openConnection();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to connect to the database for the " + due + " tier(s)", e);
+            circuitBreaker.onFailure();
+            reconnecting = true;
+            publishStatus(false);
+            return;
+        }
+        long acquireNanos = System.nanoTime() - acquireStart;
+        try (Connection conn = connection) {
+            if (due.contains(PollTier.FAST) && !probe(conn, acquireNanos)) {
+                return;
+            }
+            startRun(conn);
+            try {
+                for (PollTier tier : due) {
+                    for (CollectionStep step : steps.get(tier)) {
+                        runStep(step, conn);
+                    }
+                }
+            } finally {
+                endRun(conn);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to close the connection of the " + due + " tier(s)", e);
+        }
+        publishSqlTexts();
+        evaluateExpressions();
+        evaluateAdaptivePolling();
+    }
+
+    /**
+     * Dry run: every tier once, each step measured by the profiler instead of feeding the adaptive polling.
+     * The circuit breaker is bypassed and nothing is exported, the instance needs not be initialized.
+     */
+    public void profile(CollectionProfiler profiler) {
+        for (PollTier tier : PollTier.values()) {
+            profileTier(tier, profiler);
+        }
+    }
+
+    /**
+     * Measure the connection of the tier, the liveness probe in the fast tier, then each of its steps
+     */
+    protected void profileTier(PollTier tier, CollectionProfiler profiler) {
+        List<CollectionStep> tierSteps = steps.get(tier);
+        if (tierSteps.isEmpty() && tier != PollTier.FAST) {
+            return;
+        }
+        String instance = getDbAddress() + ":" + getDbPort();
+        int interval = getTierInterval(tier);
+        Map<String, RawMetric> metrics = getRawMetricsMap();
+        AtomicReference<Connection> connection = new AtomicReference<>();
+        profiler.measure(instance, "connection", tier, interval, metrics, Collections.emptyList(),
+                () -> connection.set(getConnection()));
+        if (connection.get() == null) {
+            return;
+        }
+        try (Connection conn = connection.get()) {
+            if (tier == PollTier.FAST) {
+                profiler.measure(instance, PROBE, tier, interval, metrics, Collections.emptyList(), () -> {
+                    try (Statement statement = conn.createStatement()) {
+                        statement.execute(getPingQuery());
+                    }
+                });
+            }
+            startRun(conn);
+            try {
+                for (CollectionStep step : tierSteps) {
+                    profiler.measure(instance, step.getName(), tier, interval, metrics, step.getMetricNames(),
+                            () -> step.collect(conn));
+                }
+            } finally {
+                endRun(conn);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to close the connection of the " + tier + " tier", e);
+        }
+    }
+
+    /**
+     * Called before the steps of a run on its connection, e.g. to set up state shared by the steps of this run only
+     */
+    protected void startRun(Connection connection) {
+    }
+
+    /**
+     * Called after the steps of a run, even if one failed
+     */
+    protected void endRun(Connection connection) {
+    }
+
+    private Connection openConnection() throws SQLException {
+        boolean halfOpen = circuitBreaker.getState() == ConnectionCircuitBreaker.State.HALF_OPEN;
+        Connection connection = getConnection();
+        if (halfOpen && !connection.isValid(loginTimeout)) {
+            connection.close();
+            throw new SQLException("The connection probe failed");
+        }
+        circuitBreaker.onSuccess();
+        return connection;
+    }
+
+    /**
+     * Liveness probe: round trip of the ping query on the acquired connection, db.status follows its outcome
+     *
+     * @return : false if the database did not answer, the steps of the tier are skipped then
+     */
+    private boolean probe(Connection connection, long acquireNanos) {
+        long start = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(loginTimeout);
+            statement.execute(getPingQuery());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "The database did not answer the ping query", e);
+            adaptivePolling.record(PROBE, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), true);
+            circuitBreaker.onFailure();
+            reconnecting = true;
+            publishStatus(false);
+            return false;
+        }
+        long pingNanos = System.nanoTime() - start;
+        adaptivePolling.record(PROBE, TimeUnit.NANOSECONDS.toMillis(pingNanos), false);
+        publishStatus(true);
+        getRawMetric(DB_CONNECTION_ACQUIRE_TIME_NAME).recordSample(acquireNanos / 1e9);
+        getRawMetric(DB_PING_TIME_NAME).recordSample(pingNanos / 1e9);
+        if (reconnecting) {
+            getRawMetric(DB_LOGIN_TIME_NAME).recordSample(acquireNanos / 1e9);
+            reconnecting = false;
+        }
+        return true;
+    }
+
+    /**
+     * @return : cheapest statement the database answers, overridden by the dialects without a FROM-less SELECT
+     */
+    protected String getPingQuery() {
+        return "SELECT 1";
+    }
+
+    /**
+     * Report the outcome of the liveness probe as db.status
+     */
+    protected void publishStatus(boolean up) {
+        getRawMetric(DB_STATUS_NAME).setValue(up ? 1 : 0);
+    }
+
+    protected void runStep(CollectionStep step, Connection connection) {
+        if (adaptivePolling.shouldSkip(step)) {
+            logger.fine("Optional step " + step.getName() + " skipped while the database is under stress");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            step.collect(connection);
+        } catch (Exception e) {
+            failed = true;
+            logger.log(Level.SEVERE, "Failed to collect " + step.getName() + " with exception", e);
+        }
+        adaptivePolling.record(step.getName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed);
+    }
+
+    /**
+     * Feed the load signals read by the collector to the adaptive controller and export its decision
+     */
+    private void evaluateAdaptivePolling() {
+        if (!adaptivePolling.isEnabled()) {
+            return;
+        }
+        adaptivePolling.evaluate(getDefaultValue(DB_CPU_UTILIZATION_NAME), getDefaultValue(DB_SESSION_ACTIVE_COUNT_NAME));
+        getRawMetric(DB_POLLING_LEVEL_NAME).setValue(adaptivePolling.isReduced() ? 1 : 0,
+                Collections.<String, Object>singletonMap(DB_POLLING_LEVEL_KEY, adaptivePolling.getReason()));
+    }
+
+    private Number getDefaultValue(String metricName) {
+        RawMetric.DataPoint dataPoint = getRawMetric(metricName).getDataPoints().get(RawMetric.DEFAULT);
+        return dataPoint == null ? null : dataPoint.getValue();
+    }
+
+    public AdaptivePollingController getAdaptivePolling() {
+        return adaptivePolling;
+    }
+
+    private static List<String> stepNames(List<CollectionStep> steps) {
+        List<String> names = new ArrayList<>();
+        for (CollectionStep step : steps) {
+            names.add(step.getName());
+        }
+        return names;
     }
 
     @Override
     public void start() {
-        exec.scheduleWithFixedDelay(this::collectData, 1, pollInterval, TimeUnit.SECONDS);
+        if (!prunedSteps.isEmpty()) {
+            logger.info("Steps pruned by metrics.include/metrics.exclude: " + stepNames(prunedSteps));
+        }
+        if (tierIntervals.isEmpty()) {
+            for (PollTier tier : PollTier.values()) {
+                if (!steps.get(tier).isEmpty()) {
+                    logger.info("Polling the " + tier + " tier every " + pollInterval + "s: " + stepNames(steps.get(tier)));
+                }
+            }
+            exec = Executors.newSingleThreadScheduledExecutor();
+            exec.scheduleWithFixedDelay(this::collectData, 1, pollInterval, TimeUnit.SECONDS);
+            return;
+        }
+        //Each interval has its own thread, so a slow tier never delays the fast one,
+        //tiers polled at the same interval run together on one connection
+        Map<Integer, List<PollTier>> schedules = new TreeMap<>();
+        for (PollTier tier : PollTier.values()) {
+            List<CollectionStep> tierSteps = steps.get(tier);
+            //The fast tier always runs, it carries the liveness probe and db.status
+            if (tierSteps.isEmpty() && tier != PollTier.FAST) {
+                continue;
+            }
+            int interval = getTierInterval(tier);
+            logger.info("Polling the " + tier + " tier every " + interval + "s: " + stepNames(tierSteps));
+            schedules.computeIfAbsent(interval, key -> new ArrayList<>()).add(tier);
+        }
+        exec = Executors.newScheduledThreadPool(schedules.size());
+        for (Map.Entry<Integer, List<PollTier>> schedule : schedules.entrySet()) {
+            List<PollTier> tiers = schedule.getValue();
+            exec.scheduleWithFixedDelay(() -> collectTiers(tiers), 1, schedule.getKey(), TimeUnit.SECONDS);
+        }
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Backs the collector off while the monitored database is under stress. The latency and the error rate of every
+ * collection step are smoothed with an EWMA and checked together with the CPU utilization and the active sessions
+ * the collector reads anyway. Above a threshold the slow tier only runs every few polls and the optional steps are
+ * skipped; the normal cadence is restored once every signal stayed below a fraction of its threshold for a few
+ * evaluations, so a database hovering around a threshold does not flip the resolution on every poll.
+ */
+public class AdaptivePollingController {
+    private static final Logger logger = Logger.getLogger(AdaptivePollingController.class.getName());
+
+    public static final String ENABLED = "enabled";
+    public static final String CPU_THRESHOLD = "cpu.threshold";
+    public static final String ACTIVE_SESSION_THRESHOLD = "active.session.threshold";
+    public static final String LATENCY_THRESHOLD = "latency.threshold";
+    public static final String ERROR_RATE_THRESHOLD = "error.rate.threshold";
+    public static final String SLOW_TIER_STRETCH = "slow.tier.stretch";
+
+    public static final String REASON_NONE = "none";
+    public static final String REASON_CPU = "cpu";
+    public static final String REASON_ACTIVE_SESSIONS = "active_sessions";
+    public static final String REASON_LATENCY = "latency";
+    public static final String REASON_ERRORS = "errors";
+
+    static final double ALPHA = 0.3;
+    static final double RECOVERY_RATIO = 0.8;
+    static final int RECOVERY_EVALUATIONS = 3;
+
+    private final boolean enabled;
+    private final double cpuThreshold;
+    private final long activeSessionThreshold;
+    private final long latencyThresholdMillis;
+    private final double errorRateThreshold;
+    private final int slowTierStretch;
+
+    private final Map<String, double[]> latencies = new ConcurrentHashMap<>();
+    private final Map<String, double[]> errorRates = new ConcurrentHashMap<>();
+    private volatile boolean reduced = false;
+    private volatile String reason = REASON_NONE;
+    private int calmEvaluations = 0;
+    private long slowTierRuns = 0;
+
+    /**
+     * @param cpuThreshold           : CPU utilization (0-1) above which the database is considered under stress
+     * @param activeSessionThreshold : active sessions above which the database is considered under stress, 0 to ignore them
+     * @param latencyThresholdMillis : smoothed latency of any step above which the database is considered under stress
+     * @param errorRateThreshold     : smoothed error rate (0-1) of any step above which the database is considered under stress
+     * @param slowTierStretch        : the slow tier runs once every that many polls while under stress
+     */
+    public AdaptivePollingController(boolean enabled, double cpuThreshold, long activeSessionThreshold,
+                                     long latencyThresholdMillis, double errorRateThreshold, int slowTierStretch) {
+        this.enabled = enabled;
+        this.cpuThreshold = cpuThreshold;
+        this.activeSessionThreshold = activeSessionThreshold;
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.errorRateThreshold = errorRateThreshold;
+        this.slowTierStretch = Math.max(1, slowTierStretch);
+    }
+
+    /**
+     * @param config : the `adaptive.polling` section of an instance, null to disable the controller
+     */
+    public static AdaptivePollingController fromConfig(Map<?, ?> config) {
+        if (config == null) {
+            return new AdaptivePollingController(false, 0.9, 0, 5000, 0.5, 4);
+        }
+        return new AdaptivePollingController(
+                Boolean.parseBoolean(String.valueOf(config.containsKey(ENABLED) ? config.get(ENABLED) : Boolean.TRUE)),
+                toNumber(config.get(CPU_THRESHOLD), 0.9).doubleValue(),
+                toNumber(config.get(ACTIVE_SESSION_THRESHOLD), 0).longValue(),
+                toNumber(config.get(LATENCY_THRESHOLD), 5000).longValue(),
+                toNumber(config.get(ERROR_RATE_THRESHOLD), 0.5).doubleValue(),
+                toNumber(config.get(SLOW_TIER_STRETCH), 4).intValue());
+    }
+
+    private static Number toNumber(Object value, Number defaultValue) {
+        return value instanceof Number ? (Number) value : defaultValue;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fold the duration and the outcome of one run of a step into its EWMAs
+     */
+    public void record(String step, long millis, boolean failed) {
+        if (!enabled) {
+            return;
+        }
+        update(latencies, step, millis);
+        update(errorRates, step, failed ? 1 : 0);
+    }
+
+    private static void update(Map<String, double[]> ewmas, String step, double sample) {
+        double[] ewma = ewmas.computeIfAbsent(step, k -> new double[]{sample});
+        synchronized (ewma) {
+            ewma[0] = ALPHA * sample + (1 - ALPHA) * ewma[0];
+        }
+    }
+
+    /**
+     * Decide the resolution from the latest signals, null signals are not read by the collector and ignored
+     *
+     * @return : true if the decision changed
+     */
+    public synchronized boolean evaluate(Number cpuUtilization, Number activeSessions) {
+        if (!enabled) {
+            return false;
+        }
+        double cpu = cpuUtilization == null ? 0 : cpuUtilization.doubleValue();
+        long sessions = activeSessions == null || activeSessionThreshold <= 0 ? 0 : activeSessions.longValue();
+        double latency = max(latencies);
+        double errors = max(errorRates);
+
+        String stress = stressOf(cpu, sessions, latency, errors, 1);
+        if (stress != null) {
+            calmEvaluations = 0;
+            return decide(true, stress);
+        }
+        if (reduced && stressOf(cpu, sessions, latency, errors, RECOVERY_RATIO) == null
+                && ++calmEvaluations >= RECOVERY_EVALUATIONS) {
+            calmEvaluations = 0;
+            return decide(false, REASON_NONE);
+        }
+        return false;
+    }
+
+    private String stressOf(double cpu, long sessions, double latency, double errors, double ratio) {
+        if (cpu > cpuThreshold * ratio) {
+            return REASON_CPU;
+        }
+        if (activeSessionThreshold > 0 && sessions > activeSessionThreshold * ratio) {
+            return REASON_ACTIVE_SESSIONS;
+        }
+        if (latency > latencyThresholdMillis * ratio) {
+            return REASON_LATENCY;
+        }
+        if (errors > errorRateThreshold * ratio) {
+            return REASON_ERRORS;
+        }
+        return null;
+    }
+
+    private boolean decide(boolean stressed, String newReason) {
+        boolean changed = reduced != stressed;
+        reduced = stressed;
+        reason = newReason;
+        if (changed) {
+            logger.info(stressed ? "Database under stress (" + newReason + "), stretching the slow tier by "
+                    + slowTierStretch + " and skipping the optional queries" : "Database recovered, normal polling cadence restored");
+        }
+        return changed;
+    }
+
+    private static double max(Map<String, double[]> ewmas) {
+        double max = 0;
+        for (double[] ewma : ewmas.values()) {
+            synchronized (ewma) {
+                max = Math.max(max, ewma[0]);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * The EWMAs of a skipped step are forgotten: they are not refreshed while it is skipped, and a slow optional
+     * step would otherwise keep the controller reduced for good. The step is measured afresh once it runs again.
+     *
+     * @return : true if the optional step has to be skipped at the current resolution
+     */
+    public boolean shouldSkip(CollectionStep step) {
+        if (!reduced || !step.isOptional()) {
+            return false;
+        }
+        latencies.remove(step.getName());
+        errorRates.remove(step.getName());
+        return true;
+    }
+
+    /**
+     * Called on every scheduled run of the slow tier
+     *
+     * @return : false for the runs dropped while the slow tier is stretched
+     */
+    public synchronized boolean shouldRunSlowTier() {
+        if (!reduced) {
+            slowTierRuns = 0;
+            return true;
+        }
+        return slowTierRuns++ % slowTierStretch == 0;
+    }
+
+    public boolean isReduced() {
+        return reduced;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
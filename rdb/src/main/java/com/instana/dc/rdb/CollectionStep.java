@@ -0,0 +1,65 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One query (or a group of queries sharing a read) of a collector, with the metrics it sets and its default tier.
+ * The tier can be overridden per instance in `custom.poll.tier`, by step name or by any of its metric names.
+ */
+public class CollectionStep {
+
+    /**
+     * Runs the step on the connection of the current tier run
+     */
+    public interface Action {
+        void collect(Connection connection) throws Exception;
+    }
+
+    private final String name;
+    private final PollTier defaultTier;
+    private final List<String> metricNames;
+    private final Action action;
+    private boolean optional = false;
+
+    public CollectionStep(String name, PollTier defaultTier, Action action, String... metricNames) {
+        this.name = name;
+        this.defaultTier = defaultTier;
+        this.action = action;
+        this.metricNames = Collections.unmodifiableList(Arrays.asList(metricNames));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PollTier getDefaultTier() {
+        return defaultTier;
+    }
+
+    public List<String> getMetricNames() {
+        return metricNames;
+    }
+
+    public boolean isOptional() {
+        return optional;
+    }
+
+    /**
+     * Mark the step as expendable: diagnostics that may be skipped while the database is under pressure
+     */
+    public CollectionStep setOptional(boolean optional) {
+        this.optional = optional;
+        return this;
+    }
+
+    public void collect(Connection connection) throws Exception {
+        action.collect(connection);
+    }
+}
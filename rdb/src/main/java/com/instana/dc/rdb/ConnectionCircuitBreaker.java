@@ -0,0 +1,114 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker guarding the connections of one instance. After a few consecutive connection failures the
+ * breaker opens and no connection is attempted until an exponentially growing, jittered backoff has elapsed.
+ * Then a single attempt is let through (half-open): it closes the breaker on success and reopens it with a
+ * longer backoff on failure. So dead instances neither block the polling threads on login timeouts every poll
+ * nor reconnect all at the same time once they come back.
+ */
+public class ConnectionCircuitBreaker {
+    private static final Logger logger = Logger.getLogger(ConnectionCircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double jitterRatio;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private int openings = 0;
+    private long retryAt = 0;
+
+    /**
+     * @param name              : instance the breaker belongs to, for the logs
+     * @param failureThreshold  : consecutive connection failures opening the breaker
+     * @param baseBackoffMillis : backoff after the first opening, doubled on every failed retry
+     * @param maxBackoffMillis  : upper bound of the backoff
+     * @param jitterRatio       : the backoff is randomly shortened or lengthened by up to this ratio
+     * @param clock             : current time in milliseconds
+     */
+    public ConnectionCircuitBreaker(String name, int failureThreshold, long baseBackoffMillis, long maxBackoffMillis,
+                                    double jitterRatio, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = Math.max(baseBackoffMillis, maxBackoffMillis);
+        this.jitterRatio = jitterRatio;
+        this.clock = clock;
+    }
+
+    /**
+     * @return : true if a connection may be attempted now, the breaker turns half-open when its backoff is over
+     */
+    public synchronized boolean allowAttempt() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() < retryAt) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                logger.info("Circuit breaker of " + name + " is half-open, probing the database");
+                return true;
+            default:
+                //A probe is already running on another tier
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Circuit breaker of " + name + " is closed, the database is reachable again");
+        }
+        state = State.CLOSED;
+        failures = 0;
+        openings = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            long backoff = nextBackoff();
+            state = State.OPEN;
+            retryAt = clock.getAsLong() + backoff;
+            logger.warning("Circuit breaker of " + name + " is open after " + failures
+                    + " connection failure(s), next attempt in " + backoff + "ms");
+        }
+    }
+
+    private long nextBackoff() {
+        long backoff = baseBackoffMillis << Math.min(openings, 30);
+        openings++;
+        backoff = Math.min(maxBackoffMillis, backoff);
+        if (jitterRatio > 0) {
+            backoff += (long) (backoff * jitterRatio * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+        }
+        return Math.max(0, backoff);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    synchronized long getRetryAt() {
+        return retryAt;
+    }
+}
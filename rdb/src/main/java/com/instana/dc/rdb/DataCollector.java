@@ -25,6 +25,8 @@ public class DataCollector {
 
     private static final Logger logger = Logger.getLogger(DataCollector.class.getName());
 
+    private static final String PROFILE_ARG = "--profile";
+
     private DcConfig dcConfig;
 
     private final List<IDc> dcs;
@@ -54,6 +56,12 @@ public class DataCollector {
     public static void main(String[] args) {
         try {
             DataCollector dcol = new DataCollector();
+            for (String arg : args) {
+                if (arg.startsWith(PROFILE_ARG)) {
+                    dcol.profile(arg.equals(PROFILE_ARG + "=json"));
+                    return;
+                }
+            }
             dcol.initDcs();
             dcol.startCollect();
         } catch (Exception e) {
@@ -61,6 +69,23 @@ public class DataCollector {
         }
     }
 
+    /**
+     * Run every collection step of every instance once and print what it costs, nothing is exported
+     *
+     * @param json : print the measures as JSON instead of a table
+     */
+    private void profile(boolean json) throws Exception {
+        CollectionProfiler profiler = new CollectionProfiler();
+        for (IDc dc : dcs) {
+            ((AbstractDbDc) dc).profile(profiler);
+        }
+        if (json) {
+            System.out.println(profiler.toJson());
+        } else {
+            profiler.printTable(System.out);
+        }
+    }
+
     private void initDcs() throws Exception {
         int i = 0;
         for (IDc dc : dcs) {
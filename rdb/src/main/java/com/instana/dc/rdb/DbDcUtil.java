@@ -4,8 +4,12 @@
  */
 package com.instana.dc.rdb;
 
+import com.instana.dc.DcException;
+import com.instana.dc.MetricExpression;
+import com.instana.dc.QueryResultBatch;
 import com.instana.dc.SimpleQueryResult;
 
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -45,6 +49,22 @@ public class DbDcUtil {
     public static final String DB_TENANT_ID = "db.tenant.id";
     public static final String DB_TENANT_NAME = "db.tenant.name";
     public static final String DB_ENTITY_PARENT_ID = "db.entity.parent.id";
+    public static final String CUSTOM_POLL_INTERVAL = "custom.poll.interval";
+    public static final String CUSTOM_POLL_TIER = "custom.poll.tier";
+    public static final String ADAPTIVE_POLLING = "adaptive.polling";
+    public static final String METRICS_INCLUDE = "metrics.include";
+    public static final String METRICS_EXCLUDE = "metrics.exclude";
+    public static final String DB_FETCH_SIZE = "db.fetch.size";
+    public static final String DB_LOGIN_TIMEOUT = "db.login.timeout";
+    public static final int DEFAULT_DB_LOGIN_TIMEOUT = 10;  //unit is second
+    public static final String DB_RECONNECT_MAX_BACKOFF = "db.reconnect.max.backoff";
+    public static final int DEFAULT_DB_RECONNECT_MAX_BACKOFF = 600;  //unit is second
+    public static final String DB_SQL_TEXT_REFRESH_INTERVAL = "db.sql.text.refresh.interval";
+    public static final int DEFAULT_DB_SQL_TEXT_REFRESH_INTERVAL = 3600;  //unit is second
+    public static final String DB_SQL_TEXT_MAX_LENGTH = "db.sql.text.max.length";
+    public static final int DEFAULT_DB_SQL_TEXT_MAX_LENGTH = 4096;
+    public static final String DB_SQL_SHAPE_TOP_N = "db.sql.shape.top.n";
+    public static final int DEFAULT_DB_SQL_SHAPE_TOP_N = 20;
     public static final String DEFAULT_INSTRUMENTATION_SCOPE = "instana.sensor-sdk.dc.db";
     public static final String DEFAULT_INSTRUMENTATION_SCOPE_VER = "1.0.0";
 
@@ -66,6 +86,15 @@ public class DbDcUtil {
     public static final String DB_INSTANCE_ACTIVE_COUNT_DESC = "The total number of active db instances";
     public static final String DB_INSTANCE_ACTIVE_COUNT_UNIT = "{instance}";
 
+    public static final String DB_CONNECTION_ACQUIRE_TIME_NAME = DB_CONNECTION_ACQUIRE_TIME.getKey();
+    public static final String DB_CONNECTION_ACQUIRE_TIME_DESC = "Distribution of the time to obtain the connection of the liveness probe";
+
+    public static final String DB_PING_TIME_NAME = DB_PING_TIME.getKey();
+    public static final String DB_PING_TIME_DESC = "Distribution of the round trip time of the ping query of the liveness probe";
+
+    public static final String DB_LOGIN_TIME_NAME = DB_LOGIN_TIME.getKey();
+    public static final String DB_LOGIN_TIME_DESC = "Distribution of the time to log in again after the database was unreachable";
+
     public static final String DB_SESSION_COUNT_NAME = DB_SESSION_COUNT.getKey();
     public static final String DB_SESSION_COUNT_DESC = "Number of sessions";
     public static final String DB_SESSION_COUNT_UNIT = "{session}";
@@ -114,11 +143,25 @@ public class DbDcUtil {
     public static final String DB_CACHE_HIT_KEY = TYPE.getKey();
 
     public static final String DB_SQL_ELAPSED_TIME_NAME = DB_SQL_ELAPSED_TIME.getKey();
-    public static final String DB_SQL_ELAPSED_TIME_DESC = "The elapsed time in second of the query";
+    public static final String DB_SQL_ELAPSED_TIME_DESC = "Distribution of the elapsed time in second of the statement executions";
     public static final String DB_SQL_ELAPSED_TIME_KEY = SQL_ID.getKey();
 
+    public static final String DB_SQL_TEXT_NAME = DB_SQL_TEXT.getKey();
+    public static final String DB_SQL_TEXT_DESC = "Full text of a statement, sent once per fingerprint and on refresh, the statement metrics only carry the fingerprint";
+    public static final String DB_SQL_TEXT_UNIT = "{statement}";
+    public static final String DB_SQL_TEXT_KEY = SQL_FINGERPRINT.getKey();
+
+    public static final String DB_SQL_SHAPE_ELAPSED_TIME_NAME = DB_SQL_SHAPE_ELAPSED_TIME.getKey();
+    public static final String DB_SQL_SHAPE_ELAPSED_TIME_DESC = "The elapsed time in second of the statements of a shape, literals stripped, over the interval";
+    public static final String DB_SQL_SHAPE_ELAPSED_TIME_KEY = SQL_FINGERPRINT.getKey();
+
+    public static final String DB_SQL_SHAPE_COUNT_NAME = DB_SQL_SHAPE_COUNT.getKey();
+    public static final String DB_SQL_SHAPE_COUNT_DESC = "The number of executions of the statements of a shape, literals stripped, over the interval";
+    public static final String DB_SQL_SHAPE_COUNT_UNIT = "{execution}";
+    public static final String DB_SQL_SHAPE_COUNT_KEY = SQL_FINGERPRINT.getKey();
+
     public static final String DB_LOCK_TIME_NAME = DB_LOCK_TIME.getKey();
-    public static final String DB_LOCK_TIME_DESC = "The lock elapsed time";
+    public static final String DB_LOCK_TIME_DESC = "Distribution of the time in second the blocked locks were waited for";
     public static final String DB_LOCK_TIME_KEY = LOCK_ID.getKey();
 
     public static final String DB_LOCK_COUNT_NAME = DB_LOCK_COUNT.getKey();
@@ -164,6 +207,18 @@ public class DbDcUtil {
     public static final String DB_DISK_READ_COUNT_DESC = "Actual number of physical reads to disk";
     public static final String DB_DISK_READ_COUNT_UNIT = "{read}";
 
+    //Inputs of the derived metrics of DbRawMetricRegistry, collected but not exported
+    public static final String DB_BUFFER_READ_COUNT_NAME = "db.buffer.read.count";
+    public static final String DB_BUFFER_READ_COUNT_DESC = "Number of page reads from the buffer pool";
+    public static final String DB_BUFFER_WRITE_COUNT_NAME = "db.buffer.write.count";
+    public static final String DB_BUFFER_WRITE_COUNT_DESC = "Number of page writes to the buffer pool";
+    public static final String DB_TRANSACTION_TIME_NAME = "db.transaction.time";
+    public static final String DB_TRANSACTION_TIME_DESC = "The total time spent in the completed transactions";
+    public static final String DB_MEM_USED_NAME = "db.mem.used";
+    public static final String DB_MEM_USED_DESC = "The used memory";
+    public static final String DB_MEM_SIZE_NAME = "db.mem.size";
+    public static final String DB_MEM_SIZE_DESC = "The total memory";
+
     public static final String DB_BACKUP_CYCLE_NAME = DB_BACKUP_CYCLE.getKey();
     public static final String DB_BACKUP_CYCLE_DESC = "Backup cycle";
 
@@ -201,7 +256,7 @@ public class DbDcUtil {
     public static final String DB_USER_OVERFLOW_UNIT = "{overflowUser}";
 
     public static final String DB_SEQ_SCAN_NAME = DB_SEQ_SCAN_COUNT.getKey();
-    public static final String DB_SEQ_SCAN_DESC = "Count of Sequential Scans for a table";
+    public static final String DB_SEQ_SCAN_DESC = "Sequential scans of a table during the last poll interval";
     public static final String DB_SEQ_SCAN_UNIT = "{scan}";
     public static final String DB_SEQ_SCAN_KEY = TABLE_NAME.getKey();
 
@@ -225,10 +280,45 @@ public class DbDcUtil {
     public static final String DB_LRU_WRITES_DESC = "Number of LRU (Least Recently Used) Writes.";
     public static final String DB_LRU_WRITES_UNIT = "{lruWrites}";
 
+    public static final String DB_ONSTAT_CPU_TIME_NAME = DB_ONSTAT_CPU_TIME.getKey();
+    public static final String DB_ONSTAT_CPU_TIME_DESC = "CPU time used by the long-running onstat processes of the streaming mode";
+    public static final String DB_ONSTAT_CPU_TIME_KEY = ONSTAT_COMMAND.getKey();
+
+    public static final String DB_POLLING_LEVEL_NAME = DB_POLLING_LEVEL.getKey();
+    public static final String DB_POLLING_LEVEL_DESC = "Data resolution of the collector, 0 for the normal cadence, 1 while it backs off a database under stress";
+    public static final String DB_POLLING_LEVEL_UNIT = "{level}";
+    public static final String DB_POLLING_LEVEL_KEY = REASON.getKey();
+
+    //Attributes of the per-node series of a cluster
+    public static final String DB_CLUSTER_NODE_KEY = SERVER_NAME.getKey();
+    public static final String DB_CLUSTER_ROLE_KEY = ROLE.getKey();
+
     /* Utilities:
      **/
+    /**
+     * @param text : expression over the metrics of the registry, a constant of the collector
+     * @throws IllegalArgumentException : the text is not a valid expression
+     */
+    public static MetricExpression expression(String text) {
+        try {
+            return MetricExpression.parse(text);
+        } catch (DcException e) {
+            throw new IllegalArgumentException("Invalid metric expression: " + text, e);
+        }
+    }
+
     public static ResultSet executeQuery(Connection connection, String query) throws SQLException {
+        return executeQuery(connection, query, 0);
+    }
+
+    /**
+     * @param fetchSize : rows fetched per round trip, 0 for the driver default
+     */
+    public static ResultSet executeQuery(Connection connection, String query, int fetchSize) throws SQLException {
         Statement statement = connection.createStatement();
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
         return statement.executeQuery(query);
     }
 
@@ -296,9 +386,16 @@ public class DbDcUtil {
     }
 
     public static List<SimpleQueryResult> getMetricWithSql(Connection connection, String queryStr, String... attrs) {
+        return getMetricWithSql(connection, queryStr, 0, attrs);
+    }
+
+    /**
+     * Variant for result sets with many rows, fetched fetchSize rows per round trip
+     */
+    public static List<SimpleQueryResult> getMetricWithSql(Connection connection, String queryStr, int fetchSize, String... attrs) {
         List<SimpleQueryResult> results = new ArrayList<>();
         try {
-            ResultSet rs = executeQuery(connection, queryStr);
+            ResultSet rs = executeQuery(connection, queryStr, fetchSize);
             if (rs.isClosed()) {
                 logger.severe("getMetricWithSql: ResultSet is closed");
                 return null;
@@ -329,4 +426,45 @@ public class DbDcUtil {
         }
     }
 
+    /**
+     * Variant filling a reused batch instead of allocating a result per row: the value is read from the first column,
+     * the attributes of the batch from the next ones in order, the first attribute being the key
+     *
+     * @return : false if the query failed, the batch is left empty then
+     */
+    public static boolean getMetricWithSql(Connection connection, String queryStr, int fetchSize, QueryResultBatch batch) {
+        batch.clear();
+        try (ResultSet rs = executeQuery(connection, queryStr, fetchSize);
+             Statement ignored = rs.getStatement()) {
+            while (rs.next()) {
+                Number value = (Number) rs.getObject(1);
+                String key = batch.getAttributeCount() > 0 ? attributeOf(rs.getObject(2)) : null;
+                int row = value == null ? batch.add(key, 0L) : batch.isInteger() ? batch.add(key, value.longValue()) : batch.add(key, value.doubleValue());
+                if (value == null) {
+                    batch.setNull(row);
+                }
+                for (int column = 0; column < batch.getAttributeCount(); column++) {
+                    batch.setAttribute(row, column, column == 0 ? key : attributeOf(rs.getObject(column + 2)));
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "getMetricWithSql: Error occurred", e);
+            batch.clear();
+            return false;
+        }
+    }
+
+    private static String attributeOf(Object obj) {
+        return obj == null ? "null" : obj.toString().trim();
+    }
+
+    /**
+     * @return : whether a value read from a result set is an integer, a decimal is kept as double
+     */
+    public static boolean isIntegral(Number value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger;
+    }
+
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.instana.dc.InstrumentType.GAUGE;
+import static com.instana.dc.InstrumentType.HISTOGRAM;
 import static com.instana.dc.InstrumentType.UPDOWN_COUNTER;
 import static com.instana.dc.rdb.DbDcUtil.*;
 
@@ -18,12 +19,16 @@ public class DbRawMetricRegistry {
         put(DB_STATUS_NAME, new RawMetric(GAUGE, DB_STATUS_NAME, DB_STATUS_DESC, DB_STATUS_UNIT, true, null));
         put(DB_INSTANCE_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_INSTANCE_COUNT_NAME, DB_INSTANCE_COUNT_DESC, DB_INSTANCE_COUNT_UNIT, true, null));
         put(DB_INSTANCE_ACTIVE_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_INSTANCE_ACTIVE_COUNT_NAME, DB_INSTANCE_ACTIVE_COUNT_DESC, DB_INSTANCE_ACTIVE_COUNT_UNIT, true, null));
+        put(DB_CONNECTION_ACQUIRE_TIME_NAME, new RawMetric(HISTOGRAM, DB_CONNECTION_ACQUIRE_TIME_NAME, DB_CONNECTION_ACQUIRE_TIME_DESC, UNIT_S, false, null));
+        put(DB_PING_TIME_NAME, new RawMetric(HISTOGRAM, DB_PING_TIME_NAME, DB_PING_TIME_DESC, UNIT_S, false, null));
+        put(DB_LOGIN_TIME_NAME, new RawMetric(HISTOGRAM, DB_LOGIN_TIME_NAME, DB_LOGIN_TIME_DESC, UNIT_S, false, null));
 
         put(DB_SESSION_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_SESSION_COUNT_NAME, DB_SESSION_COUNT_DESC, DB_SESSION_COUNT_UNIT, true, null));
         put(DB_SESSION_ACTIVE_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_SESSION_ACTIVE_COUNT_NAME, DB_SESSION_ACTIVE_COUNT_DESC, DB_SESSION_ACTIVE_COUNT_UNIT, true, null));
         put(DB_TRANSACTION_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_TRANSACTION_COUNT_NAME, DB_TRANSACTIONS_COUNT_DESC, DB_TRANSACTION_COUNT_UNIT, true, null));
         put(DB_TRANSACTION_RATE_NAME, new RawMetric(GAUGE, DB_TRANSACTION_RATE_NAME, DB_TRANSACTION_RATE_DESC, DB_TRANSACTION_RATE_UNIT, false, null));
-        put(DB_TRANSACTION_LATENCY_NAME, new RawMetric(GAUGE, DB_TRANSACTION_LATENCY_NAME, DB_TRANSACTION_LATENCY_DESC, UNIT_S, false, null));
+        put(DB_TRANSACTION_LATENCY_NAME, new RawMetric(GAUGE, DB_TRANSACTION_LATENCY_NAME, DB_TRANSACTION_LATENCY_DESC, UNIT_S, false, null)
+                .setExpression(expression(DB_TRANSACTION_TIME_NAME + " / " + DB_TRANSACTION_COUNT_NAME)));
         put(DB_SQL_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_SQL_COUNT_NAME, DB_SQL_COUNT_DESC, DB_SQL_COUNT_UNIT, true, null));
         put(DB_SQL_RATE_NAME, new RawMetric(GAUGE, DB_SQL_RATE_NAME, DB_SQL_RATE_DESC, DB_SQL_RATE_UNIT, false, null));
         put(DB_SQL_LATENCY_NAME, new RawMetric(GAUGE, DB_SQL_LATENCY_NAME, DB_SQL_LATENCY_DESC, UNIT_S, false, null));
@@ -33,9 +38,12 @@ public class DbRawMetricRegistry {
         put(DB_TASK_AVG_WAIT_TIME_NAME, new RawMetric(GAUGE, DB_TASK_AVG_WAIT_TIME_NAME, DB_TASK_AVG_WAIT_TIME_DESC, UNIT_S, false, null));
 
         put(DB_CACHE_HIT_NAME, new RawMetric(GAUGE, DB_CACHE_HIT_NAME, DB_CACHE_HIT_DESC, UNIT_1, false, DB_CACHE_HIT_KEY));
-        put(DB_SQL_ELAPSED_TIME_NAME, new RawMetric(UPDOWN_COUNTER, DB_SQL_ELAPSED_TIME_NAME, DB_SQL_ELAPSED_TIME_DESC, UNIT_S, false, DB_SQL_ELAPSED_TIME_KEY));
+        put(DB_SQL_ELAPSED_TIME_NAME, new RawMetric(HISTOGRAM, DB_SQL_ELAPSED_TIME_NAME, DB_SQL_ELAPSED_TIME_DESC, UNIT_S, false, null));
+        put(DB_SQL_TEXT_NAME, new RawMetric(GAUGE, DB_SQL_TEXT_NAME, DB_SQL_TEXT_DESC, DB_SQL_TEXT_UNIT, true, DB_SQL_TEXT_KEY).setClearDps(true));
+        put(DB_SQL_SHAPE_ELAPSED_TIME_NAME, new RawMetric(GAUGE, DB_SQL_SHAPE_ELAPSED_TIME_NAME, DB_SQL_SHAPE_ELAPSED_TIME_DESC, UNIT_S, false, DB_SQL_SHAPE_ELAPSED_TIME_KEY).setClearDps(true));
+        put(DB_SQL_SHAPE_COUNT_NAME, new RawMetric(GAUGE, DB_SQL_SHAPE_COUNT_NAME, DB_SQL_SHAPE_COUNT_DESC, DB_SQL_SHAPE_COUNT_UNIT, true, DB_SQL_SHAPE_COUNT_KEY).setClearDps(true));
         put(DB_LOCK_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_LOCK_COUNT_NAME, DB_LOCK_COUNT_DESC, DB_LOCK_COUNT_UNIT, true, DB_LOCK_COUNT_KEY));
-        put(DB_LOCK_TIME_NAME, new RawMetric(UPDOWN_COUNTER, DB_LOCK_TIME_NAME, DB_LOCK_TIME_DESC, UNIT_S, false, DB_LOCK_TIME_KEY));
+        put(DB_LOCK_TIME_NAME, new RawMetric(HISTOGRAM, DB_LOCK_TIME_NAME, DB_LOCK_TIME_DESC, UNIT_S, false, null));
 
         put(DB_TABLESPACE_SIZE_NAME, new RawMetric(UPDOWN_COUNTER, DB_TABLESPACE_SIZE_NAME, DB_TABLESPACE_SIZE_DESC, UNIT_BY, true, DB_TABLESPACE_SIZE_KEY));
         put(DB_TABLESPACE_USED_NAME, new RawMetric(UPDOWN_COUNTER, DB_TABLESPACE_USED_NAME, DB_TABLESPACE_USED_DESC, UNIT_BY, true, DB_TABLESPACE_USED_KEY));
@@ -50,6 +58,7 @@ public class DbRawMetricRegistry {
         put(DB_DISK_READ_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_DISK_READ_COUNT_NAME, DB_DISK_READ_COUNT_DESC, DB_DISK_READ_COUNT_UNIT, true, null));
 
         put(DB_BACKUP_CYCLE_NAME, new RawMetric(GAUGE, DB_BACKUP_CYCLE_NAME, DB_BACKUP_CYCLE_DESC, UNIT_S, true, null));
+        put(DB_POLLING_LEVEL_NAME, new RawMetric(GAUGE, DB_POLLING_LEVEL_NAME, DB_POLLING_LEVEL_DESC, DB_POLLING_LEVEL_UNIT, true, null));
 
         put(DB_DATABASE_LOG_ENABLED_NAME, new RawMetric(GAUGE, DB_DATABASE_LOG_ENABLED_NAME, DB_DATABASE_LOG_ENABLED_DESC, UNIT_BY, true, DB_DATABASE_LOG_ENABLED_KEY));
         put(DB_DATABASE_BUFF_LOG_ENABLED_NAME, new RawMetric(GAUGE, DB_DATABASE_BUFF_LOG_ENABLED_NAME, DB_DATABASE_BUFF_LOG_ENABLED_DESC, UNIT_BY, true, DB_DATABASE_BUFF_LOG_ENABLED_KEY));
@@ -59,12 +68,23 @@ public class DbRawMetricRegistry {
         put(DB_LOCK_TABLE_OVERFLOW_NAME, new RawMetric(UPDOWN_COUNTER, DB_LOCK_TABLE_OVERFLOW_NAME, DB_LOCK_TABLE_OVERFLOW_DESC, DB_LOCK_TABLE_OVERFLOW_UNIT, true, null));
         put(DB_TRANSACTION_OVERFLOW_NAME, new RawMetric(UPDOWN_COUNTER, DB_TRANSACTION_OVERFLOW_NAME, DB_TRANSACTION_OVERFLOW_DESC, DB_TRANSACTION_OVERFLOW_UNIT, true, null));
         put(DB_USER_OVERFLOW_NAME, new RawMetric(UPDOWN_COUNTER, DB_USER_OVERFLOW_NAME, DB_USER_OVERFLOW_DESC, DB_USER_OVERFLOW_UNIT, true, null));
-        put(DB_SEQ_SCAN_NAME, new RawMetric(UPDOWN_COUNTER, DB_SEQ_SCAN_NAME, DB_SEQ_SCAN_DESC, UNIT_BY, true, DB_SEQ_SCAN_KEY));
+        put(DB_SEQ_SCAN_NAME, new RawMetric(GAUGE, DB_SEQ_SCAN_NAME, DB_SEQ_SCAN_DESC, UNIT_BY, true, DB_SEQ_SCAN_KEY));
         put(DB_SEQ_SCAN_TABLE_NAME, new RawMetric(GAUGE, DB_SEQ_SCAN_TABLE_NAME, DB_SEQ_SCAN_TABLE_DESC, DB_SEQ_SCAN_TABLE_UNIT, true, null));
         put(DB_LOCK_WAITS_NAME, new RawMetric(UPDOWN_COUNTER, DB_LOCK_WAITS_NAME, DB_LOCK_WAITS_DESC, DB_LOCK_WAITS_UNIT, true, null));
-        put(DB_CACHE_READ_RATIO_NAME, new RawMetric(GAUGE, DB_CACHE_READ_RATIO_NAME, DB_CACHE_READ_RATIO_DESC, DB_CACHE_READ_RATIO_UNIT, true, null));
-        put(DB_CACHE_WRITE_RATIO_NAME, new RawMetric(GAUGE, DB_CACHE_WRITE_RATIO_NAME, DB_CACHE_WRITE_RATIO_DESC, DB_CACHE_WRITE_RATIO_UNIT, true, null));
+        //Percentage of the buffer operations which did not need a disk operation, like "%cached" of onstat -p
+        put(DB_CACHE_READ_RATIO_NAME, new RawMetric(GAUGE, DB_CACHE_READ_RATIO_NAME, DB_CACHE_READ_RATIO_DESC, DB_CACHE_READ_RATIO_UNIT, true, null)
+                .setExpression(expression("100 - 100 * " + DB_DISK_READ_COUNT_NAME + " / " + DB_BUFFER_READ_COUNT_NAME)));
+        put(DB_CACHE_WRITE_RATIO_NAME, new RawMetric(GAUGE, DB_CACHE_WRITE_RATIO_NAME, DB_CACHE_WRITE_RATIO_DESC, DB_CACHE_WRITE_RATIO_UNIT, true, null)
+                .setExpression(expression("100 - 100 * " + DB_DISK_WRITE_COUNT_NAME + " / " + DB_BUFFER_WRITE_COUNT_NAME)));
         put(DB_LRU_WRITES_NAME, new RawMetric(UPDOWN_COUNTER, DB_LRU_WRITES_NAME, DB_LRU_WRITES_DESC, DB_LRU_WRITES_UNIT, true, null));
+        put(DB_ONSTAT_CPU_TIME_NAME, new RawMetric(GAUGE, DB_ONSTAT_CPU_TIME_NAME, DB_ONSTAT_CPU_TIME_DESC, UNIT_S, false, DB_ONSTAT_CPU_TIME_KEY));
+
+        //Inputs of the expressions only, the utilizations are derived per database type since their scale differs
+        put(DB_BUFFER_READ_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_BUFFER_READ_COUNT_NAME, DB_BUFFER_READ_COUNT_DESC, DB_DISK_READ_COUNT_UNIT, true, null).setExported(false));
+        put(DB_BUFFER_WRITE_COUNT_NAME, new RawMetric(UPDOWN_COUNTER, DB_BUFFER_WRITE_COUNT_NAME, DB_BUFFER_WRITE_COUNT_DESC, DB_DISK_WRITE_COUNT_UNIT, true, null).setExported(false));
+        put(DB_TRANSACTION_TIME_NAME, new RawMetric(GAUGE, DB_TRANSACTION_TIME_NAME, DB_TRANSACTION_TIME_DESC, UNIT_S, false, null).setExported(false));
+        put(DB_MEM_USED_NAME, new RawMetric(GAUGE, DB_MEM_USED_NAME, DB_MEM_USED_DESC, UNIT_1, false, null).setExported(false));
+        put(DB_MEM_SIZE_NAME, new RawMetric(GAUGE, DB_MEM_SIZE_NAME, DB_MEM_SIZE_DESC, UNIT_1, false, null).setExported(false));
     }};
 
     public Map<String, RawMetric> getMap() {
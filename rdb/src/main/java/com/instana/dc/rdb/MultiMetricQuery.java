@@ -0,0 +1,152 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import com.instana.dc.QueryResultBatch;
+import com.instana.dc.RawMetric;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One query fanned out to several metrics: each metric reads its value from a column declared once,
+ * and optionally all rows share key columns (e.g. the tablespace name) which become the data point key and attributes.
+ * Each metric has its own {@link QueryResultBatch}, cleared and refilled on every {@link #execute(Connection)}:
+ * the rows are not allocated again on every poll and the batches never grow across polls.
+ */
+public class MultiMetricQuery {
+    private static final Logger logger = Logger.getLogger(MultiMetricQuery.class.getName());
+
+    private final String query;
+    private final Map<String, Integer> valueColumns = new LinkedHashMap<>();
+    //Created on the first value of each metric, integer or decimal like the value
+    private final Map<String, QueryResultBatch> results = new LinkedHashMap<>();
+    private final List<Integer> keyColumns = new ArrayList<>();
+    private final List<String> keyAttributes = new ArrayList<>();
+    private int fetchSize = 0;
+
+    public MultiMetricQuery(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Declare a key column, several key columns are joined with '.' in declaration order (e.g. database.table)
+     *
+     * @param column    : 1-based column holding the row key
+     * @param attribute : attribute name the key is exported as
+     */
+    public MultiMetricQuery withKey(int column, String attribute) {
+        keyColumns.add(column);
+        keyAttributes.add(attribute);
+        return this;
+    }
+
+    /**
+     * @param metricName : metric fed by the column
+     * @param column     : 1-based column holding the value
+     */
+    public MultiMetricQuery withMetric(String metricName, int column) {
+        valueColumns.put(metricName, column);
+        return this;
+    }
+
+    /**
+     * @param fetchSize : rows fetched per round trip for queries returning many rows, 0 for the driver default
+     */
+    public MultiMetricQuery withFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Run the query once and distribute every row to the declared metrics
+     *
+     * @return : false if the query failed, the results are empty then
+     */
+    public boolean execute(Connection connection) {
+        clearResults();
+        String[] keyValues = new String[keyColumns.size()];
+        try (Statement statement = createStatement(connection);
+             ResultSet rs = statement.executeQuery(query)) {
+            while (rs.next()) {
+                String key = null;
+                for (int i = 0; i < keyValues.length; i++) {
+                    Object obj = rs.getObject(keyColumns.get(i));
+                    keyValues[i] = obj == null ? "null" : obj.toString().trim();
+                    key = key == null ? keyValues[i] : key + '.' + keyValues[i];
+                }
+                for (Map.Entry<String, Integer> entry : valueColumns.entrySet()) {
+                    Number value = (Number) rs.getObject(entry.getValue());
+                    if (value == null) {
+                        continue;
+                    }
+                    QueryResultBatch batch = results.computeIfAbsent(entry.getKey(),
+                            name -> new QueryResultBatch(DbDcUtil.isIntegral(value), keyAttributes.toArray(new String[0])));
+                    int row = batch.isInteger() ? batch.add(key, value.longValue()) : batch.add(key, value.doubleValue());
+                    for (int i = 0; i < keyValues.length; i++) {
+                        batch.setAttribute(row, i, keyValues[i]);
+                    }
+                }
+            }
+            return true;
+        } catch (SQLException | ClassCastException e) {
+            logger.log(Level.SEVERE, "execute: Error occurred for query " + query, e);
+            clearResults();
+            return false;
+        }
+    }
+
+    private void clearResults() {
+        for (QueryResultBatch batch : results.values()) {
+            batch.clear();
+        }
+    }
+
+    private Statement createStatement(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement();
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+        return statement;
+    }
+
+    /**
+     * @return : rows of the last execution for a metric, null if it never had a value
+     */
+    public QueryResultBatch getResults(String metricName) {
+        return results.get(metricName);
+    }
+
+    /**
+     * @return : value of the first row for a metric of a single-row query, null if there is none
+     */
+    public Number getValue(String metricName) {
+        QueryResultBatch batch = results.get(metricName);
+        if (batch == null || batch.size() == 0) {
+            return null;
+        }
+        return batch.isInteger() ? (Number) batch.getLong(0) : (Number) batch.getDouble(0);
+    }
+
+    /**
+     * Set the results of the last execution on the raw metrics
+     *
+     * @param rawMetrics : lookup of the raw metric by name, e.g. {@code this::getRawMetric} of a DC
+     */
+    public void publish(Function<String, RawMetric> rawMetrics) {
+        for (Map.Entry<String, QueryResultBatch> entry : results.entrySet()) {
+            rawMetrics.apply(entry.getKey()).setValue(entry.getValue());
+        }
+    }
+}
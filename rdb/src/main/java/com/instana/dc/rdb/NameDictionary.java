@@ -0,0 +1,102 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Id to name cache for slowly changing catalogs (objects, users, ...), so the per-poll queries only fetch ids
+ * instead of joining the catalog every time. Entries expire after a TTL and the least recently used ones are
+ * evicted beyond the maximum size. Misses and expired entries are loaded lazily, in one batch per resolve.
+ * Ids the catalog does not know are remembered as well, so they are not looked up again before the TTL.
+ */
+public class NameDictionary {
+    private static final Logger logger = Logger.getLogger(NameDictionary.class.getName());
+
+    /**
+     * Loads the names of a batch of ids, ids without a name are simply left out of the result
+     */
+    public interface Loader {
+        Map<String, String> load(Connection connection, Collection<String> ids) throws SQLException;
+    }
+
+    private final Loader loader;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    public NameDictionary(Loader loader, long ttlMillis, int maxSize) {
+        this.loader = loader;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return : name of each id that has one, loading the unknown and expired ids with one call of the loader
+     */
+    public synchronized Map<String, String> resolve(Connection connection, Collection<String> ids) {
+        long now = System.currentTimeMillis();
+        Map<String, String> names = new HashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        for (String id : ids) {
+            Entry entry = entries.get(id);
+            if (entry == null || now - entry.loadTime > ttlMillis) {
+                misses.add(id);
+            } else if (entry.name != null) {
+                names.put(id, entry.name);
+            }
+        }
+        if (misses.isEmpty()) {
+            return names;
+        }
+        try {
+            Map<String, String> loaded = loader.load(connection, misses);
+            for (String id : misses) {
+                String name = loaded.get(id);
+                entries.put(id, new Entry(name, now));
+                if (name != null) {
+                    names.put(id, name);
+                }
+            }
+        } catch (SQLException e) {
+            //Keep the expired entries, a stale name is better than none
+            logger.log(Level.WARNING, "resolve: Unable to load " + misses.size() + " name(s)", e);
+            for (String id : misses) {
+                Entry entry = entries.get(id);
+                if (entry != null && entry.name != null) {
+                    names.put(id, entry.name);
+                }
+            }
+        }
+        return names;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final String name;
+        private final long loadTime;
+
+        private Entry(String name, long loadTime) {
+            this.name = name;
+            this.loadTime = loadTime;
+        }
+    }
+}
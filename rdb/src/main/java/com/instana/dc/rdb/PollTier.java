@@ -0,0 +1,37 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+/**
+ * Polling tier of a collection step. Each tier has its own interval in `custom.poll.interval`, keyed by
+ * fast/medium/slow or by the former low/medium/high names (a high interval being the slow tier).
+ */
+public enum PollTier {
+    FAST("low"),
+    MEDIUM("medium"),
+    SLOW("high");
+
+    private final String legacyName;
+
+    PollTier(String legacyName) {
+        this.legacyName = legacyName;
+    }
+
+    /**
+     * @return : tier of a configuration key, null if the key is not a tier
+     */
+    public static PollTier of(String name) {
+        if (name == null) {
+            return null;
+        }
+        String trimmed = name.trim();
+        for (PollTier tier : values()) {
+            if (tier.name().equalsIgnoreCase(trimmed) || tier.legacyName.equalsIgnoreCase(trimmed)) {
+                return tier;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import com.instana.dc.QueryResultBatch;
+
+import java.util.BitSet;
+
+/**
+ * Rows of a view that keeps them across polls, e.g. the slowest statements or the blocked locks, compared with
+ * the previous read: a row is told apart by its identity, so each one is only counted once in a histogram, when
+ * it appears or when it is gone.
+ * The last two reads are kept in two batches which take turns, so no row is allocated again on every poll.
+ */
+public class PolledRows {
+    /**
+     * Identity of a row of a read, e.g. the statement id and its elapsed time
+     */
+    public interface Identity {
+        String of(QueryResultBatch batch, int row);
+    }
+
+    private final Identity identity;
+    private QueryResultBatch current;
+    private QueryResultBatch previous;
+    private StringLongMap currentIds = new StringLongMap(16);
+    private StringLongMap previousIds = new StringLongMap(16);
+    private final BitSet added = new BitSet();
+    private final BitSet removed = new BitSet();
+
+    /**
+     * @param integer        : values are integers, see {@link QueryResultBatch}
+     * @param attributeNames : names of the attribute columns of the reads
+     */
+    public PolledRows(Identity identity, boolean integer, String... attributeNames) {
+        this.identity = identity;
+        this.current = new QueryResultBatch(integer, attributeNames);
+        this.previous = new QueryResultBatch(integer, attributeNames);
+    }
+
+    /**
+     * @return : empty batch to fill with the next read, then passed to {@link #update(boolean)}
+     */
+    public QueryResultBatch next() {
+        previous.clear();
+        return previous;
+    }
+
+    /**
+     * Compare the batch filled since {@link #next()} with the last read, it becomes the last read
+     *
+     * @param read : false if the read failed, the last read is kept then
+     */
+    public void update(boolean read) {
+        added.clear();
+        removed.clear();
+        if (!read) {
+            previous.clear();
+            return;
+        }
+        QueryResultBatch next = previous;
+        StringLongMap nextIds = previousIds;
+        nextIds.clear();
+        for (int row = 0; row < next.size(); row++) {
+            String id = identity.of(next, row);
+            if (nextIds.containsKey(id)) {
+                continue;
+            }
+            nextIds.put(id, row);
+            if (!currentIds.containsKey(id)) {
+                added.set(row);
+            }
+        }
+        for (int row = 0; row < current.size(); row++) {
+            if (!nextIds.containsKey(identity.of(current, row))) {
+                removed.set(row);
+            }
+        }
+        previous = current;
+        previousIds = currentIds;
+        current = next;
+        currentIds = nextIds;
+    }
+
+    /**
+     * @return : the last read
+     */
+    public QueryResultBatch getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return : rows of {@link #getCurrent()} missing from the read before
+     */
+    public BitSet getAdded() {
+        return added;
+    }
+
+    /**
+     * @return : the read before the last one, until the next call of {@link #next()}
+     */
+    public QueryResultBatch getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return : rows of {@link #getPrevious()} missing from the last read
+     */
+    public BitSet getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+/**
+ * Reduces a statement to its shape, so the copies of a statement differing only by their literals aggregate together.
+ * A single pass over the text, writing into a caller supplied buffer:
+ * - string, numeric (with their sign) and hex literals and bind markers (`?`, `:1`, `:name`, `$1`) become `?`
+ * - lists of literals in parentheses after IN collapse to `(?)`, whatever their length
+ * - comments are dropped, whitespace runs become one space, a comma is followed by one space and no space is kept
+ *   before `,` `)` or after `(`
+ * - unquoted identifiers and keywords are lowercased, quoted identifiers are kept as they are
+ * - trailing semicolons are dropped
+ */
+public final class SqlNormalizer {
+    private SqlNormalizer() {
+    }
+
+    public static String normalize(CharSequence sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        normalize(sql, out);
+        return out.toString();
+    }
+
+    /**
+     * @param out : buffer receiving the shape, cleared first
+     */
+    public static void normalize(CharSequence sql, StringBuilder out) {
+        out.setLength(0);
+        int n = sql.length();
+        int i = 0;
+        boolean space = false;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                while (i < n && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                space = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                i += 3;
+                while (i < n && !(sql.charAt(i - 1) == '*' && sql.charAt(i) == '/')) {
+                    i++;
+                }
+                i++;
+                space = true;
+                continue;
+            }
+            if (space && out.length() > 0 && c != ',' && c != ')' && out.charAt(out.length() - 1) != '(') {
+                out.append(' ');
+            }
+            space = false;
+
+            if (c == '\'') {
+                i = skipString(sql, i);
+                out.append('?');
+            } else if (c == '"' || c == '`' || c == '[') {
+                i = copyQuoted(sql, i, c == '[' ? ']' : c, out);
+            } else if (isDigit(c) || (c == '.' && i + 1 < n && isDigit(sql.charAt(i + 1)))) {
+                i = skipNumber(sql, i);
+                dropUnaryMinus(out);
+                out.append('?');
+            } else if ((c == ':' || c == '$') && i + 1 < n && isBindStart(sql, i)) {
+                i++;
+                while (i < n && isIdentifierPart(sql.charAt(i))) {
+                    i++;
+                }
+                out.append('?');
+            } else if (isIdentifierStart(c)) {
+                int start = i;
+                while (i < n && isIdentifierPart(sql.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1 && i < n && sql.charAt(i) == '\'' && isLiteralPrefix(c)) {
+                    //N'...', X'...', B'...', E'...'
+                    i = skipString(sql, i);
+                    out.append('?');
+                } else {
+                    for (int k = start; k < i; k++) {
+                        out.append(Character.toLowerCase(sql.charAt(k)));
+                    }
+                }
+            } else if (c == ')') {
+                out.append(')');
+                collapseInList(out);
+                i++;
+            } else {
+                out.append(c);
+                //One space after a comma whether or not the text had one
+                space = c == ',';
+                i++;
+            }
+        }
+        while (out.length() > 0 && out.charAt(out.length() - 1) == ';') {
+            out.setLength(out.length() - 1);
+            if (out.length() > 0 && out.charAt(out.length() - 1) == ' ') {
+                out.setLength(out.length() - 1);
+            }
+        }
+    }
+
+    /**
+     * @return : index after the string literal starting at i, a doubled quote does not end it
+     */
+    private static int skipString(CharSequence sql, int i) {
+        int n = sql.length();
+        i++;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\\' && i + 1 < n) {
+                i += 2;
+            } else if (c == '\'') {
+                if (i + 1 < n && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    private static int copyQuoted(CharSequence sql, int i, char close, StringBuilder out) {
+        int n = sql.length();
+        out.append(sql.charAt(i++));
+        while (i < n) {
+            char c = sql.charAt(i++);
+            out.append(c);
+            if (c == close) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Digits, decimal point, exponent with its sign, hex digits after 0x
+     */
+    private static int skipNumber(CharSequence sql, int i) {
+        int n = sql.length();
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '.') {
+                i++;
+            } else if ((c == '+' || c == '-') && (sql.charAt(i - 1) == 'e' || sql.charAt(i - 1) == 'E')
+                    && i + 1 < n && isDigit(sql.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * The sign of `x > -1` is part of the literal, the minus of `a-1` or `f(x) - 1` is not
+     */
+    private static void dropUnaryMinus(StringBuilder out) {
+        int last = out.length() - 1;
+        if (last < 0 || out.charAt(last) != '-') {
+            return;
+        }
+        int k = last - 1;
+        if (k >= 0 && out.charAt(k) == ' ') {
+            k--;
+        }
+        if (k < 0 || !(isIdentifierPart(out.charAt(k)) || out.charAt(k) == '?' || out.charAt(k) == ')'
+                || out.charAt(k) == '"' || out.charAt(k) == '`' || out.charAt(k) == ']')) {
+            out.setLength(last);
+        }
+    }
+
+    /**
+     * `:1`, `:name`, `$1` but not the `::` cast nor `$` inside an identifier
+     */
+    private static boolean isBindStart(CharSequence sql, int i) {
+        char next = sql.charAt(i + 1);
+        if (sql.charAt(i) == '$') {
+            return isDigit(next);
+        }
+        return (isDigit(next) || isIdentifierStart(next)) && (i == 0 || sql.charAt(i - 1) != ':');
+    }
+
+    /**
+     * Replace `in (?, ?, ?)` by `in (?)`, the closing parenthesis was just appended
+     */
+    private static void collapseInList(StringBuilder out) {
+        int close = out.length() - 1;
+        int j = close - 1;
+        boolean literals = false;
+        while (j >= 0) {
+            char c = out.charAt(j);
+            if (c == '?') {
+                literals = true;
+            } else if (c != ',' && c != ' ') {
+                break;
+            }
+            j--;
+        }
+        if (j < 0 || out.charAt(j) != '(' || !literals || close - j == 2) {
+            return;
+        }
+        int k = j - 1;
+        if (k >= 0 && out.charAt(k) == ' ') {
+            k--;
+        }
+        if (k >= 1 && out.charAt(k) == 'n' && out.charAt(k - 1) == 'i'
+                && (k == 1 || !isIdentifierPart(out.charAt(k - 2)))) {
+            out.setLength(j + 1);
+            out.append("?)");
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == '#' || c == '@';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@';
+    }
+
+    private static boolean isLiteralPrefix(char c) {
+        switch (Character.toLowerCase(c)) {
+            case 'n':
+            case 'x':
+            case 'b':
+            case 'e':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elapsed time and executions per statement shape (see {@link SqlNormalizer}) over one interval, in bounded memory.
+ * The shapes are tracked with the weighted space-saving algorithm: once the capacity is reached, a new shape replaces
+ * the one with the lowest elapsed time and inherits it as its possible overestimation. Any shape accounting for more
+ * than 1/capacity of the total elapsed time of the interval is guaranteed to be tracked, so with a capacity well above
+ * the number of shapes reported, the reported top is the real one.
+ * The statements are normalized into a reused buffer and looked up by the hash of their shape, the shape text is only
+ * materialized when a shape enters the table.
+ */
+public class SqlShapeAggregator {
+    private final int capacity;
+    private final Map<Long, Shape> shapes;
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    public SqlShapeAggregator(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.shapes = new HashMap<>(this.capacity * 2);
+    }
+
+    /**
+     * Fold one execution of a statement
+     *
+     * @param elapsedSeconds : elapsed time of the execution
+     */
+    public synchronized void add(CharSequence sqlText, double elapsedSeconds) {
+        if (sqlText == null) {
+            return;
+        }
+        SqlNormalizer.normalize(sqlText, buffer);
+        long hash = SqlTextDictionary.hash(buffer);
+        Shape shape = shapes.get(hash);
+        if (shape == null) {
+            shape = new Shape();
+            if (shapes.size() >= capacity) {
+                Shape min = minimum();
+                shapes.remove(min.hash);
+                shape.error = min.weight;
+                shape.weight = min.weight;
+            }
+            shape.hash = hash;
+            shape.text = buffer.toString();
+            shapes.put(hash, shape);
+        }
+        shape.weight += elapsedSeconds;
+        shape.elapsed += elapsedSeconds;
+        shape.count++;
+    }
+
+    private Shape minimum() {
+        Shape min = null;
+        for (Shape shape : shapes.values()) {
+            if (min == null || shape.weight < min.weight) {
+                min = shape;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return : the heaviest shapes of the interval, by elapsed time, the next interval starts empty
+     */
+    public synchronized List<Shape> drain(int topN) {
+        List<Shape> sorted = new ArrayList<>(shapes.values());
+        sorted.sort((a, b) -> Double.compare(b.weight, a.weight));
+        shapes.clear();
+        return sorted.size() > topN ? new ArrayList<>(sorted.subList(0, topN)) : sorted;
+    }
+
+    public synchronized int size() {
+        return shapes.size();
+    }
+
+    public static class Shape {
+        private long hash;
+        private String text;
+        private double weight;
+        private double error;
+        private double elapsed;
+        private long count;
+
+        public String getFingerprint() {
+            return SqlTextDictionary.toHex(hash);
+        }
+
+        /**
+         * @return : the normalized statement
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return : elapsed time observed since the shape is tracked, a lower bound of the real one
+         */
+        public double getElapsed() {
+            return elapsed;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return : elapsed time the shape may have had before it was tracked, 0 if it was tracked all along
+         */
+        public double getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import com.instana.dc.SimpleQueryResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import static com.instana.agent.sensorsdk.semconv.SemanticAttributes.SQL_FINGERPRINT;
+import static com.instana.agent.sensorsdk.semconv.SemanticAttributes.SQL_TEXT;
+
+/**
+ * Statement dictionary keeping the full SQL texts off the per-statement metrics. Each text is hashed into a stable
+ * fingerprint which replaces the text on the metric points; the text itself is only handed out for db.sql.text the
+ * first time its fingerprint is seen and again every refresh interval, so the backend can resolve the fingerprints
+ * without receiving several KB per statement on every export.
+ * The dictionary only remembers when each fingerprint was last sent, the least recently seen ones are evicted
+ * beyond the maximum size and simply sent again if they come back.
+ */
+public class SqlTextDictionary {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long refreshMillis;
+    private final int maxTextLength;
+    private final LongSupplier clock;
+    private final Map<String, Long> lastSent;
+    private final Map<String, String> pending = new LinkedHashMap<>();
+
+    /**
+     * @param refreshMillis : interval after which a text still in use is sent again, 0 or less to keep the texts on the metric points
+     * @param maxTextLength : texts are truncated to that many characters, 0 or less for no limit
+     * @param maxSize       : fingerprints remembered at most
+     * @param clock         : current time in milliseconds
+     */
+    public SqlTextDictionary(long refreshMillis, int maxTextLength, int maxSize, LongSupplier clock) {
+        this.refreshMillis = refreshMillis;
+        this.maxTextLength = maxTextLength;
+        this.clock = clock;
+        this.lastSent = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return : 64-bit FNV-1a hash of the text in hex, runs of whitespace count as one space
+     */
+    public static String fingerprint(String text) {
+        return toHex(hash(text));
+    }
+
+    /**
+     * @return : 64-bit FNV-1a hash of the text, runs of whitespace count as one space
+     */
+    public static long hash(CharSequence text) {
+        long hash = FNV_OFFSET_BASIS;
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                hash = (hash ^ ' ') * FNV_PRIME;
+                space = false;
+            }
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    static String toHex(long hash) {
+        String hex = Long.toHexString(hash);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    public boolean isEnabled() {
+        return refreshMillis > 0;
+    }
+
+    /**
+     * Replace the `sql_text` attribute of the results by its fingerprint and queue the texts due to be sent.
+     * When the dictionary is disabled, the texts are only truncated.
+     *
+     * @return : the same results
+     */
+    public synchronized List<SimpleQueryResult> encode(List<SimpleQueryResult> results) {
+        if (results == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        for (SimpleQueryResult result : results) {
+            Object text = result.getAttribute(SQL_TEXT.getKey());
+            if (text == null) {
+                continue;
+            }
+            String sqlText = text.toString().trim();
+            if (!isEnabled()) {
+                result.setAttribute(SQL_TEXT.getKey(), truncate(sqlText));
+                continue;
+            }
+            String fingerprint = fingerprint(sqlText);
+            result.getAttributes().remove(SQL_TEXT.getKey());
+            result.setAttribute(SQL_FINGERPRINT.getKey(), fingerprint);
+            Long sent = lastSent.get(fingerprint);
+            if (sent == null || now - sent >= refreshMillis) {
+                lastSent.put(fingerprint, now);
+                pending.put(fingerprint, truncate(sqlText));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return : one db.sql.text point per text queued since the last call, the queue is emptied
+     */
+    public synchronized List<SimpleQueryResult> drainTexts() {
+        List<SimpleQueryResult> texts = new ArrayList<>(pending.size());
+        for (Map.Entry<String, String> entry : pending.entrySet()) {
+            texts.add(new SimpleQueryResult(1).setKey(entry.getKey())
+                    .setAttribute(SQL_FINGERPRINT.getKey(), entry.getKey())
+                    .setAttribute(SQL_TEXT.getKey(), entry.getValue()));
+        }
+        pending.clear();
+        return texts;
+    }
+
+    String truncate(String text) {
+        if (maxTextLength <= 0 || text.length() <= maxTextLength) {
+            return text;
+        }
+        int end = maxTextLength;
+        //Do not split a surrogate pair
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    public synchronized int size() {
+        return lastSent.size();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open-addressing String to long map with linear probing, for per-object counters of large schemas:
+ * one key array and one primitive value array instead of an entry object and a boxed Long per key.
+ * Not thread-safe and without removal, a map is refilled from scratch after {@link #clear()}.
+ */
+public class StringLongMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys;
+    private long[] values;
+    private int size;
+
+    public StringLongMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        values = new long[capacity];
+    }
+
+    public void put(String key, long value) {
+        int slot = slotOf(keys, key);
+        if (keys[slot] == null) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+                slot = slotOf(keys, key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * @return : value of the key, or missingValue if the key is absent
+     */
+    public long get(String key, long missingValue) {
+        int slot = slotOf(keys, key);
+        return keys[slot] == null ? missingValue : values[slot];
+    }
+
+    public boolean containsKey(String key) {
+        return keys[slotOf(keys, key)] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all keys but keeps the allocated arrays, so that refilling with a similar key set does not allocate
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    public void forEach(ObjLongConsumer<String> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slotOf(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(String[] keys, String key) {
+        int mask = keys.length - 1;
+        int hash = key.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
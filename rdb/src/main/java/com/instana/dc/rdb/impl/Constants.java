@@ -13,25 +13,16 @@ public class Constants {
     public static final String ONCONFIG = "onconfig.";
     public static final String SQL_HOSTS = "sqlhosts.";
     public static final String BLANK_SPACE = " ";
-    public static final String SQL_COUNT_SCRIPT = "sql_count.sh";
-    public static final String TRANSACTION_COUNT_SCRIPT = "transaction_count.sh";
-    public static final String IO_READ_COUNT_SCRIPT = "io_read_count.sh";
-    public static final String IO_WRITE_COUNT_SCRIPT = "io_write_count.sh";
-    public static final String MEMORY_UTILIZATION_SCRIPT = "memory_utilization.sh";
-    public static final String DISK_READ_SCRIPT = "disk_read.sh";
-    public static final String DISK_WRITE_SCRIPT = "disk_write.sh";
-    public static final String LOCK_COUNT_SCRIPT = "lock_count.sh";
-    public static final String TASK_WAIT_COUNT_SCRIPT = "task_wait_count.sh";
-    public static final String TOTAL_SESSION_COUNT_SCRIPT = "session_count.sh";
-    public static final String ACTIVE_SESSION_COUNT_SCRIPT = "active_session_count.sh";
-    public static final String OVERFLOW_LOCK_COUNT_SCRIPT = "overflow_lock_count.sh";
-    public static final String OVERFLOW_USER_COUNT_SCRIPT = "overflow_user_count.sh";
-    public static final String OVERFLOW_TRANSACTION_COUNT_SCRIPT = "overflow_transaction_count.sh";
-    public static final String CACHE_READ_RATIO_SCRIPT = "cache_read_ratio.sh";
-    public static final String CACHE_WRITE_RATIO_SCRIPT = "cache_write_ratio.sh";
-    public static final String LOCK_WAITS_SCRIPT = "lock_waits.sh";
-    public static final String LRU_WRITES_SCRIPT = "lru_writes.sh";
     public static final String DB_SQL_TRACE_ENABLED = "db.sql.trace.enabled";
+    public static final String DB_SQL_TRACE_MAX_ROWS = "db.sql.trace.max.rows";
+    public static final String DB_ONSTAT_STREAM_INTERVAL = "db.onstat.stream.interval";
+    public static final String DB_COLLECTION_MODE = "db.collection.mode";
+    public static final String DB_CLUSTER_ENABLED = "db.cluster.enabled";
+    public static final String DB_CLUSTER_REDISCOVERY_INTERVAL = "db.cluster.rediscovery.interval";
+    public static final String DB_SCOPE = "db.scope";
+    public static final String DB_SCOPE_SERVER = "server";
+    public static final String DB_NAMES = "db.names";
+    public static final String DB_SEQUENTIAL_SCAN_TOP_K = "db.sequential.scan.top.k";
     private Constants() {
         //Private constructor
     }
@@ -6,16 +6,29 @@ package com.instana.dc.rdb.impl.dameng;
 
 import com.instana.dc.CalculationMode;
 import com.instana.dc.DcUtil;
+import com.instana.dc.QueryResultBatch;
+import com.instana.dc.RawMetric;
 import com.instana.dc.rdb.AbstractDbDc;
+import com.instana.dc.rdb.CollectionStep;
 import com.instana.dc.rdb.DbDcUtil;
+import com.instana.dc.rdb.MultiMetricQuery;
+import com.instana.dc.rdb.NameDictionary;
+import com.instana.dc.rdb.PollTier;
+import com.instana.dc.rdb.PolledRows;
+import com.instana.dc.rdb.SqlShapeAggregator;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import static com.instana.agent.sensorsdk.semconv.SemanticAttributes.*;
@@ -24,6 +37,32 @@ import static com.instana.dc.rdb.impl.dameng.DamengUtil.*;
 
 public class DamengDc extends AbstractDbDc {
     private static final Logger logger = Logger.getLogger(DamengDc.class.getName());
+    private static final long OBJECT_NAME_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int OBJECT_NAME_CACHE_SIZE = 1000;
+
+    private final MultiMetricQuery transactionCountQuery = new MultiMetricQuery(TRANSACTION_COUNT_SQL)
+            .withMetric(DB_TRANSACTION_COUNT_NAME, 1)
+            .withMetric(DB_TRANSACTION_RATE_NAME, 1)
+            .withMetric(DB_TRANSACTION_TIME_NAME, 2);
+    private final MultiMetricQuery memoryQuery = new MultiMetricQuery(MEMORY_SQL)
+            .withMetric(DB_MEM_USED_NAME, 1)
+            .withMetric(DB_MEM_SIZE_NAME, 2);
+    private final MultiMetricQuery sqlCountQuery = new MultiMetricQuery(SQL_COUNT_SQL)
+            .withMetric(DB_SQL_COUNT_NAME, 1)
+            .withMetric(DB_SQL_RATE_NAME, 1);
+    private final MultiMetricQuery tablespaceQuery = new MultiMetricQuery(TABLESPACE_SQL)
+            .withKey(2, TABLESPACE_NAME.getKey())
+            .withMetric(DB_TABLESPACE_SIZE_NAME, 1)
+            .withMetric(DB_TABLESPACE_USED_NAME, 3)
+            .withMetric(DB_TABLESPACE_MAX_NAME, 4);
+    private final NameDictionary objectNames = new NameDictionary(DamengDc::loadObjectNames, OBJECT_NAME_TTL_MILLIS, OBJECT_NAME_CACHE_SIZE);
+    //V$SYSTEM_LONG_EXEC_SQLS and v$lock keep their rows across polls
+    private final PolledRows slowestStatements = new PolledRows((batch, row) -> batch.getKey(row) + "/" + batch.getDouble(row),
+            false, DB_SQL_ELAPSED_TIME_KEY, SQL_TEXT.getKey());
+    private final PolledRows blockedLocks = new PolledRows((batch, row) -> batch.getKey(row) + "/" + batch.getAttribute(row, 1),
+            true, DB_LOCK_TIME_KEY, BLOCKING_SESS_ID.getKey(), BLOCKER_SESS_ID.getKey(), LOCKED_OBJ_NAME.getKey());
+    private final QueryResultBatch lockCounts = new QueryResultBatch(true, DB_LOCK_COUNT_KEY);
+    private final QueryResultBatch cacheHits = new QueryResultBatch(false, DB_CACHE_HIT_KEY);
 
     public DamengDc(Map<String, Object> properties, String dbSystem, String dbDriver) throws SQLException {
         super(properties, dbSystem, dbDriver);
@@ -32,6 +71,8 @@ public class DamengDc extends AbstractDbDc {
         if (getServiceInstanceId() == null) {
             setServiceInstanceId(getDbAddress() + ":" + getDbPort() + "@" + getDbName());
         }
+        tablespaceQuery.withFetchSize(getFetchSize());
+        addCollectionSteps();
     }
 
     private void findDbNameAndVersion() throws SQLException {
@@ -44,6 +85,86 @@ public class DamengDc extends AbstractDbDc {
         }
     }
 
+    /**
+     * Replace the locked object id of the lock query by its name from the object dictionary
+     */
+    private void resolveLockedObjects(Connection conn, QueryResultBatch locks) {
+        if (locks.size() == 0) {
+            return;
+        }
+        List<String> objectIds = new ArrayList<>();
+        for (int row = 0; row < locks.size(); row++) {
+            objectIds.add(locks.getAttribute(row, 3));
+        }
+        Map<String, String> names = objectNames.resolve(conn, objectIds);
+        for (int row = 0; row < locks.size(); row++) {
+            String name = names.get(locks.getAttribute(row, 3));
+            locks.setAttribute(row, 3, name == null ? "null" : name);
+        }
+    }
+
+    /**
+     * Slowest statements of V$SYSTEM_LONG_EXEC_SQLS, folded into their shapes as well so the literal-varying copies
+     * of a statement count as one. The view keeps its rows across polls, so only the executions missing from the
+     * previous read, told apart by SQL_ID and EXEC_TIME, are recorded and folded: no execution is counted twice.
+     */
+    private void collectSqlElapsedTime(Connection conn) {
+        slowestStatements.update(getMetricWithSql(conn, SQL_ELAPSED_TIME_SQL, getFetchSize(), slowestStatements.next()));
+        QueryResultBatch statements = slowestStatements.getCurrent();
+        BitSet added = slowestStatements.getAdded();
+        RawMetric elapsedTime = getRawMetric(DB_SQL_ELAPSED_TIME_NAME);
+        SqlShapeAggregator shapes = getSqlShapes();
+        for (int row = added.nextSetBit(0); row >= 0; row = added.nextSetBit(row + 1)) {
+            if (statements.isNull(row)) {
+                continue;
+            }
+            double elapsed = statements.getDouble(row) / 1000;
+            elapsedTime.recordSample(elapsed);
+            if (shapes != null) {
+                shapes.add(statements.getAttribute(row, 1), elapsed);
+            }
+        }
+        publishSqlShapes();
+    }
+
+    /**
+     * A blocked lock is recorded once, when it is gone, with the last wait time read and its locked object only
+     */
+    private void collectLockTimes(Connection conn) {
+        blockedLocks.update(getMetricWithSql(conn, LOCK_TIME_SQL, getFetchSize(), blockedLocks.next()));
+        resolveLockedObjects(conn, blockedLocks.getCurrent());
+        QueryResultBatch locks = blockedLocks.getPrevious();
+        BitSet removed = blockedLocks.getRemoved();
+        RawMetric lockTime = getRawMetric(DB_LOCK_TIME_NAME);
+        for (int row = removed.nextSetBit(0); row >= 0; row = removed.nextSetBit(row + 1)) {
+            if (!locks.isNull(row)) {
+                lockTime.recordSample(locks.getLong(row), Collections.singletonMap(LOCKED_OBJ_NAME.getKey(), locks.getAttribute(row, 3)));
+            }
+        }
+    }
+
+    static Map<String, String> loadObjectNames(Connection connection, Collection<String> objectIds) throws SQLException {
+        StringBuilder idList = new StringBuilder();
+        for (String objectId : objectIds) {
+            //Ids come from v$lock, anything else than a number cannot be an object id
+            if (objectId.matches("-?\\d+")) {
+                idList.append(idList.length() > 0 ? "," : "").append(objectId);
+            }
+        }
+        Map<String, String> names = new HashMap<>();
+        if (idList.length() == 0) {
+            return names;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(String.format(OBJECT_NAMES_SQL, idList))) {
+            while (rs.next()) {
+                names.put(rs.getString(1).trim(), rs.getString(2));
+            }
+        }
+        logger.fine("Loaded " + names.size() + " object name(s) for " + objectIds.size() + " id(s)");
+        return names;
+    }
+
     @Override
     public void registerMetrics() {
         super.registerMetrics();
@@ -51,42 +172,69 @@ public class DamengDc extends AbstractDbDc {
         getRawMetric(DB_SQL_RATE_NAME).setCalculationMode(CalculationMode.RATE);
         getRawMetric(DB_IO_READ_RATE_NAME).setCalculationMode(CalculationMode.RATE);
         getRawMetric(DB_IO_WRITE_RATE_NAME).setCalculationMode(CalculationMode.RATE);
+        //Fractions, as reported by the previous queries
+        getRawMetric(DB_TABLESPACE_UTILIZATION_NAME).setExpression(expression(DB_TABLESPACE_USED_NAME + " / " + DB_TABLESPACE_SIZE_NAME));
+        getRawMetric(DB_MEM_UTILIZATION_NAME).setExpression(expression(DB_MEM_USED_NAME + " / " + DB_MEM_SIZE_NAME));
     }
 
     @Override
-    public void collectData() {
-        logger.info("Start to collect metrics");
-        try (Connection conn = getConnection()) {
-            getRawMetric(DB_STATUS_NAME).setValue(1);
+    protected String getPingQuery() {
+        return "SELECT 1 FROM DUAL";
+    }
+
+    /**
+     * KPIs in the fast tier, statement and lock diagnostics in the medium one, storage in the slow one
+     */
+    private void addCollectionSteps() {
+        addCollectionStep(new CollectionStep("instances", PollTier.FAST, conn -> {
             getRawMetric(DB_INSTANCE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, INSTANCE_COUNT_SQL));
             getRawMetric(DB_INSTANCE_ACTIVE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, INSTANCE_ACTIVE_COUNT_SQL));
-
+        }, DB_INSTANCE_COUNT_NAME, DB_INSTANCE_ACTIVE_COUNT_NAME));
+        addCollectionStep(new CollectionStep("sessions", PollTier.FAST, conn -> {
             getRawMetric(DB_SESSION_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, SESSION_COUNT_SQL));
             getRawMetric(DB_SESSION_ACTIVE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, SESSION_ACTIVE_COUNT_SQL));
-            getRawMetric(DB_TRANSACTION_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, TRANSACTION_COUNT_SQL));
-            getRawMetric(DB_TRANSACTION_RATE_NAME).setValue(getSimpleMetricWithSql(conn, TRANSACTION_COUNT_SQL));
-            getRawMetric(DB_TRANSACTION_LATENCY_NAME).setValue(getSimpleMetricWithSql(conn, TRANSACTION_LATENCY_SQL));
-            getRawMetric(DB_SQL_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, SQL_COUNT_SQL));
-            getRawMetric(DB_SQL_RATE_NAME).setValue(getSimpleMetricWithSql(conn, SQL_COUNT_SQL));
+        }, DB_SESSION_COUNT_NAME, DB_SESSION_ACTIVE_COUNT_NAME));
+        addCollectionStep(new CollectionStep("transactions", PollTier.FAST, conn -> {
+            transactionCountQuery.execute(conn);
+            transactionCountQuery.publish(this::getRawMetric);
+        }, DB_TRANSACTION_COUNT_NAME, DB_TRANSACTION_RATE_NAME, DB_TRANSACTION_LATENCY_NAME));
+        addCollectionStep(new CollectionStep("sql.count", PollTier.FAST, conn -> {
+            sqlCountQuery.execute(conn);
+            sqlCountQuery.publish(this::getRawMetric);
+        }, DB_SQL_COUNT_NAME, DB_SQL_RATE_NAME));
+        addCollectionStep(new CollectionStep("io", PollTier.FAST, conn -> {
             getRawMetric(DB_IO_READ_RATE_NAME).setValue(getSimpleMetricWithSql(conn, IO_READ_COUNT_SQL));
             getRawMetric(DB_IO_WRITE_RATE_NAME).setValue(getSimpleMetricWithSql(conn, IO_WRITE_COUNT_SQL));
+        }, DB_IO_READ_RATE_NAME, DB_IO_WRITE_RATE_NAME));
+        addCollectionStep(new CollectionStep("task.waits", PollTier.FAST, conn -> {
             getRawMetric(DB_TASK_WAIT_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, TASK_WAIT_COUNT_SQL));
             getRawMetric(DB_TASK_AVG_WAIT_TIME_NAME).setValue(getSimpleMetricWithSql(conn, TASK_AVG_WAIT_TIME_SQL));
+        }, DB_TASK_WAIT_COUNT_NAME, DB_TASK_AVG_WAIT_TIME_NAME));
+        addCollectionStep(new CollectionStep("cpu.memory", PollTier.FAST, conn -> {
+            getRawMetric(DB_CPU_UTILIZATION_NAME).setValue(getSimpleMetricWithSql(conn, CPU_UTILIZATION_SQL));
+            memoryQuery.execute(conn);
+            memoryQuery.publish(this::getRawMetric);
+        }, DB_CPU_UTILIZATION_NAME, DB_MEM_UTILIZATION_NAME));
 
-            getRawMetric(DB_CACHE_HIT_NAME).setValue(getMetricWithSql(conn, CACHE_HIT_SQL, DB_CACHE_HIT_KEY));
-            getRawMetric(DB_SQL_ELAPSED_TIME_NAME).setValue(getMetricWithSql(conn, SQL_ELAPSED_TIME_SQL, DB_SQL_ELAPSED_TIME_KEY, SQL_TEXT.getKey()));
-            getRawMetric(DB_LOCK_COUNT_NAME).setValue(getMetricWithSql(conn, LOCK_COUNT_SQL, DB_LOCK_COUNT_KEY));
-            getRawMetric(DB_LOCK_TIME_NAME).setValue(getMetricWithSql(conn, LOCK_TIME_SQL, DB_LOCK_TIME_KEY, BLOCKING_SESS_ID.getKey(), BLOCKER_SESS_ID.getKey(), LOCKED_OBJ_NAME.getKey()));
+        addCollectionStep(new CollectionStep("cache.hit", PollTier.MEDIUM,
+                conn -> {
+                    getMetricWithSql(conn, CACHE_HIT_SQL, 0, cacheHits);
+                    getRawMetric(DB_CACHE_HIT_NAME).setValue(cacheHits);
+                },
+                DB_CACHE_HIT_NAME));
+        addCollectionStep(new CollectionStep("sql.elapsed.time", PollTier.MEDIUM, this::collectSqlElapsedTime,
+                DB_SQL_ELAPSED_TIME_NAME, DB_SQL_SHAPE_ELAPSED_TIME_NAME, DB_SQL_SHAPE_COUNT_NAME).setOptional(true));
+        addCollectionStep(new CollectionStep("locks", PollTier.MEDIUM, conn -> {
+            getMetricWithSql(conn, LOCK_COUNT_SQL, getFetchSize(), lockCounts);
+            getRawMetric(DB_LOCK_COUNT_NAME).setValue(lockCounts);
+            collectLockTimes(conn);
+        }, DB_LOCK_COUNT_NAME, DB_LOCK_TIME_NAME).setOptional(true));
 
-            getRawMetric(DB_TABLESPACE_SIZE_NAME).setValue(getMetricWithSql(conn, TABLESPACE_SIZE_SQL, DB_TABLESPACE_SIZE_KEY));
-            getRawMetric(DB_TABLESPACE_USED_NAME).setValue(getMetricWithSql(conn, TABLESPACE_USED_SQL, DB_TABLESPACE_USED_KEY));
-            getRawMetric(DB_TABLESPACE_UTILIZATION_NAME).setValue(getMetricWithSql(conn, TABLESPACE_UTILIZATION_SQL, DB_TABLESPACE_UTILIZATION_KEY));
-            getRawMetric(DB_TABLESPACE_MAX_NAME).setValue(getMetricWithSql(conn, TABLESPACE_MAX_SQL, DB_TABLESPACE_MAX_KEY));
-            getRawMetric(DB_CPU_UTILIZATION_NAME).setValue(getSimpleMetricWithSql(conn, CPU_UTILIZATION_SQL));
-            List<Long> listMemData = getSimpleListWithSql(conn, MEM_UTILIZATION_SQL);
-            if (listMemData != null && !listMemData.isEmpty()) {
-                getRawMetric(DB_MEM_UTILIZATION_NAME).setValue((double) listMemData.get(0) / listMemData.get(1));
-            }
+        addCollectionStep(new CollectionStep("tablespaces", PollTier.SLOW, conn -> {
+            tablespaceQuery.execute(conn);
+            tablespaceQuery.publish(this::getRawMetric);
+        }, DB_TABLESPACE_SIZE_NAME, DB_TABLESPACE_USED_NAME, DB_TABLESPACE_UTILIZATION_NAME, DB_TABLESPACE_MAX_NAME));
+        addCollectionStep(new CollectionStep("disk", PollTier.SLOW, conn -> {
             List<Long> listDiskData = getSimpleListWithSql(conn, DISK_USAGE_SQL);
             if (listDiskData != null && !listDiskData.isEmpty()) {
                 long free = listDiskData.get(0);
@@ -94,10 +242,6 @@ public class DamengDc extends AbstractDbDc {
                 getRawMetric(DB_DISK_UTILIZATION_NAME).getDataPoint("default").setValue((double) free / total, Collections.singletonMap("path", "default"));
                 getRawMetric(DB_DISK_USAGE_NAME).getDataPoint("default").setValue(total - free, Collections.singletonMap("path", "default"));
             }
-
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Failed to update metric with exception", e);
-            getRawMetric(DB_STATUS_NAME).setValue(0);
-        }
+        }, DB_DISK_UTILIZATION_NAME, DB_DISK_USAGE_NAME));
     }
 }
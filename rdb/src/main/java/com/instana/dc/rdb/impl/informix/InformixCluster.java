@@ -0,0 +1,250 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix;
+
+import com.instana.dc.SimpleQueryResult;
+import com.instana.dc.rdb.MultiMetricQuery;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.instana.dc.rdb.DbDcUtil.*;
+
+/**
+ * Nodes of an HDR/RSS/SDS cluster, discovered from SYSCLUSTER of the configured server and refreshed periodically,
+ * so replicas added or removed later are picked up without a config change or a restart.
+ * Every remote node has its own small connection pool and serves its metrics with a single query,
+ * the configured server is read on the connection of the tier run.
+ */
+public class InformixCluster {
+    private static final Logger LOGGER = Logger.getLogger(InformixCluster.class.getName());
+    static final String DEFAULT_ROLE = "primary";
+    static final List<String> NODE_METRICS = Arrays.asList(
+            DB_SESSION_COUNT_NAME, DB_TRANSACTION_COUNT_NAME, DB_LOCK_COUNT_NAME, DB_MEM_USED_NAME, DB_MEM_SIZE_NAME);
+
+    private final String localServerName;
+    private final Function<Node, BasicDataSource> dataSourceFactory;
+    private final long rediscoveryMillis;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private long lastDiscovery = -1;
+
+    /**
+     * @param localServerName   : DBSERVERNAME of the configured server
+     * @param dataSourceFactory : builds the pool of a discovered node
+     * @param rediscoveryMillis : interval at which SYSCLUSTER is read again
+     */
+    public InformixCluster(String localServerName, Function<Node, BasicDataSource> dataSourceFactory,
+                           long rediscoveryMillis) {
+        this.localServerName = localServerName;
+        this.dataSourceFactory = dataSourceFactory;
+        this.rediscoveryMillis = rediscoveryMillis;
+    }
+
+    /**
+     * Collect the node metrics and the status of every node, rediscovering the nodes first if due
+     *
+     * @param connection : connection of the tier run to the configured server
+     * @return : metric name to one result per node, keyed by server name and carrying the role
+     */
+    public synchronized Map<String, List<SimpleQueryResult>> collect(Connection connection) {
+        long now = System.currentTimeMillis();
+        if (lastDiscovery < 0 || now - lastDiscovery >= rediscoveryMillis) {
+            discover(connection);
+            lastDiscovery = now;
+        }
+        Map<String, List<SimpleQueryResult>> results = new LinkedHashMap<>();
+        results.put(DB_STATUS_NAME, new ArrayList<>());
+        for (String metricName : NODE_METRICS) {
+            results.put(metricName, new ArrayList<>());
+        }
+        for (Node node : nodes.values()) {
+            boolean up;
+            try {
+                up = node.owned ? node.execute() : node.query.execute(connection);
+            } catch (SQLException exp) {
+                LOGGER.log(Level.WARNING, "Unable to connect to cluster node " + node.name + ", Exception: " + exp);
+                up = false;
+            }
+            results.get(DB_STATUS_NAME).add(node.result(up ? 1 : 0));
+            if (up) {
+                for (String metricName : NODE_METRICS) {
+                    Number value = node.query.getValue(metricName);
+                    if (value != null) {
+                        results.get(metricName).add(node.result(value));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Status of the polls the configured server cannot be reached on: the cluster is not read then, so every
+     * node known from the last discovery is reported down rather than left to go stale.
+     *
+     * @return : one result of 0 per known node, the configured server alone before the first discovery
+     */
+    public synchronized List<SimpleQueryResult> getDownStatus() {
+        List<SimpleQueryResult> results = new ArrayList<>();
+        if (nodes.isEmpty()) {
+            Node local = new Node(localServerName, null, -1, null, false);
+            local.role = DEFAULT_ROLE;
+            results.add(local.result(0));
+            return results;
+        }
+        for (Node node : nodes.values()) {
+            results.add(node.result(0));
+        }
+        return results;
+    }
+
+    /**
+     * Read the nodes from SYSCLUSTER and SYSSQLHOSTS, open pools for the new ones and close those of the removed ones.
+     * The known nodes are kept if the discovery fails.
+     */
+    synchronized void discover(Connection connection) {
+        Map<String, String[]> found = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(InformixUtil.CLUSTER_NODES_SQL)) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (name != null) {
+                    found.put(name.trim(), new String[]{rs.getString(2), rs.getString(3), rs.getString(4)});
+                }
+            }
+        } catch (SQLException exp) {
+            LOGGER.log(Level.WARNING, "Unable to discover the cluster nodes, Exception: " + exp);
+            return;
+        }
+        Node local = nodes.get(localServerName);
+        if (local == null) {
+            local = new Node(localServerName, null, -1, null, false);
+            nodes.put(localServerName, local);
+        }
+        //Roles change on a failover, so they are refreshed for the known nodes too
+        local.role = roleOf(found.get(localServerName));
+        for (Map.Entry<String, String[]> entry : found.entrySet()) {
+            String name = entry.getKey();
+            Node node = nodes.get(name);
+            if (node != null) {
+                node.role = roleOf(entry.getValue());
+                continue;
+            }
+            int port = parsePort(entry.getValue()[2]);
+            if (port < 0) {
+                LOGGER.warning("Cluster node " + name + " skipped, its service " + entry.getValue()[2] + " is not a port number");
+                continue;
+            }
+            node = new Node(name, trim(entry.getValue()[1]), port, null, true);
+            node.dataSource = dataSourceFactory.apply(node);
+            node.role = roleOf(entry.getValue());
+            nodes.put(name, node);
+            LOGGER.info("Discovered cluster node " + name + " (" + node.role + ") at " + node.host + ":" + port);
+        }
+        Iterator<Node> iterator = nodes.values().iterator();
+        while (iterator.hasNext()) {
+            Node node = iterator.next();
+            if (node.owned && !found.containsKey(node.name)) {
+                iterator.remove();
+                node.close();
+                LOGGER.info("Cluster node " + node.name + " left the cluster");
+            }
+        }
+    }
+
+    public synchronized int getNodeCount() {
+        return nodes.size();
+    }
+
+    private static String roleOf(String[] row) {
+        String role = row == null ? null : trim(row[0]);
+        return role == null || role.isEmpty() ? DEFAULT_ROLE : role.toLowerCase(Locale.ROOT);
+    }
+
+    private static int parsePort(String service) {
+        try {
+            return Integer.parseInt(trim(service));
+        } catch (NumberFormatException | NullPointerException e) {
+            return -1;
+        }
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    /**
+     * One server of the cluster
+     */
+    public static class Node {
+        private final String name;
+        private final String host;
+        private final int port;
+        private final boolean owned;
+        private final MultiMetricQuery query = new MultiMetricQuery(InformixUtil.CLUSTER_NODE_METRICS_SQL);
+        private BasicDataSource dataSource;
+        private String role;
+
+        private Node(String name, String host, int port, BasicDataSource dataSource, boolean owned) {
+            this.name = name;
+            this.host = host;
+            this.port = port;
+            this.dataSource = dataSource;
+            this.owned = owned;
+            for (int i = 0; i < NODE_METRICS.size(); i++) {
+                query.withMetric(NODE_METRICS.get(i), i + 1);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        private SimpleQueryResult result(Number value) {
+            return new SimpleQueryResult(value).setKey(name)
+                    .setAttribute(DB_CLUSTER_NODE_KEY, name)
+                    .setAttribute(DB_CLUSTER_ROLE_KEY, role);
+        }
+
+        /**
+         * Run the node query on a connection of the pool of the node
+         */
+        private boolean execute() throws SQLException {
+            try (Connection connection = dataSource.getConnection()) {
+                return query.execute(connection);
+            }
+        }
+
+        private void close() {
+            try {
+                dataSource.close();
+            } catch (SQLException exp) {
+                LOGGER.log(Level.WARNING, "Unable to close the pool of cluster node " + name + ", Exception: " + exp);
+            }
+        }
+    }
+}
@@ -4,85 +4,108 @@
  */
 package com.instana.dc.rdb.impl.informix;
 
-import com.instana.agent.sensorsdk.semconv.SemanticAttributes;
 import com.instana.dc.CalculationMode;
 import com.instana.dc.SimpleQueryResult;
 import com.instana.dc.rdb.AbstractDbDc;
+import com.instana.dc.rdb.CollectionStep;
 import com.instana.dc.rdb.DbDcUtil;
+import com.instana.dc.rdb.MultiMetricQuery;
+import com.instana.dc.rdb.PollTier;
 import com.instana.dc.rdb.impl.Constants;
 import com.instana.dc.rdb.impl.informix.metric.collection.*;
 import com.instana.dc.rdb.impl.informix.metric.collection.strategy.MetricsCollector;
+import com.instana.dc.rdb.impl.informix.onstat.OnstatCommand;
 import org.apache.commons.dbcp2.BasicDataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static com.instana.dc.rdb.DbDcUtil.*;
-import static com.instana.dc.rdb.impl.Constants.ACTIVE_SESSION_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.DISK_READ_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.DISK_WRITE_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.IO_READ_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.IO_WRITE_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.MEMORY_UTILIZATION_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.SQL_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.TASK_WAIT_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.TOTAL_SESSION_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.TRANSACTION_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.DISK_READ_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.DISK_WRITE_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.LOCK_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.OVERFLOW_LOCK_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.OVERFLOW_USER_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.OVERFLOW_TRANSACTION_COUNT_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.CACHE_READ_RATIO_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.CACHE_WRITE_RATIO_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.LOCK_WAITS_SCRIPT;
-import static com.instana.dc.rdb.impl.Constants.LRU_WRITES_SCRIPT;
 import static com.instana.dc.rdb.impl.Constants.DB_SQL_TRACE_ENABLED;
+import static com.instana.dc.rdb.impl.Constants.DB_SQL_TRACE_MAX_ROWS;
+import static com.instana.dc.rdb.impl.Constants.DB_ONSTAT_STREAM_INTERVAL;
+import static com.instana.dc.rdb.impl.Constants.DB_CLUSTER_ENABLED;
+import static com.instana.dc.rdb.impl.Constants.DB_CLUSTER_REDISCOVERY_INTERVAL;
+import static com.instana.dc.rdb.impl.Constants.DB_COLLECTION_MODE;
+import static com.instana.dc.rdb.impl.Constants.DB_NAMES;
+import static com.instana.dc.rdb.impl.Constants.DB_SCOPE;
+import static com.instana.dc.rdb.impl.Constants.DB_SCOPE_SERVER;
+import static com.instana.dc.rdb.impl.Constants.DB_SEQUENTIAL_SCAN_TOP_K;
 import static com.instana.dc.rdb.impl.informix.InformixUtil.DB_HOST_AND_VERSION_SQL;
 
 
 public class InformixDc extends AbstractDbDc {
     private static final Logger LOGGER = Logger.getLogger(InformixDc.class.getName());
-    private static final int DEFAULT_ELAPSED_TIME = 900;
+    private static final int DEFAULT_SEQUENTIAL_SCAN_TOP_K = 20;
+    private static final int DEFAULT_CLUSTER_REDISCOVERY_INTERVAL = 300;
+    private static final int DEFAULT_SQL_TRACE_MAX_ROWS = 1000;
+    private static final int CLUSTER_NODE_TIMEOUT_SECONDS = 10;
+    //Seconds the driver waits for the server to accept a connection, dbcp connects through the driver directly
+    private static final String INFORMIX_CONNECT_TIMEOUT = "INFORMIXCONTIME";
     private String tableSpaceSizeQuery;
     private String sequentialScanQuery;
-    private String sequentialScanTableQuery;
-    private String sqlElapsedTimeQuery;
-    private boolean customPollRateEnabled = true;
-    private ScheduledExecutorService executorService;
+    private boolean serverScope;
+    private int sequentialScanTopK;
     private final BasicDataSource dataSource;
-    private final  MetricsDataQueryConfig metricDataQueryConfig;
+    private final MultiMetricQuery tablespaceQuery;
+    private final SequentialScanTopK sequentialScans;
+    private SqlTraceReader sqlTraceReader;
 
     private final MetricsCollector metricCollector;
+    private final OnstatCommandExecutor onstatCommandExecutor;
+    private final SysProfileSnapshot sysProfileSnapshot;
 
     private Boolean sqlTraceEnabled;
+    private int onstatStreamInterval;
+    private MetricCollectionMode collectionMode;
+    private boolean clusterEnabled;
+    private int clusterRediscoveryInterval;
+    private InformixCluster cluster;
 
     public InformixDc(Map<String, Object> properties, String dbSystem, String dbDriver) throws SQLException {
         super(properties, dbSystem, dbDriver);
         parseCustomAttributes(properties);
-        OnstatCommandExecutor onstatCommandExecutor = new OnstatCommandExecutor(getDbPath(), getServerName());
+        onstatCommandExecutor = new OnstatCommandExecutor(getDbPath(), getServerName());
+        if (onstatStreamInterval > 0) {
+            onstatCommandExecutor.enableStreaming(onstatStreamInterval);
+        }
         setDbPassword(InformixUtil.decodePassword(getDbPassword()));
         setDbConnUrl();
 
         dataSource = getDataSource();
-        metricDataQueryConfig = new MetricsDataQueryConfig(tableSpaceSizeQuery,List.class,this.dataSource,SemanticAttributes.TOTAL_KB.getKey(),DB_TABLESPACE_SIZE_KEY,SemanticAttributes.USED_KB.getKey(),SemanticAttributes.TABLE_UTILIZATION.getKey());
+        tablespaceQuery = new MultiMetricQuery(tableSpaceSizeQuery).withFetchSize(getFetchSize());
+        sequentialScans = new SequentialScanTopK(sequentialScanTopK, serverScope);
+        if (serverScope) {
+            //Database first, so that the same table name in two databases gives two series
+            tablespaceQuery.withKey(4, DB_NAME);
+        }
+        tablespaceQuery.withKey(2, DB_TABLESPACE_SIZE_KEY)
+                .withMetric(DB_TABLESPACE_SIZE_NAME, 1)
+                .withMetric(DB_TABLESPACE_USED_NAME, 3)
+                .withMetric(DB_TABLESPACE_MAX_NAME, 1);
 
         if (getServiceInstanceId() == null) {
             setServiceInstanceId(getDbAddress() + ":" + getDbPort() + "@" + getDbName());
         }
         getDbNameAndVersion();
-        parseCustomPollRate(properties);
-        registerMetricsMetadata();
-        metricCollector = new MetricsCollector(dataSource, onstatCommandExecutor);
+        metricCollector = new MetricsCollector(onstatCommandExecutor, registerMetricsMetadata(), collectionMode);
+        if (clusterEnabled) {
+            cluster = new InformixCluster(getServerName(), this::getNodeDataSource,
+                    TimeUnit.SECONDS.toMillis(clusterRediscoveryInterval));
+            LOGGER.info("Cluster mode enabled, nodes are rediscovered every " + clusterRediscoveryInterval + "s");
+        }
+        sysProfileSnapshot = new SysProfileSnapshot();
+        addCollectionSteps();
     }
 
     private BasicDataSource getDataSource() {
@@ -94,164 +117,182 @@ public class InformixDc extends AbstractDbDc {
         basicDataSource.setUrl(getDbConnUrl());
         basicDataSource.setInitialSize(3);
         basicDataSource.setMaxIdle(1);
+        basicDataSource.setMaxWait(Duration.ofSeconds(getLoginTimeout()));
+        basicDataSource.addConnectionProperty(INFORMIX_CONNECT_TIMEOUT, String.valueOf(getLoginTimeout()));
+        return basicDataSource;
+    }
+
+    /**
+     * Small pool for a discovered cluster node: it serves one query per poll, so a single connection is enough
+     */
+    private BasicDataSource getNodeDataSource(InformixCluster.Node node) {
+        BasicDataSource basicDataSource = new BasicDataSource();
+        basicDataSource.setDriverClassName(getDbDriver());
+        basicDataSource.setUsername(getDbUserName());
+        basicDataSource.setPassword(getDbPassword());
+        basicDataSource.setUrl(buildConnUrl(node.getHost(), node.getPort(), node.getName()));
+        basicDataSource.setInitialSize(0);
+        basicDataSource.setMaxTotal(1);
+        basicDataSource.setMaxIdle(1);
+        basicDataSource.setMaxWait(Duration.ofSeconds(CLUSTER_NODE_TIMEOUT_SECONDS));
+        basicDataSource.setDefaultQueryTimeout(Duration.ofSeconds(CLUSTER_NODE_TIMEOUT_SECONDS));
+        basicDataSource.addConnectionProperty(INFORMIX_CONNECT_TIMEOUT, String.valueOf(CLUSTER_NODE_TIMEOUT_SECONDS));
         return basicDataSource;
     }
 
     /**
      * Util method to register all the available metrics Informix support with some basic metadata like Mode of execution, Query or command details etc.
+     *
+     * @return : register of this instance
      */
-    private void registerMetricsMetadata() {
-        //Metrics via SQL
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TABLESPACE_SIZE_NAME,
-                new MetricDataConfig(tableSpaceSizeQuery, MetricCollectionMode.SQL,List.class,DB_TABLESPACE_SIZE_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TABLESPACE_USED_NAME,
-                new MetricDataConfig(tableSpaceSizeQuery, MetricCollectionMode.SQL, List.class, DB_TABLESPACE_USED_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TABLESPACE_UTILIZATION_NAME,
-                new MetricDataConfig(tableSpaceSizeQuery, MetricCollectionMode.SQL, List.class, DB_TABLESPACE_UTILIZATION_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TABLESPACE_MAX_NAME,
-                new MetricDataConfig(tableSpaceSizeQuery, MetricCollectionMode.SQL, List.class, DB_TABLESPACE_MAX_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_SQL_ELAPSED_TIME_NAME,
-                new MetricDataConfig(sqlElapsedTimeQuery, MetricCollectionMode.SQL, List.class, DB_SQL_ELAPSED_TIME_KEY, SemanticAttributes.SQL_TEXT.getKey()));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_INSTANCE_COUNT_NAME,
+    private MetricsDataConfigRegister registerMetricsMetadata() {
+        Map<String, MetricDataConfig> metricConfigs = new HashMap<>();
+        //Metrics via SQL, the tablespaces are read by tablespaceQuery
+        metricConfigs.put(DB_INSTANCE_COUNT_NAME,
                 new MetricDataConfig(InformixUtil.INSTANCE_COUNT_SQL, MetricCollectionMode.SQL, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_INSTANCE_ACTIVE_COUNT_NAME,
+        metricConfigs.put(DB_INSTANCE_ACTIVE_COUNT_NAME,
                 new MetricDataConfig(InformixUtil.INSTANCE_ACTIVE_COUNT_SQL, MetricCollectionMode.SQL, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_DATABASE_LOG_ENABLED_NAME,
+        metricConfigs.put(DB_DATABASE_LOG_ENABLED_NAME,
                 new MetricDataConfig(InformixUtil.DB_DATABASE_LOG_ENABLED_SQL, MetricCollectionMode.SQL, List.class, DB_DATABASE_LOG_ENABLED_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_DATABASE_BUFF_LOG_ENABLED_NAME,
+        metricConfigs.put(DB_DATABASE_BUFF_LOG_ENABLED_NAME,
                 new MetricDataConfig(InformixUtil.DB_DATABASE_BUFF_LOG_ENABLED_SQL, MetricCollectionMode.SQL, List.class, DB_DATABASE_BUFF_LOG_ENABLED_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_DATABASE_ANSI_COMPLAINT_NAME,
+        metricConfigs.put(DB_DATABASE_ANSI_COMPLAINT_NAME,
                 new MetricDataConfig(InformixUtil.DB_DATABASE_ANSI_COMPLAINT_SQL, MetricCollectionMode.SQL, List.class, DB_DATABASE_ANSI_COMPLAINT_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_DATABASE_NLS_ENABLED_NAME,
+        metricConfigs.put(DB_DATABASE_NLS_ENABLED_NAME,
                 new MetricDataConfig(InformixUtil.DB_DATABASE_NLS_ENABLED_SQL, MetricCollectionMode.SQL, List.class, DB_DATABASE_NLS_ENABLED_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_DATABASE_CASE_INCENSITIVE_NAME,
+        metricConfigs.put(DB_DATABASE_CASE_INCENSITIVE_NAME,
                 new MetricDataConfig(InformixUtil.DB_DATABASE_CASE_INCENSITIVE_SQL, MetricCollectionMode.SQL, List.class, DB_DATABASE_CASE_INCENSITIVE_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_SEQ_SCAN_NAME,
-                new MetricDataConfig(sequentialScanQuery, MetricCollectionMode.SQL, List.class, DB_SEQ_SCAN_KEY));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_SEQ_SCAN_TABLE_NAME,
-                new MetricDataConfig(sequentialScanTableQuery, MetricCollectionMode.SQL, Number.class));
-
-        //Metrics via onstat command
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_SQL_COUNT_NAME,
-                new MetricDataConfig(DB_SQL_COUNT_NAME, SQL_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_SQL_RATE_NAME,
-                new MetricDataConfig(DB_SQL_RATE_NAME, SQL_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TRANSACTION_COUNT_NAME,
-                new MetricDataConfig(DB_TRANSACTION_COUNT_NAME, TRANSACTION_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TRANSACTION_RATE_NAME,
-                new MetricDataConfig(DB_TRANSACTION_RATE_NAME, TRANSACTION_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_SESSION_COUNT_NAME,
-                new MetricDataConfig(DB_SESSION_COUNT_NAME, TOTAL_SESSION_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_SESSION_ACTIVE_COUNT_NAME,
-                new MetricDataConfig(DB_SESSION_ACTIVE_COUNT_NAME, ACTIVE_SESSION_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_IO_READ_RATE_NAME,
-                new MetricDataConfig(DB_IO_READ_RATE_NAME, IO_READ_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_IO_WRITE_RATE_NAME,
-                new MetricDataConfig(DB_IO_WRITE_RATE_NAME, IO_WRITE_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_MEM_UTILIZATION_NAME,
-                new MetricDataConfig(DB_MEM_UTILIZATION_NAME, MEMORY_UTILIZATION_SCRIPT, MetricCollectionMode.CMD, Double.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_DISK_READ_COUNT_NAME,
-                new MetricDataConfig(DB_DISK_READ_COUNT_NAME, DISK_READ_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_DISK_WRITE_COUNT_NAME,
-                new MetricDataConfig(DB_DISK_WRITE_COUNT_NAME, DISK_WRITE_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_LOCK_COUNT_NAME,
-                new MetricDataConfig(DB_LOCK_COUNT_NAME, LOCK_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TASK_WAIT_COUNT_NAME,
-                new MetricDataConfig(DB_TASK_WAIT_COUNT_NAME, TASK_WAIT_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_LOCK_WAITS_NAME,
-                new MetricDataConfig(DB_LOCK_WAITS_NAME, LOCK_WAITS_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_CACHE_READ_RATIO_NAME,
-                new MetricDataConfig(DB_CACHE_READ_RATIO_NAME, CACHE_READ_RATIO_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_CACHE_WRITE_RATIO_NAME,
-                new MetricDataConfig(DB_CACHE_WRITE_RATIO_NAME, CACHE_WRITE_RATIO_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_LRU_WRITES_NAME,
-                new MetricDataConfig(DB_LRU_WRITES_NAME, LRU_WRITES_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_LOCK_TABLE_OVERFLOW_NAME,
-                new MetricDataConfig(DB_LOCK_TABLE_OVERFLOW_NAME, OVERFLOW_LOCK_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_TRANSACTION_OVERFLOW_NAME,
-                new MetricDataConfig(DB_TRANSACTION_OVERFLOW_NAME, OVERFLOW_TRANSACTION_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-        MetricsDataConfigRegister.subscribeMetricDataConfig(DB_USER_OVERFLOW_NAME,
-                new MetricDataConfig(DB_USER_OVERFLOW_NAME, OVERFLOW_USER_COUNT_SCRIPT, MetricCollectionMode.CMD, Number.class));
-
 
+        //Metrics via onstat command, with the SMI query used when onstat cannot be run or fails
+        metricConfigs.put(DB_SQL_COUNT_NAME,
+                new MetricDataConfig(DB_SQL_COUNT_NAME, OnstatCommand.SQL_HISTORY, InformixUtil.SQL_COUNT_SQL, Number.class));
+        metricConfigs.put(DB_SQL_RATE_NAME,
+                new MetricDataConfig(DB_SQL_RATE_NAME, OnstatCommand.SQL_HISTORY, InformixUtil.SQL_COUNT_SQL, Number.class));
+        metricConfigs.put(DB_TRANSACTION_COUNT_NAME,
+                new MetricDataConfig(DB_TRANSACTION_COUNT_NAME, OnstatCommand.TRANSACTIONS, InformixUtil.TRANSACTION_COUNT_SQL, Number.class));
+        metricConfigs.put(DB_TRANSACTION_RATE_NAME,
+                new MetricDataConfig(DB_TRANSACTION_RATE_NAME, OnstatCommand.TRANSACTIONS, InformixUtil.TRANSACTION_COUNT_SQL, Number.class));
+        metricConfigs.put(DB_SESSION_COUNT_NAME,
+                new MetricDataConfig(DB_SESSION_COUNT_NAME, OnstatCommand.SESSIONS, InformixUtil.SESSION_COUNT_SQL, Number.class));
+        metricConfigs.put(DB_IO_READ_RATE_NAME,
+                new MetricDataConfig(DB_IO_READ_RATE_NAME, OnstatCommand.IO, InformixUtil.IO_READ_COUNT_SQL, Number.class));
+        metricConfigs.put(DB_IO_WRITE_RATE_NAME,
+                new MetricDataConfig(DB_IO_WRITE_RATE_NAME, OnstatCommand.IO, InformixUtil.IO_WRITE_COUNT_SQL, Number.class));
+        metricConfigs.put(DB_MEM_USED_NAME,
+                new MetricDataConfig(DB_MEM_USED_NAME, OnstatCommand.MEMORY_SEGMENTS, InformixUtil.MEMORY_USED_SQL, Double.class));
+        metricConfigs.put(DB_MEM_SIZE_NAME,
+                new MetricDataConfig(DB_MEM_SIZE_NAME, OnstatCommand.MEMORY_SEGMENTS, InformixUtil.MEMORY_SIZE_SQL, Double.class));
+        metricConfigs.put(DB_LOCK_COUNT_NAME,
+                new MetricDataConfig(DB_LOCK_COUNT_NAME, OnstatCommand.LOCKS, InformixUtil.LOCK_COUNT_SQL, Number.class));
+        //No SMI table matches these onstat views, they are only available on the DB host
+        metricConfigs.put(DB_SESSION_ACTIVE_COUNT_NAME,
+                new MetricDataConfig(DB_SESSION_ACTIVE_COUNT_NAME, OnstatCommand.ACTIVE_SESSIONS, MetricCollectionMode.CMD, Number.class));
+        metricConfigs.put(DB_TASK_WAIT_COUNT_NAME,
+                new MetricDataConfig(DB_TASK_WAIT_COUNT_NAME, OnstatCommand.WAITS, MetricCollectionMode.CMD, Number.class));
+        return new MetricsDataConfigRegister(metricConfigs);
     }
 
     /**
-     * Util method to parse the user input
+     * Util method to parse the config and get the custom Attributes from the Config
      *
-     * @param properties : user inputs
+     * @param properties : Config data
      */
     @SuppressWarnings("unchecked")
-    private void parseCustomPollRate(Map<String, Object> properties) {
-        Map<String, Object> customInput = (Map<String, Object>) properties.get("custom.poll.interval");
-        if (null == customInput || customInput.isEmpty()) {
-            customPollRateEnabled = false;
-            LOGGER.info("No custom polling interval fallback to default");
+    private void parseCustomAttributes(Map<String, Object> properties) {
+        Map<String, Object> customInput = (Map<String, Object>) properties.get("custom.input");
+        sqlTraceEnabled = (Boolean)customInput.getOrDefault(DB_SQL_TRACE_ENABLED, false);
+        int sequentialScanCount = (Integer)customInput.getOrDefault("db.sequential.scan.count", 0);
+        sequentialScanTopK = (Integer)customInput.getOrDefault(DB_SEQUENTIAL_SCAN_TOP_K, DEFAULT_SEQUENTIAL_SCAN_TOP_K);
+        onstatStreamInterval = (Integer)customInput.getOrDefault(DB_ONSTAT_STREAM_INTERVAL, 0);
+        collectionMode = parseCollectionMode(String.valueOf(customInput.getOrDefault(DB_COLLECTION_MODE, "auto")));
+        clusterEnabled = (Boolean)customInput.getOrDefault(DB_CLUSTER_ENABLED, false);
+        clusterRediscoveryInterval = (Integer)customInput.getOrDefault(DB_CLUSTER_REDISCOVERY_INTERVAL, DEFAULT_CLUSTER_REDISCOVERY_INTERVAL);
+        int sqlTraceMaxRows = (Integer)customInput.getOrDefault(DB_SQL_TRACE_MAX_ROWS, DEFAULT_SQL_TRACE_MAX_ROWS);
+        serverScope = DB_SCOPE_SERVER.equalsIgnoreCase(String.valueOf(customInput.get(DB_SCOPE)));
+        if (serverScope) {
+            List<String> databaseNames = parseDatabaseNames(customInput.get(DB_NAMES));
+            LOGGER.info("Server scope enabled for databases: " + (databaseNames.isEmpty() ? "all" : databaseNames));
+            sequentialScanQuery = String.format(InformixUtil.DB_SEQ_SCAN_SERVER_SQL, databasePredicate("dbsname", databaseNames), sequentialScanCount);
+            tableSpaceSizeQuery = String.format(InformixUtil.TABLESPACE_SIZE_SERVER_SQL, databasePredicate("TN.DBSNAME", databaseNames));
+            sqlTraceReader = new SqlTraceReader(databasePredicate("SQL_DATABASE", databaseNames), true, sqlTraceMaxRows)
+                    .withShapes(getSqlShapes());
             return;
         }
+        StringBuilder databaseName = new StringBuilder(Constants.SINGLE_QUOTES + getDbName() + Constants.SINGLE_QUOTES);
+        sequentialScanQuery = String.format(InformixUtil.DB_SEQ_SCAN_SQL, databaseName, sequentialScanCount);
+        tableSpaceSizeQuery = String.format(InformixUtil.TABLESPACE_SIZE_SQL, databaseName);
+        sqlTraceReader = new SqlTraceReader("SQL_DATABASE = " + databaseName, false, sqlTraceMaxRows)
+                .withShapes(getSqlShapes());
+    }
 
-        executorService = Executors.newScheduledThreadPool(3);
-
-        for (Map.Entry<String, Object> entry : customInput.entrySet()) {
-            IntervalType type = getPollingInterval(entry.getKey());
-            int pollInterval = (int) entry.getValue();
-            assert type != null;
-            scheduleCustomPollRate(pollInterval, type);
+    /**
+     * Util method to read the collection mode of the metrics available through both onstat and SQL
+     *
+     * @param value : auto, sql or cmd
+     * @return : the forced mode, null for auto
+     */
+    static MetricCollectionMode parseCollectionMode(String value) {
+        for (MetricCollectionMode mode : MetricCollectionMode.values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        if (!"auto".equalsIgnoreCase(value.trim())) {
+            LOGGER.log(Level.WARNING, "Invalid collection mode {0}, falling back to auto", value);
         }
+        return null;
     }
 
-
     /**
-     * Util method to schedule custom Poll Rate based on the user Input
+     * Util method to read the databases to monitor in server scope
      *
-     * @param pollInterval : Polling value
-     * @param intervalType : Type of the Interval
+     * @param value : list of names or a comma separated string, null for all databases
+     * @return : trimmed database names, empty for all databases
      */
-    private void scheduleCustomPollRate(int pollInterval, IntervalType intervalType) {
-        switch (intervalType) {
-            case HIGH:
-                LOGGER.info("Starting Long Polling Scheduler");
-                executorService.scheduleWithFixedDelay(this::longPollingInterval, 1, pollInterval, TimeUnit.SECONDS);
-                break;
-            case MEDIUM:
-                LOGGER.info("Starting Medium Polling Scheduler");
-                executorService.scheduleWithFixedDelay(this::mediumPollingInterval, 1, pollInterval, TimeUnit.SECONDS);
-                break;
-            case LOW:
-                LOGGER.info("Starting Low Polling Scheduler");
-                executorService.scheduleWithFixedDelay(this::shortPollingInterval, 1, pollInterval, TimeUnit.SECONDS);
-                break;
+    static List<String> parseDatabaseNames(Object value) {
+        List<String> names = new ArrayList<>();
+        if (value == null) {
+            return names;
         }
+        Iterable<?> items = value instanceof Collection ? (Collection<?>) value : Arrays.asList(value.toString().split(Constants.COMMA));
+        for (Object item : items) {
+            String name = item == null ? "" : item.toString().trim();
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names;
     }
 
-
     /**
-     * Util method to parse the config and get the custom Attributes from the Config
-     *
-     * @param properties : Config data
+     * @return : predicate restricting the column to the given databases, always true for an empty list
      */
-    @SuppressWarnings("unchecked")
-    private void parseCustomAttributes(Map<String, Object> properties) {
-        Map<String, Object> customInput = (Map<String, Object>) properties.get("custom.input");
-        sqlTraceEnabled = (Boolean)customInput.getOrDefault(DB_SQL_TRACE_ENABLED, false);
-        int sequentialScanCount = (Integer)customInput.getOrDefault("db.sequential.scan.count", 0);
-        long elapsedTimeFrame = Long.parseLong((customInput.getOrDefault("db.sql.elapsed.timeframe", DEFAULT_ELAPSED_TIME)).toString());
-        StringBuilder databaseName = new StringBuilder(Constants.SINGLE_QUOTES + getDbName() + Constants.SINGLE_QUOTES);
-        sequentialScanQuery = String.format(InformixUtil.DB_SEQ_SCAN_SQL, databaseName, sequentialScanCount);
-        sequentialScanTableQuery = String.format(InformixUtil.DB_SEQ_SCAN_TABLE_SQL, databaseName, sequentialScanCount);
-        tableSpaceSizeQuery = String.format(InformixUtil.TABLESPACE_SIZE_SQL, databaseName);
-        sqlElapsedTimeQuery = String.format(InformixUtil.SQL_ELAPSED_TIME_SQL, elapsedTimeFrame, databaseName);
+    static String databasePredicate(String column, List<String> databaseNames) {
+        if (databaseNames.isEmpty()) {
+            return "1 = 1";
+        }
+        StringBuilder predicate = new StringBuilder(column).append(" IN (");
+        for (int i = 0; i < databaseNames.size(); i++) {
+            if (i > 0) {
+                predicate.append(", ");
+            }
+            predicate.append(Constants.SINGLE_QUOTES).append(databaseNames.get(i).replace("'", "''")).append(Constants.SINGLE_QUOTES);
+        }
+        return predicate.append(')').toString();
     }
 
     private void setDbConnUrl() {
-        String url = String.format("jdbc:informix-sqli://%s:%s/sysmaster:informixserver=%s;user=%s;Password=%s",
-                getDbAddress(),
-                getDbPort(),
-                getServerName(),
+        setDbConnUrl(buildConnUrl(getDbAddress(), getDbPort(), getServerName()));
+    }
+
+    private String buildConnUrl(String address, long port, String serverName) {
+        return String.format("jdbc:informix-sqli://%s:%s/sysmaster:informixserver=%s;user=%s;Password=%s",
+                address,
+                port,
+                serverName,
                 getDbUserName(),
                 getDbPassword()
         );
-        setDbConnUrl(url);
     }
 
     private void getDbNameAndVersion() throws SQLException {
@@ -264,7 +305,7 @@ public class InformixDc extends AbstractDbDc {
 
     @Override
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(getDbConnUrl());
+        return dataSource.getConnection();
     }
 
     @Override
@@ -274,96 +315,129 @@ public class InformixDc extends AbstractDbDc {
         getRawMetric(DB_SQL_RATE_NAME).setCalculationMode(CalculationMode.RATE);
         getRawMetric(DB_IO_READ_RATE_NAME).setCalculationMode(CalculationMode.RATE);
         getRawMetric(DB_IO_WRITE_RATE_NAME).setCalculationMode(CalculationMode.RATE);
+        //Tables dropping out of the top-K must not keep reporting their last delta
+        getRawMetric(DB_SEQ_SCAN_NAME).setClearDps(true);
+        //Percentages, per table and per cluster node
+        getRawMetric(DB_TABLESPACE_UTILIZATION_NAME).setExpression(expression("100 * " + DB_TABLESPACE_USED_NAME + " / " + DB_TABLESPACE_SIZE_NAME));
+        getRawMetric(DB_MEM_UTILIZATION_NAME).setExpression(expression("100 * " + DB_MEM_USED_NAME + " / " + DB_MEM_SIZE_NAME));
     }
 
     @Override
-    public void collectData() {
-        LOGGER.info("Start to collect metrics for Informix DB");
-        getallMetrics();
+    protected String getPingQuery() {
+        return "SELECT 1 FROM systables WHERE tabid = 1";
     }
 
-    private void getallMetrics() {
-        longPollingInterval();
-        mediumPollingInterval();
-        shortPollingInterval();
-    }
-
-    @SuppressWarnings("unchecked")
-    private void mediumPollingInterval() {
-        if(sqlTraceEnabled) {
-            getRawMetric(DB_SQL_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_SQL_COUNT_NAME));
-            getRawMetric(DB_SQL_ELAPSED_TIME_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_SQL_ELAPSED_TIME_NAME));
+    /**
+     * In cluster mode the status of every node, this one included, comes from the cluster step.
+     * The step does not run when the configured server cannot be reached, every known node is reported down then.
+     */
+    @Override
+    protected void publishStatus(boolean up) {
+        if (cluster == null) {
+            super.publishStatus(up);
+        } else if (!up) {
+            getRawMetric(DB_STATUS_NAME).setValue(cluster.getDownStatus());
         }
-        getRawMetric(DB_SQL_RATE_NAME).setValue((Number) metricCollector.collectMetrics(DB_SQL_RATE_NAME));
-        getRawMetric(DB_TRANSACTION_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_TRANSACTION_COUNT_NAME));
-        getRawMetric(DB_TRANSACTION_RATE_NAME).setValue((Number) metricCollector.collectMetrics(DB_TRANSACTION_COUNT_NAME));
-    }
-
-    private void shortPollingInterval() {
-        getRawMetric(DbDcUtil.DB_STATUS_NAME).setValue(1);
-        getRawMetric(DB_INSTANCE_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_INSTANCE_COUNT_NAME));
-        getRawMetric(DB_INSTANCE_ACTIVE_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_INSTANCE_ACTIVE_COUNT_NAME));
-        getRawMetric(DB_LOCK_TABLE_OVERFLOW_NAME).setValue((Number) metricCollector.collectMetrics(DB_LOCK_TABLE_OVERFLOW_NAME));
-        getRawMetric(DB_TRANSACTION_OVERFLOW_NAME).setValue((Number) metricCollector.collectMetrics(DB_TRANSACTION_OVERFLOW_NAME));
-        getRawMetric(DB_USER_OVERFLOW_NAME).setValue((Number) metricCollector.collectMetrics(DB_USER_OVERFLOW_NAME));
-        getRawMetric(DB_SESSION_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_SESSION_COUNT_NAME));
-        getRawMetric(DB_SEQ_SCAN_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_SEQ_SCAN_NAME));
-        getRawMetric(DB_SEQ_SCAN_TABLE_NAME).setValue((Number) metricCollector.collectMetrics(DB_SEQ_SCAN_TABLE_NAME));
-        getRawMetric(DB_SESSION_ACTIVE_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_SESSION_ACTIVE_COUNT_NAME));
-        getRawMetric(DB_IO_READ_RATE_NAME).setValue((Number) metricCollector.collectMetrics(DB_IO_READ_RATE_NAME));
-        getRawMetric(DB_IO_WRITE_RATE_NAME).setValue((Number) metricCollector.collectMetrics(DB_IO_WRITE_RATE_NAME));
-        getRawMetric(DB_MEM_UTILIZATION_NAME).setValue((Number) metricCollector.collectMetrics(DB_MEM_UTILIZATION_NAME));
-        getRawMetric(DB_DISK_WRITE_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_DISK_WRITE_COUNT_NAME));
-        getRawMetric(DB_DISK_READ_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_DISK_READ_COUNT_NAME));
-        getRawMetric(DB_LOCK_WAITS_NAME).setValue((Number) metricCollector.collectMetrics(DB_LOCK_WAITS_NAME));
-        getRawMetric(DB_CACHE_READ_RATIO_NAME).setValue((Number) metricCollector.collectMetrics(DB_CACHE_READ_RATIO_NAME));
-        getRawMetric(DB_CACHE_WRITE_RATIO_NAME).setValue((Number) metricCollector.collectMetrics(DB_CACHE_WRITE_RATIO_NAME));
-        getRawMetric(DB_LRU_WRITES_NAME).setValue((Number) metricCollector.collectMetrics(DB_LRU_WRITES_NAME));
-    }
-
-    @SuppressWarnings("unchecked")
-    private void longPollingInterval() {
-        //TODO: A method to execute the query, store it in object, call that object in subsequent lines
-        metricDataQueryConfig.fetchQueryResults();
-        getRawMetric(DB_TABLESPACE_SIZE_NAME).setValue((List<SimpleQueryResult>) metricDataQueryConfig.getResults(SemanticAttributes.TOTAL_KB.getKey()));
-        getRawMetric(DB_TABLESPACE_USED_NAME).setValue((List<SimpleQueryResult>) metricDataQueryConfig.getResults(SemanticAttributes.USED_KB.getKey()));
-        getRawMetric(DB_TABLESPACE_UTILIZATION_NAME).setValue((List<SimpleQueryResult>) metricDataQueryConfig.getResults(SemanticAttributes.TABLE_UTILIZATION.getKey()));
-        getRawMetric(DB_TABLESPACE_MAX_NAME).setValue((List<SimpleQueryResult>) metricDataQueryConfig.getResults(SemanticAttributes.TOTAL_KB.getKey()));
-        getRawMetric(DB_DATABASE_LOG_ENABLED_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_LOG_ENABLED_NAME));
-        getRawMetric(DB_DATABASE_BUFF_LOG_ENABLED_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_BUFF_LOG_ENABLED_NAME));
-        getRawMetric(DB_DATABASE_ANSI_COMPLAINT_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_ANSI_COMPLAINT_NAME));
-        getRawMetric(DB_DATABASE_NLS_ENABLED_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_NLS_ENABLED_NAME));
-        getRawMetric(DB_DATABASE_CASE_INCENSITIVE_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_CASE_INCENSITIVE_NAME));
     }
 
+    /**
+     * The onstat outputs are shared by the metrics of one tier run only, the next run starts them again.
+     * Each run has its own cycle, so tiers running in parallel do not clear each other's outputs.
+     */
     @Override
-    public void start() {
-        if (customPollRateEnabled) {
-            LOGGER.info("Custom Poll Rate is Enabled for InformixDC, not starting default executors");
-            return;
-        }
-        super.start();
+    protected void startRun(Connection connection) {
+        metricCollector.startCycle(connection);
     }
 
-    private enum IntervalType {
-        HIGH,
-        MEDIUM,
-        LOW;
+    @Override
+    protected void endRun(Connection connection) {
+        metricCollector.endCycle(connection);
     }
 
     /**
-     * Util method to get the Polling Interval
-     *
-     * @param pollingInterval : User input of the Interval
-     * @return : Mapped Type of the Interval
+     * KPIs in the fast tier, SQL and transaction throughput in the medium one, storage and database flags in the slow one
      */
-    private IntervalType getPollingInterval(String pollingInterval) {
-        for (IntervalType interval : IntervalType.values()) {
-            if (pollingInterval.equalsIgnoreCase(interval.name())) {
-                return interval;
+    @SuppressWarnings("unchecked")
+    private void addCollectionSteps() {
+        if (cluster != null) {
+            //Status, sessions, transactions, locks and memory blocks of every node, keyed by server name
+            addCollectionStep(new CollectionStep("cluster", PollTier.FAST, conn -> {
+                for (Map.Entry<String, List<SimpleQueryResult>> nodeMetric : cluster.collect(conn).entrySet()) {
+                    getRawMetric(nodeMetric.getKey()).setValue(nodeMetric.getValue());
+                }
+            }, DB_STATUS_NAME, DB_SESSION_COUNT_NAME, DB_TRANSACTION_COUNT_NAME, DB_LOCK_COUNT_NAME, DB_MEM_UTILIZATION_NAME));
+        } else {
+            addCollectionStep(new CollectionStep("sessions", PollTier.FAST,
+                    conn -> getRawMetric(DB_SESSION_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_SESSION_COUNT_NAME, conn)),
+                    DB_SESSION_COUNT_NAME));
+            addCollectionStep(new CollectionStep("memory", PollTier.FAST, conn -> {
+                getRawMetric(DB_MEM_USED_NAME).setValue((Number) metricCollector.collectMetrics(DB_MEM_USED_NAME, conn));
+                getRawMetric(DB_MEM_SIZE_NAME).setValue((Number) metricCollector.collectMetrics(DB_MEM_SIZE_NAME, conn));
+            }, DB_MEM_UTILIZATION_NAME));
+            addCollectionStep(new CollectionStep("locks", PollTier.FAST,
+                    conn -> getRawMetric(DB_LOCK_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_LOCK_COUNT_NAME, conn)),
+                    DB_LOCK_COUNT_NAME));
+        }
+        addCollectionStep(new CollectionStep("instances", PollTier.FAST, conn -> {
+            getRawMetric(DB_INSTANCE_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_INSTANCE_COUNT_NAME, conn));
+            getRawMetric(DB_INSTANCE_ACTIVE_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_INSTANCE_ACTIVE_COUNT_NAME, conn));
+        }, DB_INSTANCE_COUNT_NAME, DB_INSTANCE_ACTIVE_COUNT_NAME));
+        addCollectionStep(new CollectionStep("sequential.scans", PollTier.FAST, conn -> {
+            sequentialScans.collect(conn, sequentialScanQuery);
+            getRawMetric(DB_SEQ_SCAN_NAME).setValue(sequentialScans.getTopScans());
+            getRawMetric(DB_SEQ_SCAN_TABLE_NAME).setValue(sequentialScans.getTableCounts());
+        }, DB_SEQ_SCAN_NAME, DB_SEQ_SCAN_TABLE_NAME));
+        addCollectionStep(new CollectionStep("active.sessions", PollTier.FAST,
+                conn -> getRawMetric(DB_SESSION_ACTIVE_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_SESSION_ACTIVE_COUNT_NAME, conn)),
+                DB_SESSION_ACTIVE_COUNT_NAME));
+        addCollectionStep(new CollectionStep("io", PollTier.FAST, conn -> {
+            getRawMetric(DB_IO_READ_RATE_NAME).setValue((Number) metricCollector.collectMetrics(DB_IO_READ_RATE_NAME, conn));
+            getRawMetric(DB_IO_WRITE_RATE_NAME).setValue((Number) metricCollector.collectMetrics(DB_IO_WRITE_RATE_NAME, conn));
+        }, DB_IO_READ_RATE_NAME, DB_IO_WRITE_RATE_NAME));
+        if (onstatCommandExecutor.isStreaming()) {
+            addCollectionStep(new CollectionStep("onstat.cpu", PollTier.FAST,
+                    conn -> getRawMetric(DB_ONSTAT_CPU_TIME_NAME).setValue(onstatCommandExecutor.getStreamCpuTimes()),
+                    DB_ONSTAT_CPU_TIME_NAME));
+        }
+        //Overflows, disk reads/writes, lock waits, LRU writes and cache ratios all come from one sysprofile read
+        addCollectionStep(new CollectionStep("sysprofile", PollTier.FAST, conn -> {
+            for (Map.Entry<String, Number> profileMetric : sysProfileSnapshot.collect(conn).entrySet()) {
+                getRawMetric(profileMetric.getKey()).setValue(profileMetric.getValue());
             }
+        }, DB_LOCK_TABLE_OVERFLOW_NAME, DB_TRANSACTION_OVERFLOW_NAME, DB_USER_OVERFLOW_NAME, DB_DISK_READ_COUNT_NAME,
+                DB_DISK_WRITE_COUNT_NAME, DB_LOCK_WAITS_NAME, DB_LRU_WRITES_NAME, DB_CACHE_READ_RATIO_NAME, DB_CACHE_WRITE_RATIO_NAME));
+
+        if (sqlTraceEnabled) {
+            addCollectionStep(new CollectionStep("sql.count", PollTier.MEDIUM,
+                    conn -> getRawMetric(DB_SQL_COUNT_NAME).setValue((Number) metricCollector.collectMetrics(DB_SQL_COUNT_NAME, conn)),
+                    DB_SQL_COUNT_NAME));
+            addCollectionStep(new CollectionStep("sql.elapsed.time", PollTier.MEDIUM, conn -> {
+                recordSqlElapsedTimes(sqlTraceReader.collect(conn));
+                publishSqlShapes();
+            }, DB_SQL_ELAPSED_TIME_NAME, DB_SQL_SHAPE_ELAPSED_TIME_NAME, DB_SQL_SHAPE_COUNT_NAME).setOptional(true));
         }
-        LOGGER.log(Level.SEVERE, "Invalid Polling Interval : {}", pollingInterval);
-        return null;
+        addCollectionStep(new CollectionStep("sql.rate", PollTier.MEDIUM,
+                conn -> getRawMetric(DB_SQL_RATE_NAME).setValue((Number) metricCollector.collectMetrics(DB_SQL_RATE_NAME, conn)),
+                DB_SQL_RATE_NAME));
+        addCollectionStep(new CollectionStep("transactions", PollTier.MEDIUM, conn -> {
+            Number transactions = (Number) metricCollector.collectMetrics(DB_TRANSACTION_COUNT_NAME, conn);
+            if (cluster == null) {
+                getRawMetric(DB_TRANSACTION_COUNT_NAME).setValue(transactions);
+            }
+            getRawMetric(DB_TRANSACTION_RATE_NAME).setValue(transactions);
+        }, DB_TRANSACTION_COUNT_NAME, DB_TRANSACTION_RATE_NAME));
+
+        addCollectionStep(new CollectionStep("tablespaces", PollTier.SLOW, conn -> {
+            tablespaceQuery.execute(conn);
+            tablespaceQuery.publish(this::getRawMetric);
+        }, DB_TABLESPACE_SIZE_NAME, DB_TABLESPACE_USED_NAME, DB_TABLESPACE_UTILIZATION_NAME, DB_TABLESPACE_MAX_NAME).setOptional(true));
+        addCollectionStep(new CollectionStep("database.flags", PollTier.SLOW, conn -> {
+            getRawMetric(DB_DATABASE_LOG_ENABLED_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_LOG_ENABLED_NAME, conn));
+            getRawMetric(DB_DATABASE_BUFF_LOG_ENABLED_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_BUFF_LOG_ENABLED_NAME, conn));
+            getRawMetric(DB_DATABASE_ANSI_COMPLAINT_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_ANSI_COMPLAINT_NAME, conn));
+            getRawMetric(DB_DATABASE_NLS_ENABLED_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_NLS_ENABLED_NAME, conn));
+            getRawMetric(DB_DATABASE_CASE_INCENSITIVE_NAME).setValue((List<SimpleQueryResult>) metricCollector.collectMetrics(DB_DATABASE_CASE_INCENSITIVE_NAME, conn));
+        }, DB_DATABASE_LOG_ENABLED_NAME, DB_DATABASE_BUFF_LOG_ENABLED_NAME, DB_DATABASE_ANSI_COMPLAINT_NAME,
+                DB_DATABASE_NLS_ENABLED_NAME, DB_DATABASE_CASE_INCENSITIVE_NAME));
     }
 }
@@ -5,95 +5,290 @@
 
 package com.instana.dc.rdb.impl.informix;
 
+import com.instana.dc.SimpleQueryResult;
 import com.instana.dc.rdb.impl.Constants;
+import com.instana.dc.rdb.impl.informix.onstat.OnstatCommand;
+import com.instana.dc.rdb.impl.informix.onstat.OnstatOutputParser;
+import com.instana.dc.rdb.impl.informix.onstat.OnstatStreamSupervisor;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.apache.commons.lang3.SystemUtils;
 
+import static com.instana.dc.rdb.DbDcUtil.DB_ONSTAT_CPU_TIME_KEY;
+
+/**
+ * Runs onstat directly (no shell) and parses its output in Java.
+ * Each distinct onstat invocation runs at most once per {@link Cycle}, all metrics derived from it are served from
+ * the cycle. A tier run has its own cycle, so tiers running at the same time never see or clear each other's outputs.
+ * The runs happen outside the monitor: concurrent requests for the same command wait for its single run, other
+ * commands are not held up.
+ * The output is read on a separate thread, so a run which does not finish in time is killed even if it keeps printing
+ * or never closes its output.
+ * With {@link #enableStreaming(int)} the metrics are read from long-running "onstat -r" processes instead,
+ * falling back to a single run while a stream has no fresh repetition.
+ */
 public class OnstatCommandExecutor {
     private static final Logger LOGGER = Logger.getLogger(OnstatCommandExecutor.class.getName());
-    public static  String SHELL_SCRIPT;
-    public static final String LINE_BREAK = "\n";
-    private final String dbPath;
-    private final String binPath;
-    private final String serverName;
-    private final String configFile;
-    private final String sqlHostFile;
+    private static final long COMMAND_TIMEOUT_SECONDS = 30;
+    //A single onstat run taking longer than this on average makes the SQL strategy preferable
+    private static final double EXPENSIVE_RUN_MILLIS = 2000;
+    private final String onstatPath;
+    private final File binDir;
+    private final Map<String, String> environment;
+    private static final ExecutorService OUTPUT_READERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "onstat-output-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<OnstatCommand, OnstatStreamSupervisor> streams = new EnumMap<>(OnstatCommand.class);
+    private final boolean available;
+    private double averageRunMillis = -1;
+    private int streamInterval;
+    private volatile ScheduledExecutorService streamWatchdog;
 
     public OnstatCommandExecutor(String dbPath, String serverName) {
-        this.dbPath = dbPath;
-        this.binPath = dbPath + Constants.BIN;
-        this.serverName = serverName;
-        this.configFile = Constants.ONCONFIG + serverName;
-        this.sqlHostFile = Constants.SQL_HOSTS + serverName;
+        String binPath = dbPath + Constants.BIN;
+        this.binDir = new File(binPath);
+        this.onstatPath = binPath + "/onstat";
+        Map<String, String> env = new HashMap<>();
+        env.put("INFORMIXDIR", dbPath);
+        env.put("ONCONFIG", Constants.ONCONFIG + serverName);
+        env.put("INFORMIXSERVER", serverName);
+        env.put("INFORMIXSQLHOSTS", dbPath + "/etc/" + Constants.SQL_HOSTS + serverName);
+        String path = System.getenv("PATH");
+        env.put("PATH", path == null ? binPath : binPath + File.pathSeparator + path);
+        this.environment = Collections.unmodifiableMap(env);
+        this.available = new File(onstatPath).canExecute();
+    }
+
+    /**
+     * @return : false if onstat cannot be run from here, e.g. the collector is not on the DB host
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * @return : true if one-shot onstat runs take so long on average that the SQL strategy should be preferred
+     */
+    public synchronized boolean isExpensive() {
+        return streamWatchdog == null && averageRunMillis > EXPENSIVE_RUN_MILLIS;
     }
 
     /**
-     * Public Util Method to execute the command
+     * Switch to the streaming mode: every onstat command is started once in repeat mode on first use
+     * and supervised every interval
      *
-     * @param fileName : Name of the file which you want to execute
-     * @return : Value as String[]
+     * @param intervalSeconds : repeat interval passed to "onstat -r"
+     */
+    public synchronized void enableStreaming(int intervalSeconds) {
+        if (streamWatchdog != null) {
+            return;
+        }
+        streamInterval = intervalSeconds;
+        streamWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "onstat-stream-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        streamWatchdog.scheduleWithFixedDelay(this::superviseStreams, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stopStreams));
+        LOGGER.info("onstat streaming mode enabled with an interval of " + intervalSeconds + "s");
+    }
+
+    /**
+     * @return : CPU seconds used by the onstat processes of each stream, keyed by command
      */
-    public Optional<String[]> executeCommand(String fileName) {
-        String path;
-        if(SystemUtils.OS_NAME.equals("SunOS") && SystemUtils.OS_VERSION.equals("5.10")) {
-            path = "scripts_solaris10/" + fileName;
-            SHELL_SCRIPT = "ksh";
+    public synchronized List<SimpleQueryResult> getStreamCpuTimes() {
+        List<SimpleQueryResult> results = new ArrayList<>();
+        for (OnstatStreamSupervisor stream : streams.values()) {
+            Double cpuSeconds = stream.getCpuSeconds();
+            if (cpuSeconds != null) {
+                String command = stream.getCommand().name().toLowerCase();
+                SimpleQueryResult result = new SimpleQueryResult(cpuSeconds);
+                result.setKey(command);
+                result.setAttribute(DB_ONSTAT_CPU_TIME_KEY, command);
+                results.add(result);
+            }
         }
-        else {
-            path = "scripts/" + fileName;
-            SHELL_SCRIPT = "sh";
+        return results;
+    }
+
+    public synchronized boolean isStreaming() {
+        return streamWatchdog != null;
+    }
+
+    private synchronized void superviseStreams() {
+        for (OnstatStreamSupervisor stream : streams.values()) {
+            stream.supervise();
         }
+    }
 
-        String[] command = new String[]{
-                SHELL_SCRIPT,
-                path,
-                binPath,
-                dbPath,
-                configFile,
-                serverName,
-                sqlHostFile
-        };
-
-        Optional<String[]> result = commandExecutorAndExtractor(command);
-        if (result.isPresent()) {
-            return Optional.of(result.get());
+    private synchronized void stopStreams() {
+        for (OnstatStreamSupervisor stream : streams.values()) {
+            stream.stop();
         }
-        LOGGER.log(Level.WARNING, "No result present for executable: {}", fileName);
-        return Optional.empty();
     }
 
+    /**
+     * @return : empty cycle for one tier run, each command runs onstat again in it
+     */
+    public Cycle newCycle() {
+        return new Cycle();
+    }
 
     /**
-     * Private Util Method to execute and extract the result of the given onstat command
+     * Public Util Method to get one metric of an onstat command, running the command if this cycle has not yet
      *
-     * @param commands : commands to execute
-     * @return String[] : Output of the command
+     * @param cycle      : outputs of the current tier run
+     * @param command    : onstat invocation producing the metric
+     * @param metricName : Name of the metric
+     * @return : value of the metric
+     */
+    public Optional<Number> collectMetric(Cycle cycle, OnstatCommand command, String metricName) {
+        Map<String, Number> results = null;
+        if (streamWatchdog != null && !cycle.results.containsKey(command)) {
+            results = streamResults(command);
+        }
+        if (results == null) {
+            results = cycleRun(cycle, command);
+        }
+        Number value = results.get(metricName);
+        if (value == null) {
+            LOGGER.log(Level.WARNING, "No result present for metric {0} of onstat {1}", new Object[]{metricName, command.getOptions()});
+        }
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * @return : metrics of the single run of the command in this cycle, started by the first caller
      */
-    private Optional<String[]> commandExecutorAndExtractor(String[] commands) {
-        StringBuilder output = new StringBuilder();
-        ProcessBuilder processBuilder = new ProcessBuilder(commands);
+    private Map<String, Number> cycleRun(Cycle cycle, OnstatCommand command) {
+        FutureTask<Map<String, Number>> run = new FutureTask<>(() -> {
+            long start = System.currentTimeMillis();
+            Map<String, Number> results = executeCommand(command).orElse(Collections.emptyMap());
+            recordRunMillis(System.currentTimeMillis() - start);
+            return results;
+        });
+        FutureTask<Map<String, Number>> existing = cycle.results.putIfAbsent(command, run);
+        if (existing == null) {
+            existing = run;
+            run.run();
+        }
         try {
-            processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                output.append(line).append(LINE_BREAK);
+            return existing.get();
+        } catch (ExecutionException exp) {
+            LOGGER.log(Level.SEVERE, "Unable to run onstat " + command.getOptions(), exp.getCause());
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyMap();
+    }
+
+    private synchronized void recordRunMillis(long runMillis) {
+        averageRunMillis = averageRunMillis < 0 ? runMillis : 0.8 * averageRunMillis + 0.2 * runMillis;
+    }
+
+    private Map<String, Number> streamResults(OnstatCommand command) {
+        OnstatStreamSupervisor stream;
+        boolean created = false;
+        synchronized (this) {
+            stream = streams.get(command);
+            if (stream == null) {
+                stream = new OnstatStreamSupervisor(command, onstatPath, binDir, environment, streamInterval);
+                streams.put(command, stream);
+                created = true;
             }
+        }
+        if (created) {
+            stream.supervise();
+        }
+        return stream.latest().orElse(null);
+    }
 
-            String[] outputPart = output.toString().split(LINE_BREAK);
-            String[] metricValue = outputPart[outputPart.length - 1].split(Constants.BLANK_SPACE);
-            return Optional.of(metricValue);
+    /**
+     * Run the onstat command and stream its output through the command's parser
+     *
+     * @param command : onstat invocation
+     * @return : all metrics derived from the output
+     */
+    Optional<Map<String, Number>> executeCommand(OnstatCommand command) {
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(onstatPath);
+        commandLine.addAll(command.getOptions());
+        ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
+        processBuilder.directory(binDir);
+        processBuilder.environment().putAll(environment);
+        processBuilder.redirectErrorStream(true);
+        OnstatOutputParser parser = command.newParser();
+        Process process;
+        try {
+            process = processBuilder.start();
         } catch (IOException exp) {
             LOGGER.log(Level.SEVERE, "Unable to extract the value: ", exp);
+            return Optional.empty();
+        }
+        Future<Void> output = OUTPUT_READERS.submit(() -> readOutput(process, parser));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(COMMAND_TIMEOUT_SECONDS);
+        try {
+            if (!process.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new TimeoutException();
+            }
+            //The output may still be buffered when the process exits, the reader gets what is left of the deadline
+            output.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return Optional.of(parser.result());
+        } catch (TimeoutException exp) {
+            process.destroyForcibly();
+            output.cancel(true);
+            LOGGER.log(Level.WARNING, "onstat {0} did not finish in time, killed it", command.getOptions());
+        } catch (ExecutionException exp) {
+            LOGGER.log(Level.SEVERE, "Unable to extract the value: ", exp.getCause());
+        } catch (InterruptedException exp) {
+            process.destroyForcibly();
+            output.cancel(true);
+            Thread.currentThread().interrupt();
         }
-
         return Optional.empty();
     }
+
+    private static Void readOutput(Process process, OnstatOutputParser parser) throws IOException {
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                parser.accept(line);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Outputs of the onstat commands run for one tier run, the first request of a command runs it
+     */
+    public static final class Cycle {
+        private final ConcurrentMap<OnstatCommand, FutureTask<Map<String, Number>>> results = new ConcurrentHashMap<>();
+
+        private Cycle() {
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix;
+
+import com.instana.dc.SimpleQueryResult;
+import com.instana.dc.rdb.StringLongMap;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.instana.dc.rdb.DbDcUtil.DB_NAME;
+import static com.instana.dc.rdb.DbDcUtil.DB_SEQ_SCAN_KEY;
+
+/**
+ * Turns the cumulative sysptprof seqscans counters into per-interval deltas and keeps only the top-K tables
+ * by delta, the remaining tables are summed into an "other" series. The previous counters are held in a
+ * primitive map, so schemas with tens of thousands of tables neither allocate per table nor explode the export.
+ * The number of tables having sequential scans is derived from the same read.
+ */
+public class SequentialScanTopK {
+    private static final Logger LOGGER = Logger.getLogger(SequentialScanTopK.class.getName());
+    static final String OTHER = "other";
+
+    private final int topK;
+    private final boolean serverScope;
+    private StringLongMap previous = new StringLongMap(1024);
+    private StringLongMap current = new StringLongMap(1024);
+    private boolean seeded = false;
+    private final List<SimpleQueryResult> topScans = new ArrayList<>();
+    private final List<SimpleQueryResult> tableCounts = new ArrayList<>();
+
+    /**
+     * @param topK        : number of tables exported with their own series
+     * @param serverScope : rows carry the database name as third column, keys and counts are per database then
+     */
+    public SequentialScanTopK(int topK, boolean serverScope) {
+        this.topK = topK;
+        this.serverScope = serverScope;
+    }
+
+    /**
+     * Read the counters (seqscans, table name[, database name]) and rank the deltas against the previous read.
+     * Nothing is ranked on the first read since there is no previous counter yet.
+     *
+     * @return : false if the query failed, the results are empty then and the previous counters are kept
+     */
+    public boolean collect(Connection connection, String query) {
+        current.clear();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(query)) {
+            while (rs.next()) {
+                Number scans = (Number) rs.getObject(1);
+                String table = rs.getString(2);
+                if (scans == null || table == null) {
+                    continue;
+                }
+                current.put(serverScope ? String.valueOf(rs.getString(3)).trim() + '.' + table.trim() : table.trim(), scans.longValue());
+            }
+        } catch (SQLException | ClassCastException e) {
+            LOGGER.log(Level.SEVERE, "Unable to read the sequential scan counters, Exception: " + e);
+            topScans.clear();
+            tableCounts.clear();
+            return false;
+        }
+        rank();
+        StringLongMap swap = previous;
+        previous = current;
+        current = swap;
+        seeded = true;
+        return true;
+    }
+
+    private void rank() {
+        topScans.clear();
+        tableCounts.clear();
+        countTables();
+        if (!seeded) {
+            return;
+        }
+        PriorityQueue<ScanDelta> heap = new PriorityQueue<>(topK + 1, Comparator.comparingLong((ScanDelta d) -> d.delta));
+        long[] other = {0};
+        current.forEach((key, scans) -> {
+            long last = previous.get(key, -1);
+            //New table, or counter reset by onstat -z or a restart: all scans happened since the previous read
+            long delta = last < 0 || scans < last ? scans : scans - last;
+            if (delta <= 0) {
+                return;
+            }
+            heap.add(new ScanDelta(key, delta));
+            if (heap.size() > topK) {
+                other[0] += heap.poll().delta;
+            }
+        });
+        List<ScanDelta> sorted = new ArrayList<>(heap);
+        sorted.sort((a, b) -> Long.compare(b.delta, a.delta));
+        for (ScanDelta scanDelta : sorted) {
+            SimpleQueryResult result = new SimpleQueryResult(scanDelta.delta).setKey(scanDelta.key);
+            if (serverScope) {
+                int sep = scanDelta.key.indexOf('.');
+                result.setAttribute(DB_NAME, scanDelta.key.substring(0, sep));
+                result.setAttribute(DB_SEQ_SCAN_KEY, scanDelta.key.substring(sep + 1));
+            } else {
+                result.setAttribute(DB_SEQ_SCAN_KEY, scanDelta.key);
+            }
+            topScans.add(result);
+        }
+        topScans.add(new SimpleQueryResult(other[0]).setKey(OTHER).setAttribute(DB_SEQ_SCAN_KEY, OTHER));
+    }
+
+    private void countTables() {
+        if (!serverScope) {
+            tableCounts.add(new SimpleQueryResult(current.size()));
+            return;
+        }
+        Map<String, long[]> perDatabase = new HashMap<>();
+        current.forEach((key, scans) -> perDatabase.computeIfAbsent(key.substring(0, key.indexOf('.')), k -> new long[1])[0]++);
+        for (Map.Entry<String, long[]> entry : perDatabase.entrySet()) {
+            tableCounts.add(new SimpleQueryResult(entry.getValue()[0]).setKey(entry.getKey()).setAttribute(DB_NAME, entry.getKey()));
+        }
+    }
+
+    /**
+     * @return : top-K tables by sequential scans during the last interval, most scanned first, followed by "other"
+     */
+    public List<SimpleQueryResult> getTopScans() {
+        return topScans;
+    }
+
+    /**
+     * @return : number of tables having sequential scans, one result per database in server scope
+     */
+    public List<SimpleQueryResult> getTableCounts() {
+        return tableCounts;
+    }
+
+    private static class ScanDelta {
+        private final String key;
+        private final long delta;
+
+        private ScanDelta(String key, long delta) {
+            this.key = key;
+            this.delta = delta;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix;
+
+import com.instana.dc.SimpleQueryResult;
+import com.instana.dc.rdb.SqlShapeAggregator;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.instana.dc.rdb.DbDcUtil.DB_NAME;
+
+/**
+ * Reads SYSSQLTRACE incrementally: the first read only takes the newest statement as the watermark, later reads
+ * fetch the statements after the last one already read, so each execution is returned exactly once.
+ * SQL_FINISHTIME has a resolution of seconds, so the watermark is the (SQL_FINISHTIME, SQL_ID) pair and a poll reads
+ * at most maxRows statements in that order, the rest is read by the next polls.
+ * The statements are folded into the statement shapes as well, if any.
+ */
+public class SqlTraceReader {
+    private static final Logger LOGGER = Logger.getLogger(SqlTraceReader.class.getName());
+
+    private final String databasePredicate;
+    private final boolean serverScope;
+    private final int maxRows;
+    private long watermark = -1;
+    private long watermarkId;
+    private SqlShapeAggregator shapes;
+
+    /**
+     * @param databasePredicate : predicate on SQL_DATABASE restricting the trace to the monitored databases
+     * @param serverScope       : tag each statement with its database
+     * @param maxRows           : new statements read per poll at most
+     */
+    public SqlTraceReader(String databasePredicate, boolean serverScope, int maxRows) {
+        this.databasePredicate = databasePredicate;
+        this.serverScope = serverScope;
+        this.maxRows = Math.max(1, maxRows);
+    }
+
+    public SqlTraceReader withShapes(SqlShapeAggregator shapes) {
+        this.shapes = shapes;
+        return this;
+    }
+
+    /**
+     * @return : elapsed time in seconds of the statements finished since the last call, null if the trace cannot be read
+     */
+    public List<SimpleQueryResult> collect(Connection connection) {
+        try {
+            if (watermark < 0) {
+                readWatermark(connection);
+                return Collections.emptyList();
+            }
+            return readRows(connection, String.format(InformixUtil.SQL_TRACE_INCREMENTAL_SQL, watermark, watermark, watermarkId, databasePredicate, maxRows));
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Unable to read SYSSQLTRACE, Exception: " + e);
+            return null;
+        }
+    }
+
+    private List<SimpleQueryResult> readRows(Connection connection, String query) throws SQLException {
+        List<SimpleQueryResult> executions = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(query)) {
+            while (rs.next()) {
+                //Rows come in (SQL_FINISHTIME, SQL_ID) order, the last one is where the next poll resumes
+                watermark = rs.getLong(4);
+                watermarkId = rs.getLong(2);
+                Number elapsed = (Number) rs.getObject(1);
+                if (elapsed == null) {
+                    continue;
+                }
+                SimpleQueryResult execution = new SimpleQueryResult(elapsed.doubleValue());
+                if (serverScope) {
+                    String database = rs.getString(5);
+                    execution.setAttribute(DB_NAME, database == null ? "null" : database.trim());
+                }
+                executions.add(execution);
+                if (shapes != null) {
+                    shapes.add(rs.getString(3), elapsed.doubleValue());
+                }
+            }
+        }
+        LOGGER.fine("SYSSQLTRACE: " + executions.size() + " new statement(s), watermark " + watermark + "/" + watermarkId);
+        return executions;
+    }
+
+    private void readWatermark(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(String.format(InformixUtil.SQL_TRACE_WATERMARK_SQL, databasePredicate))) {
+            if (rs.next()) {
+                watermarkId = rs.getLong(2);
+                watermark = rs.getLong(1);
+            } else {
+                watermarkId = 0;
+                watermark = 0;
+            }
+        }
+    }
+
+    long getWatermark() {
+        return watermark;
+    }
+
+    long getWatermarkId() {
+        return watermarkId;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.instana.dc.rdb.DbDcUtil.*;
+
+/**
+ * Reads all counters of sysmaster:sysprofile with a single query per poll and derives the metrics
+ * which are plain sysprofile rows (overflows, disk and buffer reads/writes, lock waits, LRU writes),
+ * the cache ratios are derived from the disk and buffer counters by expressions of DbRawMetricRegistry.
+ * The query runs on the connection of the tier run.
+ */
+public class SysProfileSnapshot {
+    private static final Logger LOGGER = Logger.getLogger(SysProfileSnapshot.class.getName());
+
+    private final Map<String, Long> counters = new HashMap<>();
+
+    /**
+     * Refresh the snapshot and map its counters to the metrics
+     *
+     * @return : metric name to value, empty if sysprofile could not be read
+     */
+    public Map<String, Number> collect(Connection connection) {
+        Map<String, Number> metrics = new HashMap<>();
+        try {
+            refresh(connection);
+        } catch (SQLException exp) {
+            LOGGER.log(Level.SEVERE, "Unable to read sysprofile, Exception: " + exp);
+            return metrics;
+        }
+        putCounter(metrics, DB_LOCK_TABLE_OVERFLOW_NAME, "ovlock");
+        putCounter(metrics, DB_TRANSACTION_OVERFLOW_NAME, "ovtrans");
+        putCounter(metrics, DB_USER_OVERFLOW_NAME, "ovuser");
+        putCounter(metrics, DB_DISK_READ_COUNT_NAME, "dskreads");
+        putCounter(metrics, DB_DISK_WRITE_COUNT_NAME, "dskwrites");
+        putCounter(metrics, DB_LOCK_WAITS_NAME, "lockwts");
+        putCounter(metrics, DB_LRU_WRITES_NAME, "lruwrites");
+        putCounter(metrics, DB_BUFFER_READ_COUNT_NAME, "bufreads");
+        putCounter(metrics, DB_BUFFER_WRITE_COUNT_NAME, "bufwrites");
+        return metrics;
+    }
+
+    void refresh(Connection connection) throws SQLException {
+        counters.clear();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(InformixUtil.SYSPROFILE_SQL)) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (name != null) {
+                    counters.put(name.trim(), rs.getLong(2));
+                }
+            }
+        }
+    }
+
+    public Long getCounter(String name) {
+        return counters.get(name);
+    }
+
+    private void putCounter(Map<String, Number> metrics, String metricName, String counter) {
+        Long value = counters.get(counter);
+        if (value != null) {
+            metrics.put(metricName, value);
+        }
+    }
+}
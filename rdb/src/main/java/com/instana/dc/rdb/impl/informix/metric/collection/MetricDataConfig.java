@@ -5,6 +5,7 @@
 
 package com.instana.dc.rdb.impl.informix.metric.collection;
 
+import com.instana.dc.rdb.impl.informix.onstat.OnstatCommand;
 
 /**
  * This class which holds the meta data of a given metrics
@@ -13,9 +14,10 @@ public class MetricDataConfig {
     private String query;
     private final Class<?> returnType;
     private String metricKey;
-    private String scriptName;
+    private OnstatCommand onstatCommand;
     private final MetricCollectionMode selectedMode;
     private String[] attr;
+    private boolean dualMode;
 
     public MetricDataConfig(String query,
                             MetricCollectionMode mode,
@@ -28,7 +30,7 @@ public class MetricDataConfig {
     }
 
     public MetricDataConfig(String metricKey,
-                            String scriptName,
+                            OnstatCommand onstatCommand,
                             MetricCollectionMode mode,
                             Class<?> returnType,
                             String... attr) {
@@ -36,15 +38,35 @@ public class MetricDataConfig {
         this.returnType = returnType;
         this.selectedMode = mode;
         this.attr = attr;
-        this.scriptName = scriptName;
+        this.onstatCommand = onstatCommand;
+    }
+
+    /**
+     * Metric available through both strategies: onstat by default and an SMI query as alternative
+     */
+    public MetricDataConfig(String metricKey,
+                            OnstatCommand onstatCommand,
+                            String query,
+                            Class<?> returnType) {
+        this(metricKey, onstatCommand, MetricCollectionMode.CMD, returnType);
+        this.query = query;
+        this.dualMode = true;
+    }
+
+    public boolean supports(MetricCollectionMode mode) {
+        return dualMode || mode == selectedMode;
+    }
+
+    public boolean isDualMode() {
+        return dualMode;
     }
 
     public MetricCollectionMode getSelectedMode() {
         return selectedMode;
     }
 
-    public String getScriptName() {
-        return scriptName;
+    public OnstatCommand getOnstatCommand() {
+        return onstatCommand;
     }
 
     public String getMetricKey() {
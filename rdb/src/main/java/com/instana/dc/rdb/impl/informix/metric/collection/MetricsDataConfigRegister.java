@@ -5,20 +5,23 @@
 
 package com.instana.dc.rdb.impl.informix.metric.collection;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Register class to store the Mapping of the MetricDataConfig for each metrics
+ * Register class to store the Mapping of the MetricDataConfig for each metrics.
+ * Every Informix instance owns its register, which cannot be changed after construction,
+ * so instances polling different databases concurrently never see each other's queries.
  */
 public class MetricsDataConfigRegister {
-    private static final Map<String, MetricDataConfig> metricConfigMap = new HashMap<>();
+    private final Map<String, MetricDataConfig> metricConfigMap;
 
-    public static MetricDataConfig getMetricDataConfig(String metricName) {
-        return metricConfigMap.get(metricName);
+    public MetricsDataConfigRegister(Map<String, MetricDataConfig> metricConfigMap) {
+        this.metricConfigMap = Collections.unmodifiableMap(new HashMap<>(metricConfigMap));
     }
 
-    public static void subscribeMetricDataConfig(String metricKey, MetricDataConfig metricDataConfig) {
-        metricConfigMap.put(metricKey, metricDataConfig);
+    public MetricDataConfig getMetricDataConfig(String metricName) {
+        return metricConfigMap.get(metricName);
     }
 }
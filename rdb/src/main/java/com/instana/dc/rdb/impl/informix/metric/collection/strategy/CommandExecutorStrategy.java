@@ -8,6 +8,7 @@ package com.instana.dc.rdb.impl.informix.metric.collection.strategy;
 import com.instana.dc.rdb.impl.informix.OnstatCommandExecutor;
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricDataConfig;
 
+import java.sql.Connection;
 import java.util.Optional;
 
 public class CommandExecutorStrategy extends MetricsExecutionStrategy {
@@ -17,18 +18,24 @@ public class CommandExecutorStrategy extends MetricsExecutionStrategy {
         this.onstatCommandExecutor = onstatCommandExecutor;
     }
 
-    protected <T> T collectMetrics(MetricDataConfig metricDataConfig) {
-        return (T) collectMetricsUsingCMD(metricDataConfig, onstatCommandExecutor);
+    /**
+     * Outside of a tier run: the command runs again for this metric alone
+     */
+    protected Object collectMetrics(MetricDataConfig metricDataConfig, Connection connection) {
+        return collectMetrics(metricDataConfig, onstatCommandExecutor.newCycle());
     }
 
-    private Number collectMetricsUsingCMD(MetricDataConfig metricDataConfig, OnstatCommandExecutor onstatCommandExecutor) {
-        Optional<String[]> result = onstatCommandExecutor.executeCommand(metricDataConfig.getScriptName());
+    /**
+     * @param cycle : onstat outputs of the tier run, shared by its metrics
+     */
+    protected Number collectMetrics(MetricDataConfig metricDataConfig, OnstatCommandExecutor.Cycle cycle) {
+        Optional<Number> result = onstatCommandExecutor.collectMetric(cycle, metricDataConfig.getOnstatCommand(), metricDataConfig.getMetricKey());
         if (result.isPresent()) {
             if(TypeChecker.isDouble(metricDataConfig.getReturnType())){
-                return Double.parseDouble(result.get()[0]);
+                return result.get().doubleValue();
             }
             else if (TypeChecker.isNumber(metricDataConfig.getReturnType())) {
-                return Integer.parseInt(result.get()[0]);
+                return result.get();
             }
         }
         return null;
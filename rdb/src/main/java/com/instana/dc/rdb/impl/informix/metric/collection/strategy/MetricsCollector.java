@@ -9,50 +9,126 @@ import com.instana.dc.rdb.impl.informix.OnstatCommandExecutor;
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricCollectionMode;
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricDataConfig;
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricsDataConfigRegister;
-import org.apache.commons.dbcp2.BasicDataSource;
 
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class MetricsCollector {
     private static final Logger LOGGER = Logger.getLogger(MetricsCollector.class.getName());
     private final MetricsExecutionStrategy sqlExecutorStrategy;
-    private final MetricsExecutionStrategy commandExecutorStrategy;
+    private final CommandExecutorStrategy commandExecutorStrategy;
+    private final MetricsDataConfigRegister metricsDataConfigRegister;
+    private final OnstatCommandExecutor onstatCommandExecutor;
+    private final MetricCollectionMode configuredMode;
+    private final Map<String, MetricCollectionMode> servedModes = new ConcurrentHashMap<>();
+    //onstat cycle of each tier run in progress, keyed by the connection the run owns
+    private final Map<Connection, OnstatCommandExecutor.Cycle> cycles = new ConcurrentHashMap<>();
 
-    public MetricsCollector(BasicDataSource dataSource, OnstatCommandExecutor onstatCommandExecutor) {
+    public MetricsCollector(OnstatCommandExecutor onstatCommandExecutor,
+                            MetricsDataConfigRegister metricsDataConfigRegister) {
+        this(onstatCommandExecutor, metricsDataConfigRegister, null);
+    }
+
+    /**
+     * @param configuredMode : mode preferred for the metrics available in both modes, null to choose automatically:
+     *                       SQL if onstat cannot be run here or its runs are too slow, CMD otherwise
+     */
+    public MetricsCollector(OnstatCommandExecutor onstatCommandExecutor,
+                            MetricsDataConfigRegister metricsDataConfigRegister, MetricCollectionMode configuredMode) {
+        this.metricsDataConfigRegister = metricsDataConfigRegister;
+        this.onstatCommandExecutor = onstatCommandExecutor;
+        this.configuredMode = configuredMode;
         this.commandExecutorStrategy = new CommandExecutorStrategy(onstatCommandExecutor);
-        this.sqlExecutorStrategy = new SqlExecutorStrategy(dataSource);
+        this.sqlExecutorStrategy = new SqlExecutorStrategy();
+    }
+
+    /**
+     * Start the onstat cycle of a tier run: the CMD metrics collected on its connection share the onstat outputs
+     * until {@link #endCycle(Connection)}, other tier runs have their own
+     */
+    public void startCycle(Connection connection) {
+        cycles.put(connection, onstatCommandExecutor.newCycle());
+    }
+
+    public void endCycle(Connection connection) {
+        cycles.remove(connection);
     }
 
     /**
      * Public Method exposed to the DC to get the Metric Data by metricName
-     * Based on the metric metadata it will be using the appropriate strategy
+     * Based on the metric metadata it will be using the appropriate strategy, a metric available in both modes
+     * falls back to the other mode if the preferred one gives no value
      *
      * @param metricName : Name of the metric
-     * @param <T>:       Return Type
-     * @return : metric value
+     * @param connection : connection of the tier run, used by the SQL strategy
+     * @return : metric value, of the return type registered for the metric
      */
-    public <T> T collectMetrics(String metricName) {
+    public Object collectMetrics(String metricName, Connection connection) {
         try {
-            MetricDataConfig metricDataConfig = MetricsDataConfigRegister.getMetricDataConfig(metricName);
+            MetricDataConfig metricDataConfig = metricsDataConfigRegister.getMetricDataConfig(metricName);
             if (null == metricDataConfig) {
                 LOGGER.log(Level.INFO, "No Metrics Data for metric: {}", metricName);
                 return null;
             }
-            MetricCollectionMode mode = metricDataConfig.getSelectedMode();
+            MetricCollectionMode preferredMode = getPreferredMode();
+            MetricCollectionMode mode = metricDataConfig.supports(preferredMode) ? preferredMode : metricDataConfig.getSelectedMode();
+            Object response = collectWith(mode, metricName, metricDataConfig, connection);
+            if (response == null && metricDataConfig.isDualMode()) {
+                mode = mode == MetricCollectionMode.SQL ? MetricCollectionMode.CMD : MetricCollectionMode.SQL;
+                response = collectWith(mode, metricName, metricDataConfig, connection);
+            }
+            if (response != null) {
+                recordServedMode(metricName, mode);
+            }
+            return response;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to update metric {0} due to exception: {1}", new Object[]{metricName, e});
+        }
+        return null;
+    }
+
+    private Object collectWith(MetricCollectionMode mode, String metricName, MetricDataConfig metricDataConfig,
+                              Connection connection) {
+        try {
             if (mode == MetricCollectionMode.SQL) {
-                T response = sqlExecutorStrategy.collectMetrics(metricDataConfig);
+                Object response = sqlExecutorStrategy.collectMetrics(metricDataConfig, connection);
                 LOGGER.info("SQL - For Metric: " + metricName + " response: " + response);
                 return response;
             } else if (mode == MetricCollectionMode.CMD) {
-                T response = commandExecutorStrategy.collectMetrics(metricDataConfig);
+                OnstatCommandExecutor.Cycle cycle = connection == null ? null : cycles.get(connection);
+                Object response = cycle == null ? commandExecutorStrategy.collectMetrics(metricDataConfig, connection)
+                        : commandExecutorStrategy.collectMetrics(metricDataConfig, cycle);
                 LOGGER.info("CMD - For Metric: " + metricName + " response: " + response);
                 return response;
             }
-            throw new IllegalStateException("For Metric: " + metricName + " Invalid Mode selected: " + mode);
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to update metric {0} due to exception: {1}", new Object[]{metricName, e});
+            LOGGER.log(Level.WARNING, "{0} - Failed to collect metric {1} due to exception: {2}", new Object[]{mode, metricName, e});
+            return null;
         }
-        return null;
+        throw new IllegalStateException("For Metric: " + metricName + " Invalid Mode selected: " + mode);
+    }
+
+    private MetricCollectionMode getPreferredMode() {
+        if (configuredMode != null) {
+            return configuredMode;
+        }
+        return onstatCommandExecutor.isAvailable() && !onstatCommandExecutor.isExpensive() ? MetricCollectionMode.CMD : MetricCollectionMode.SQL;
+    }
+
+    private void recordServedMode(String metricName, MetricCollectionMode mode) {
+        MetricCollectionMode previous = servedModes.put(metricName, mode);
+        if (previous != mode) {
+            LOGGER.info("Metric " + metricName + " is served by " + mode + (previous == null ? "" : " instead of " + previous));
+        }
+    }
+
+    /**
+     * @return : mode which served the last value of the metric, null if it had no value yet
+     */
+    public MetricCollectionMode getServedMode(String metricName) {
+        return servedModes.get(metricName);
     }
 }
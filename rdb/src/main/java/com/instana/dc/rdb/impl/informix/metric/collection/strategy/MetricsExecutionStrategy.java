@@ -7,10 +7,15 @@ package com.instana.dc.rdb.impl.informix.metric.collection.strategy;
 
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricDataConfig;
 
+import java.sql.Connection;
 import java.util.List;
 
 public abstract class MetricsExecutionStrategy {
-    protected abstract <T> T collectMetrics(MetricDataConfig metricDataConfig);
+    /**
+     * @param connection : connection of the tier run, for the strategies querying the database
+     * @return : metric value of the return type of the config, null if there is none
+     */
+    protected abstract Object collectMetrics(MetricDataConfig metricDataConfig, Connection connection);
 
     static class TypeChecker {
 
@@ -0,0 +1,43 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix.onstat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.instana.dc.rdb.DbDcUtil.*;
+
+/**
+ * The distinct onstat invocations used by the Informix DC, with the parser producing every metric of the output.
+ */
+public enum OnstatCommand {
+    SQL_HISTORY(() -> OnstatOutputParsers.secondToLastLine(10, 4, DB_SQL_COUNT_NAME, DB_SQL_RATE_NAME), "-g", "his", "1"),
+    TRANSACTIONS(() -> OnstatOutputParsers.secondToLastLine(0, 1, DB_TRANSACTION_COUNT_NAME, DB_TRANSACTION_RATE_NAME), "-x"),
+    LOCKS(() -> OnstatOutputParsers.secondToLastLine(0, 1, DB_LOCK_COUNT_NAME), "-k"),
+    SESSIONS(() -> OnstatOutputParsers.sessionCount(DB_SESSION_COUNT_NAME), "-g", "ses"),
+    ACTIVE_SESSIONS(() -> OnstatOutputParsers.sessionCount(DB_SESSION_ACTIVE_COUNT_NAME), "-g", "ses", "active"),
+    IO(() -> OnstatOutputParsers.io(DB_IO_READ_RATE_NAME, DB_IO_WRITE_RATE_NAME), "-g", "iof"),
+    MEMORY_SEGMENTS(() -> OnstatOutputParsers.memorySegments(DB_MEM_USED_NAME, DB_MEM_SIZE_NAME), "-g", "seg"),
+    WAITS(() -> OnstatOutputParsers.taskWaits(DB_TASK_WAIT_COUNT_NAME), "-g", "wai");
+
+    private final Supplier<OnstatOutputParser> parserFactory;
+    private final List<String> options;
+
+    OnstatCommand(Supplier<OnstatOutputParser> parserFactory, String... options) {
+        this.parserFactory = parserFactory;
+        this.options = Collections.unmodifiableList(Arrays.asList(options));
+    }
+
+    public List<String> getOptions() {
+        return options;
+    }
+
+    public OnstatOutputParser newParser() {
+        return parserFactory.get();
+    }
+}
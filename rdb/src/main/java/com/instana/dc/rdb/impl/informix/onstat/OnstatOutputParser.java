@@ -0,0 +1,25 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix.onstat;
+
+import java.util.Map;
+
+/**
+ * Streaming parser for the output of one onstat invocation.
+ * Lines are fed one at a time as they are read from the process, so the output is never buffered as a whole.
+ */
+public interface OnstatOutputParser {
+
+    /**
+     * @param line : next output line, without the line terminator
+     */
+    void accept(String line);
+
+    /**
+     * @return : metric name to value for all metrics derived from the output, missing values are left out
+     */
+    Map<String, Number> result();
+}
@@ -0,0 +1,246 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix.onstat;
+
+import org.apache.commons.lang3.SystemUtils;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Line parsers for the onstat outputs. Line and field numbers are 1-based like in awk,
+ * fields are separated by runs of blanks.
+ */
+public final class OnstatOutputParsers {
+    private static final String[] NO_FIELDS = new String[0];
+
+    /**
+     * Solaris 10 ships an older onstat with a different "-g iof" layout, checked once instead of per call
+     */
+    private static final boolean SOLARIS_10 = "SunOS".equals(SystemUtils.OS_NAME) && "5.10".equals(SystemUtils.OS_VERSION);
+
+    private OnstatOutputParsers() {
+        //Private constructor
+    }
+
+    /**
+     * A field of the second to last line, e.g. the totals line of "onstat -k" followed by the trailing blank line
+     *
+     * @param lineLimit : only the first lineLimit lines are considered, 0 for no limit
+     */
+    public static OnstatOutputParser secondToLastLine(int lineLimit, int field, String... metricNames) {
+        return new OnstatOutputParser() {
+            private int lineNumber;
+            private String previous;
+            private String last;
+
+            @Override
+            public void accept(String line) {
+                if (lineLimit > 0 && lineNumber >= lineLimit) {
+                    return;
+                }
+                lineNumber++;
+                previous = last;
+                last = line;
+            }
+
+            @Override
+            public Map<String, Number> result() {
+                return toResult(previous == null ? null : toLong(field(previous, field)), metricNames);
+            }
+        };
+    }
+
+    /**
+     * Number of fields in the second line minus two, never negative
+     */
+    public static OnstatOutputParser sessionCount(String metricName) {
+        return new OnstatOutputParser() {
+            private int lineNumber;
+            private Long count;
+
+            @Override
+            public void accept(String line) {
+                if (++lineNumber == 2) {
+                    count = (long) Math.max(fields(line).length - 2, 0);
+                }
+            }
+
+            @Override
+            public Map<String, Number> result() {
+                return toResult(count, metricName);
+            }
+        };
+    }
+
+    /**
+     * Number of lines in the second blank-line separated block minus its two header lines, never negative
+     */
+    public static OnstatOutputParser taskWaits(String metricName) {
+        return new OnstatOutputParser() {
+            private int block;
+            private boolean inBlock;
+            private int blockLines;
+
+            @Override
+            public void accept(String line) {
+                if (line.isEmpty()) {
+                    inBlock = false;
+                    return;
+                }
+                if (!inBlock) {
+                    inBlock = true;
+                    block++;
+                }
+                if (block == 2) {
+                    blockLines++;
+                }
+            }
+
+            @Override
+            public Map<String, Number> result() {
+                return toResult(block < 2 ? null : (long) Math.max(blockLines - 2, 0), metricName);
+            }
+        };
+    }
+
+    /**
+     * Used and total blocks of the first "total" line of "onstat -g seg", the utilization is derived from them
+     */
+    public static OnstatOutputParser memorySegments(String usedMetricName, String sizeMetricName) {
+        return new OnstatOutputParser() {
+            private final Map<String, Number> result = new HashMap<>();
+            private boolean found;
+
+            @Override
+            public void accept(String line) {
+                if (found || !line.toLowerCase(Locale.ROOT).contains("total")) {
+                    return;
+                }
+                found = true;
+                Double used = toDouble(field(line, 7));
+                Double free = toDouble(field(line, 8));
+                if (used != null && free != null) {
+                    result.put(usedMetricName, used);
+                    result.put(sizeMetricName, used + free);
+                }
+            }
+
+            @Override
+            public Map<String, Number> result() {
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Read and write totals of "onstat -g iof": the sums of the digits in fields 4 and 6 of every line,
+     * or field 2 of lines 11 and 12 with the Solaris 10 layout
+     */
+    public static OnstatOutputParser io(String readMetricName, String writeMetricName) {
+        if (SOLARIS_10) {
+            return new OnstatOutputParser() {
+                private int lineNumber;
+                private Long reads;
+                private Long writes;
+
+                @Override
+                public void accept(String line) {
+                    lineNumber++;
+                    if (lineNumber == 11) {
+                        reads = toLong(field(line, 2));
+                    } else if (lineNumber == 12) {
+                        writes = toLong(field(line, 2));
+                    }
+                }
+
+                @Override
+                public Map<String, Number> result() {
+                    Map<String, Number> result = toResult(reads, readMetricName);
+                    result.putAll(toResult(writes, writeMetricName));
+                    return result;
+                }
+            };
+        }
+        return new OnstatOutputParser() {
+            private long reads;
+            private long writes;
+
+            @Override
+            public void accept(String line) {
+                String[] fields = fields(line);
+                if (fields.length >= 4) {
+                    reads += digitsOf(fields[3]);
+                }
+                if (fields.length >= 6) {
+                    writes += digitsOf(fields[5]);
+                }
+            }
+
+            @Override
+            public Map<String, Number> result() {
+                Map<String, Number> result = new HashMap<>();
+                result.put(readMetricName, reads);
+                result.put(writeMetricName, writes);
+                return result;
+            }
+        };
+    }
+
+    static String[] fields(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() ? NO_FIELDS : trimmed.split("\\s+");
+    }
+
+    private static String field(String line, int field) {
+        String[] fields = fields(line);
+        return field <= fields.length ? fields[field - 1] : null;
+    }
+
+    private static long digitsOf(String field) {
+        long value = 0;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            }
+        }
+        return value;
+    }
+
+    private static Long toLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double toDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, Number> toResult(Number value, String... metricNames) {
+        Map<String, Number> result = new HashMap<>();
+        if (value != null) {
+            for (String metricName : metricNames) {
+                result.put(metricName, value);
+            }
+        }
+        return result;
+    }
+}
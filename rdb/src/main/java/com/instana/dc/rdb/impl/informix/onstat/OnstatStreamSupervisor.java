@@ -0,0 +1,239 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+
+package com.instana.dc.rdb.impl.informix.onstat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps one long-running "onstat -r &lt;interval&gt;" process for an onstat command.
+ * A daemon thread reads its output as it comes, splits it into repetitions at the banner line and publishes the
+ * metrics of every complete repetition as the latest snapshot. {@link #supervise()} restarts the process when it
+ * exited or its output stalled, backing off exponentially while it keeps failing.
+ */
+public class OnstatStreamSupervisor {
+    private static final Logger LOGGER = Logger.getLogger(OnstatStreamSupervisor.class.getName());
+    private static final String BANNER = "IBM Informix Dynamic Server";
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000L;
+
+    private final OnstatCommand command;
+    private final List<String> commandLine;
+    private final File binDir;
+    private final Map<String, String> environment;
+    private final long intervalMillis;
+    private final long stallMillis;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    private Process process;
+    private volatile long lastOutputMillis;
+    private long nextStartMillis;
+    private long backoffMillis;
+    private long finishedCpuNanos;
+    private int restarts;
+
+    public OnstatStreamSupervisor(OnstatCommand command, String onstatPath, File binDir, Map<String, String> environment,
+                                  int intervalSeconds) {
+        this.command = command;
+        this.binDir = binDir;
+        this.environment = environment;
+        this.intervalMillis = intervalSeconds * 1000L;
+        this.stallMillis = 3 * intervalMillis;
+        this.backoffMillis = intervalMillis;
+        List<String> line = new ArrayList<>();
+        line.add(onstatPath);
+        line.add("-r");
+        line.add(String.valueOf(intervalSeconds));
+        line.addAll(command.getOptions());
+        this.commandLine = Collections.unmodifiableList(line);
+    }
+
+    /**
+     * @return : metrics of the latest complete repetition, empty if there is none or it is older than the stall timeout
+     */
+    public Optional<Map<String, Number>> latest() {
+        Snapshot current = snapshot.get();
+        if (current == null || System.currentTimeMillis() - current.timestamp > stallMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(current.values);
+    }
+
+    /**
+     * Start the process if it is not running, restart it if it exited or did not print anything for the stall timeout
+     */
+    public synchronized void supervise() {
+        long now = System.currentTimeMillis();
+        if (process != null) {
+            if (process.isAlive() && now - lastOutputMillis <= stallMillis) {
+                if (now - lastOutputMillis <= intervalMillis) {
+                    backoffMillis = intervalMillis;
+                }
+                return;
+            }
+            if (process.isAlive()) {
+                LOGGER.log(Level.WARNING, "onstat {0} stalled, restarting it", commandLine);
+            } else {
+                LOGGER.log(Level.WARNING, "onstat {0} exited with {1}, restarting it", new Object[]{commandLine, process.exitValue()});
+            }
+            stopProcess();
+            nextStartMillis = now + backoffMillis;
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        }
+        if (now < nextStartMillis) {
+            return;
+        }
+        startProcess(now);
+    }
+
+    /**
+     * @return : CPU time used by all onstat processes of this command so far, null if the JVM cannot tell
+     */
+    public synchronized Double getCpuSeconds() {
+        Long current = process == null ? Long.valueOf(0) : cpuNanos(process);
+        if (current == null) {
+            return null;
+        }
+        return (finishedCpuNanos + current) / 1e9;
+    }
+
+    public synchronized int getRestarts() {
+        return restarts;
+    }
+
+    public OnstatCommand getCommand() {
+        return command;
+    }
+
+    public synchronized void stop() {
+        if (process != null) {
+            stopProcess();
+        }
+    }
+
+    private void startProcess(long now) {
+        ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
+        processBuilder.directory(binDir);
+        processBuilder.environment().putAll(environment);
+        processBuilder.redirectErrorStream(true);
+        try {
+            process = processBuilder.start();
+        } catch (IOException exp) {
+            LOGGER.log(Level.SEVERE, "Unable to start onstat " + commandLine, exp);
+            process = null;
+            nextStartMillis = now + backoffMillis;
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            return;
+        }
+        if (lastOutputMillis != 0) {
+            restarts++;
+        }
+        lastOutputMillis = now;
+        Process started = process;
+        Thread reader = new Thread(() -> read(started), "onstat-stream-" + command.name().toLowerCase());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void stopProcess() {
+        Long cpu = cpuNanos(process);
+        process.destroyForcibly();
+        if (cpu != null) {
+            finishedCpuNanos += cpu;
+        }
+        process = null;
+    }
+
+    private void read(Process source) {
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(source.getInputStream()))) {
+            RepetitionSplitter splitter = new RepetitionSplitter(command, snapshot);
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lastOutputMillis = System.currentTimeMillis();
+                splitter.accept(line);
+            }
+        } catch (IOException exp) {
+            LOGGER.log(Level.FINE, "onstat stream closed: " + commandLine, exp);
+        }
+    }
+
+    /**
+     * @return : total CPU time of the process, null if the platform does not report it
+     */
+    private static Long cpuNanos(Process process) {
+        try {
+            return process.toHandle().info().totalCpuDuration().map(Duration::toNanos).orElse(null);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Feeds the lines of one repetition to a fresh parser. Every repetition starts with a blank line and the
+     * banner, so a blank line is held back until the next line shows whether a new repetition begins.
+     */
+    static class RepetitionSplitter {
+        private final OnstatCommand command;
+        private final AtomicReference<Snapshot> target;
+        private OnstatOutputParser parser;
+        private boolean pendingBlank;
+
+        RepetitionSplitter(OnstatCommand command, AtomicReference<Snapshot> target) {
+            this.command = command;
+            this.target = target;
+        }
+
+        void accept(String line) {
+            if (line.isEmpty() && !pendingBlank) {
+                pendingBlank = true;
+                return;
+            }
+            if (line.startsWith(BANNER)) {
+                if (parser != null) {
+                    target.set(new Snapshot(parser.result(), System.currentTimeMillis()));
+                }
+                parser = command.newParser();
+                parser.accept("");
+                parser.accept(line);
+                pendingBlank = false;
+                return;
+            }
+            if (parser == null) {
+                pendingBlank = false;
+                return;
+            }
+            if (pendingBlank) {
+                parser.accept("");
+                pendingBlank = false;
+            }
+            if (!line.isEmpty()) {
+                parser.accept(line);
+            } else {
+                pendingBlank = true;
+            }
+        }
+    }
+
+    static class Snapshot {
+        final Map<String, Number> values;
+        final long timestamp;
+
+        Snapshot(Map<String, Number> values, long timestamp) {
+            this.values = values;
+            this.timestamp = timestamp;
+        }
+    }
+}
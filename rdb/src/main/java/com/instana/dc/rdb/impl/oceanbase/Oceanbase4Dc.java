@@ -7,12 +7,19 @@ package com.instana.dc.rdb.impl.oceanbase;
 import com.instana.dc.CalculationMode;
 import com.instana.dc.DcException;
 import com.instana.dc.DcUtil;
+import com.instana.dc.QueryResultBatch;
+import com.instana.dc.RawMetric;
 import com.instana.dc.rdb.AbstractDbDc;
+import com.instana.dc.rdb.CollectionStep;
+import com.instana.dc.rdb.MultiMetricQuery;
+import com.instana.dc.rdb.PollTier;
+import com.instana.dc.rdb.PolledRows;
+import com.instana.dc.rdb.SqlShapeAggregator;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.BitSet;
 import java.util.Map;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.instana.agent.sensorsdk.semconv.SemanticAttributes.SQL_TEXT;
@@ -24,6 +31,13 @@ public class Oceanbase4Dc extends AbstractDbDc {
 
     boolean isCluster = false;
     boolean isTenant = false;
+    private SqlAuditReader sqlAuditReader;
+    //The legacy path reads the slowest statements of the audit buffer again on every poll
+    private final PolledRows slowestStatements = new PolledRows((batch, row) -> batch.getKey(row) + "/" + batch.getDouble(row),
+            false, DB_SQL_ELAPSED_TIME_KEY, SQL_TEXT.getKey());
+    private final QueryResultBatch cacheHits = new QueryResultBatch(false, DB_CACHE_HIT_KEY);
+    private final MultiMetricQuery transactionCountQuery;
+    private final MultiMetricQuery sqlCountQuery;
 
     public Oceanbase4Dc(Map<String, Object> properties, String dbSystem, String dbDriver) throws SQLException, DcException {
         super(properties, dbSystem, dbDriver);
@@ -57,6 +71,21 @@ public class Oceanbase4Dc extends AbstractDbDc {
             }
         }
 
+        transactionCountQuery = new MultiMetricQuery(isCluster ? TRANSACTION_COUNT_SQL0 : withTenant(TRANSACTION_COUNT_SQL1))
+                .withMetric(DB_TRANSACTION_COUNT_NAME, 1)
+                .withMetric(DB_TRANSACTION_RATE_NAME, 1)
+                .withMetric(DB_TRANSACTION_TIME_NAME, 2);
+        sqlCountQuery = new MultiMetricQuery(isCluster ? SQL_COUNT_SQL0 : withTenant(SQL_COUNT_SQL1))
+                .withMetric(DB_SQL_COUNT_NAME, 1)
+                .withMetric(DB_SQL_RATE_NAME, 1);
+
+        if ((Boolean) properties.getOrDefault(SQL_AUDIT_INCREMENTAL, Boolean.FALSE)) {
+            int maxRows = (Integer) properties.getOrDefault(SQL_AUDIT_MAX_ROWS, DEFAULT_SQL_AUDIT_MAX_ROWS);
+            sqlAuditReader = new SqlAuditReader(isTenant ? getDbTenantId() : null, maxRows)
+                    .withShapes(getSqlShapes());
+            logger.info("Incremental SQL audit collection is enabled, " + maxRows + " rows per poll at most");
+        }
+        addCollectionSteps();
     }
 
     @Override
@@ -68,52 +97,79 @@ public class Oceanbase4Dc extends AbstractDbDc {
         getRawMetric(DB_IO_WRITE_RATE_NAME).setCalculationMode(CalculationMode.RATE);
     }
 
-    @Override
-    public void collectData() {
-        logger.info("Start to collect metrics");
-        try (Connection conn = getConnection()) {
-            getRawMetric(DB_STATUS_NAME).setValue(1);
+    /**
+     * KPIs in the fast tier, cache and statement diagnostics in the medium one
+     */
+    private void addCollectionSteps() {
+        addCollectionStep(new CollectionStep("instances", PollTier.FAST, conn -> {
             getRawMetric(DB_INSTANCE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, INSTANCE_COUNT_SQL));
             getRawMetric(DB_INSTANCE_ACTIVE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, INSTANCE_ACTIVE_COUNT_SQL));
-
-            if (isCluster) {
-                getRawMetric(DB_SESSION_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, SESSION_COUNT_SQL0));
-                getRawMetric(DB_SESSION_ACTIVE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, SESSION_ACTIVE_COUNT_SQL0));
-                getRawMetric(DB_TRANSACTION_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, TRANSACTION_COUNT_SQL0));
-                getRawMetric(DB_TRANSACTION_RATE_NAME).setValue(getSimpleMetricWithSql(conn, TRANSACTION_COUNT_SQL0));
-                getRawMetric(DB_TRANSACTION_LATENCY_NAME).setValue(getSimpleMetricWithSql(conn, TRANSACTION_LATENCY_SQL0));
-                getRawMetric(DB_SQL_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, SQL_COUNT_SQL0));
-                getRawMetric(DB_SQL_RATE_NAME).setValue(getSimpleMetricWithSql(conn, SQL_COUNT_SQL0));
-                getRawMetric(DB_IO_READ_RATE_NAME).setValue(getSimpleMetricWithSql(conn, IO_READ_COUNT_SQL0));
-                getRawMetric(DB_IO_WRITE_RATE_NAME).setValue(getSimpleMetricWithSql(conn, IO_WRITE_COUNT_SQL0));
-                getRawMetric(DB_TASK_WAIT_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, TASK_WAIT_COUNT_SQL0));
-                getRawMetric(DB_TASK_AVG_WAIT_TIME_NAME).setValue(getSimpleMetricWithSql(conn, TASK_AVG_WAIT_TIME_SQL0));
-
-                getRawMetric(DB_CACHE_HIT_NAME).setValue(getMetricWithSql(conn, CACHE_HIT_SQL0, DB_CACHE_HIT_KEY));
-                getRawMetric(DB_SQL_ELAPSED_TIME_NAME).setValue(getMetricWithSql(conn, SQL_ELAPSED_TIME_SQL0, DB_SQL_ELAPSED_TIME_KEY, SQL_TEXT.getKey()));
-            } else if (isTenant) {
-                getRawMetric(DB_SESSION_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(SESSION_COUNT_SQL1)));
-                getRawMetric(DB_SESSION_ACTIVE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(SESSION_ACTIVE_COUNT_SQL1)));
-                getRawMetric(DB_TRANSACTION_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(TRANSACTION_COUNT_SQL1)));
-                getRawMetric(DB_TRANSACTION_RATE_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(TRANSACTION_COUNT_SQL1)));
-                getRawMetric(DB_TRANSACTION_LATENCY_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(TRANSACTION_LATENCY_SQL1)));
-                getRawMetric(DB_SQL_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(SQL_COUNT_SQL1)));
-                getRawMetric(DB_SQL_RATE_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(SQL_COUNT_SQL1)));
-                getRawMetric(DB_IO_READ_RATE_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(IO_READ_COUNT_SQL1)));
-                getRawMetric(DB_IO_WRITE_RATE_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(IO_WRITE_COUNT_SQL1)));
-                getRawMetric(DB_TASK_WAIT_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(TASK_WAIT_COUNT_SQL1)));
-                getRawMetric(DB_TASK_AVG_WAIT_TIME_NAME).setValue(getSimpleMetricWithSql(conn, withTenant(TASK_AVG_WAIT_TIME_SQL1)));
-
-                getRawMetric(DB_CACHE_HIT_NAME).setValue(getMetricWithSql(conn, withTenant(CACHE_HIT_SQL1), DB_CACHE_HIT_KEY));
-                getRawMetric(DB_SQL_ELAPSED_TIME_NAME).setValue(getMetricWithSql(conn, withTenant(SQL_ELAPSED_TIME_SQL1), DB_SQL_ELAPSED_TIME_KEY, SQL_TEXT.getKey()));
+        }, DB_INSTANCE_COUNT_NAME, DB_INSTANCE_ACTIVE_COUNT_NAME));
+        addCollectionStep(new CollectionStep("sessions", PollTier.FAST, conn -> {
+            getRawMetric(DB_SESSION_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, byScope(SESSION_COUNT_SQL0, SESSION_COUNT_SQL1)));
+            getRawMetric(DB_SESSION_ACTIVE_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, byScope(SESSION_ACTIVE_COUNT_SQL0, SESSION_ACTIVE_COUNT_SQL1)));
+        }, DB_SESSION_COUNT_NAME, DB_SESSION_ACTIVE_COUNT_NAME));
+        addCollectionStep(new CollectionStep("transactions", PollTier.FAST, conn -> {
+            transactionCountQuery.execute(conn);
+            transactionCountQuery.publish(this::getRawMetric);
+        }, DB_TRANSACTION_COUNT_NAME, DB_TRANSACTION_RATE_NAME, DB_TRANSACTION_LATENCY_NAME));
+        addCollectionStep(new CollectionStep("sql.count", PollTier.FAST, conn -> {
+            sqlCountQuery.execute(conn);
+            sqlCountQuery.publish(this::getRawMetric);
+        }, DB_SQL_COUNT_NAME, DB_SQL_RATE_NAME));
+        addCollectionStep(new CollectionStep("io", PollTier.FAST, conn -> {
+            getRawMetric(DB_IO_READ_RATE_NAME).setValue(getSimpleMetricWithSql(conn, byScope(IO_READ_COUNT_SQL0, IO_READ_COUNT_SQL1)));
+            getRawMetric(DB_IO_WRITE_RATE_NAME).setValue(getSimpleMetricWithSql(conn, byScope(IO_WRITE_COUNT_SQL0, IO_WRITE_COUNT_SQL1)));
+        }, DB_IO_READ_RATE_NAME, DB_IO_WRITE_RATE_NAME));
+        addCollectionStep(new CollectionStep("task.waits", PollTier.FAST, conn -> {
+            getRawMetric(DB_TASK_WAIT_COUNT_NAME).setValue(getSimpleMetricWithSql(conn, byScope(TASK_WAIT_COUNT_SQL0, TASK_WAIT_COUNT_SQL1)));
+            getRawMetric(DB_TASK_AVG_WAIT_TIME_NAME).setValue(getSimpleMetricWithSql(conn, byScope(TASK_AVG_WAIT_TIME_SQL0, TASK_AVG_WAIT_TIME_SQL1)));
+        }, DB_TASK_WAIT_COUNT_NAME, DB_TASK_AVG_WAIT_TIME_NAME));
+
+        addCollectionStep(new CollectionStep("cache.hit", PollTier.MEDIUM,
+                conn -> {
+                    getMetricWithSql(conn, byScope(CACHE_HIT_SQL0, CACHE_HIT_SQL1), 0, cacheHits);
+                    getRawMetric(DB_CACHE_HIT_NAME).setValue(cacheHits);
+                },
+                DB_CACHE_HIT_NAME));
+        addCollectionStep(new CollectionStep("sql.elapsed.time", PollTier.MEDIUM, conn -> {
+            if (sqlAuditReader != null) {
+                recordSqlElapsedTimes(sqlAuditReader.collect(conn));
+            } else {
+                collectSlowestStatements(conn);
             }
+            publishSqlShapes();
+        }, DB_SQL_ELAPSED_TIME_NAME, DB_SQL_SHAPE_ELAPSED_TIME_NAME, DB_SQL_SHAPE_COUNT_NAME).setOptional(true));
+    }
 
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Failed to update metric with exception", e);
-            getRawMetric(DB_STATUS_NAME).setValue(0);
+    /**
+     * Slowest statements of V$OB_SQL_AUDIT: only the executions missing from the previous read, told apart by
+     * SQL_ID and ELAPSED_TIME, are recorded and folded into the shapes.
+     */
+    private void collectSlowestStatements(Connection conn) {
+        slowestStatements.update(getMetricWithSql(conn, byScope(SQL_ELAPSED_TIME_SQL0, SQL_ELAPSED_TIME_SQL1), getFetchSize(), slowestStatements.next()));
+        QueryResultBatch statements = slowestStatements.getCurrent();
+        BitSet added = slowestStatements.getAdded();
+        RawMetric elapsedTime = getRawMetric(DB_SQL_ELAPSED_TIME_NAME);
+        SqlShapeAggregator shapes = getSqlShapes();
+        for (int row = added.nextSetBit(0); row >= 0; row = added.nextSetBit(row + 1)) {
+            if (statements.isNull(row)) {
+                continue;
+            }
+            elapsedTime.recordSample(statements.getDouble(row));
+            if (shapes != null) {
+                shapes.add(statements.getAttribute(row, 1), statements.getDouble(row));
+            }
         }
     }
 
+    /**
+     * @return : the query on the whole cluster, or the one restricted to the tenant
+     */
+    private String byScope(String clusterSql, String tenantSql) {
+        return isCluster ? clusterSql : withTenant(tenantSql);
+    }
+
     private String withTenant(String rawStr) {
         return rawStr.replace(TENANT_HOLDER, getDbTenantId());
     }
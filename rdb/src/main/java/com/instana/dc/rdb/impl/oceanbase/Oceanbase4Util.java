@@ -20,10 +20,9 @@ public class Oceanbase4Util {
     public static final String SESSION_COUNT_SQL1 = "select case when cnt is null then 0 else cnt end as cnt from (select cnt from DBA_OB_TENANTS left join (select count(1) as cnt, tenant as tenant_name from GV$OB_PROCESSLIST group by tenant) t1 on DBA_OB_TENANTS.tenant_name = t1.tenant_name where DBA_OB_TENANTS.tenant_type<>'META' and DBA_OB_TENANTS.tenant_id = 'XXXX')";
     public static final String SESSION_ACTIVE_COUNT_SQL0 = "SELECT SUM(cnt) AS total_cnt FROM ( select cnt from DBA_OB_TENANTS left join (select count(`state`='ACTIVE' OR NULL) as cnt, tenant as tenant_name from GV$OB_PROCESSLIST group by tenant) t1 on DBA_OB_TENANTS.tenant_name = t1.tenant_name where DBA_OB_TENANTS.tenant_type<>'META' )";
     public static final String SESSION_ACTIVE_COUNT_SQL1 = "select case when cnt is null then 0 else cnt end as cnt from (select cnt from DBA_OB_TENANTS left join (select count(`state`='ACTIVE' OR NULL) as cnt, tenant as tenant_name from GV$OB_PROCESSLIST group by tenant) t1 on DBA_OB_TENANTS.tenant_name = t1.tenant_name where DBA_OB_TENANTS.tenant_type<>'META' and DBA_OB_TENANTS.tenant_id = 'XXXX')";
-    public static final String TRANSACTION_COUNT_SQL0 = "select SUM(value) AS total_value from v$sysstat where stat_id IN (30007,30009,30011) and (con_id > 1000 or con_id = 1) and class < 1000";
-    public static final String TRANSACTION_COUNT_SQL1 = "select SUM(value) AS value from v$sysstat where con_id = XXXX and stat_id IN (30007,30009,30011) and (con_id > 1000 or con_id = 1) and class < 1000";
-    public static final String TRANSACTION_LATENCY_SQL0 = "SELECT SUM(value)/1000000/ ( SELECT SUM(value) FROM v$sysstat WHERE stat_id IN (30007,30009,30011) AND (con_id > 1000 OR con_id = 1) AND class < 1000 ) AS total_latency_value FROM v$sysstat WHERE stat_id = 30006 AND (con_id > 1000 OR con_id = 1) AND class < 1000";
-    public static final String TRANSACTION_LATENCY_SQL1 = "SELECT SUM(t1.total_time) / t2.totals AS tenant_latency_value FROM ( SELECT con_id AS tenant_id, sum(value) / 1000000 AS total_time FROM v$sysstat WHERE con_id = XXXX and stat_id = 30006 AND (con_id > 1000 OR con_id = 1) AND class < 1000) t1 JOIN ( SELECT con_id AS tenant_id, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (30007, 30009, 30011) AND (con_id > 1000 OR con_id = 1) AND class < 1000) t2 ON t1.tenant_id = t2.tenant_id";
+    //Count and total time (stat 30006, in microseconds), db.transaction.latency is derived from them
+    public static final String TRANSACTION_COUNT_SQL0 = "select SUM(CASE WHEN stat_id IN (30007,30009,30011) THEN value ELSE 0 END) AS total_value, SUM(CASE WHEN stat_id = 30006 THEN value ELSE 0 END)/1000000 AS total_time from v$sysstat where stat_id IN (30006,30007,30009,30011) and (con_id > 1000 or con_id = 1) and class < 1000";
+    public static final String TRANSACTION_COUNT_SQL1 = "select SUM(CASE WHEN stat_id IN (30007,30009,30011) THEN value ELSE 0 END) AS value, SUM(CASE WHEN stat_id = 30006 THEN value ELSE 0 END)/1000000 AS total_time from v$sysstat where con_id = XXXX and stat_id IN (30006,30007,30009,30011) and (con_id > 1000 or con_id = 1) and class < 1000";
     public static final String SQL_COUNT_SQL0 = "select SUM(value) AS total_value from v$sysstat where stat_id IN (40000, 40002, 40004, 40006, 40008, 40018) and (con_id > 1000 or con_id = 1) and class < 1000";
     public static final String SQL_COUNT_SQL1 = "select sum(value) from v$sysstat where con_id = XXXX and  stat_id IN (40000, 40002, 40004, 40006, 40008, 40018) and (con_id > 1000 or con_id = 1) and class < 1000 group by con_id";
     public static final String IO_READ_COUNT_SQL0 = "select SUM(value) AS total_value from v$sysstat where stat_id IN (40000, 40002, 40004, 40006, 40008, 40018) and (con_id > 1000 or con_id = 1) and class < 1000";
@@ -39,4 +38,17 @@ public class Oceanbase4Util {
     public static final String CACHE_HIT_SQL1 = "SELECT SUM(h.row_hit_ratio) / COUNT(h.row_hit_ratio) AS hit_ratio, REPLACE(REPLACE(h.name, 'cache hit', ''), 'hit', '') AS name FROM ( SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50000  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50000, 50001)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50008  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50008, 50009)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50010  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50010, 50011)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50017  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50017, 50018)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50033  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50033, 50034)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50035  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50035, 50036)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50045  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50045, 50046)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50047  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50047, 50048)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id UNION ALL SELECT t2.name, SUM(t1.hit) / t2.totals AS row_hit_ratio , SUM(t1.hit) / t2.totals AS hit_ratio FROM ( SELECT con_id AS tenant_id, SUM(value) AS hit FROM v$sysstat WHERE con_id = XXXX and stat_id = 50055  AND class < 1000 GROUP BY con_id ) t1 JOIN ( SELECT con_id AS tenant_id, name, SUM(value) AS totals FROM v$sysstat WHERE con_id = XXXX and stat_id IN (50055, 50056)  AND class < 1000 GROUP BY con_id ) t2 ON t1.tenant_id = t2.tenant_id GROUP BY t1.tenant_id ) h GROUP BY name";
     public static final String SQL_ELAPSED_TIME_SQL0 = "SELECT ELAPSED_TIME/1000000 as ELAPSED_TIME_MILLIS, SQL_ID as sql_id, QUERY_SQL as sql_text FROM V$OB_SQL_AUDIT ORDER BY ELAPSED_TIME_MILLIS DESC LIMIT 20";
     public static final String SQL_ELAPSED_TIME_SQL1 = "SELECT ELAPSED_TIME/1000000 as ELAPSED_TIME_MILLIS, SQL_ID as sql_id, QUERY_SQL as sql_text FROM V$OB_SQL_AUDIT where EFFECTIVE_TENANT_ID = XXXX ORDER BY ELAPSED_TIME_MILLIS DESC LIMIT 20";
+
+    /* Incremental SQL audit collection (see SqlAuditReader):
+     */
+    public static final String SQL_AUDIT_INCREMENTAL = "db.sql.audit.incremental";
+    public static final String SQL_AUDIT_MAX_ROWS = "db.sql.audit.max.rows";
+    public static final int DEFAULT_SQL_AUDIT_MAX_ROWS = 1000;
+    public static final String TENANT_FILTER_HOLDER = "TENANT_FILTER";
+    public static final String SQL_AUDIT_WATERMARK_SQL = "SELECT SVR_IP, SVR_PORT, MAX(REQUEST_ID) FROM V$OB_SQL_AUDIT WHERE TENANT_FILTER GROUP BY SVR_IP, SVR_PORT";
+    //One branch per server, joined with UNION ALL, so a busy server cannot starve the others of their share of the rows
+    public static final String SQL_AUDIT_INCREMENTAL_SQL = "(SELECT ELAPSED_TIME/1000000 as ELAPSED_TIME_MILLIS, SQL_ID as sql_id, QUERY_SQL as sql_text, SVR_IP, SVR_PORT, REQUEST_ID FROM V$OB_SQL_AUDIT WHERE TENANT_FILTER AND (%s) ORDER BY REQUEST_ID LIMIT %d)";
+    public static final String SQL_AUDIT_BRANCH_SEPARATOR = " UNION ALL ";
+    //Polls in which a known server returned no row before checking whether it restarted
+    public static final int SQL_AUDIT_RESTART_CHECK_POLLS = 10;
 }
@@ -0,0 +1,174 @@
+/*
+ * (c) Copyright IBM Corp. 2024
+ * (c) Copyright Instana Inc.
+ */
+package com.instana.dc.rdb.impl.oceanbase;
+
+import com.instana.dc.SimpleQueryResult;
+import com.instana.dc.rdb.SqlShapeAggregator;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads V$OB_SQL_AUDIT incrementally: only rows with a REQUEST_ID above the highest one already seen
+ * for their server are fetched, so each execution is returned exactly once instead of sorting the whole
+ * audit buffer on every poll. Every new row is also folded into the statement shapes, if any.
+ * A poll reads at most maxRows rows, shared evenly by the known servers and the new ones, each in REQUEST_ID order:
+ * the watermarks only move to the last rows read, so a burst is spread over the next polls without starving the
+ * other servers. REQUEST_ID restarts with the server, a server whose highest REQUEST_ID fell below its watermark
+ * is read again from the start. As a restarted server looks idle, this is checked when known servers kept
+ * returning no row for a few polls, not on every poll.
+ */
+public class SqlAuditReader {
+    private static final Logger logger = Logger.getLogger(SqlAuditReader.class.getName());
+
+    private final String tenantId;
+    private final int maxRows;
+    private final Map<String, Long> watermarks = new HashMap<>();
+    private boolean seeded = false;
+    private int idlePolls = 0;
+    private SqlShapeAggregator shapes;
+
+    /**
+     * @param tenantId : tenant to restrict the audit rows to, or null for the whole cluster
+     * @param maxRows  : new rows read per poll at most
+     */
+    public SqlAuditReader(String tenantId, int maxRows) {
+        this.tenantId = tenantId;
+        this.maxRows = Math.max(1, maxRows);
+    }
+
+    public SqlAuditReader withShapes(SqlShapeAggregator shapes) {
+        this.shapes = shapes;
+        return this;
+    }
+
+    /**
+     * @return : elapsed time in seconds of the statements audited since the last call, null if the audit cannot be read
+     */
+    public List<SimpleQueryResult> collect(Connection connection) {
+        try {
+            if (!seeded) {
+                seedWatermarks(connection);
+                seeded = true;
+                return Collections.emptyList();
+            }
+            return readNewRows(connection);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "collect: Error occurred while reading the SQL audit", e);
+            return null;
+        }
+    }
+
+    private void seedWatermarks(Connection connection) throws SQLException {
+        watermarks.putAll(readLatestRequestIds(connection));
+        logger.info("SQL audit watermarks initialized for " + watermarks.size() + " server(s)");
+    }
+
+    private Map<String, Long> readLatestRequestIds(Connection connection) throws SQLException {
+        Map<String, Long> latest = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(withTenant(Oceanbase4Util.SQL_AUDIT_WATERMARK_SQL))) {
+            while (rs.next()) {
+                latest.put(serverKey(rs.getString(1), rs.getInt(2)), rs.getLong(3));
+            }
+        }
+        return latest;
+    }
+
+    private List<SimpleQueryResult> readNewRows(Connection connection) throws SQLException {
+        List<SimpleQueryResult> executions = new ArrayList<>();
+        int rows = 0;
+        Set<String> servers = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(buildIncrementalQuery())) {
+            while (rs.next()) {
+                rows++;
+                //Rows of a server come in REQUEST_ID order, the highest one read per server is where the next poll resumes
+                String server = serverKey(rs.getString(4), rs.getInt(5));
+                servers.add(server);
+                watermarks.merge(server, rs.getLong(6), Math::max);
+                Number elapsed = (Number) rs.getObject(1);
+                if (elapsed == null) {
+                    continue;
+                }
+                executions.add(new SimpleQueryResult(elapsed.doubleValue()));
+                if (shapes != null) {
+                    shapes.add(rs.getString(3), elapsed.doubleValue());
+                }
+            }
+        }
+        logger.fine("SQL audit: " + rows + " new row(s)");
+        if (!servers.containsAll(watermarks.keySet()) && ++idlePolls >= Oceanbase4Util.SQL_AUDIT_RESTART_CHECK_POLLS) {
+            idlePolls = 0;
+            resetRestartedServers(connection);
+        }
+        return executions;
+    }
+
+    /**
+     * A known server returned no row: it may be idle, or restarted with REQUEST_IDs below its watermark
+     * that would be ignored forever. The watermark of the latter is reset to read the new rows from the start.
+     */
+    private void resetRestartedServers(Connection connection) throws SQLException {
+        Map<String, Long> latest = readLatestRequestIds(connection);
+        for (Map.Entry<String, Long> entry : watermarks.entrySet()) {
+            Long latestId = latest.get(entry.getKey());
+            if (latestId != null && latestId < entry.getValue()) {
+                logger.info("SQL audit of " + entry.getKey() + " restarted at REQUEST_ID " + latestId
+                        + " below the watermark " + entry.getValue() + ", reading it again from the start");
+                entry.setValue(0L);
+            }
+        }
+    }
+
+    String buildIncrementalQuery() {
+        if (watermarks.isEmpty()) {
+            return withTenant(String.format(Oceanbase4Util.SQL_AUDIT_INCREMENTAL_SQL, "1 = 1", maxRows));
+        }
+        //Every known server and the servers not seen yet get the same share of the rows
+        int share = Math.max(1, maxRows / (watermarks.size() + 1));
+        StringBuilder query = new StringBuilder();
+        StringBuilder known = new StringBuilder();
+        for (Map.Entry<String, Long> entry : watermarks.entrySet()) {
+            int sep = entry.getKey().lastIndexOf(':');
+            String ip = entry.getKey().substring(0, sep);
+            String port = entry.getKey().substring(sep + 1);
+            if (known.length() > 0) {
+                known.append(", ");
+            }
+            known.append("('").append(ip).append("', ").append(port).append(')');
+            String newer = "SVR_IP = '" + ip + "' AND SVR_PORT = " + port + " AND REQUEST_ID > " + entry.getValue();
+            query.append(String.format(Oceanbase4Util.SQL_AUDIT_INCREMENTAL_SQL, newer, share))
+                    .append(Oceanbase4Util.SQL_AUDIT_BRANCH_SEPARATOR);
+        }
+        query.append(String.format(Oceanbase4Util.SQL_AUDIT_INCREMENTAL_SQL, "(SVR_IP, SVR_PORT) NOT IN (" + known + ")", share));
+        return withTenant(query.toString());
+    }
+
+    private String withTenant(String sql) {
+        String tenantFilter = tenantId == null ? "1 = 1" : "EFFECTIVE_TENANT_ID = " + tenantId;
+        return sql.replace(Oceanbase4Util.TENANT_FILTER_HOLDER, tenantFilter);
+    }
+
+    long getWatermark(String ip, int port) {
+        Long watermark = watermarks.get(serverKey(ip, port));
+        return watermark == null ? -1 : watermark;
+    }
+
+    private static String serverKey(String ip, int port) {
+        return ip + ':' + port;
+    }
+}
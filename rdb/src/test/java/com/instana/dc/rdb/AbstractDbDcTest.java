@@ -0,0 +1,236 @@
+package com.instana.dc.rdb;
+
+import com.instana.dc.DcUtil;
+import com.instana.dc.RawMetric;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.instana.dc.rdb.DbDcUtil.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class AbstractDbDcTest {
+
+    private static class TieredDc extends AbstractDbDc {
+        private final List<String> runs = new ArrayList<>();
+        private boolean down = false;
+        private int connections = 0;
+
+        private TieredDc(Map<String, Object> properties) {
+            super(properties, "test", "test.Driver");
+            addCollectionStep(new CollectionStep("status", PollTier.FAST, conn -> runs.add("status"), DB_STATUS_NAME));
+            addCollectionStep(new CollectionStep("failing", PollTier.FAST, conn -> {
+                throw new SQLException("boom");
+            }, DB_SESSION_COUNT_NAME));
+            addCollectionStep(new CollectionStep("io", PollTier.FAST, conn -> runs.add("io"), DB_IO_READ_RATE_NAME, DB_IO_WRITE_RATE_NAME));
+            addCollectionStep(new CollectionStep("locks", PollTier.MEDIUM, conn -> runs.add("locks"), DB_LOCK_COUNT_NAME, DB_LOCK_TIME_NAME));
+            addCollectionStep(new CollectionStep("tablespaces", PollTier.SLOW, conn -> runs.add("tablespaces"), DB_TABLESPACE_SIZE_NAME));
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connections++;
+            if (down) {
+                throw new SQLException("down");
+            }
+            Connection connection = mock(Connection.class);
+            given(connection.createStatement()).willReturn(mock(Statement.class));
+            return connection;
+        }
+    }
+
+    private static Map<String, Object> buildProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("poll.interval", 25);
+        Map<String, Object> intervals = new HashMap<>();
+        intervals.put("fast", 10);
+        intervals.put("HIGH", 300);
+        intervals.put("unknown", 5);
+        properties.put(CUSTOM_POLL_INTERVAL, intervals);
+        Map<String, Object> tiers = new HashMap<>();
+        tiers.put(DB_LOCK_TIME_NAME, "slow");
+        tiers.put("io", "medium");
+        tiers.put(DB_TABLESPACE_SIZE_NAME, "sometimes");
+        properties.put(CUSTOM_POLL_TIER, tiers);
+        return properties;
+    }
+
+    @Test
+    public void shouldParseTierNames() {
+        assertEquals(PollTier.FAST, PollTier.of(" low"));
+        assertEquals(PollTier.SLOW, PollTier.of("Slow"));
+        assertEquals(PollTier.SLOW, PollTier.of("high"));
+        assertNull(PollTier.of("hourly"));
+        assertNull(PollTier.of(null));
+    }
+
+    @Test
+    public void shouldResolveTiersAndIntervals() {
+        TieredDc dc = new TieredDc(buildProperties());
+
+        assertEquals(10, dc.getTierInterval(PollTier.FAST));
+        assertEquals(25, dc.getTierInterval(PollTier.MEDIUM));
+        assertEquals(300, dc.getTierInterval(PollTier.SLOW));
+        assertEquals(2, dc.getCollectionSteps(PollTier.FAST).size());
+        assertEquals("io", dc.getCollectionSteps(PollTier.MEDIUM).get(0).getName());
+        //Overridden through one of its metrics, the invalid override of tablespaces is ignored
+        assertEquals(Arrays.asList("locks", "tablespaces"), names(dc.getCollectionSteps(PollTier.SLOW)));
+    }
+
+    @Test
+    public void shouldPruneStepsWithoutEnabledMetrics() {
+        Map<String, Object> properties = buildProperties();
+        properties.put(METRICS_EXCLUDE, Arrays.asList("db.lock.*", DB_IO_READ_RATE_NAME));
+        TieredDc dc = new TieredDc(properties);
+
+        //io still sets db.io.write.rate, locks has nothing left
+        assertEquals(Arrays.asList("io"), names(dc.getCollectionSteps(PollTier.MEDIUM)));
+        assertEquals(Arrays.asList("tablespaces"), names(dc.getCollectionSteps(PollTier.SLOW)));
+        assertEquals(Arrays.asList("locks"), names(dc.getPrunedSteps()));
+        assertFalse(dc.isMetricEnabled(DB_LOCK_TIME_NAME));
+
+        properties.put(METRICS_INCLUDE, "db.status, db.tablespace.*");
+        dc = new TieredDc(properties);
+        dc.collectData();
+        assertEquals(Arrays.asList("status", "tablespaces"), dc.runs);
+        assertEquals(Arrays.asList("failing", "io", "locks"), names(dc.getPrunedSteps()));
+    }
+
+    @Test
+    public void shouldProfileEachStepOnce() {
+        TieredDc dc = new TieredDc(buildProperties());
+        CollectionProfiler profiler = new CollectionProfiler();
+        dc.profile(profiler);
+
+        assertEquals(Arrays.asList("status", "io", "locks", "tablespaces"), dc.runs);
+        List<String> steps = new ArrayList<>();
+        for (CollectionProfiler.Measure measure : profiler.getMeasures()) {
+            steps.add(measure.getTier() + ":" + measure.getStep());
+        }
+        assertEquals(Arrays.asList("FAST:connection", "FAST:probe", "FAST:status", "FAST:failing",
+                "MEDIUM:connection", "MEDIUM:io", "SLOW:connection", "SLOW:locks", "SLOW:tablespaces"), steps);
+        assertEquals("SQLException: boom", profiler.getMeasures().get(3).getError());
+        assertEquals(300, profiler.getMeasures().get(8).getIntervalSeconds());
+        //One connection per tier
+        assertEquals(3, dc.connections);
+    }
+
+    @Test
+    public void shouldRunTiersIndependently() {
+        TieredDc dc = new TieredDc(buildProperties());
+
+        dc.collectTier(PollTier.FAST);
+        assertEquals(Arrays.asList("status"), dc.runs);
+
+        dc.collectData();
+        assertEquals(Arrays.asList("status", "status", "io", "locks", "tablespaces"), dc.runs);
+        //The tiers of a full collection share one connection
+        assertEquals(2, dc.connections);
+    }
+
+    @Test
+    public void shouldReportDownWithoutConnection() {
+        TieredDc dc = new TieredDc(buildProperties());
+        dc.down = true;
+
+        dc.collectTier(PollTier.FAST);
+
+        assertEquals(0, dc.runs.size());
+        assertEquals(0, dc.getRawMetric(DB_STATUS_NAME).getDataPoint("default").getValue().intValue());
+    }
+
+    @Test
+    public void shouldStopConnectingWhileTheCircuitBreakerIsOpen() {
+        TieredDc dc = new TieredDc(buildProperties());
+        dc.down = true;
+
+        dc.collectTier(PollTier.FAST);
+        dc.collectTier(PollTier.FAST);
+        assertEquals(ConnectionCircuitBreaker.State.OPEN, dc.getCircuitBreaker().getState());
+
+        dc.getRawMetric(DB_STATUS_NAME).setValue(1);
+        dc.collectData();
+        assertEquals(2, dc.connections);
+        assertEquals(0, dc.getRawMetric(DB_STATUS_NAME).getDataPoint("default").getValue().intValue());
+    }
+
+    @Test
+    public void shouldDeriveStatusFromTheProbe() throws SQLException {
+        TieredDc dc = new TieredDc(buildProperties());
+        Meter meter = mock(Meter.class, RETURNS_DEEP_STUBS);
+        DoubleHistogram histogram = mock(DoubleHistogram.class);
+        given(meter.histogramBuilder(anyString()).setUnit(anyString()).setDescription(anyString()).build()).willReturn(histogram);
+        for (String name : Arrays.asList(DB_PING_TIME_NAME, DB_CONNECTION_ACQUIRE_TIME_NAME, DB_LOGIN_TIME_NAME)) {
+            DcUtil.registerMetric(Collections.singletonMap(RawMetric.DEFAULT, meter), dc.getRawMetric(name));
+        }
+        dc.collectTier(PollTier.FAST);
+        assertEquals(1, dc.getRawMetric(DB_STATUS_NAME).getDataPoint("default").getValue().intValue());
+        verify(histogram, times(3)).record(anyDouble(), any(Attributes.class));
+        dc.collectTier(PollTier.FAST);
+        verify(histogram, times(5)).record(anyDouble(), any(Attributes.class));
+
+        TieredDc unresponsive = new TieredDc(buildProperties()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = mock(Connection.class);
+                Statement statement = mock(Statement.class);
+                given(statement.execute(anyString())).willThrow(new SQLException("timeout"));
+                given(connection.createStatement()).willReturn(statement);
+                return connection;
+            }
+        };
+        unresponsive.collectTier(PollTier.FAST);
+        assertEquals(0, unresponsive.getRawMetric(DB_STATUS_NAME).getDataPoint("default").getValue().intValue());
+        assertEquals(0, unresponsive.runs.size());
+    }
+
+    @Test
+    public void shouldPublishSqlTextsOncePerRun() {
+        TieredDc dc = new TieredDc(buildProperties()) {
+            {
+                addCollectionStep(new CollectionStep("statements", PollTier.MEDIUM, conn -> {
+                    getSqlShapes().add("SELECT * FROM orders WHERE id = 1", 0.5);
+                    publishSqlShapes();
+                    getSqlShapes().add("UPDATE stock SET qty = 2", 0.1);
+                    publishSqlShapes();
+                }, DB_SQL_SHAPE_ELAPSED_TIME_NAME));
+            }
+        };
+
+        dc.collectTier(PollTier.MEDIUM);
+        assertEquals(2, dc.getRawMetric(DB_SQL_TEXT_NAME).getDataPoints().size());
+
+        //A run which queued no text does not clear the texts of the previous one
+        dc.collectTier(PollTier.FAST);
+        assertEquals(2, dc.getRawMetric(DB_SQL_TEXT_NAME).getDataPoints().size());
+    }
+
+    private static List<String> names(List<CollectionStep> steps) {
+        List<String> names = new ArrayList<>();
+        for (CollectionStep step : steps) {
+            names.add(step.getName());
+        }
+        return names;
+    }
+}
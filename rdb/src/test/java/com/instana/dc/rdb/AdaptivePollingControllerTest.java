@@ -0,0 +1,116 @@
+package com.instana.dc.rdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptivePollingControllerTest {
+    private final CollectionStep optionalStep = new CollectionStep("locks", PollTier.MEDIUM, conn -> {
+    }).setOptional(true);
+    private final CollectionStep requiredStep = new CollectionStep("status", PollTier.FAST, conn -> {
+    });
+
+    @Test
+    public void shouldBackOffAboveThresholdAndRecoverWithHysteresis() {
+        AdaptivePollingController controller = new AdaptivePollingController(true, 0.9, 100, 5000, 0.5, 4);
+
+        assertFalse(controller.evaluate(0.5, 10));
+        assertTrue(controller.evaluate(0.95, 10));
+        assertTrue(controller.isReduced());
+        assertEquals(AdaptivePollingController.REASON_CPU, controller.getReason());
+        assertTrue(controller.shouldSkip(optionalStep));
+        assertFalse(controller.shouldSkip(requiredStep));
+
+        //Below the threshold but above the recovery level: still reduced
+        for (int i = 0; i < 5; i++) {
+            assertFalse(controller.evaluate(0.8, 10));
+        }
+        assertTrue(controller.isReduced());
+
+        assertFalse(controller.evaluate(0.5, 10));
+        assertFalse(controller.evaluate(0.5, 10));
+        assertTrue(controller.evaluate(0.5, 10));
+        assertFalse(controller.isReduced());
+        assertEquals(AdaptivePollingController.REASON_NONE, controller.getReason());
+    }
+
+    @Test
+    public void shouldRecoverWhenTheSlowStepIsSkipped() {
+        AdaptivePollingController controller = new AdaptivePollingController(true, 0.9, 0, 1000, 0.5, 4);
+        for (int i = 0; i < 5; i++) {
+            controller.record("status", 10, false);
+            controller.record("locks", 5000, false);
+        }
+        assertTrue(controller.evaluate(null, null));
+        assertEquals(AdaptivePollingController.REASON_LATENCY, controller.getReason());
+
+        //The slow optional step is skipped from now on, its latency must not keep the controller reduced
+        for (int i = 0; i < AdaptivePollingController.RECOVERY_EVALUATIONS - 1; i++) {
+            assertTrue(controller.shouldSkip(optionalStep));
+            controller.record("status", 10, false);
+            assertFalse(controller.evaluate(null, null));
+            assertTrue(controller.isReduced());
+        }
+        assertTrue(controller.shouldSkip(optionalStep));
+        controller.record("status", 10, false);
+        assertTrue(controller.evaluate(null, null));
+        assertFalse(controller.isReduced());
+        assertFalse(controller.shouldSkip(optionalStep));
+    }
+
+    @Test
+    public void shouldStretchTheSlowTier() {
+        AdaptivePollingController controller = new AdaptivePollingController(true, 0.9, 100, 5000, 0.5, 3);
+        assertTrue(controller.shouldRunSlowTier());
+
+        controller.evaluate(null, 500);
+        assertEquals(AdaptivePollingController.REASON_ACTIVE_SESSIONS, controller.getReason());
+        List<Boolean> runs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            runs.add(controller.shouldRunSlowTier());
+        }
+        assertEquals("[true, false, false, true, false, false]", runs.toString());
+    }
+
+    @Test
+    public void shouldTrackStepLatencyAndErrors() {
+        AdaptivePollingController controller = new AdaptivePollingController(true, 0.9, 0, 1000, 0.5, 4);
+        controller.record("sessions", 100, false);
+        controller.record("locks", 200, false);
+        assertFalse(controller.evaluate(null, 100000));
+
+        for (int i = 0; i < 5; i++) {
+            controller.record("locks", 5000, false);
+        }
+        assertTrue(controller.evaluate(null, null));
+        assertEquals(AdaptivePollingController.REASON_LATENCY, controller.getReason());
+
+        AdaptivePollingController failing = new AdaptivePollingController(true, 0.9, 0, 1000, 0.5, 4);
+        for (int i = 0; i < 3; i++) {
+            failing.record("locks", 10, true);
+        }
+        assertTrue(failing.evaluate(null, null));
+        assertEquals(AdaptivePollingController.REASON_ERRORS, failing.getReason());
+    }
+
+    @Test
+    public void shouldReadConfig() {
+        AdaptivePollingController disabled = AdaptivePollingController.fromConfig(null);
+        disabled.record("locks", 100000, true);
+        assertFalse(disabled.evaluate(1.0, 1000));
+        assertFalse(disabled.isEnabled());
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(AdaptivePollingController.CPU_THRESHOLD, 0.5);
+        AdaptivePollingController controller = AdaptivePollingController.fromConfig(config);
+        assertTrue(controller.isEnabled());
+        assertTrue(controller.evaluate(0.6, null));
+    }
+}
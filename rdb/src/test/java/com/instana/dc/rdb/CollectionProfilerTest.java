@@ -0,0 +1,49 @@
+package com.instana.dc.rdb;
+
+import com.instana.dc.SimpleQueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.instana.dc.rdb.DbDcUtil.DB_TABLESPACE_SIZE_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CollectionProfilerTest {
+
+    @Test
+    public void shouldMeasureRowsAndHourlyCost() throws Exception {
+        DbRawMetricRegistry registry = new DbRawMetricRegistry();
+        registry.getMap().get(DB_TABLESPACE_SIZE_NAME).setValue(Collections.singletonList(new SimpleQueryResult(1).setKey("stale")));
+        CollectionProfiler profiler = new CollectionProfiler();
+
+        CollectionProfiler.Measure measure = profiler.measure("db:1", "tablespaces", PollTier.SLOW, 300, registry.getMap(),
+                Collections.singletonList(DB_TABLESPACE_SIZE_NAME), () -> registry.getMap().get(DB_TABLESPACE_SIZE_NAME).setValue(Arrays.asList(
+                        new SimpleQueryResult(10).setKey("a").setAttribute("tablespace_name", "a"),
+                        new SimpleQueryResult(20).setKey("b").setAttribute("tablespace_name", "b"))));
+        assertEquals(2, measure.getRows());
+        assertEquals(2 * (8 + "tablespace_name".length() + 1), measure.getBytes());
+        assertEquals(12, measure.getRunsPerHour());
+        assertEquals(measure.getLatencyMillis() * 12, measure.getMillisPerHour());
+        assertNull(measure.getError());
+
+        CollectionProfiler.Measure failed = profiler.measure("db:1", "locks", PollTier.MEDIUM, 0, registry.getMap(),
+                Collections.emptyList(), () -> {
+                    throw new SQLException("boom");
+                });
+        assertEquals("SQLException: boom", failed.getError());
+        assertEquals(0, failed.getRunsPerHour());
+
+        String json = profiler.toJson();
+        assertTrue(json.contains("\"step\" : \"tablespaces\""));
+        assertTrue(json.contains("\"runsPerHour\" : 12.0"));
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        profiler.printTable(new PrintStream(table));
+        assertEquals(4, table.toString().split("\n").length);
+    }
+}
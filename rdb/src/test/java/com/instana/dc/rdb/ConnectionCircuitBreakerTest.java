@@ -0,0 +1,62 @@
+package com.instana.dc.rdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.instana.dc.rdb.ConnectionCircuitBreaker.State.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConnectionCircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong(1000);
+    private final ConnectionCircuitBreaker breaker = new ConnectionCircuitBreaker("test", 2, 100, 350, 0, now::get);
+
+    @Test
+    public void shouldOpenAfterConsecutiveFailuresAndProbeAfterBackoff() {
+        assertTrue(breaker.allowAttempt());
+        breaker.onFailure();
+        assertEquals(CLOSED, breaker.getState());
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CLOSED, breaker.getState());
+        breaker.onFailure();
+        assertEquals(OPEN, breaker.getState());
+        assertEquals(1100, breaker.getRetryAt());
+
+        now.set(1099);
+        assertFalse(breaker.allowAttempt());
+        now.set(1100);
+        assertTrue(breaker.allowAttempt());
+        assertEquals(HALF_OPEN, breaker.getState());
+        //Only one probe at a time
+        assertFalse(breaker.allowAttempt());
+
+        breaker.onSuccess();
+        assertEquals(CLOSED, breaker.getState());
+        assertTrue(breaker.allowAttempt());
+    }
+
+    @Test
+    public void shouldDoubleTheBackoffUpToTheMaximum() {
+        breaker.onFailure();
+        breaker.onFailure();
+        long[] expected = {200, 350, 350};
+        for (long backoff : expected) {
+            now.set(breaker.getRetryAt());
+            assertTrue(breaker.allowAttempt());
+            breaker.onFailure();
+            assertEquals(OPEN, breaker.getState());
+            assertEquals(now.get() + backoff, breaker.getRetryAt());
+        }
+    }
+
+    @Test
+    public void shouldJitterTheBackoff() {
+        ConnectionCircuitBreaker jittered = new ConnectionCircuitBreaker("test", 1, 1000, 1000, 0.2, now::get);
+        jittered.onFailure();
+        long backoff = jittered.getRetryAt() - now.get();
+        assertTrue(backoff >= 800 && backoff <= 1200, "backoff " + backoff);
+    }
+}
@@ -0,0 +1,142 @@
+package com.instana.dc.rdb;
+
+import com.instana.dc.QueryResultBatch;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class MultiMetricQueryTest {
+
+    private static Connection mockTablespaces() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        given(connection.createStatement()).willReturn(statement);
+        given(statement.executeQuery(anyString())).willAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            given(rs.next()).willReturn(true, true, false);
+            given(rs.getObject(1)).willReturn(100L, 200L);
+            given(rs.getObject(2)).willReturn("DATA ", "TEMP");
+            given(rs.getObject(3)).willReturn(40L, 50L);
+            return rs;
+        });
+        return connection;
+    }
+
+    @Test
+    public void shouldFanOutColumnsToMetrics() throws SQLException {
+        MultiMetricQuery query = new MultiMetricQuery("query")
+                .withKey(2, "tablespace_name")
+                .withMetric("size", 1)
+                .withMetric("used", 3);
+
+        assertTrue(query.execute(mockTablespaces()));
+
+        QueryResultBatch size = query.getResults("size");
+        assertEquals(2, size.size());
+        assertEquals(100L, size.getLong(0));
+        assertEquals("DATA", size.getKey(0));
+        assertEquals("tablespace_name", size.getAttributeName(0));
+        assertEquals("DATA", size.getAttribute(0, 0));
+        assertEquals(50L, query.getResults("used").getLong(1));
+    }
+
+    @Test
+    public void shouldApplyFetchSize() throws SQLException {
+        Connection connection = mockTablespaces();
+        MultiMetricQuery query = new MultiMetricQuery("query").withKey(2, "tablespace_name").withMetric("size", 1);
+
+        query.execute(connection);
+        verify(connection.createStatement(), never()).setFetchSize(anyInt());
+
+        query.withFetchSize(500).execute(connection);
+        verify(connection.createStatement()).setFetchSize(500);
+    }
+
+    @Test
+    public void shouldJoinCompositeKeys() throws SQLException {
+        MultiMetricQuery query = new MultiMetricQuery("query")
+                .withKey(3, "db.name")
+                .withKey(2, "tablespace_name")
+                .withMetric("size", 1);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        given(connection.createStatement()).willReturn(statement);
+        given(statement.executeQuery(anyString())).willReturn(rs);
+        given(rs.next()).willReturn(true, false);
+        given(rs.getObject(1)).willReturn(100L);
+        given(rs.getObject(2)).willReturn("orders ");
+        given(rs.getObject(3)).willReturn("sales");
+
+        query.execute(connection);
+
+        QueryResultBatch result = query.getResults("size");
+        assertEquals("sales.orders", result.getKey(0));
+        assertEquals("sales", result.getAttribute(0, 0));
+        assertEquals("orders", result.getAttribute(0, 1));
+    }
+
+    @Test
+    public void shouldReuseTheBatchAcrossExecutions() throws SQLException {
+        MultiMetricQuery query = new MultiMetricQuery("query")
+                .withKey(2, "tablespace_name")
+                .withMetric("size", 1);
+        Connection connection = mockTablespaces();
+
+        query.execute(connection);
+        QueryResultBatch first = query.getResults("size");
+        query.execute(connection);
+        query.execute(connection);
+
+        assertSame(first, query.getResults("size"));
+        assertEquals(2, query.getResults("size").size());
+    }
+
+    @Test
+    public void shouldServeSingleRowValues() throws SQLException {
+        MultiMetricQuery query = new MultiMetricQuery("query")
+                .withMetric("count", 1)
+                .withMetric("rate", 1);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        given(connection.createStatement()).willReturn(statement);
+        given(statement.executeQuery(anyString())).willReturn(rs);
+        given(rs.next()).willReturn(true, false);
+        given(rs.getObject(1)).willReturn(100L);
+
+        query.execute(connection);
+
+        assertEquals(100L, query.getValue("count"));
+        assertEquals(100L, query.getValue("rate"));
+        assertNull(query.getResults("count").getKey(0));
+    }
+
+    @Test
+    public void shouldClearResultsWhenQueryFails() throws SQLException {
+        MultiMetricQuery query = new MultiMetricQuery("query").withMetric("count", 1);
+        query.execute(mockTablespaces());
+
+        Connection broken = mock(Connection.class);
+        given(broken.createStatement()).willThrow(new SQLException("down"));
+
+        assertFalse(query.execute(broken));
+        assertEquals(0, query.getResults("count").size());
+        assertNull(query.getValue("count"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.instana.dc.rdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+public class NameDictionaryTest {
+    private final Connection connection = mock(Connection.class);
+    private final List<Collection<String>> batches = new ArrayList<>();
+
+    private Map<String, String> load(Connection connection, Collection<String> ids) {
+        batches.add(new ArrayList<>(ids));
+        Map<String, String> names = new HashMap<>();
+        for (String id : ids) {
+            if (!id.equals("404")) {
+                names.put(id, "obj" + id);
+            }
+        }
+        return names;
+    }
+
+    @Test
+    public void shouldLoadMissesInOneBatchAndServeHitsFromCache() {
+        NameDictionary dictionary = new NameDictionary(this::load, 60000, 100);
+
+        Map<String, String> first = dictionary.resolve(connection, Arrays.asList("1", "2", "404", "1"));
+        Map<String, String> second = dictionary.resolve(connection, Arrays.asList("1", "404", "3"));
+
+        assertEquals("obj1", first.get("1"));
+        assertNull(first.get("404"));
+        assertEquals("obj3", second.get("3"));
+        assertEquals(2, batches.size());
+        assertEquals(Arrays.asList("1", "2", "404"), batches.get(0));
+        assertEquals(Arrays.asList("3"), batches.get(1));
+    }
+
+    @Test
+    public void shouldReloadExpiredEntries() {
+        NameDictionary dictionary = new NameDictionary(this::load, -1, 100);
+
+        dictionary.resolve(connection, Arrays.asList("1"));
+        dictionary.resolve(connection, Arrays.asList("1"));
+
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        NameDictionary dictionary = new NameDictionary(this::load, 60000, 2);
+
+        dictionary.resolve(connection, Arrays.asList("1", "2"));
+        dictionary.resolve(connection, Arrays.asList("1"));
+        dictionary.resolve(connection, Arrays.asList("3"));
+        dictionary.resolve(connection, Arrays.asList("1", "2"));
+
+        assertEquals(2, dictionary.size());
+        assertEquals(Arrays.asList("2"), batches.get(batches.size() - 1));
+    }
+
+    @Test
+    public void shouldServeStaleNamesWhenLoadFails() {
+        boolean[] fail = {false};
+        NameDictionary dictionary = new NameDictionary((c, ids) -> {
+            if (fail[0]) {
+                throw new SQLException("down");
+            }
+            return load(c, ids);
+        }, -1, 100);
+        dictionary.resolve(connection, Arrays.asList("1"));
+        fail[0] = true;
+
+        assertEquals("obj1", dictionary.resolve(connection, Arrays.asList("1")).get("1"));
+    }
+}
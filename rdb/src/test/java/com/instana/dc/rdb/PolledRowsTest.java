@@ -0,0 +1,65 @@
+package com.instana.dc.rdb;
+
+import com.instana.dc.QueryResultBatch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PolledRowsTest {
+
+    private static boolean read(PolledRows rows, Object... keysAndValues) {
+        QueryResultBatch batch = rows.next();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            batch.add((String) keysAndValues[i], ((Number) keysAndValues[i + 1]).longValue());
+        }
+        return true;
+    }
+
+    @Test
+    public void shouldCountEachRowOnceWhenItAppearsAndWhenItIsGone() {
+        PolledRows rows = new PolledRows((batch, row) -> batch.getKey(row) + "/" + batch.getLong(row), true);
+        rows.update(read(rows, "a", 1, "b", 2));
+        assertEquals(2, rows.getAdded().cardinality());
+        assertTrue(rows.getRemoved().isEmpty());
+
+        //b ran again with another elapsed time, a is still the same execution
+        rows.update(read(rows, "a", 1, "b", 3));
+        assertEquals(1, rows.getAdded().cardinality());
+        assertEquals(3, rows.getCurrent().getLong(rows.getAdded().nextSetBit(0)));
+        assertEquals(1, rows.getRemoved().cardinality());
+        assertEquals(2, rows.getPrevious().getLong(rows.getRemoved().nextSetBit(0)));
+
+        rows.update(read(rows));
+        assertTrue(rows.getAdded().isEmpty());
+        assertEquals(2, rows.getRemoved().cardinality());
+    }
+
+    @Test
+    public void shouldKeepThePreviousReadWhenTheReadFails() {
+        PolledRows rows = new PolledRows((batch, row) -> batch.getKey(row), true);
+        rows.update(read(rows, "lock1", 5));
+        rows.next().add("lock2", 1);
+        rows.update(false);
+        assertTrue(rows.getAdded().isEmpty());
+        assertTrue(rows.getRemoved().isEmpty());
+        assertEquals(1, rows.getCurrent().size());
+
+        rows.update(read(rows, "lock1", 9));
+        assertTrue(rows.getAdded().isEmpty());
+        assertTrue(rows.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void shouldReuseTheTwoBatches() {
+        PolledRows rows = new PolledRows((batch, row) -> batch.getKey(row), true);
+        QueryResultBatch first = rows.next();
+        rows.update(read(rows, "a", 1));
+        QueryResultBatch second = rows.next();
+        rows.update(read(rows, "b", 1));
+        assertSame(first, rows.next());
+        rows.update(read(rows, "c", 1));
+        assertSame(second, rows.next());
+    }
+}
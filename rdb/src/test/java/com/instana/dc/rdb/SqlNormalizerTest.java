@@ -0,0 +1,28 @@
+package com.instana.dc.rdb;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SqlNormalizerTest {
+
+    @Test
+    public void shouldStripLiterals() {
+        assertEquals("select * from orders where id = ? and name = ? and price > ?",
+                SqlNormalizer.normalize("SELECT *\n  FROM Orders WHERE id = 42 AND name = 'O''Brien' and price > -1.5e-3;"));
+        assertEquals("update t set c = ?, d = ? where x = ? and y = ?",
+                SqlNormalizer.normalize("update t set c = N'x',d = 0x1F where x = :1 and y = $2"));
+        assertEquals("select t1.c2 from \"MyTable\" t1 where a::int = ?",
+                SqlNormalizer.normalize("select t1.c2 from \"MyTable\" t1 where a::int = :name"));
+    }
+
+    @Test
+    public void shouldCollapseInListsAndDropComments() {
+        String shape = "select a from t where b in (?) and c not in (?)";
+        assertEquals(shape, SqlNormalizer.normalize("select a from t where b in (1, 2, 3) and c not in ('x')"));
+        assertEquals(shape, SqlNormalizer.normalize("select a /* hint */ from t -- comment\n where b IN ( 7 ) and c not in ('x','y')"));
+        assertEquals("select a from t where b in (select c from u where d = ?) and f(?, ?) > ?",
+                SqlNormalizer.normalize("select a from t where b in (select c from u where d = 1) and f(1,2) > 0"));
+        assertEquals("insert into t values (?, ?)", SqlNormalizer.normalize("INSERT INTO t VALUES (1, 'a')"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.instana.dc.rdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SqlShapeAggregatorTest {
+
+    @Test
+    public void shouldAggregatePerShape() {
+        SqlShapeAggregator aggregator = new SqlShapeAggregator(10);
+        for (int i = 0; i < 50; i++) {
+            aggregator.add("SELECT * FROM orders WHERE id = " + i, 0.1);
+        }
+        aggregator.add("select count(*) from users", 2);
+
+        List<SqlShapeAggregator.Shape> shapes = aggregator.drain(20);
+        assertEquals(2, shapes.size());
+        assertEquals("select * from orders where id = ?", shapes.get(0).getText());
+        assertEquals(50, shapes.get(0).getCount());
+        assertEquals(5, shapes.get(0).getElapsed(), 1e-9);
+        assertEquals(SqlTextDictionary.fingerprint(shapes.get(0).getText()), shapes.get(0).getFingerprint());
+        assertEquals(0, aggregator.size());
+    }
+
+    @Test
+    public void shouldKeepHeavyHittersWithinCapacity() {
+        SqlShapeAggregator aggregator = new SqlShapeAggregator(3);
+        for (int i = 0; i < 100; i++) {
+            aggregator.add("select a from heavy where id = " + i, 1);
+            aggregator.add("select b from noise" + i, 0.01);
+        }
+        assertEquals(3, aggregator.size());
+
+        List<SqlShapeAggregator.Shape> shapes = aggregator.drain(1);
+        assertEquals(1, shapes.size());
+        assertEquals("select a from heavy where id = ?", shapes.get(0).getText());
+        assertEquals(100, shapes.get(0).getCount());
+        assertEquals(0, shapes.get(0).getError(), 1e-9);
+    }
+}
@@ -0,0 +1,71 @@
+package com.instana.dc.rdb;
+
+import com.instana.dc.SimpleQueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqlTextDictionaryTest {
+    private long now = 0;
+
+    private static SimpleQueryResult statement(String sqlId, String text) {
+        return new SimpleQueryResult(1.5).setKey(sqlId)
+                .setAttribute("sql_id", sqlId)
+                .setAttribute("sql_text", text);
+    }
+
+    @Test
+    public void shouldFingerprintStably() {
+        String fingerprint = SqlTextDictionary.fingerprint("SELECT *  FROM\n t");
+        assertEquals(16, fingerprint.length());
+        assertEquals(fingerprint, SqlTextDictionary.fingerprint("SELECT * FROM t"));
+        assertNotEquals(fingerprint, SqlTextDictionary.fingerprint("SELECT * FROM u"));
+    }
+
+    @Test
+    public void shouldSendEachTextOnceUntilRefresh() {
+        SqlTextDictionary dictionary = new SqlTextDictionary(1000, 10, 100, () -> now);
+
+        List<SimpleQueryResult> results = dictionary.encode(Arrays.asList(
+                statement("1", "SELECT * FROM orders"), statement("2", "SELECT * FROM orders")));
+        String fingerprint = SqlTextDictionary.fingerprint("SELECT * FROM orders");
+        assertNull(results.get(0).getAttribute("sql_text"));
+        assertEquals(fingerprint, results.get(1).getAttribute("sql_fingerprint"));
+
+        List<SimpleQueryResult> texts = dictionary.drainTexts();
+        assertEquals(1, texts.size());
+        assertEquals(fingerprint, texts.get(0).getKey());
+        assertEquals("SELECT * F", texts.get(0).getAttribute("sql_text"));
+
+        now = 500;
+        dictionary.encode(Arrays.asList(statement("1", "SELECT * FROM orders")));
+        assertTrue(dictionary.drainTexts().isEmpty());
+
+        now = 1000;
+        dictionary.encode(Arrays.asList(statement("1", "SELECT * FROM orders")));
+        assertEquals(1, dictionary.drainTexts().size());
+    }
+
+    @Test
+    public void shouldEvictAndKeepTextsWhenDisabled() {
+        SqlTextDictionary dictionary = new SqlTextDictionary(1000, 0, 1, () -> now);
+        dictionary.encode(Arrays.asList(statement("1", "SELECT 1"), statement("2", "SELECT 2")));
+        assertEquals(1, dictionary.size());
+        assertEquals(2, dictionary.drainTexts().size());
+        dictionary.encode(Arrays.asList(statement("1", "SELECT 1")));
+        assertEquals(1, dictionary.drainTexts().size());
+
+        SqlTextDictionary disabled = new SqlTextDictionary(0, 6, 100, () -> now);
+        List<SimpleQueryResult> results = disabled.encode(Arrays.asList(statement("1", " SELECT 1 ")));
+        assertEquals("SELECT", results.get(0).getAttribute("sql_text"));
+        assertNull(results.get(0).getAttribute("sql_fingerprint"));
+        assertTrue(disabled.drainTexts().isEmpty());
+        assertNull(disabled.encode(null));
+    }
+}
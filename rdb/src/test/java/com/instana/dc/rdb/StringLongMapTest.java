@@ -0,0 +1,42 @@
+package com.instana.dc.rdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StringLongMapTest {
+
+    @Test
+    public void shouldGrowAndKeepAllEntries() {
+        StringLongMap map = new StringLongMap(4);
+        for (int i = 0; i < 10000; i++) {
+            map.put("table" + i, i);
+        }
+        map.put("table42", 4242);
+
+        assertEquals(10000, map.size());
+        assertEquals(4242, map.get("table42", -1));
+        assertEquals(9999, map.get("table9999", -1));
+        assertEquals(-1, map.get("missing", -1));
+        Map<String, Long> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertEquals(10000, copy.size());
+    }
+
+    @Test
+    public void shouldClearForReuse() {
+        StringLongMap map = new StringLongMap(16);
+        map.put("a", 1);
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey("a"));
+        map.put("b", 2);
+        assertTrue(map.containsKey("b"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.instana.dc.rdb.impl.informix;
+
+import com.instana.dc.SimpleQueryResult;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.instana.dc.rdb.DbDcUtil.DB_CLUSTER_ROLE_KEY;
+import static com.instana.dc.rdb.DbDcUtil.DB_SESSION_COUNT_NAME;
+import static com.instana.dc.rdb.DbDcUtil.DB_STATUS_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class InformixClusterTest {
+
+    private static ResultSet nodes(String[]... rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] index = {-1};
+        given(rs.next()).willAnswer(invocation -> ++index[0] < rows.length);
+        for (int column = 1; column <= 4; column++) {
+            int c = column;
+            given(rs.getString(column)).willAnswer(invocation -> rows[index[0]][c - 1]);
+        }
+        return rs;
+    }
+
+    private static Connection connection(Statement statement) throws SQLException {
+        Connection connection = mock(Connection.class);
+        given(connection.createStatement()).willReturn(statement);
+        return connection;
+    }
+
+    private static BasicDataSource dataSource(Statement statement) throws SQLException {
+        BasicDataSource dataSource = mock(BasicDataSource.class);
+        Connection connection = connection(statement);
+        given(dataSource.getConnection()).willReturn(connection);
+        return dataSource;
+    }
+
+    private static Statement nodeMetrics(long sessions) throws SQLException {
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        given(statement.executeQuery(InformixUtil.CLUSTER_NODE_METRICS_SQL)).willReturn(rs);
+        given(rs.next()).willReturn(true, false);
+        given(rs.getObject(1)).willReturn(sessions);
+        return statement;
+    }
+
+    @Test
+    public void shouldDiscoverNodesAndCollectPerNode() throws SQLException {
+        Statement localStatement = nodeMetrics(3);
+        ResultSet first = nodes(new String[]{"ol_primary", "Primary", "host1", "9088"},
+                new String[]{"ol_rss", "RSS", "host2", "9089"});
+        ResultSet second = nodes(new String[]{"ol_primary", "Primary", "host1", "9088"});
+        given(localStatement.executeQuery(InformixUtil.CLUSTER_NODES_SQL)).willReturn(first, second);
+        Connection local = connection(localStatement);
+        Map<String, BasicDataSource> created = new HashMap<>();
+        InformixCluster cluster = new InformixCluster("ol_primary", node -> {
+            try {
+                BasicDataSource dataSource = dataSource(nodeMetrics(7));
+                created.put(node.getName() + "@" + node.getHost() + ":" + node.getPort(), dataSource);
+                return dataSource;
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }, 0);
+
+        Map<String, List<SimpleQueryResult>> results = cluster.collect(local);
+
+        assertEquals(2, cluster.getNodeCount());
+        assertEquals(1, created.size());
+        List<SimpleQueryResult> sessions = results.get(DB_SESSION_COUNT_NAME);
+        assertEquals(2, sessions.size());
+        assertEquals("primary", sessions.get(0).getAttribute(DB_CLUSTER_ROLE_KEY));
+        assertEquals(7L, sessions.get(1).getValue());
+        assertEquals("rss", sessions.get(1).getAttribute(DB_CLUSTER_ROLE_KEY));
+        assertEquals(1, results.get(DB_STATUS_NAME).get(1).getValue());
+
+        cluster.collect(local);
+
+        assertEquals(1, cluster.getNodeCount());
+        verify(created.get("ol_rss@host2:9089")).close();
+    }
+
+    @Test
+    public void shouldReportNodeDownWhenConnectionFails() throws SQLException {
+        Statement localStatement = nodeMetrics(3);
+        ResultSet rows = nodes(new String[]{"ol_hdr", "HDR Secondary", "host3", "9090"});
+        given(localStatement.executeQuery(InformixUtil.CLUSTER_NODES_SQL)).willReturn(rows);
+        BasicDataSource broken = mock(BasicDataSource.class);
+        given(broken.getConnection()).willThrow(new SQLException("down"));
+        InformixCluster cluster = new InformixCluster("ol_primary", node -> broken, 60000);
+
+        List<SimpleQueryResult> status = cluster.collect(connection(localStatement)).get(DB_STATUS_NAME);
+
+        assertEquals(1, status.get(0).getValue());
+        assertEquals(0, status.get(1).getValue());
+        assertEquals("hdr secondary", status.get(1).getAttribute(DB_CLUSTER_ROLE_KEY));
+    }
+
+    @Test
+    public void shouldReportEveryKnownNodeDownWhenUnreachable() throws SQLException {
+        Statement localStatement = nodeMetrics(3);
+        ResultSet rows = nodes(new String[]{"ol_primary", "Primary", "host1", "9088"},
+                new String[]{"ol_rss", "RSS", "host2", "9089"});
+        given(localStatement.executeQuery(InformixUtil.CLUSTER_NODES_SQL)).willReturn(rows);
+        InformixCluster cluster = new InformixCluster("ol_primary", node -> mock(BasicDataSource.class), 60000);
+
+        List<SimpleQueryResult> beforeDiscovery = cluster.getDownStatus();
+        assertEquals(1, beforeDiscovery.size());
+        assertEquals("ol_primary", beforeDiscovery.get(0).getKey());
+        assertEquals(0, beforeDiscovery.get(0).getValue());
+
+        cluster.discover(connection(localStatement));
+        List<SimpleQueryResult> status = cluster.getDownStatus();
+        assertEquals(2, status.size());
+        assertEquals(0, status.get(0).getValue());
+        assertEquals(0, status.get(1).getValue());
+        assertEquals("rss", status.get(1).getAttribute(DB_CLUSTER_ROLE_KEY));
+    }
+}
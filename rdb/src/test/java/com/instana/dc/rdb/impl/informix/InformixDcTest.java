@@ -1,8 +1,10 @@
 package com.instana.dc.rdb.impl.informix;
 
+import com.instana.dc.rdb.impl.informix.metric.collection.MetricCollectionMode;
 import com.instana.dc.rdb.impl.informix.metric.collection.strategy.MetricsCollector;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.metrics.DoubleGaugeBuilder;
+import io.opentelemetry.api.metrics.DoubleHistogramBuilder;
 import io.opentelemetry.api.metrics.DoubleUpDownCounterBuilder;
 import io.opentelemetry.api.metrics.LongGaugeBuilder;
 import io.opentelemetry.api.metrics.LongUpDownCounterBuilder;
@@ -19,6 +21,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +29,7 @@ import static com.instana.dc.CalculationMode.RATE;
 import static com.instana.dc.rdb.DbDcUtil.DB_PASSWORD;
 import static com.instana.dc.rdb.DbDcUtil.DB_TRANSACTION_RATE_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
@@ -83,7 +87,24 @@ public class InformixDcTest {
     @Test
     public void shouldCollectData() {
         informixDc.collectData();
-        verify(metricsCollector, times(32)).collectMetrics(anyString());
+        verify(metricsCollector, times(16)).collectMetrics(anyString(), any());
+    }
+
+    @Test
+    public void shouldBuildDatabasePredicateForServerScope() {
+        assertEquals(Arrays.asList("instana", "test"), InformixDc.parseDatabaseNames("instana, test"));
+        assertEquals(Arrays.asList("instana", "test"), InformixDc.parseDatabaseNames(Arrays.asList(" instana", "test")));
+        assertEquals("dbsname IN ('instana', 'o''hara')",
+                InformixDc.databasePredicate("dbsname", Arrays.asList("instana", "o'hara")));
+        assertEquals("1 = 1", InformixDc.databasePredicate("dbsname", InformixDc.parseDatabaseNames(null)));
+    }
+
+    @Test
+    public void shouldParseCollectionMode() {
+        assertEquals(MetricCollectionMode.SQL, InformixDc.parseCollectionMode("sql"));
+        assertEquals(MetricCollectionMode.CMD, InformixDc.parseCollectionMode(" CMD "));
+        assertNull(InformixDc.parseCollectionMode("auto"));
+        assertNull(InformixDc.parseCollectionMode("unknown"));
     }
 
     private static MeterBuilder buildMeterBuilder() {
@@ -100,9 +121,18 @@ public class InformixDcTest {
         given(meter.upDownCounterBuilder(any())).willReturn(longUpDownCounterBuilder);
         DoubleGaugeBuilder doubleGaugeBuilder = buildDoubleGaugeBuilder();
         given(meter.gaugeBuilder(any())).willReturn(doubleGaugeBuilder);
+        DoubleHistogramBuilder doubleHistogramBuilder = buildDoubleHistogramBuilder();
+        given(meter.histogramBuilder(any())).willReturn(doubleHistogramBuilder);
         return meter;
     }
 
+    private static DoubleHistogramBuilder buildDoubleHistogramBuilder() {
+        DoubleHistogramBuilder doubleHistogramBuilder = mock(DoubleHistogramBuilder.class);
+        given(doubleHistogramBuilder.setUnit(any())).willReturn(doubleHistogramBuilder);
+        given(doubleHistogramBuilder.setDescription(any())).willReturn(doubleHistogramBuilder);
+        return doubleHistogramBuilder;
+    }
+
     private static DoubleGaugeBuilder buildDoubleGaugeBuilder() {
         DoubleGaugeBuilder doubleGaugeBuilder = mock(DoubleGaugeBuilder.class);
         given(doubleGaugeBuilder.setUnit(any())).willReturn(doubleGaugeBuilder);
@@ -1,18 +1,32 @@
 package com.instana.dc.rdb.impl.informix;
 
+import com.instana.dc.rdb.impl.informix.onstat.OnstatCommand;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedConstruction;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.instana.dc.rdb.DbDcUtil.DB_TRANSACTION_COUNT_NAME;
+import static com.instana.dc.rdb.DbDcUtil.DB_TRANSACTION_RATE_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class OnstatCommandExecutorTest {
 
+    private static final String TRANSACTIONS_OUTPUT = "\nIBM Informix Dynamic Server Version 14.10 -- On-Line -- Up 1 days\n\n"
+            + "Transactions\naddress  flags userthread locks\n4c5a8028 A---- 4c4f1028 0\n 3 active, 128 total\n\n";
+
     private static OnstatCommandExecutor onstatCommandExecutor;
 
     @BeforeAll
@@ -21,16 +35,66 @@ public class OnstatCommandExecutorTest {
     }
 
     @Test
-    public void shouldExecuteCommand() {
-        assertTrue(onstatCommandExecutor.executeCommand("script.sh").isPresent());
+    public void shouldRunEachCommandOncePerCycle() {
+        try (MockedConstruction<ProcessBuilder> processBuilder = mockOnstat(TRANSACTIONS_OUTPUT)) {
+            OnstatCommandExecutor.Cycle cycle = onstatCommandExecutor.newCycle();
+            assertEquals(Optional.of(3L), onstatCommandExecutor.collectMetric(cycle, OnstatCommand.TRANSACTIONS, DB_TRANSACTION_COUNT_NAME));
+            assertEquals(Optional.of(3L), onstatCommandExecutor.collectMetric(cycle, OnstatCommand.TRANSACTIONS, DB_TRANSACTION_RATE_NAME));
+            assertEquals(1, processBuilder.constructed().size());
+
+            //Another tier run, e.g. in parallel, does not reuse nor clear the outputs of the first one
+            OnstatCommandExecutor.Cycle other = onstatCommandExecutor.newCycle();
+            onstatCommandExecutor.collectMetric(other, OnstatCommand.TRANSACTIONS, DB_TRANSACTION_COUNT_NAME);
+            assertEquals(2, processBuilder.constructed().size());
+            onstatCommandExecutor.collectMetric(cycle, OnstatCommand.TRANSACTIONS, DB_TRANSACTION_COUNT_NAME);
+            assertEquals(2, processBuilder.constructed().size());
+        }
     }
 
     @Test
     public void shouldExecuteCommandWithException() {
         try (MockedConstruction<ProcessBuilder> processBuilder = Mockito.mockConstruction(ProcessBuilder.class,
-                (mock, context) -> given(mock.start()).willThrow(new IOException()))) {
-            assertFalse(onstatCommandExecutor.executeCommand("script.sh").isPresent());
+                (mock, context) -> {
+                    given(mock.environment()).willReturn(new HashMap<>());
+                    given(mock.start()).willThrow(new IOException());
+                })) {
+            assertFalse(onstatCommandExecutor.collectMetric(onstatCommandExecutor.newCycle(), OnstatCommand.LOCKS, "metric").isPresent());
         }
+    }
+
+    @Test
+    public void shouldKillCommandNotFinishingInTime() throws InterruptedException {
+        Process process = mock(Process.class);
+        AtomicBoolean killed = new AtomicBoolean();
+        //Output which only ends when the process is killed, the timeout must not depend on reaching EOF
+        given(process.getInputStream()).willReturn(new InputStream() {
+            @Override
+            public int read() {
+                return killed.get() ? -1 : '\n';
+            }
+        });
+        given(process.destroyForcibly()).will(invocation -> {
+            killed.set(true);
+            return process;
+        });
+        given(process.waitFor(Mockito.anyLong(), Mockito.any())).willReturn(false);
+        try (MockedConstruction<ProcessBuilder> processBuilder = Mockito.mockConstruction(ProcessBuilder.class,
+                (mock, context) -> {
+                    given(mock.environment()).willReturn(new HashMap<>());
+                    given(mock.start()).willReturn(process);
+                })) {
+            assertFalse(onstatCommandExecutor.executeCommand(OnstatCommand.LOCKS).isPresent());
+            verify(process).destroyForcibly();
+        }
+    }
 
+    private static MockedConstruction<ProcessBuilder> mockOnstat(String output) {
+        return Mockito.mockConstruction(ProcessBuilder.class, (mock, context) -> {
+            Process process = mock(Process.class);
+            given(process.getInputStream()).willReturn(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)));
+            given(process.waitFor(Mockito.anyLong(), Mockito.any())).willReturn(true);
+            given(mock.environment()).willReturn(new HashMap<>());
+            given(mock.start()).willReturn(process);
+        });
     }
 }
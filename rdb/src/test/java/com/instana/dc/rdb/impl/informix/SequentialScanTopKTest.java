@@ -0,0 +1,101 @@
+package com.instana.dc.rdb.impl.informix;
+
+import com.instana.dc.SimpleQueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.instana.dc.rdb.DbDcUtil.DB_NAME;
+import static com.instana.dc.rdb.DbDcUtil.DB_SEQ_SCAN_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class SequentialScanTopKTest {
+
+    private static Connection mockCounters(String[] databases, String[] tables, long... scans) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        given(connection.createStatement()).willReturn(statement);
+        given(statement.executeQuery(anyString())).willReturn(rs);
+        Boolean[] next = new Boolean[tables.length];
+        Long[] values = new Long[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            next[i] = i < tables.length - 1;
+            values[i] = scans[i];
+        }
+        given(rs.next()).willReturn(true, next);
+        given(rs.getObject(1)).willReturn(values[0], (Object[]) Arrays.copyOfRange(values, 1, values.length));
+        given(rs.getString(2)).willReturn(tables[0], Arrays.copyOfRange(tables, 1, tables.length));
+        if (databases != null) {
+            given(rs.getString(3)).willReturn(databases[0], Arrays.copyOfRange(databases, 1, databases.length));
+        }
+        return connection;
+    }
+
+    @Test
+    public void shouldExportTopKDeltasAndOther() throws SQLException {
+        SequentialScanTopK topK = new SequentialScanTopK(2, false);
+        String[] tables = {"a", "b", "c", "d"};
+
+        assertTrue(topK.collect(mockCounters(null, tables, 10, 10, 10, 10), "query"));
+        assertTrue(topK.getTopScans().isEmpty());
+        assertEquals(4L, topK.getTableCounts().get(0).getValue().longValue());
+
+        topK.collect(mockCounters(null, tables, 15, 110, 13, 10), "query");
+
+        List<SimpleQueryResult> scans = topK.getTopScans();
+        assertEquals(3, scans.size());
+        assertEquals("b", scans.get(0).getKey());
+        assertEquals(100L, scans.get(0).getValue());
+        assertEquals("a", scans.get(1).getAttribute(DB_SEQ_SCAN_KEY));
+        assertEquals(SequentialScanTopK.OTHER, scans.get(2).getKey());
+        assertEquals(3L, scans.get(2).getValue());
+    }
+
+    @Test
+    public void shouldTreatResetCounterAsNewScans() throws SQLException {
+        SequentialScanTopK topK = new SequentialScanTopK(5, false);
+        topK.collect(mockCounters(null, new String[]{"a"}, 100), "query");
+        topK.collect(mockCounters(null, new String[]{"a"}, 7), "query");
+
+        assertEquals(7L, topK.getTopScans().get(0).getValue());
+    }
+
+    @Test
+    public void shouldCountTablesPerDatabaseInServerScope() throws SQLException {
+        SequentialScanTopK topK = new SequentialScanTopK(5, true);
+        String[] databases = {"sales", "sales", "hr"};
+        String[] tables = {"orders", "items", "orders"};
+        topK.collect(mockCounters(databases, tables, 1, 1, 1), "query");
+        topK.collect(mockCounters(databases, tables, 1, 1, 5), "query");
+
+        SimpleQueryResult top = topK.getTopScans().get(0);
+        assertEquals("hr.orders", top.getKey());
+        assertEquals("hr", top.getAttribute(DB_NAME));
+        assertEquals("orders", top.getAttribute(DB_SEQ_SCAN_KEY));
+        assertEquals(2, topK.getTableCounts().size());
+    }
+
+    @Test
+    public void shouldKeepPreviousCountersWhenQueryFails() throws SQLException {
+        SequentialScanTopK topK = new SequentialScanTopK(5, false);
+        topK.collect(mockCounters(null, new String[]{"a"}, 10), "query");
+        Connection broken = mock(Connection.class);
+        given(broken.createStatement()).willThrow(new SQLException("down"));
+
+        assertFalse(topK.collect(broken, "query"));
+        assertTrue(topK.getTopScans().isEmpty());
+        topK.collect(mockCounters(null, new String[]{"a"}, 12), "query");
+        assertEquals(2L, topK.getTopScans().get(0).getValue());
+    }
+}
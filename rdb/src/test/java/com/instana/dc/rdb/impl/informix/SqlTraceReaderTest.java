@@ -0,0 +1,96 @@
+package com.instana.dc.rdb.impl.informix;
+
+import com.instana.dc.SimpleQueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.instana.dc.rdb.DbDcUtil.DB_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class SqlTraceReaderTest {
+    private static final long NOW = System.currentTimeMillis() / 1000;
+
+    private static ResultSet rows(Object[]... rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] index = {-1};
+        given(rs.next()).willAnswer(invocation -> ++index[0] < rows.length);
+        given(rs.getObject(1)).willAnswer(invocation -> rows[index[0]][0]);
+        given(rs.getLong(2)).willAnswer(invocation -> rows[index[0]][1]);
+        given(rs.getString(3)).willAnswer(invocation -> rows[index[0]][2]);
+        given(rs.getLong(4)).willAnswer(invocation -> rows[index[0]][3]);
+        given(rs.getString(5)).willAnswer(invocation -> rows[index[0]][4]);
+        return rs;
+    }
+
+    private static ResultSet watermark(long finishTime, long sqlId) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        given(rs.next()).willReturn(true);
+        given(rs.getLong(1)).willReturn(finishTime);
+        given(rs.getLong(2)).willReturn(sqlId);
+        return rs;
+    }
+
+    @Test
+    public void shouldReturnEachStatementOnceInBoundedReads() throws SQLException {
+        SqlTraceReader reader = new SqlTraceReader("SQL_DATABASE = 'db'", false, 2);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        given(connection.createStatement()).willReturn(statement);
+        ResultSet watermarkRs = watermark(NOW - 10, 1);
+        given(statement.executeQuery(anyString())).willReturn(watermarkRs);
+
+        assertTrue(reader.collect(connection).isEmpty(), "the first read only sets the watermark");
+        assertEquals(NOW - 10, reader.getWatermark());
+        assertEquals(1, reader.getWatermarkId());
+
+        ResultSet incrementalRs = rows(
+                new Object[]{0.9, 2L, "select 2", NOW - 10, "db"},
+                new Object[]{0.7, 3L, "select 3", NOW - 5, "db"});
+        given(statement.executeQuery(anyString())).willReturn(incrementalRs);
+        List<SimpleQueryResult> executions = reader.collect(connection);
+
+        verify(statement).executeQuery(contains("(SQL_FINISHTIME > " + (NOW - 10) + " OR (SQL_FINISHTIME = " + (NOW - 10) + " AND SQL_ID > 1))"));
+        verify(statement).executeQuery(contains("ORDER BY SQL_FINISHTIME, SQL_ID LIMIT 2;"));
+        assertEquals(2, executions.size());
+        assertEquals(0.9, executions.get(0).getValue());
+        assertNull(executions.get(0).getAttribute(DB_NAME));
+        assertEquals(NOW - 5, reader.getWatermark());
+        assertEquals(3, reader.getWatermarkId());
+    }
+
+    @Test
+    public void shouldTagDatabaseInServerScope() throws SQLException {
+        SqlTraceReader reader = new SqlTraceReader("1 = 1", true, 1000);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        given(connection.createStatement()).willReturn(statement);
+        ResultSet watermarkRs = watermark(NOW, 1);
+        ResultSet incrementalRs = rows(new Object[]{0.5, 2L, "select 1", NOW, "sales "});
+        given(statement.executeQuery(anyString())).willReturn(watermarkRs, incrementalRs);
+
+        reader.collect(connection);
+        assertEquals("sales", reader.collect(connection).get(0).getAttribute(DB_NAME));
+    }
+
+    @Test
+    public void shouldReturnNullWhenTraceCannotBeRead() throws SQLException {
+        SqlTraceReader reader = new SqlTraceReader("1 = 1", false, 1000);
+        Connection connection = mock(Connection.class);
+        given(connection.createStatement()).willThrow(new SQLException("down"));
+
+        assertNull(reader.collect(connection));
+        assertTrue(reader.getWatermark() < 0);
+    }
+}
@@ -0,0 +1,78 @@
+package com.instana.dc.rdb.impl.informix;
+
+import com.instana.dc.RawMetric;
+import com.instana.dc.rdb.DbRawMetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static com.instana.dc.rdb.DbDcUtil.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SysProfileSnapshotTest {
+
+    @Test
+    public void shouldDeriveMetricsFromOneQuery() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        given(connection.createStatement()).willReturn(statement);
+        ResultSet rs = mock(ResultSet.class);
+        given(statement.executeQuery(InformixUtil.SYSPROFILE_SQL)).willReturn(rs);
+        given(rs.next()).willReturn(true, true, true, true, true, true, true, true, true, false);
+        given(rs.getString(1)).willReturn("ovlock", "ovtrans", "ovuser", "dskreads", "dskwrites",
+                "bufreads", "bufwrites", "lockwts", "lruwrites  ");
+        given(rs.getLong(2)).willReturn(1L, 2L, 3L, 25L, 10L, 100L, 40L, 7L, 8L);
+
+        Map<String, Number> metrics = new SysProfileSnapshot().collect(connection);
+
+        verify(statement, times(1)).executeQuery(InformixUtil.SYSPROFILE_SQL);
+        assertEquals(1L, metrics.get(DB_LOCK_TABLE_OVERFLOW_NAME));
+        assertEquals(2L, metrics.get(DB_TRANSACTION_OVERFLOW_NAME));
+        assertEquals(3L, metrics.get(DB_USER_OVERFLOW_NAME));
+        assertEquals(25L, metrics.get(DB_DISK_READ_COUNT_NAME));
+        assertEquals(10L, metrics.get(DB_DISK_WRITE_COUNT_NAME));
+        assertEquals(7L, metrics.get(DB_LOCK_WAITS_NAME));
+        assertEquals(8L, metrics.get(DB_LRU_WRITES_NAME));
+        assertEquals(100L, metrics.get(DB_BUFFER_READ_COUNT_NAME));
+        assertEquals(40L, metrics.get(DB_BUFFER_WRITE_COUNT_NAME));
+
+        Map<String, RawMetric> registry = new DbRawMetricRegistry().getMap();
+        for (Map.Entry<String, Number> metric : metrics.entrySet()) {
+            registry.get(metric.getKey()).setValue(metric.getValue());
+        }
+        assertEquals(75.0, ratio(registry, DB_CACHE_READ_RATIO_NAME), 0.001);
+        assertEquals(75.0, ratio(registry, DB_CACHE_WRITE_RATIO_NAME), 0.001);
+    }
+
+    @Test
+    public void shouldDeriveNoRatioWithoutBufferOperations() {
+        Map<String, RawMetric> registry = new DbRawMetricRegistry().getMap();
+        registry.get(DB_DISK_READ_COUNT_NAME).setValue(0L);
+        registry.get(DB_BUFFER_READ_COUNT_NAME).setValue(0L);
+
+        assertNull(registry.get(DB_CACHE_READ_RATIO_NAME).getExpression().evaluate(registry, RawMetric.DEFAULT));
+        assertFalse(registry.get(DB_BUFFER_READ_COUNT_NAME).isExported());
+    }
+
+    private static double ratio(Map<String, RawMetric> registry, String metricName) {
+        return registry.get(metricName).getExpression().evaluate(registry, RawMetric.DEFAULT);
+    }
+
+    @Test
+    public void shouldReturnEmptyWhenQueryFails() throws SQLException {
+        Connection connection = mock(Connection.class);
+        given(connection.createStatement()).willThrow(new SQLException("down"));
+        assertTrue(new SysProfileSnapshot().collect(connection).isEmpty());
+    }
+}
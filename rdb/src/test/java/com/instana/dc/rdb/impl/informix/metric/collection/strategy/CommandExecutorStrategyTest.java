@@ -6,6 +6,7 @@ import com.instana.dc.rdb.impl.informix.metric.collection.MetricDataConfig;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.sql.Connection;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -27,14 +28,14 @@ public class CommandExecutorStrategyTest {
     @Test
     public void shouldCollectNumberMetrics() {
         MetricDataConfig metricDataConfig = new MetricDataConfig("query", MetricCollectionMode.CMD, Number.class);
-        given(onstatCommandExecutor.executeCommand(any())).willReturn(Optional.of(new String[]{"1"}));
-        assertEquals((Number) 1, commandExecutorStrategy.collectMetrics(metricDataConfig));
+        given(onstatCommandExecutor.collectMetric(any(), any(), any())).willReturn(Optional.of(1L));
+        assertEquals((Number) 1L, commandExecutorStrategy.collectMetrics(metricDataConfig, mock(OnstatCommandExecutor.Cycle.class)));
     }
 
     @Test
     public void shouldCollectDoubleMetrics() {
         MetricDataConfig metricDataConfig = new MetricDataConfig("query", MetricCollectionMode.CMD, Double.class);
-        given(onstatCommandExecutor.executeCommand(any())).willReturn(Optional.of(new String[]{"1"}));
-        assertEquals((Number) 1.0, commandExecutorStrategy.collectMetrics(metricDataConfig));
+        given(onstatCommandExecutor.collectMetric(any(), any(), any())).willReturn(Optional.of(1L));
+        assertEquals((Number) 1.0, commandExecutorStrategy.collectMetrics(metricDataConfig, (Connection) null));
     }
 }
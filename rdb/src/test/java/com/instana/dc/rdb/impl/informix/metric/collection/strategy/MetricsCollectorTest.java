@@ -5,53 +5,129 @@ import com.instana.dc.rdb.impl.informix.OnstatCommandExecutor;
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricCollectionMode;
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricDataConfig;
 import com.instana.dc.rdb.impl.informix.metric.collection.MetricsDataConfigRegister;
-import org.apache.commons.dbcp2.BasicDataSource;
+import com.instana.dc.rdb.impl.informix.onstat.OnstatCommand;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
-import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class MetricsCollectorTest {
 
-    private static BasicDataSource dataSource;
     private static OnstatCommandExecutor onstatCommandExecutor;
-    private static MetricsCollector metricsCollector;
 
     @BeforeAll
     public static void init() {
-        dataSource = mock(BasicDataSource.class);
         onstatCommandExecutor = mock(OnstatCommandExecutor.class);
-        metricsCollector = new MetricsCollector(dataSource, onstatCommandExecutor);
+    }
+
+    private static MetricsCollector buildCollector(String metricName, MetricDataConfig metricDataConfig) {
+        return new MetricsCollector(onstatCommandExecutor,
+                new MetricsDataConfigRegister(Collections.singletonMap(metricName, metricDataConfig)));
     }
 
     @Test
-    public void shouldCollectMetricsWithSQL() throws SQLException {
-        MetricsDataConfigRegister.subscribeMetricDataConfig("metric",
+    public void shouldCollectMetricsWithSQL() {
+        MetricsCollector metricsCollector = buildCollector("metric",
                 new MetricDataConfig("query", MetricCollectionMode.SQL, Number.class));
         Connection connection = mock(Connection.class);
-        given(dataSource.getConnection()).willReturn(connection);
         try (MockedStatic<DbDcUtil> utilities = mockStatic(DbDcUtil.class)) {
             utilities.when(() -> DbDcUtil.getSimpleMetricWithSql(connection, "query"))
                     .thenReturn(1);
-            assertEquals((Number) 1, metricsCollector.collectMetrics("metric"));
+            assertEquals((Number) 1, metricsCollector.collectMetrics("metric", connection));
         }
 
     }
 
     @Test
     public void shouldCollectMetricsWithCMD() {
-        MetricsDataConfigRegister.subscribeMetricDataConfig("metric",
+        MetricsCollector metricsCollector = buildCollector("metric",
+                new MetricDataConfig("query", MetricCollectionMode.CMD, Number.class));
+        given(onstatCommandExecutor.collectMetric(any(), any(), any())).willReturn(Optional.of(1L));
+        assertEquals((Number) 1L, metricsCollector.collectMetrics("metric", null));
+    }
+
+    @Test
+    public void shouldFallBackToSqlWhenCommandFails() {
+        MetricsCollector metricsCollector = new MetricsCollector(onstatCommandExecutor,
+                new MetricsDataConfigRegister(Collections.singletonMap("metric",
+                        new MetricDataConfig("metric", OnstatCommand.LOCKS, "query", Number.class))),
+                MetricCollectionMode.CMD);
+        Connection connection = mock(Connection.class);
+        given(onstatCommandExecutor.collectMetric(any(), any(), any())).willReturn(Optional.empty());
+        try (MockedStatic<DbDcUtil> utilities = mockStatic(DbDcUtil.class)) {
+            utilities.when(() -> DbDcUtil.getSimpleMetricWithSql(connection, "query"))
+                    .thenReturn(5);
+            assertEquals((Number) 5, metricsCollector.collectMetrics("metric", connection));
+        }
+        assertEquals(MetricCollectionMode.SQL, metricsCollector.getServedMode("metric"));
+    }
+
+    @Test
+    public void shouldPreferSqlWhenOnstatIsNotAvailable() {
+        OnstatCommandExecutor remoteExecutor = mock(OnstatCommandExecutor.class);
+        given(remoteExecutor.isAvailable()).willReturn(false);
+        MetricsCollector metricsCollector = new MetricsCollector(remoteExecutor,
+                new MetricsDataConfigRegister(Collections.singletonMap("metric",
+                        new MetricDataConfig("metric", OnstatCommand.MEMORY_SEGMENTS, "query", Double.class))));
+        Connection connection = mock(Connection.class);
+        try (MockedStatic<DbDcUtil> utilities = mockStatic(DbDcUtil.class)) {
+            utilities.when(() -> DbDcUtil.getSimpleMetricWithSql(connection, "query"))
+                    .thenReturn(new BigDecimal("42.5"));
+            assertEquals(42.5, (Double) metricsCollector.collectMetrics("metric", connection));
+        }
+        verify(remoteExecutor, never()).collectMetric(any(), any(), any());
+        assertEquals(MetricCollectionMode.SQL, metricsCollector.getServedMode("metric"));
+    }
+
+    @Test
+    public void shouldShareTheCycleOfATierRunOnly() {
+        OnstatCommandExecutor executor = mock(OnstatCommandExecutor.class);
+        OnstatCommandExecutor.Cycle fast = mock(OnstatCommandExecutor.Cycle.class);
+        OnstatCommandExecutor.Cycle slow = mock(OnstatCommandExecutor.Cycle.class);
+        given(executor.newCycle()).willReturn(fast, slow);
+        given(executor.collectMetric(any(), any(), any())).willReturn(Optional.of(1L));
+        MetricsCollector metricsCollector = new MetricsCollector(executor,
+                new MetricsDataConfigRegister(Collections.singletonMap("metric",
+                        new MetricDataConfig("metric", OnstatCommand.LOCKS, "query", Number.class))),
+                MetricCollectionMode.CMD);
+        Connection fastRun = mock(Connection.class);
+        Connection slowRun = mock(Connection.class);
+
+        metricsCollector.startCycle(fastRun);
+        metricsCollector.startCycle(slowRun);
+        metricsCollector.collectMetrics("metric", fastRun);
+        metricsCollector.collectMetrics("metric", slowRun);
+        metricsCollector.collectMetrics("metric", fastRun);
+        metricsCollector.endCycle(fastRun);
+        metricsCollector.endCycle(slowRun);
+
+        verify(executor, times(2)).collectMetric(eq(fast), any(), any());
+        verify(executor, times(1)).collectMetric(eq(slow), any(), any());
+    }
+
+    @Test
+    public void shouldKeepRegistersOfInstancesApart() {
+        MetricsCollector first = buildCollector("metric",
+                new MetricDataConfig("query", MetricCollectionMode.CMD, Number.class));
+        MetricsCollector second = buildCollector("other",
                 new MetricDataConfig("query", MetricCollectionMode.CMD, Number.class));
-        given(onstatCommandExecutor.executeCommand(any())).willReturn(Optional.of(new String[]{"1"}));
-        assertEquals((Number) 1, metricsCollector.collectMetrics("metric"));
+        given(onstatCommandExecutor.collectMetric(any(), any(), any())).willReturn(Optional.of(1L));
+        assertEquals((Number) 1L, first.collectMetrics("metric", null));
+        assertNull(second.collectMetrics("metric", null));
     }
 }
@@ -0,0 +1,67 @@
+package com.instana.dc.rdb.impl.informix.onstat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OnstatOutputParsersTest {
+
+    private static Map<String, Number> parse(OnstatOutputParser parser, String output) {
+        for (String line : output.split("\n", -1)) {
+            parser.accept(line);
+        }
+        return parser.result();
+    }
+
+    @Test
+    public void shouldReadSecondToLastLine() {
+        String output = "\nbanner\n\nLocks\naddress wtlist owner\n a b c\n 42 active, 2000 total\n";
+        Map<String, Number> result = parse(OnstatOutputParsers.secondToLastLine(0, 1, "locks"), output);
+        assertEquals(42L, result.get("locks"));
+    }
+
+    @Test
+    public void shouldRespectLineLimit() {
+        String output = "1\n2\n3\n4 5 6 7\n5\n6\n";
+        Map<String, Number> result = parse(OnstatOutputParsers.secondToLastLine(5, 4, "count", "rate"), output);
+        assertEquals(7L, result.get("count"));
+        assertEquals(7L, result.get("rate"));
+    }
+
+    @Test
+    public void shouldSkipNonNumericField() {
+        Map<String, Number> result = parse(OnstatOutputParsers.secondToLastLine(0, 1, "locks"), "header\nnot numeric\n");
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void shouldCountSessionFields() {
+        assertEquals(3L, parse(OnstatOutputParsers.sessionCount("ses"), "\na b c d e\n").get("ses"));
+        assertEquals(0L, parse(OnstatOutputParsers.sessionCount("ses"), "\na\n").get("ses"));
+    }
+
+    @Test
+    public void shouldCountLinesOfSecondBlock() {
+        String output = "\nbanner\n\n\nRunning threads\ntid tcb name\n1 a b\n2 c d\n3 e f\n\nfooter\n";
+        assertEquals(3L, parse(OnstatOutputParsers.taskWaits("wai"), output).get("wai"));
+    }
+
+    @Test
+    public void shouldReadUsedAndTotalMemoryBlocks() {
+        String output = "\nbanner\nid key addr size ovhd class blkused blkfree\nTotal: - - - - - 300 100\ntotal - - - - - 1 1\n";
+        Map<String, Number> result = parse(OnstatOutputParsers.memorySegments("used", "size"), output);
+        assertEquals(300.0, result.get("used").doubleValue(), 0.001);
+        assertEquals(400.0, result.get("size").doubleValue(), 0.001);
+    }
+
+    @Test
+    public void shouldSumIoDigits() {
+        String output = "\nbanner\ngfd pathname bytes read page reads\n3 /dev/a 1.5k 20 2 30\n4 /dev/b 100 5 1 4\n";
+        Map<String, Number> result = parse(OnstatOutputParsers.io("read", "write"), output);
+        assertEquals(25L, result.get("read"));
+        assertEquals(34L, result.get("write"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.instana.dc.rdb.impl.informix.onstat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.instana.dc.rdb.DbDcUtil.DB_SESSION_COUNT_NAME;
+import static com.instana.dc.rdb.DbDcUtil.DB_TRANSACTION_COUNT_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class OnstatStreamSupervisorTest {
+
+    private static final String BANNER = "IBM Informix Dynamic Server Version 14.10 -- On-Line -- Up 1 days";
+
+    private static void feed(OnstatStreamSupervisor.RepetitionSplitter splitter, String output) {
+        for (String line : output.split("\n", -1)) {
+            splitter.accept(line);
+        }
+    }
+
+    @Test
+    public void shouldPublishCompleteRepetitions() {
+        AtomicReference<OnstatStreamSupervisor.Snapshot> snapshot = new AtomicReference<>();
+        OnstatStreamSupervisor.RepetitionSplitter splitter =
+                new OnstatStreamSupervisor.RepetitionSplitter(OnstatCommand.TRANSACTIONS, snapshot);
+
+        feed(splitter, "\n" + BANNER + "\n\nTransactions\n 3 active, 128 total\n");
+        assertNull(snapshot.get());
+
+        feed(splitter, "\n" + BANNER + "\n\nTransactions\n 5 active, 128 total\n");
+        assertEquals(3L, snapshot.get().values.get(DB_TRANSACTION_COUNT_NAME));
+
+        feed(splitter, "\n" + BANNER + "\n");
+        assertEquals(5L, snapshot.get().values.get(DB_TRANSACTION_COUNT_NAME));
+    }
+
+    @Test
+    public void shouldKeepLineNumbersOfSingleRun() {
+        AtomicReference<OnstatStreamSupervisor.Snapshot> snapshot = new AtomicReference<>();
+        OnstatStreamSupervisor.RepetitionSplitter splitter =
+                new OnstatStreamSupervisor.RepetitionSplitter(OnstatCommand.SESSIONS, snapshot);
+
+        feed(splitter, "\n" + BANNER + "\n\nsession id\n\n" + BANNER + "\n");
+        assertEquals(10L, snapshot.get().values.get(DB_SESSION_COUNT_NAME));
+    }
+}
@@ -0,0 +1,136 @@
+package com.instana.dc.rdb.impl.oceanbase;
+
+import com.instana.dc.SimpleQueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class SqlAuditReaderTest {
+    private final List<String> queries = new ArrayList<>();
+
+    private static ResultSet rows(Object[]... rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] index = {-1};
+        given(rs.next()).willAnswer(invocation -> ++index[0] < rows.length);
+        given(rs.getObject(1)).willAnswer(invocation -> rows[index[0]][0]);
+        for (int column = 1; column <= 6; column++) {
+            int c = column;
+            given(rs.getString(column)).willAnswer(invocation -> String.valueOf(rows[index[0]][c - 1]));
+            given(rs.getInt(column)).willAnswer(invocation -> ((Number) rows[index[0]][c - 1]).intValue());
+            given(rs.getLong(column)).willAnswer(invocation -> ((Number) rows[index[0]][c - 1]).longValue());
+        }
+        return rs;
+    }
+
+    /**
+     * @param latest : results of the watermark queries in order
+     * @param audit  : results of the incremental queries in order
+     */
+    private Connection connection(List<ResultSet> latest, List<ResultSet> audit) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        given(connection.createStatement()).willReturn(statement);
+        given(statement.executeQuery(anyString())).willAnswer(invocation -> {
+            String query = invocation.getArgument(0);
+            queries.add(query);
+            return query.contains("MAX(REQUEST_ID)") ? latest.remove(0) : audit.remove(0);
+        });
+        return connection;
+    }
+
+    @Test
+    public void shouldBoundTheIncrementalReadAndResumeFromTheLastRowRead() throws SQLException {
+        List<ResultSet> latest = new ArrayList<>();
+        latest.add(rows(new Object[]{"10.0.0.1", 2882, 100L}));
+        List<ResultSet> audit = new ArrayList<>();
+        audit.add(rows(new Object[]{5.0, "A", "select 1", "10.0.0.1", 2882, 101L},
+                new Object[]{7.0, "B", "select 2", "10.0.0.1", 2882, 102L}));
+        Connection connection = connection(latest, audit);
+        SqlAuditReader reader = new SqlAuditReader(null, 4);
+
+        assertTrue(reader.collect(connection).isEmpty(), "the first read only sets the watermarks");
+        List<SimpleQueryResult> executions = reader.collect(connection);
+
+        assertTrue(queries.get(1).contains("REQUEST_ID > 100) ORDER BY REQUEST_ID LIMIT 2)"), queries.get(1));
+        assertEquals(102, reader.getWatermark("10.0.0.1", 2882));
+        assertEquals(2, executions.size());
+        assertEquals(7.0, executions.get(1).getValue());
+        assertTrue(reader.buildIncrementalQuery().contains("REQUEST_ID > 102"));
+    }
+
+    @Test
+    public void shouldResetTheWatermarkWhenRequestIdsRestart() throws SQLException {
+        List<ResultSet> latest = new ArrayList<>();
+        latest.add(rows(new Object[]{"10.0.0.1", 2882, 5000L}));
+        //Restarted: the highest REQUEST_ID is now below the watermark
+        latest.add(rows(new Object[]{"10.0.0.1", 2882, 30L}));
+        List<ResultSet> audit = new ArrayList<>();
+        for (int poll = 0; poll < Oceanbase4Util.SQL_AUDIT_RESTART_CHECK_POLLS; poll++) {
+            audit.add(rows());
+        }
+        audit.add(rows(new Object[]{5.0, "A", "select 1", "10.0.0.1", 2882, 12L},
+                new Object[]{7.0, "B", "select 2", "10.0.0.1", 2882, 30L}));
+        Connection connection = connection(latest, audit);
+        SqlAuditReader reader = new SqlAuditReader(null, 1000);
+
+        reader.collect(connection);
+        for (int poll = 1; poll < Oceanbase4Util.SQL_AUDIT_RESTART_CHECK_POLLS; poll++) {
+            reader.collect(connection);
+            assertEquals(5000, reader.getWatermark("10.0.0.1", 2882), "an idle poll does not scan for restarts");
+        }
+        reader.collect(connection);
+        assertEquals(0, reader.getWatermark("10.0.0.1", 2882));
+        assertEquals(2, queries.stream().filter(query -> query.contains("MAX(REQUEST_ID)")).count());
+
+        List<SimpleQueryResult> executions = reader.collect(connection);
+        assertTrue(queries.get(queries.size() - 1).contains("REQUEST_ID > 0"), queries.get(queries.size() - 1));
+        assertEquals(30, reader.getWatermark("10.0.0.1", 2882));
+        assertEquals(2, executions.size());
+    }
+
+    @Test
+    public void shouldKeepTheWatermarkOfAnIdleServer() throws SQLException {
+        List<ResultSet> latest = new ArrayList<>();
+        latest.add(rows(new Object[]{"10.0.0.1", 2882, 100L}));
+        latest.add(rows(new Object[]{"10.0.0.1", 2882, 100L}));
+        List<ResultSet> audit = new ArrayList<>();
+        for (int poll = 0; poll < Oceanbase4Util.SQL_AUDIT_RESTART_CHECK_POLLS; poll++) {
+            audit.add(rows());
+        }
+        Connection connection = connection(latest, audit);
+        SqlAuditReader reader = new SqlAuditReader(null, 1000);
+
+        for (int poll = 0; poll <= Oceanbase4Util.SQL_AUDIT_RESTART_CHECK_POLLS; poll++) {
+            reader.collect(connection);
+        }
+
+        assertEquals(100, reader.getWatermark("10.0.0.1", 2882));
+    }
+
+    @Test
+    public void shouldShareTheRowsBetweenServers() throws SQLException {
+        List<ResultSet> latest = new ArrayList<>();
+        latest.add(rows(new Object[]{"10.0.0.1", 2882, 100L}, new Object[]{"10.0.0.2", 2882, 7L}));
+        Connection connection = connection(latest, new ArrayList<>());
+        SqlAuditReader reader = new SqlAuditReader(null, 300);
+        reader.collect(connection);
+
+        String query = reader.buildIncrementalQuery();
+
+        assertEquals(3, query.split("UNION ALL").length, query);
+        assertTrue(query.contains("SVR_IP = '10.0.0.1' AND SVR_PORT = 2882 AND REQUEST_ID > 100) ORDER BY REQUEST_ID LIMIT 100)"), query);
+        assertTrue(query.contains("SVR_IP = '10.0.0.2' AND SVR_PORT = 2882 AND REQUEST_ID > 7) ORDER BY REQUEST_ID LIMIT 100)"), query);
+        assertTrue(query.contains("(SVR_IP, SVR_PORT) NOT IN ("), query);
+    }
+}